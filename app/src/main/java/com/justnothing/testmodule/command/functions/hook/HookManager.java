@@ -6,7 +6,9 @@ import com.justnothing.testmodule.command.CommandExecutor;
 import com.justnothing.testmodule.command.output.Colors;
 import com.justnothing.testmodule.command.output.SystemOutputRedirector;
 import com.justnothing.testmodule.command.utils.CommandExceptionHandler;
+import com.justnothing.engine.CompiledScript;
 import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.builtins.Builtins;
 import com.justnothing.engine.eval.EvalContext;
 import com.justnothing.engine.eval.Value;
 import com.justnothing.engine.eval.Value.NullValue;
@@ -46,6 +48,8 @@ public class HookManager {
     private static final ConcurrentHashMap<String, HookInfo> hooks = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, XC_MethodHook.Unhook> activeHooks = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, ScriptRunner> scriptRunners = new ConcurrentHashMap<>();
+    /** 各 Hook 各阶段编译好的脚本，key 为 "hookId#phase"。Hook 回调时只运行求值器。 */
+    private static final ConcurrentHashMap<String, CompiledScript> compiledScripts = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, ICommandOutputHandler> outputHandlers = new ConcurrentHashMap<>();
     private static final ConcurrentHashMap<String, ICommandOutputHandler> errorHandlers = new ConcurrentHashMap<>();
 
@@ -77,42 +81,58 @@ public class HookManager {
                                       String phase,
                                       AtomicBoolean returnValueSet
     ) {
-            context.addBuiltIn("getMethodHookParam", args -> {
+            hookBuiltins(methodHookParam, loadPackageParam, hookInfo, phase, returnValueSet).forEach(context::addBuiltIn);
+    }
+
+    /**
+     * 构造一次 Hook 回调专用的 builtin。
+     * <p>回调时作为执行帧私有的 builtin 传给 {@link ScriptRunner#executeIsolated}，
+     * 不写入共享注册表，同一 Hook 在多个线程上同时触发时各自看到自己的 MethodHookParam。</p>
+     */
+    private static Map<String, Builtins.BuiltinFunction> hookBuiltins(MethodHookParam methodHookParam,
+                                                                      LoadPackageParam loadPackageParam,
+                                                                      HookInfo hookInfo,
+                                                                      String phase,
+                                                                      AtomicBoolean returnValueSet
+    ) {
+            Map<String, Builtins.BuiltinFunction> builtins = new HashMap<>();
+
+            builtins.put("getMethodHookParam", args -> {
                 if (!args.isEmpty()) {
                     logger.warn("getMethodHookParam() 不接受任何参数，忽略参数");
                 }
                 return Value.of(methodHookParam);
             });
 
-            context.addBuiltIn("getPhase", args -> {
+            builtins.put("getPhase", args -> {
                 if (!args.isEmpty()) {
                     logger.warn("getPhase() 不接受任何参数，忽略参数");
                 }
                 return Value.of(phase);
             });
 
-            context.addBuiltIn("getHookId", args -> {
+            builtins.put("getHookId", args -> {
                 if (!args.isEmpty()) {
                     logger.warn("getHookId() 不接受任何参数，忽略参数");
                 }
                 return Value.of(hookInfo.getId());
             });
 
-            context.addBuiltIn("getLoadPackageParam", args -> {
+            builtins.put("getLoadPackageParam", args -> {
                 if (!args.isEmpty()) {
                     logger.warn("getLoadPackageParam() 不接受任何参数，忽略参数");
                 }
                 return Value.of(loadPackageParam);
             });
 
-            context.addBuiltIn("getHookInfo", args -> {
+            builtins.put("getHookInfo", args -> {
                 if (!args.isEmpty()) {
                     logger.warn("getHookInfo() 不接受任何参数，忽略参数");
                 }
                 return Value.of(hookInfo);
             });
 
-            context.addBuiltIn("setReturnValue", args -> {
+            builtins.put("setReturnValue", args -> {
                 if (args.isEmpty()) {
                     logger.warn("setReturnValue() 必须提供一个返回值");
                     return NullValue.INSTANCE;
@@ -125,7 +145,7 @@ public class HookManager {
                 }
                 return VoidValue.INSTANCE;
             });
-            context.addBuiltIn("setThrowable", args -> {
+            builtins.put("setThrowable", args -> {
                 if (args.isEmpty()) {
                     logger.warn("setThrowable() 必须提供一个异常");
                     return NullValue.INSTANCE;
@@ -136,12 +156,13 @@ public class HookManager {
                 return VoidValue.INSTANCE;
             });
 
-            context.addBuiltIn("getReturnValue", args -> {
+            builtins.put("getReturnValue", args -> {
                 if (!args.isEmpty()) {
                     logger.warn("getReturnValue() 不接受任何参数，忽略参数");
                 }
                 return Value.of(methodHookParam.getResult());
             });
+            return builtins;
     }
 
     public static void setLoadPackageParam(XC_LoadPackage.LoadPackageParam param) {
@@ -168,9 +189,11 @@ public class HookManager {
             logger.info("验证Hook代码: " + hookInfo.getId());
             context.print("验证Hook代码...", Colors.CYAN);
             validateHookCode(hookInfo, classLoader);
+            compileHookCode(hookInfo);
             context.println(" 验证成功!", Colors.LIGHT_GREEN);
             logger.info("Hook 代码验证成功: " + hookInfo.getId());
         } catch (Exception e) {
+            discardHookRuntime(hookInfo.getId());
             context.println(" 验证失败!", Colors.RED);
             context.print("Hook代码验证失败: ", Colors.RED);
             String errorMsg = Objects.requireNonNullElse(e.getMessage(), "没有详细信息");
@@ -212,6 +235,7 @@ public class HookManager {
             return AddHookResult.success(hookInfo.getId());
         } catch (Exception e) {
             hooks.remove(hookInfo.getId());
+            discardHookRuntime(hookInfo.getId());
             context.print("Hook添加失败: ", Colors.RED);
             String errorMsg = Objects.requireNonNullElse(e.getMessage(), "没有详细信息");
             context.println(errorMsg, Colors.YELLOW);
@@ -339,14 +363,7 @@ public class HookManager {
                         logger.info("准备执行before Hook，id = " + hookInfo.getId());
                         hookInfo.incrementCallCount();
 
-                        if (hookInfo.getBeforeCode() != null && !hookInfo.getBeforeCode().isEmpty()) {
-                            executeHookCode(hookInfo, hookInfo.getBeforeCode(), param, "before");
-                        } else if (hookInfo.getBeforeCodebase() != null && !hookInfo.getBeforeCodebase().isEmpty()) {
-                            String code = loadCodeFromCodebase(hookInfo.getBeforeCodebase());
-                            if (code != null) {
-                                executeHookCode(hookInfo, code, param, "before");
-                            }
-                        }
+                        executeHookCode(hookInfo, param, "before");
                     }
 
                     logger.info("准备执行replace Hook，id = " + hookInfo.getId());
@@ -354,14 +371,7 @@ public class HookManager {
 
                     AtomicBoolean returnValueSet = new AtomicBoolean(false);
 
-                    if (hookInfo.getReplaceCode() != null && !hookInfo.getReplaceCode().isEmpty()) {
-                        executeHookCodeWithReturnFlag(hookInfo, hookInfo.getReplaceCode(), param, "replace", returnValueSet);
-                    } else if (hookInfo.getReplaceCodebase() != null && !hookInfo.getReplaceCodebase().isEmpty()) {
-                        String code = loadCodeFromCodebase(hookInfo.getReplaceCodebase());
-                        if (code != null) {
-                            executeHookCodeWithReturnFlag(hookInfo, code, param, "replace", returnValueSet);
-                        }
-                    }
+                    executeHookCodeWithReturnFlag(hookInfo, param, "replace", returnValueSet);
                 }
 
                 @Override
@@ -377,14 +387,7 @@ public class HookManager {
                     logger.info("准备执行after Hook，id = " + hookInfo.getId());
                     hookInfo.incrementCallCount();
 
-                    if (hookInfo.getAfterCode() != null && !hookInfo.getAfterCode().isEmpty()) {
-                        executeHookCode(hookInfo, hookInfo.getAfterCode(), param, "after");
-                    } else if (hookInfo.getAfterCodebase() != null && !hookInfo.getAfterCodebase().isEmpty()) {
-                        String code = loadCodeFromCodebase(hookInfo.getAfterCodebase());
-                        if (code != null) {
-                            executeHookCode(hookInfo, code, param, "after");
-                        }
-                    }
+                    executeHookCode(hookInfo, param, "after");
                 }
             };
 
@@ -427,14 +430,7 @@ public class HookManager {
                     logger.info("准备执行before Hook，id = " + hookInfo.getId());
                     hookInfo.incrementCallCount();
 
-                    if (hookInfo.getBeforeCode() != null && !hookInfo.getBeforeCode().isEmpty()) {
-                        executeHookCode(hookInfo, hookInfo.getBeforeCode(), param, "before");
-                    } else if (hookInfo.getBeforeCodebase() != null && !hookInfo.getBeforeCodebase().isEmpty()) {
-                        String code = loadCodeFromCodebase(hookInfo.getBeforeCodebase());
-                        if (code != null) {
-                            executeHookCode(hookInfo, code, param, "before");
-                        }
-                    }
+                    executeHookCode(hookInfo, param, "before");
                 }
 
                 @Override
@@ -449,14 +445,7 @@ public class HookManager {
                     logger.info("准备执行after Hook，id = " + hookInfo.getId());
                     hookInfo.incrementCallCount();
 
-                    if (hookInfo.getAfterCode() != null && !hookInfo.getAfterCode().isEmpty()) {
-                        executeHookCode(hookInfo, hookInfo.getAfterCode(), param, "after");
-                    } else if (hookInfo.getAfterCodebase() != null && !hookInfo.getAfterCodebase().isEmpty()) {
-                        String code = loadCodeFromCodebase(hookInfo.getAfterCodebase());
-                        if (code != null) {
-                            executeHookCode(hookInfo, code, param, "after");
-                        }
-                    }
+                    executeHookCode(hookInfo, param, "after");
                 }
             };
 
@@ -489,13 +478,91 @@ public class HookManager {
         logger.info("Hook状态设置为活跃: " + hookInfo.getId());
     }
 
-    private static void executeHookCode(HookInfo hookInfo, String code,
-                                        MethodHookParam param, String phase) {
-        executeHookCodeWithReturnFlag(hookInfo, code, param, phase, null);
+    private static final String[] PHASES = {"before", "after", "replace"};
+
+    /**
+     * 在添加 Hook 时把各阶段代码编译好并缓存。
+     * <p>被 Hook 的方法（例如 Handler.dispatchMessage）可能每秒触发成千上万次，
+     * 每次都重新预处理、词法和语法分析代价很高，因此回调时只执行已编译的脚本。</p>
+     */
+    private static void compileHookCode(HookInfo hookInfo) {
+        for (String phase : PHASES) {
+            String code = loadPhaseCode(hookInfo, phase);
+            if (code != null) {
+                logger.info("编译" + phase + "代码");
+                compilePhase(hookInfo, phase, code);
+            }
+        }
+    }
+
+    private static CompiledScript compilePhase(HookInfo hookInfo, String phase, String code) {
+        ScriptRunner runner = getScriptRunner(hookInfo);
+        // 先以占位参数注册 Hook 专用 builtin，使解析期能识别这些函数名；
+        // 真正的回调参数在每次执行时作为帧私有 builtin 传入
+        addHookBuiltIn(runner.getEvalContext(), null, null, hookInfo, phase, null);
+        CompiledScript script = runner.compile(code, "<code in phase " + phase + " of " + hookInfo.getId() + ">");
+        compiledScripts.put(compiledKey(hookInfo.getId(), phase), script);
+        return script;
+    }
+
+    /** 获取某阶段的源码：内联代码优先，其次从 codebase 加载；都没有返回 null。 */
+    private static String loadPhaseCode(HookInfo hookInfo, String phase) {
+        String code;
+        String codebase;
+        switch (phase) {
+            case "before" -> {
+                code = hookInfo.getBeforeCode();
+                codebase = hookInfo.getBeforeCodebase();
+            }
+            case "after" -> {
+                code = hookInfo.getAfterCode();
+                codebase = hookInfo.getAfterCodebase();
+            }
+            case "replace" -> {
+                code = hookInfo.getReplaceCode();
+                codebase = hookInfo.getReplaceCodebase();
+            }
+            default -> throw new IllegalArgumentException("未知的Hook阶段: " + phase);
+        }
+        if (code != null && !code.isEmpty()) {
+            return code;
+        }
+        if (codebase != null && !codebase.isEmpty()) {
+            return loadCodeFromCodebase(codebase);
+        }
+        return null;
+    }
+
+    private static String compiledKey(String hookId, String phase) {
+        return hookId + "#" + phase;
+    }
+
+    private static ScriptRunner getScriptRunner(HookInfo hookInfo) {
+        return scriptRunners.computeIfAbsent(hookInfo.getId(), k -> {
+            ScriptRunner r = new ScriptRunner(hookInfo.getClassLoader());
+            r.setClassFinder(new AppClassFinder());
+            r.setScriptCache(DataBridge.getScriptCache());
+            for (String item : imports) r.addImport(item);
+            return r;
+        });
+    }
+
+    /** 丢弃 Hook 的运行器与编译缓存。 */
+    private static void discardHookRuntime(String hookId) {
+        for (String phase : PHASES) {
+            compiledScripts.remove(compiledKey(hookId, phase));
+        }
+        ScriptRunner runner = scriptRunners.remove(hookId);
+        if (runner != null) {
+            runner.clearVariables();
+        }
+    }
+
+    private static void executeHookCode(HookInfo hookInfo, MethodHookParam param, String phase) {
+        executeHookCodeWithReturnFlag(hookInfo, param, phase, null);
     }
 
-    private static void executeHookCodeWithReturnFlag(HookInfo hookInfo, String code,
-                                        MethodHookParam param, String phase,
+    private static void executeHookCodeWithReturnFlag(HookInfo hookInfo, MethodHookParam param, String phase,
                                         AtomicBoolean returnValueSet) {
         String prefix = "[" + hookInfo.getId() + "][" + phase + "] ";
         ICommandOutputHandler outputHandler = outputHandlers.computeIfAbsent(hookInfo.getId(), k -> new HookOutputHandler(logger, prefix));
@@ -503,20 +570,19 @@ public class HookManager {
         SystemOutputRedirector redirector = new SystemOutputRedirector(outputHandler, errorHandler);
         redirector.startRedirect();
         try {
-            ClassLoader cl = hookInfo.getClassLoader();
-            ScriptRunner runner = scriptRunners.computeIfAbsent(
-                hookInfo.getId(), k -> {
-                    ScriptRunner r = new ScriptRunner(cl);
-                    r.setClassFinder(new AppClassFinder());
-                    return r;
-                });
-            logger.debug("运行代码, hook id = " + hookInfo.getId() + "\n" + code);
-
-            EvalContext evalContext = runner.getEvalContext();
-            for (String item : imports) runner.addImport(item);
-            addHookBuiltIn(evalContext, param, getLoadPackageParam(), hookInfo, phase, returnValueSet);
-            runner.clearVariables();
-            runner.execute(code, "<code in phase " + phase + " of " + hookInfo.getId() + ">");
+            CompiledScript script = compiledScripts.get(compiledKey(hookInfo.getId(), phase));
+            if (script == null) {
+                // 添加时未能编译（例如 codebase 当时不可读），首次执行时再编译
+                String code = loadPhaseCode(hookInfo, phase);
+                if (code == null) return;
+                script = compilePhase(hookInfo, phase, code);
+            }
+            ScriptRunner runner = script.getOwner();
+            logger.debug("运行代码, hook id = " + hookInfo.getId() + ", phase = " + phase);
+
+            // 每次回调在独立的帧中执行，同一 Hook 可以在多个线程上并发运行
+            runner.executeIsolated(script, null,
+                    hookBuiltins(param, getLoadPackageParam(), hookInfo, phase, returnValueSet));
         } catch (Exception e) {
             logger.error("Hook代码执行失败: " + hookInfo.getId(), e);
         } finally {
@@ -632,11 +698,7 @@ public class HookManager {
 
         hookInfo.setActive(false);
         hooks.remove(hookId);
-
-        ScriptRunner runner = scriptRunners.remove(hookId);
-        if (runner != null) {
-            runner.clearVariables();
-        }
+        discardHookRuntime(hookId);
 
         logger.info("Hook移除成功: " + hookId);
     }
@@ -656,11 +718,7 @@ public class HookManager {
 
         hookInfo.setActive(false);
         hooks.remove(hookId);
-
-        ScriptRunner runner = scriptRunners.remove(hookId);
-        if (runner != null) {
-            runner.clearVariables();
-        }
+        discardHookRuntime(hookId);
 
         logger.info("Hook移除成功: " + hookId);
         ctx.print("Hook移除成功: ", Colors.LIGHT_GREEN);
@@ -7,18 +7,25 @@ import com.justnothing.testmodule.utils.logging.Logger;
 import com.justnothing.testmodule.utils.reflect.ClassResolver;
 import com.justnothing.testmodule.utils.reflect.ReflectionUtils;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import de.robv.android.xposed.XC_MethodHook;
 
 public abstract class AbstractInterceptTask implements InterceptTask {
 
+    private static final long DETACH_DRAIN_TIMEOUT_MS = 500;
+
     protected final Logger logger = Logger.getLoggerForName(getClass().getSimpleName());
 
     protected int id;
@@ -31,7 +38,10 @@ public abstract class AbstractInterceptTask implements InterceptTask {
     protected volatile boolean enabled = true;
     protected final AtomicBoolean running = new AtomicBoolean(false);
     protected final AtomicInteger hitCount = new AtomicInteger(0);
+    /** 本任务因事件缓冲区满而没能发布的事件数。 */
+    protected final AtomicLong droppedEvents = new AtomicLong(0);
     protected final List<XC_MethodHook.Unhook> activeHooks = new ArrayList<>();
+    protected final InterceptEventBus eventBus = InterceptEventBus.getInstance();
 
     protected Class<?> targetClass;
     protected List<Method> targetMethods = new ArrayList<>();
@@ -89,6 +99,7 @@ public abstract class AbstractInterceptTask implements InterceptTask {
 
     protected void installHooks() {
         onInstall();
+        attachEventListener();
         for (Method method : targetMethods) {
             XC_MethodHook hook = createMethodHook();
             XC_MethodHook.Unhook unhook = HookAPI.findAndHookMethod(
@@ -106,6 +117,107 @@ public abstract class AbstractInterceptTask implements InterceptTask {
 
     protected abstract XC_MethodHook createMethodHook();
 
+    /** 方法的可读签名，形如 {@code name(java.lang.String, int)}，用于区分重载。 */
+    protected static String describeMember(Member member) {
+        Class<?>[] params;
+        if (member instanceof Method) {
+            params = ((Method) member).getParameterTypes();
+        } else if (member instanceof Constructor) {
+            params = ((Constructor<?>) member).getParameterTypes();
+        } else {
+            return member.getName();
+        }
+        StringBuilder sb = new StringBuilder(member.getName()).append('(');
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(params[i].getTypeName());
+        }
+        return sb.append(')').toString();
+    }
+
+    /**
+     * 任务自己的事件消费者，在后台线程上处理本任务发布的事件；不需要时返回 null。
+     * 安装 Hook 时订阅，停止任务时取消订阅。
+     */
+    protected InterceptEventListener createEventListener() {
+        return null;
+    }
+
+    protected void attachEventListener() {
+        InterceptEventListener listener = createEventListener();
+        if (listener != null) {
+            eventBus.subscribe(id, listener);
+        }
+    }
+
+    /** 先把已发布的事件交给订阅者，再取消订阅，避免停止前最后几次调用的输出丢失。 */
+    protected void detachEventListener() {
+        if (!eventBus.awaitDrained(DETACH_DRAIN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            logger.warn("等待事件分发超时，剩余事件将被丢弃: " + id);
+        }
+        eventBus.unsubscribeAll(id);
+    }
+
+    /**
+     * 发布一条只带 {@code payload} 的事件：参数、返回值等由调用方在 Hook 线程上先转成文本放进 payload，
+     * 事件本身不再引用这些对象。丢弃的事件计入 {@link #getDroppedEvents()}。
+     */
+    protected void publishPayload(XC_MethodHook.MethodHookParam param, InterceptEvent.Kind kind, Object payload) {
+        if (!eventBus.publish(id, kind, param.method, null, null, null, null, 0, -1, payload)
+                && eventBus.hasListeners(id)) {
+            droppedEvents.incrementAndGet();
+        }
+    }
+
+    /** 是否有订阅者在消费本任务的事件，没有时不必准备 payload。 */
+    protected boolean hasEventListeners() {
+        return eventBus.hasListeners(id);
+    }
+
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    /** 对象的文本形式，数组展开；toString 抛异常时不影响被 Hook 的方法。 */
+    protected static String describe(Object value) {
+        return describe(value, 0);
+    }
+
+    private static String describe(Object value, int depth) {
+        if (value == null) return "null";
+        try {
+            if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                if (depth >= 2) {
+                    return value.getClass().getComponentType().getName() + "[" + length + "]";
+                }
+                StringBuilder sb = new StringBuilder("[");
+                for (int i = 0; i < length; i++) {
+                    if (i > 0) sb.append(", ");
+                    sb.append(describe(Array.get(value, i), depth + 1));
+                }
+                return sb.append(']').toString();
+            }
+            return String.valueOf(value);
+        } catch (Throwable t) {
+            return value.getClass().getName() + " (toString 失败: " + t.getClass().getSimpleName() + ")";
+        }
+    }
+
+    /** 发布进入事件。没有订阅者时几乎没有开销。 */
+    protected boolean publishEnter(XC_MethodHook.MethodHookParam param, int depth) {
+        return eventBus.publish(id, InterceptEvent.Kind.ENTER, param.method, param.thisObject,
+                param.args, null, null, 0, depth);
+    }
+
+    /** 发布返回/异常事件。 */
+    protected boolean publishExit(XC_MethodHook.MethodHookParam param, long durationNs, int depth) {
+        Throwable throwable = param.getThrowable();
+        return eventBus.publish(id, throwable != null ? InterceptEvent.Kind.THROW : InterceptEvent.Kind.RETURN,
+                param.method, param.thisObject, param.args,
+                throwable != null ? null : param.getResult(), throwable, durationNs, depth);
+    }
+
     protected HookContext createHookContext(XC_MethodHook.MethodHookParam param) {
         return new HookContext(this, param);
     }
@@ -132,6 +244,7 @@ public abstract class AbstractInterceptTask implements InterceptTask {
 
         onDeactivated();
         running.set(false);
+        detachEventListener();
         logger.info("停止任务: " + id);
 
         for (XC_MethodHook.Unhook unhook : activeHooks) {
@@ -5,7 +5,6 @@ import androidx.annotation.NonNull;
 import com.justnothing.testmodule.utils.reflect.SignatureUtils;
 
 import java.text.SimpleDateFormat;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.Locale;
 
@@ -28,38 +27,65 @@ public class BreakpointInterceptTask extends AbstractInterceptTask {
                 if (!enabled) return;
 
                 lastHitAt = System.currentTimeMillis();
-                hitCount.incrementAndGet();
+                int hit = hitCount.incrementAndGet();
+                if (hasEventListeners()) {
+                    publishPayload(param, InterceptEvent.Kind.ENTER, new Hit(hit, describeArgs(param.args)));
+                }
+            }
+        };
+    }
 
-                String timestamp = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault()).format(new Date());
-                String actualSignature = SignatureUtils.formatReadableParamList(param.method);
+    /** 命中时的快照：命中序号和参数文本都在 Hook 线程上取得。 */
+    private record Hit(int count, String[] args) {
+    }
+
+    private static String[] describeArgs(Object[] args) {
+        if (args == null) return new String[0];
+        String[] lines = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            lines[i] = "  [" + i + "] " + (arg != null ? arg.getClass().getName() : "null") + " = " + describe(arg);
+        }
+        return lines;
+    }
+
+    /** 命中信息在事件总线的后台线程上输出；调用栈由总线在命中时抓取。 */
+    @Override
+    protected InterceptEventListener createEventListener() {
+        return new InterceptEventListener() {
+            private final SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault());
+
+            @Override
+            public void onEvent(InterceptEvent event) {
+                Hit hit = (Hit) event.getPayload();
+                String timestamp = format.format(new Date(event.getWallTimeMillis()));
+                String actualSignature = SignatureUtils.formatReadableParamList(event.getMethod());
 
                 logger.info("=== 断点命中 ===");
                 logger.info("ID: " + id);
                 logger.info("时间: " + timestamp);
+                logger.info("线程: " + event.getThreadName());
                 logger.info("类: " + className);
                 logger.info("方法: " + methodName);
                 logger.info("签名: " + actualSignature);
-                logger.info("命中次数: " + hitCount.get());
+                logger.info("命中次数: " + hit.count());
 
-                if (param.args != null && param.args.length > 0) {
+                if (hit.args().length > 0) {
                     logger.info("参数:");
-                    for (int i = 0; i < param.args.length; i++) {
-                        Object arg = param.args[i];
-                        String argStr = arg != null ? arg.toString() : "null";
-                        if (arg != null && arg.getClass().isArray()) {
-                            argStr = Arrays.toString((Object[]) arg);
-                        }
-                        logger.info("  [" + i + "] " + (arg != null ? arg.getClass().getName() : "null") + " = " + argStr);
+                    for (String line : hit.args()) {
+                        logger.info(line);
                     }
                 }
 
                 logger.info("调用栈:");
-                StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-                for (int i = 0; i < stackTrace.length && i < 20; i++) {
-                    logger.info("  " + stackTrace[i]);
-                }
+                logger.info(event.getStackTraceString(20));
                 logger.info("================");
             }
+
+            @Override
+            public boolean needsStackTrace() {
+                return true;
+            }
         };
     }
 
@@ -77,6 +103,10 @@ public class BreakpointInterceptTask extends AbstractInterceptTask {
             sb.append("签名: ").append(signature).append("\n");
         }
         sb.append("命中次数: ").append(hitCount.get()).append("\n");
+        long dropped = droppedEvents.get();
+        if (dropped > 0) {
+            sb.append("未输出的命中: ").append(dropped).append(" 次（事件缓冲区已满）\n");
+        }
         sb.append("状态: ").append(running.get() ? (enabled ? "运行中" : "已暂停") : "已停止").append("\n");
         if (lastHitAt > 0) {
             sb.append("最后命中: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault())
@@ -0,0 +1,38 @@
+package com.justnothing.testmodule.command.functions.intercept;
+
+import java.util.Arrays;
+
+/**
+ * 每线程的 Hook 调用栈：记录各层的进入时间，用来在 after 回调里算耗时和嵌套深度。
+ * <p>
+ * 配合 {@link ThreadLocal} 使用，替代 {@code param.setObjectExtra} 存放装箱的开始时间；
+ * 只在所属线程上访问，不需要同步。
+ * </p>
+ */
+final class CallStack {
+
+    private long[] starts = new long[16];
+    private int depth;
+
+    /** 压入一层，返回这一层的深度（最外层为 0）。 */
+    int push(long startNs) {
+        if (depth == starts.length) {
+            starts = Arrays.copyOf(starts, depth * 2);
+        }
+        starts[depth] = startNs;
+        return depth++;
+    }
+
+    /** 弹出一层，返回它的进入时间。调用前应先检查 {@link #isEmpty()}。 */
+    long pop() {
+        return starts[--depth];
+    }
+
+    int depth() {
+        return depth;
+    }
+
+    boolean isEmpty() {
+        return depth == 0;
+    }
+}
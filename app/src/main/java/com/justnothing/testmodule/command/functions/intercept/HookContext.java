@@ -15,14 +15,13 @@ public class HookContext {
     private final XC_MethodHook.MethodHookParam methodParam;
     private final long timestamp;
     private final Thread thread;
-    private final int callDepth;
+    private int callDepth = -1;
 
     public HookContext(InterceptTask task, XC_MethodHook.MethodHookParam methodParam) {
         this.task = task;
         this.methodParam = methodParam;
         this.timestamp = System.currentTimeMillis();
         this.thread = Thread.currentThread();
-        this.callDepth = calculateCallDepth();
     }
 
     private int calculateCallDepth() {
@@ -64,7 +63,11 @@ public class HookContext {
         return thread;
     }
 
+    /** 首次调用时才遍历调用栈计算，必须在 Hook 线程上调用。 */
     public int getCallDepth() {
+        if (callDepth < 0) {
+            callDepth = calculateCallDepth();
+        }
         return callDepth;
     }
 
@@ -154,6 +157,6 @@ public class HookContext {
                 task.getId(),
                 task.getDisplayName(),
                 getFormattedTimestamp(),
-                callDepth);
+                getCallDepth());
     }
 }
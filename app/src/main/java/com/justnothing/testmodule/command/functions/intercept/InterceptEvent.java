@@ -0,0 +1,152 @@
+package com.justnothing.testmodule.command.functions.intercept;
+
+import androidx.annotation.NonNull;
+
+import java.lang.reflect.Member;
+import java.util.Locale;
+
+/**
+ * {@link InterceptEventBus} 中的一条事件。
+ * <p>
+ * 事件对象是总线预先分配、循环复用的槽位：只在 {@link InterceptEventListener#onEvent} 调用期间有效，
+ * 消费者需要保留的内容必须自行复制出去，不能持有事件对象本身。
+ * </p>
+ */
+public final class InterceptEvent {
+
+    public enum Kind {
+        /** 进入方法，带参数 */
+        ENTER,
+        /** 方法正常返回，带返回值和耗时 */
+        RETURN,
+        /** 方法抛出异常，带异常和耗时 */
+        THROW
+    }
+
+    int taskId;
+    Kind kind;
+    long nanoTime;
+    long wallTimeMillis;
+    long threadId;
+    String threadName;
+    Member method;
+    Object thisObject;
+    Object[] args;
+    Object result;
+    Throwable throwable;
+    long durationNs;
+    int depth;
+    StackTraceElement[] stackTrace;
+    Object payload;
+
+    InterceptEvent() {
+    }
+
+    void clear() {
+        threadName = null;
+        method = null;
+        thisObject = null;
+        args = null;
+        result = null;
+        throwable = null;
+        stackTrace = null;
+        payload = null;
+    }
+
+    public int getTaskId() {
+        return taskId;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getNanoTime() {
+        return nanoTime;
+    }
+
+    public long getWallTimeMillis() {
+        return wallTimeMillis;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public Member getMethod() {
+        return method;
+    }
+
+    public Object getThisObject() {
+        return thisObject;
+    }
+
+    public Object[] getArgs() {
+        return args;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public Throwable getThrowable() {
+        return throwable;
+    }
+
+    /** 进入事件为 0。 */
+    public long getDurationNs() {
+        return durationNs;
+    }
+
+    /** 发布方跟踪的调用深度，未跟踪时为 -1。 */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 发布时抓取的调用栈。只有订阅者 {@link InterceptEventListener#needsStackTrace()} 为 true 时才会抓取，
+     * 否则为 null。
+     */
+    public StackTraceElement[] getStackTrace() {
+        return stackTrace;
+    }
+
+    /**
+     * 发布方在 Hook 线程上准备好的数据（例如已格式化的参数），没有时为 null。
+     * 参数、返回值等对象在后台线程上读取时可能已被修改，需要当时状态的订阅者应使用它。
+     */
+    public Object getPayload() {
+        return payload;
+    }
+
+    /** 调用栈的文本形式，跳过本模块和 Xposed 的帧。 */
+    public String getStackTraceString(int maxLines) {
+        if (stackTrace == null) return "";
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+        for (StackTraceElement element : stackTrace) {
+            if (count >= maxLines) break;
+            String className = element.getClassName();
+            if (className.startsWith("com.justnothing.testmodule") ||
+                className.startsWith("de.robv.android.xposed") ||
+                className.startsWith("java.lang.Thread") ||
+                className.startsWith("dalvik.system.VMStack")) {
+                continue;
+            }
+            sb.append("  ").append(element).append("\n");
+            count++;
+        }
+        return sb.toString();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.getDefault(), "InterceptEvent[task=%d, %s, %s, thread=%d]",
+                taskId, kind, method != null ? method.getName() : "?", threadId);
+    }
+}
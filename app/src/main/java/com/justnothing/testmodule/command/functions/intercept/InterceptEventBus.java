@@ -0,0 +1,338 @@
+package com.justnothing.testmodule.command.functions.intercept;
+
+import com.justnothing.testmodule.utils.logging.Logger;
+
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 拦截任务共用的事件总线。
+ * <p>
+ * Hook 回调通过 {@link #publish} 把事件写进一个预先分配的有界环形缓冲区（多生产者、单消费者），
+ * 后台线程按批取出并分发给订阅者（{@link InterceptEventListener}），格式化、输出、写日志等
+ * 耗时操作都在后台线程完成。
+ * </p>
+ * <ul>
+ *     <li>没有任何订阅者时 {@link #publish} 只做一次数组查找就返回，不占用槽位；</li>
+ *     <li>只有订阅者声明 {@link InterceptEventListener#needsStackTrace()} 时才在 Hook 线程上抓取调用栈；</li>
+ *     <li>缓冲区满时丢弃新事件并计数（{@link #getDroppedCount()}），不会阻塞被 Hook 的线程。</li>
+ * </ul>
+ */
+public final class InterceptEventBus {
+
+    /** 订阅全部任务的事件。 */
+    public static final int ANY_TASK = -1;
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private static final InterceptEventBus instance = new InterceptEventBus(DEFAULT_CAPACITY, true);
+
+    private final Logger logger = Logger.getLoggerForName("InterceptEventBus");
+
+    private final int mask;
+    private final InterceptEvent[] slots;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long consumed;
+
+    private final Object routeLock = new Object();
+    private volatile Route[] routes = new Route[0];
+    private volatile Route anyRoute = Route.EMPTY;
+    private volatile int listenerCount;
+
+    private final boolean background;
+    private volatile Thread consumer;
+    private volatile boolean consumerParked;
+
+    // 把 nanoTime 换算成墙上时间的基准
+    private final long wallBaseMs = System.currentTimeMillis();
+    private final long nanoBase = System.nanoTime();
+
+    InterceptEventBus(int capacity, boolean background) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new InterceptEvent[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new InterceptEvent();
+            published.set(i, -1);
+        }
+        this.background = background;
+    }
+
+    public static InterceptEventBus getInstance() {
+        return instance;
+    }
+
+    /** 某个任务（或 {@link #ANY_TASK}）当前是否有订阅者。 */
+    public boolean hasListeners(int taskId) {
+        return routeFor(taskId) != null || !anyRoute.isEmpty();
+    }
+
+    /**
+     * 发布一条事件。
+     *
+     * @return 事件是否进入了缓冲区；没有订阅者或缓冲区已满时返回 false
+     */
+    public boolean publish(int taskId, InterceptEvent.Kind kind, Member method, Object thisObject,
+                           Object[] args, Object result, Throwable throwable, long durationNs, int depth) {
+        return publish(taskId, kind, method, thisObject, args, result, throwable, durationNs, depth, null);
+    }
+
+    /**
+     * 发布一条事件，附带发布方在 Hook 线程上准备好的数据（见 {@link InterceptEvent#getPayload()}）。
+     *
+     * @return 事件是否进入了缓冲区；没有订阅者或缓冲区已满时返回 false
+     */
+    public boolean publish(int taskId, InterceptEvent.Kind kind, Member method, Object thisObject,
+                           Object[] args, Object result, Throwable throwable, long durationNs, int depth,
+                           Object payload) {
+        Route route = routeFor(taskId);
+        Route any = anyRoute;
+        if (route == null && any.isEmpty()) {
+            return false;
+        }
+
+        Thread thread = Thread.currentThread();
+        StackTraceElement[] stack = (route != null && route.wantsStack) || any.wantsStack
+                ? thread.getStackTrace() : null;
+
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed >= slots.length) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        int index = (int) (seq & mask);
+        long now = System.nanoTime();
+        InterceptEvent event = slots[index];
+        event.taskId = taskId;
+        event.kind = kind;
+        event.nanoTime = now;
+        event.wallTimeMillis = wallBaseMs + (now - nanoBase) / 1_000_000;
+        event.threadId = thread.getId();
+        event.threadName = thread.getName();
+        event.method = method;
+        event.thisObject = thisObject;
+        event.args = args;
+        event.result = result;
+        event.throwable = throwable;
+        event.durationNs = durationNs;
+        event.depth = depth;
+        event.stackTrace = stack;
+        event.payload = payload;
+        published.set(index, seq);
+
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    public void subscribe(int taskId, InterceptEventListener listener) {
+        synchronized (routeLock) {
+            if (taskId == ANY_TASK) {
+                anyRoute = anyRoute.with(listener);
+            } else {
+                Route[] current = routes;
+                Route[] next = taskId < current.length ? current.clone() : Arrays.copyOf(current, taskId + 1);
+                next[taskId] = next[taskId] != null ? next[taskId].with(listener) : Route.EMPTY.with(listener);
+                routes = next;
+            }
+            listenerCount++;
+        }
+        ensureConsumer();
+    }
+
+    public void unsubscribe(int taskId, InterceptEventListener listener) {
+        synchronized (routeLock) {
+            if (taskId == ANY_TASK) {
+                Route route = anyRoute.without(listener);
+                if (route != anyRoute) listenerCount--;
+                anyRoute = route;
+            } else if (taskId >= 0 && taskId < routes.length && routes[taskId] != null) {
+                Route[] next = routes.clone();
+                Route route = next[taskId].without(listener);
+                if (route != next[taskId]) listenerCount--;
+                next[taskId] = route.isEmpty() ? null : route;
+                routes = next;
+            }
+        }
+    }
+
+    /** 移除某个任务的全部订阅者，任务停止时调用。 */
+    public void unsubscribeAll(int taskId) {
+        synchronized (routeLock) {
+            if (taskId >= 0 && taskId < routes.length && routes[taskId] != null) {
+                Route[] next = routes.clone();
+                listenerCount -= next[taskId].listeners.length;
+                next[taskId] = null;
+                routes = next;
+            }
+        }
+    }
+
+    /**
+     * 等待调用时已发布的事件全部分发完，用于取消订阅前把剩下的事件交给订阅者。
+     * 在消费线程上调用时直接返回（否则会等自己）。
+     *
+     * @return 是否在超时前分发完
+     */
+    public boolean awaitDrained(long timeout, TimeUnit unit) {
+        long target = claimed.get();
+        if (Thread.currentThread() == consumer) {
+            return consumed >= target;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (consumed < target) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            if (background) {
+                Thread current = consumer;
+                if (current != null) LockSupport.unpark(current);
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(1));
+            } else if (drain() == 0) {
+                // 发布方已占位但还没写完
+                Thread.yield();
+            }
+        }
+        return true;
+    }
+
+    /** 因缓冲区满而丢弃的事件数。 */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /** 已发布但尚未分发的事件数。 */
+    public long getPendingCount() {
+        return Math.max(0, claimed.get() - consumed);
+    }
+
+    private Route routeFor(int taskId) {
+        Route[] current = routes;
+        return taskId >= 0 && taskId < current.length ? current[taskId] : null;
+    }
+
+    private void ensureConsumer() {
+        Thread current = consumer;
+        if (current != null) {
+            LockSupport.unpark(current);
+            return;
+        }
+        if (!background) return;
+        synchronized (routeLock) {
+            if (consumer != null) return;
+            Thread thread = new Thread(this::drainLoop, "InterceptEventBus");
+            thread.setDaemon(true);
+            consumer = thread;
+            thread.start();
+        }
+    }
+
+    private void drainLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            if (drain() > 0) continue;
+            consumerParked = true;
+            // 置位后再检查一次，避免与发布方的 unpark 错过
+            if (published.get((int) (consumed & mask)) != consumed) {
+                if (listenerCount == 0) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, IDLE_PARK_NS);
+                }
+            }
+            consumerParked = false;
+        }
+    }
+
+    /**
+     * 分发一批已发布的事件，返回分发的条数。只能由消费线程调用（没有后台线程时由调用方代替）。
+     */
+    int drain() {
+        long next = consumed;
+        int count = 0;
+        List<InterceptEventListener> touched = null;
+        while (count < MAX_BATCH) {
+            int index = (int) (next & mask);
+            if (published.get(index) != next) break;
+            InterceptEvent event = slots[index];
+            touched = dispatch(routeFor(event.taskId), event, touched);
+            touched = dispatch(anyRoute, event, touched);
+            event.clear();
+            consumed = ++next;
+            count++;
+        }
+        if (touched != null) {
+            for (InterceptEventListener listener : touched) {
+                try {
+                    listener.onBatchEnd();
+                } catch (Throwable t) {
+                    logger.error("事件订阅者处理失败", t);
+                }
+            }
+        }
+        return count;
+    }
+
+    private List<InterceptEventListener> dispatch(Route route, InterceptEvent event,
+                                                  List<InterceptEventListener> touched) {
+        if (route == null) return touched;
+        for (InterceptEventListener listener : route.listeners) {
+            try {
+                listener.onEvent(event);
+            } catch (Throwable t) {
+                logger.error("事件订阅者处理失败", t);
+            }
+            if (touched == null) touched = new ArrayList<>(4);
+            if (!touched.contains(listener)) touched.add(listener);
+        }
+        return touched;
+    }
+
+    /** 不可变的订阅者列表，修改时整体替换。 */
+    private static final class Route {
+        static final Route EMPTY = new Route(new InterceptEventListener[0]);
+
+        final InterceptEventListener[] listeners;
+        final boolean wantsStack;
+
+        Route(InterceptEventListener[] listeners) {
+            this.listeners = listeners;
+            boolean stack = false;
+            for (InterceptEventListener listener : listeners) {
+                stack |= listener.needsStackTrace();
+            }
+            this.wantsStack = stack;
+        }
+
+        boolean isEmpty() {
+            return listeners.length == 0;
+        }
+
+        Route with(InterceptEventListener listener) {
+            InterceptEventListener[] next = Arrays.copyOf(listeners, listeners.length + 1);
+            next[listeners.length] = listener;
+            return new Route(next);
+        }
+
+        Route without(InterceptEventListener listener) {
+            List<InterceptEventListener> next = new ArrayList<>(Arrays.asList(listeners));
+            next.remove(listener);
+            return next.size() == listeners.length ? this : new Route(next.toArray(new InterceptEventListener[0]));
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.justnothing.testmodule.command.functions.intercept;
+
+/**
+ * {@link InterceptEventBus} 的消费者，所有回调都在总线的后台线程上执行。
+ */
+public interface InterceptEventListener {
+
+    /**
+     * 处理一条事件。事件对象会被复用，需要保留的内容应在此处复制。
+     */
+    void onEvent(InterceptEvent event);
+
+    /** 一批事件分发完毕（适合刷新输出、批量写入）。 */
+    default void onBatchEnd() {}
+
+    /**
+     * 是否需要调用栈。为 true 时发布方会在 Hook 线程上抓取调用栈，代价较高，只在确实需要时返回 true。
+     */
+    default boolean needsStackTrace() {
+        return false;
+    }
+}
@@ -0,0 +1,225 @@
+package com.justnothing.testmodule.command.functions.intercept;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 对数-线性分桶的耗时直方图（HDR 风格），单位纳秒。
+ * <p>
+ * 每个 2 的幂区间再等分成 {@value #SUB_BUCKETS} 个线性子桶，相对误差不超过 1/{@value #SUB_BUCKETS}；
+ * 小于 {@value #SUB_BUCKETS}ns 的值精确记录，超过 {@link #MAX_TRACKABLE_NS} 的值归入最后一个桶。
+ * {@link #record(long, long)} 只做几次原子自增，不分配对象，可以直接在 Hook 回调里调用。
+ * </p>
+ * <p>
+ * 除了全程累计外，还按 {@link #SLOT_NS} 把时间切成环形的时间片，用于
+ * {@link #snapshot(long, long)} 查看最近一段时间（如 10s / 1min）的分布。时间片在首次写入时才分配，
+ * 过期的时间片由写入方复用；复用清零的瞬间并发写入的少量样本可能丢失，对分位数影响可以忽略。
+ * 时间片全部写满时约占 {@value #SLOT_COUNT} 倍的累计数组（百 KB 级），只需要全程分布的
+ * 直方图（如按方法统计）应使用 {@link #LatencyHistogram(boolean) new LatencyHistogram(false)}，不分配时间片。
+ * </p>
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 39;
+
+    /** 可区分的最大耗时（约 18 分钟），更大的值按此值计。 */
+    public static final long MAX_TRACKABLE_NS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    /** 时间片长度。 */
+    public static final long SLOT_NS = 5_000_000_000L;
+
+    /** 保留的时间片数，覆盖最近一分钟外加当前未满的时间片。 */
+    private static final int SLOT_COUNT = 13;
+
+    /** 可查询的最大时间窗口。 */
+    public static final long MAX_WINDOW_NS = SLOT_NS * (SLOT_COUNT - 1);
+
+    private final AtomicLongArray total = new AtomicLongArray(BUCKET_COUNT);
+    // 不按时间窗口统计时均为 null
+    private final AtomicReferenceArray<AtomicLongArray> slots;
+    private final AtomicLongArray slotEpochs;
+
+    // nanoTime 可能为负，未使用的时间片用 Long.MIN_VALUE 标记
+    private static final long NO_EPOCH = Long.MIN_VALUE;
+
+    public LatencyHistogram() {
+        this(true);
+    }
+
+    /**
+     * @param windowed 是否保留时间片以支持 {@link #snapshot(long, long)}
+     */
+    public LatencyHistogram(boolean windowed) {
+        if (windowed) {
+            slots = new AtomicReferenceArray<>(SLOT_COUNT);
+            slotEpochs = new AtomicLongArray(SLOT_COUNT);
+            for (int i = 0; i < SLOT_COUNT; i++) {
+                slotEpochs.set(i, NO_EPOCH);
+            }
+        } else {
+            slots = null;
+            slotEpochs = null;
+        }
+    }
+
+    public boolean isWindowed() {
+        return slots != null;
+    }
+
+    static int bucketOf(long valueNs) {
+        if (valueNs < SUB_BUCKETS) {
+            return valueNs <= 0 ? 0 : (int) valueNs;
+        }
+        long v = Math.min(valueNs, MAX_TRACKABLE_NS);
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((v >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /** 桶内可能出现的最大值，分位数按此上界报告（偏保守）。 */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * 记录一次耗时。
+     *
+     * @param valueNs 耗时（纳秒）
+     * @param nowNs   当前 {@link System#nanoTime()}，用于定位时间片
+     */
+    public void record(long valueNs, long nowNs) {
+        int bucket = bucketOf(valueNs);
+        total.incrementAndGet(bucket);
+        if (slots != null) {
+            slotFor(Math.floorDiv(nowNs, SLOT_NS)).incrementAndGet(bucket);
+        }
+    }
+
+    private AtomicLongArray slotFor(long epoch) {
+        int index = (int) Math.floorMod(epoch, (long) SLOT_COUNT);
+        AtomicLongArray slot = slots.get(index);
+        if (slot == null) {
+            slots.compareAndSet(index, null, new AtomicLongArray(BUCKET_COUNT));
+            slot = slots.get(index);
+        }
+        long seen = slotEpochs.get(index);
+        if (seen < epoch && slotEpochs.compareAndSet(index, seen, epoch) && seen != NO_EPOCH) {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                slot.lazySet(i, 0);
+            }
+        }
+        return slot;
+    }
+
+    /** 全程累计的分布。 */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = total.get(i);
+        }
+        return new Snapshot(counts);
+    }
+
+    /**
+     * 最近 {@code windowNs} 内的分布，按时间片对齐：包含当前时间片和之前
+     * {@code ceil(windowNs / SLOT_NS)} 个完整时间片，最长 {@link #MAX_WINDOW_NS}。
+     *
+     * @throws IllegalStateException 直方图不保留时间片
+     */
+    public Snapshot snapshot(long windowNs, long nowNs) {
+        if (slots == null) {
+            throw new IllegalStateException("histogram is not windowed");
+        }
+        long current = Math.floorDiv(nowNs, SLOT_NS);
+        long oldest = current - Math.min(SLOT_COUNT - 1, (Math.max(0, windowNs) + SLOT_NS - 1) / SLOT_NS);
+        long[] counts = new long[BUCKET_COUNT];
+        for (int index = 0; index < SLOT_COUNT; index++) {
+            long epoch = slotEpochs.get(index);
+            AtomicLongArray slot = slots.get(index);
+            if (slot == null || epoch < oldest || epoch > current) continue;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] += slot.get(i);
+            }
+        }
+        return new Snapshot(counts);
+    }
+
+    /** 清空全部数据。只应在没有并发写入时调用。 */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total.set(i, 0);
+        }
+        if (slots == null) return;
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            slots.set(i, null);
+            slotEpochs.set(i, NO_EPOCH);
+        }
+    }
+
+    /** 某一时刻的不可变分布。 */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long sum = 0;
+            for (long c : counts) sum += c;
+            this.count = sum;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @param percentile 0 ~ 100，如 99.9
+         * @return 不小于该比例样本的最小桶上界；没有样本时返回 0
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) return 0;
+            double p = Math.min(100.0, Math.max(0.0, percentile));
+            long target = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return highestValueOf(i);
+                }
+            }
+            return highestValueOf(counts.length - 1);
+        }
+
+        public long getP50Ns() {
+            return getValueAtPercentile(50);
+        }
+
+        public long getP90Ns() {
+            return getValueAtPercentile(90);
+        }
+
+        public long getP99Ns() {
+            return getValueAtPercentile(99);
+        }
+
+        public long getP999Ns() {
+            return getValueAtPercentile(99.9);
+        }
+
+        public long getMaxNs() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) return highestValueOf(i);
+            }
+            return 0;
+        }
+    }
+}
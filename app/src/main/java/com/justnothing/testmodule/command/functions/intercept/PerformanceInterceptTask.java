@@ -1,19 +1,35 @@
 package com.justnothing.testmodule.command.functions.intercept;
 
-import java.lang.reflect.Method;
+import java.lang.reflect.Member;
+import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import de.robv.android.xposed.XC_MethodHook;
 
+/**
+ * 方法耗时统计。
+ * <p>
+ * 除总/最小/最大耗时外，整体和每个被 Hook 的方法（按完整签名区分重载）各有一个
+ * {@link LatencyHistogram}，可以给出 p50/p90/p99/p999；最近 10s / 1min 的分布只对整体统计，
+ * 按方法的直方图不分配时间片，Hook 的方法再多也只占累计数组的内存。
+ * 开始时间放在每线程的 {@link CallStack} 里，Hook 回调中不分配对象。
+ * </p>
+ */
 public class PerformanceInterceptTask extends AbstractInterceptTask {
 
+    public static final long WINDOW_SHORT_NS = TimeUnit.SECONDS.toNanos(10);
+    public static final long WINDOW_LONG_NS = TimeUnit.MINUTES.toNanos(1);
+
     private final AtomicLong totalDuration = new AtomicLong(0);
     private final AtomicLong minDuration = new AtomicLong(Long.MAX_VALUE);
     private final AtomicLong maxDuration = new AtomicLong(Long.MIN_VALUE);
-    private final ConcurrentHashMap<String, AtomicLong> durationByMethod = new ConcurrentHashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ConcurrentHashMap<Member, MethodLatency> latencyByMethod = new ConcurrentHashMap<>();
+    private final ThreadLocal<CallStack> callStacks = ThreadLocal.withInitial(CallStack::new);
 
     private long startTime;
     private long stopTime;
@@ -28,23 +44,25 @@ public class PerformanceInterceptTask extends AbstractInterceptTask {
         return new XC_MethodHook() {
             @Override
             protected void beforeHookedMethod(MethodHookParam param) {
-                param.setObjectExtra("perfStartTime", System.nanoTime());
+                callStacks.get().push(System.nanoTime());
             }
 
             @Override
             protected void afterHookedMethod(MethodHookParam param) {
-                Long startNs = (Long) param.getObjectExtra("perfStartTime");
-                if (startNs == null) return;
+                long now = System.nanoTime();
+                CallStack stack = callStacks.get();
+                if (stack.isEmpty()) return;
+
+                long duration = now - stack.pop();
+                if (!enabled || !running.get()) return;
 
-                long duration = System.nanoTime() - startNs;
-                recordDuration(param.method, duration);
+                recordDuration(param.method, duration, now);
+                publishExit(param, duration, stack.depth());
             }
         };
     }
 
-    private void recordDuration(Object method, long durationNs) {
-        if (!enabled || !running.get()) return;
-
+    private void recordDuration(Member method, long durationNs, long nowNs) {
         hitCount.incrementAndGet();
         totalDuration.addAndGet(durationNs);
 
@@ -60,10 +78,14 @@ public class PerformanceInterceptTask extends AbstractInterceptTask {
             currentMax = maxDuration.get();
         }
 
-        if (method instanceof Method) {
-            String methodKey = ((Method) method).getName();
-            durationByMethod.computeIfAbsent(methodKey, k -> new AtomicLong(0))
-                    .addAndGet(durationNs);
+        latency.record(durationNs, nowNs);
+        if (method != null) {
+            MethodLatency perMethod = latencyByMethod.get(method);
+            if (perMethod == null) {
+                perMethod = latencyByMethod.computeIfAbsent(method, m -> new MethodLatency(describeMember(m)));
+            }
+            perMethod.totalDuration.addAndGet(durationNs);
+            perMethod.histogram.record(durationNs, nowNs);
         }
     }
 
@@ -139,8 +161,31 @@ public class PerformanceInterceptTask extends AbstractInterceptTask {
         return System.currentTimeMillis() - startTime;
     }
 
+    /** 各方法（按完整签名）的累计耗时。 */
     public Map<String, AtomicLong> getDurationByMethod() {
-        return new ConcurrentHashMap<>(durationByMethod);
+        Map<String, AtomicLong> result = new ConcurrentHashMap<>();
+        for (MethodLatency perMethod : latencyByMethod.values()) {
+            result.put(perMethod.name, new AtomicLong(perMethod.totalDuration.get()));
+        }
+        return result;
+    }
+
+    public LatencyHistogram.Snapshot getLatency() {
+        return latency.snapshot();
+    }
+
+    /** 最近 {@code windowNs} 内的耗时分布，按 {@link LatencyHistogram#SLOT_NS} 对齐。 */
+    public LatencyHistogram.Snapshot getLatency(long windowNs) {
+        return latency.snapshot(windowNs, System.nanoTime());
+    }
+
+    /** 各方法（按完整签名）全程的耗时分布。 */
+    public Map<String, LatencyHistogram.Snapshot> getLatencyByMethod() {
+        Map<String, LatencyHistogram.Snapshot> result = new LinkedHashMap<>();
+        for (MethodLatency perMethod : latencyByMethod.values()) {
+            result.put(perMethod.name, perMethod.histogram.snapshot());
+        }
+        return result;
     }
 
     public void resetStats() {
@@ -148,7 +193,8 @@ public class PerformanceInterceptTask extends AbstractInterceptTask {
         totalDuration.set(0);
         minDuration.set(Long.MAX_VALUE);
         maxDuration.set(Long.MIN_VALUE);
-        durationByMethod.clear();
+        latency.reset();
+        latencyByMethod.clear();
         startTime = System.currentTimeMillis();
         stopTime = 0;
     }
@@ -166,14 +212,22 @@ public class PerformanceInterceptTask extends AbstractInterceptTask {
                 getAverageDurationNs(),
                 startTime,
                 stopTime > 0 ? stopTime : System.currentTimeMillis(),
-                new ConcurrentHashMap<>(durationByMethod)
+                getDurationByMethod(),
+                latency.snapshot(),
+                getLatency(WINDOW_SHORT_NS),
+                getLatency(WINDOW_LONG_NS),
+                getLatencyByMethod()
         );
     }
 
     public record PerformanceStats(int id, String className, String methodName, String signature,
                                    int callCount, long totalDurationNs, long minDurationNs,
                                    long maxDurationNs, double avgDurationNs, long startTime,
-                                   long stopTime, Map<String, AtomicLong> durationByMethod) {
+                                   long stopTime, Map<String, AtomicLong> durationByMethod,
+                                   LatencyHistogram.Snapshot latency,
+                                   LatencyHistogram.Snapshot latencyShortWindow,
+                                   LatencyHistogram.Snapshot latencyLongWindow,
+                                   Map<String, LatencyHistogram.Snapshot> latencyByMethod) {
 
         public long getTotalDurationMs() {
                 return totalDurationNs / 1_000_000;
@@ -206,4 +260,15 @@ public class PerformanceInterceptTask extends AbstractInterceptTask {
                 }
             }
         }
+
+    private static final class MethodLatency {
+        final String name;
+        final AtomicLong totalDuration = new AtomicLong(0);
+        // 按方法只报告全程分布，不分配时间片
+        final LatencyHistogram histogram = new LatencyHistogram(false);
+
+        MethodLatency(String name) {
+            this.name = name;
+        }
+    }
 }
@@ -0,0 +1,113 @@
+package com.justnothing.testmodule.command.functions.intercept;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 多生产者、单消费者的无锁环形缓冲区，存放定长的调用事件。
+ * <p>
+ * 每个槽位是 {@link #SLOT_WIDTH} 个 long（序号、nanoTime、线程 id、方法 id / 深度 / 类型、耗时），
+ * 外加一个对象引用（进入事件为参数数组，返回事件为返回值或异常）。写入方通过
+ * {@code getAndIncrement} 领取序号，不加锁、不分配对象；缓冲区写满后覆盖最旧的事件。
+ * </p>
+ * <p>
+ * 槽位序号按 seqlock 的方式发布：写入前先置为 -1，写完数据后再写入本次序号。
+ * 读取方在读数据前后各检查一次序号，不一致（正在写或已被覆盖）的槽位直接跳过，
+ * 因此快照只会丢弃被覆盖的事件，不会读到半条记录。
+ * </p>
+ */
+final class TraceEventRing {
+
+    static final int KIND_ENTER = 0;
+    static final int KIND_RETURN = 1;
+    static final int KIND_THROW = 2;
+
+    private static final int SLOT_WIDTH = 5;
+    private static final int F_SEQ = 0;
+    private static final int F_TIME = 1;
+    private static final int F_THREAD = 2;
+    private static final int F_META = 3;
+    private static final int F_DURATION = 4;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLongArray slots;
+    private final AtomicReferenceArray<Object> payloads;
+
+    /** @param minCapacity 至少保留的事件数，向上取整到 2 的幂 */
+    TraceEventRing(int minCapacity) {
+        int cap = Integer.highestOneBit(Math.max(16, minCapacity - 1)) << 1;
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.slots = new AtomicLongArray(cap * SLOT_WIDTH);
+        this.payloads = new AtomicReferenceArray<>(cap);
+        for (int i = 0; i < cap; i++) {
+            slots.set(i * SLOT_WIDTH + F_SEQ, -1);
+        }
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    /** 已写入的事件总数（含已被覆盖的）。 */
+    long written() {
+        return cursor.get();
+    }
+
+    void write(long nanoTime, long threadId, int methodId, int depth, int kind, long durationNs, Object payload) {
+        long seq = cursor.getAndIncrement();
+        int slot = (int) (seq & mask);
+        int base = slot * SLOT_WIDTH;
+        slots.set(base + F_SEQ, -1);
+        slots.lazySet(base + F_TIME, nanoTime);
+        slots.lazySet(base + F_THREAD, threadId);
+        slots.lazySet(base + F_META, ((long) methodId << 32) | ((long) (depth & 0xFFFFFF) << 8) | (kind & 0xFF));
+        slots.lazySet(base + F_DURATION, durationNs);
+        payloads.lazySet(slot, payload);
+        slots.lazySet(base + F_SEQ, seq);
+    }
+
+    /**
+     * 按写入顺序返回最近的事件（最多 {@code max} 条）。
+     * 并发写入期间也可调用，正在写入或已被覆盖的事件会被跳过。
+     */
+    List<Event> snapshot(int max) {
+        long end = cursor.get();
+        long start = Math.max(0, end - Math.min(capacity, Math.max(0, max)));
+        List<Event> events = new ArrayList<>((int) (end - start));
+        for (long seq = start; seq < end; seq++) {
+            int slot = (int) (seq & mask);
+            int base = slot * SLOT_WIDTH;
+            if (slots.get(base + F_SEQ) != seq) continue;
+            long time = slots.get(base + F_TIME);
+            long thread = slots.get(base + F_THREAD);
+            long meta = slots.get(base + F_META);
+            long duration = slots.get(base + F_DURATION);
+            Object payload = payloads.get(slot);
+            if (slots.get(base + F_SEQ) != seq) continue;
+            events.add(new Event(time, thread, (int) (meta >>> 32), (int) ((meta >>> 8) & 0xFFFFFF),
+                    (int) (meta & 0xFF), duration, payload));
+        }
+        return events;
+    }
+
+    /** 丢弃所有事件。只应在没有并发写入时调用（例如任务停止后）。 */
+    void clear() {
+        long end = cursor.get();
+        for (int i = 0; i < capacity; i++) {
+            slots.set(i * SLOT_WIDTH + F_SEQ, -1);
+            payloads.set(i, null);
+        }
+        cursor.compareAndSet(end, 0);
+    }
+
+    /** 读出的一条事件。 */
+    record Event(long nanoTime, long threadId, int methodId, int depth, int kind,
+                 long durationNs, Object payload) {
+    }
+}
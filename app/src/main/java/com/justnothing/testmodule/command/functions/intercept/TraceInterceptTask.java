@@ -5,222 +5,220 @@ import androidx.annotation.NonNull;
 import com.justnothing.testmodule.utils.io.IOManager;
 
 import java.io.IOException;
+import java.lang.reflect.Member;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import de.robv.android.xposed.XC_MethodHook;
 
+/**
+ * 方法调用追踪。
+ * <p>
+ * Hook 回调里只做定长写入：进入/返回事件（nanoTime、线程 id、方法 id、深度、耗时）写进
+ * {@link TraceEventRing}，方法按 {@link Member} 驻留为整数 id，调用深度和开始时间放在
+ * 每线程的 {@link CallStack} 里。时间戳格式化、参数 toString 等全部推迟到
+ * {@link #getTraceOutput(int)} / {@link #exportToFile(String)} 读取时进行。
+ * </p>
+ * <p>
+ * 深度是当前线程上被本任务追踪的调用的嵌套层数（最外层为 0），不再通过遍历调用栈计算。
+ * </p>
+ */
 public class TraceInterceptTask extends AbstractInterceptTask {
 
     private final int maxCallRecords;
-    private final LinkedList<CallRecord> callRecords = new LinkedList<>();
-    private final Map<String, CallNode> callTree = new HashMap<>();
+    private final TraceEventRing events;
+    private final Map<Member, CallNode> nodesByMember = new ConcurrentHashMap<>();
+    private final List<CallNode> callTree = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<CallStack> frames = ThreadLocal.withInitial(CallStack::new);
+
+    // 把 nanoTime 换算成墙上时间的基准
+    private final long wallBaseMs = System.currentTimeMillis();
+    private final long nanoBase = System.nanoTime();
 
     public TraceInterceptTask(int id, String className, String methodName, String signature,
                               ClassLoader classLoader, int maxCallRecords) {
         super(id, className, methodName, signature, classLoader, TaskType.TRACE);
-        this.maxCallRecords = maxCallRecords;
+        this.maxCallRecords = Math.max(1, maxCallRecords);
+        this.events = new TraceEventRing(this.maxCallRecords);
     }
 
     @Override
     protected XC_MethodHook createMethodHook() {
         return new XC_MethodHook() {
-            private long startTime;
-
             @Override
             protected void beforeHookedMethod(MethodHookParam param) {
-                startTime = System.currentTimeMillis();
-                String timestamp = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault()).format(new Date());
-
-                int depth = calculateCallDepth();
-                CallRecord record = new CallRecord(
-                        timestamp,
-                        targetClass.getName(),
-                        methodName,
-                        depth,
-                        param.args,
-                        null,
-                        null,
-                        0
-                );
-
-                addCallRecord(record);
-                updateCallTree(record);
+                long now = System.nanoTime();
+                CallStack frame = frames.get();
+                int depth = frame.push(now);
+                // 暂停时仍然维护深度，保证恢复后进入/返回成对
+                if (!enabled || !running.get()) return;
+
                 hitCount.incrementAndGet();
+                CallNode node = nodeFor(param.method);
+                node.onEnter(depth);
+                events.write(now, Thread.currentThread().getId(), node.id, depth,
+                        TraceEventRing.KIND_ENTER, 0, param.args);
+                publishEnter(param, depth);
             }
 
             @Override
             protected void afterHookedMethod(MethodHookParam param) {
-                long endTime = System.currentTimeMillis();
-                long duration = endTime - startTime;
-                String timestamp = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault()).format(new Date());
-
-                int depth = calculateCallDepth();
-
-                CallRecord record = new CallRecord(
-                        timestamp,
-                        targetClass.getName(),
-                        methodName,
-                        depth,
-                        param.args,
-                        param.getResult(),
-                        param.getThrowable(),
-                        duration
-                );
-
-                addCallRecord(record);
+                long now = System.nanoTime();
+                CallStack frame = frames.get();
+                if (frame.isEmpty()) return;
+                long duration = now - frame.pop();
+                if (!enabled || !running.get()) return;
+
+                CallNode node = nodeFor(param.method);
+                Throwable throwable = param.getThrowable();
+                Object result = throwable != null ? throwable : param.getResult();
+                node.onExit(duration, result, throwable != null);
+                events.write(now, Thread.currentThread().getId(), node.id, frame.depth(),
+                        throwable != null ? TraceEventRing.KIND_THROW : TraceEventRing.KIND_RETURN,
+                        duration, result);
+                publishExit(param, duration, frame.depth());
             }
         };
     }
 
-    private int calculateCallDepth() {
-        StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
-        int depth = 0;
-        boolean foundAppFrame = false;
-
-        for (StackTraceElement element : stackTrace) {
-            String className = element.getClassName();
-
-            if (className.startsWith("com.justnothing.testmodule") ||
-                className.startsWith("de.robv.android.xposed")) {
-                continue;
-            }
-
-            if (!foundAppFrame) {
-                foundAppFrame = true;
-            } else {
-                depth++;
-            }
-        }
-
-        return depth;
+    private CallNode nodeFor(Member member) {
+        CallNode node = nodesByMember.get(member);
+        return node != null ? node : internSlow(member);
     }
 
-    private void addCallRecord(CallRecord record) {
-        synchronized (callRecords) {
-            callRecords.addLast(record);
-            if (callRecords.size() > maxCallRecords) {
-                callRecords.removeFirst();
-            }
-        }
-    }
-
-    private void updateCallTree(CallRecord record) {
-        synchronized (callTree) {
-            String key = record.className + "." + record.methodName;
-            CallNode node = callTree.get(key);
-            if (node == null) {
-                node = new CallNode(record.className, record.methodName);
-                callTree.put(key, node);
-            }
-            node.incrementCallCount();
-            node.updateMaxDepth(record.depth);
-
-            if (record.exception != null) {
-                node.incrementExceptionCount();
-            }
-
-            if (record.duration > 0) {
-                node.updateDuration(record.duration);
-            }
-
-            if (record.returnValue != null) {
-                node.addReturnValue(record.returnValue);
-            }
+    private synchronized CallNode internSlow(Member member) {
+        CallNode node = nodesByMember.get(member);
+        if (node == null) {
+            node = new CallNode(callTree.size(), member.getDeclaringClass().getName(), describeMember(member));
+            callTree.add(node);
+            nodesByMember.put(member, node);
         }
+        return node;
     }
 
     public int getCallCount() {
         return hitCount.get();
     }
 
-    public String getTraceOutput(int limit) {
-        synchronized (callRecords) {
-            if (callRecords.isEmpty()) {
-                return "暂无调用记录";
-            }
+    /**
+     * 按时间顺序返回保留的调用记录（最多 maxCallRecords 条），在读取时才解码环形缓冲区。
+     */
+    public List<CallRecord> getCallRecords() {
+        List<TraceEventRing.Event> snapshot = events.snapshot(maxCallRecords);
+        List<CallRecord> records = new ArrayList<>(snapshot.size());
+        for (TraceEventRing.Event event : snapshot) {
+            if (event.methodId() >= callTree.size()) continue;
+            CallNode node = callTree.get(event.methodId());
+            Object payload = event.payload();
+            records.add(new CallRecord(
+                    wallBaseMs + (event.nanoTime() - nanoBase) / 1_000_000,
+                    event.threadId(),
+                    node.className,
+                    node.methodName,
+                    event.depth(),
+                    event.kind() == TraceEventRing.KIND_ENTER,
+                    event.kind() == TraceEventRing.KIND_ENTER ? (Object[]) payload : null,
+                    event.kind() == TraceEventRing.KIND_RETURN ? payload : null,
+                    event.kind() == TraceEventRing.KIND_THROW ? (Throwable) payload : null,
+                    event.durationNs()
+            ));
+        }
+        return records;
+    }
 
-            StringBuilder sb = new StringBuilder();
-            sb.append("=== Trace 输出 ===\n");
-            sb.append("任务ID: ").append(id).append("\n");
-            sb.append("目标方法: ").append(className).append(".").append(methodName).append("\n");
-            sb.append("总调用次数: ").append(hitCount.get()).append("\n\n");
-
-            int count = 0;
-            for (CallRecord record : callRecords) {
-                if (limit > 0 && count >= limit) break;
-                sb.append(record.toString()).append("\n");
-                count++;
-            }
+    public String getTraceOutput(int limit) {
+        List<CallRecord> records = getCallRecords();
+        if (records.isEmpty()) {
+            return "暂无调用记录";
+        }
 
-            return sb.toString();
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Trace 输出 ===\n");
+        sb.append("任务ID: ").append(id).append("\n");
+        sb.append("目标方法: ").append(className).append(".").append(methodName).append("\n");
+        sb.append("总调用次数: ").append(hitCount.get()).append("\n\n");
+
+        SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault());
+        int count = 0;
+        for (CallRecord record : records) {
+            if (limit > 0 && count >= limit) break;
+            record.appendTo(sb, format).append("\n");
+            count++;
         }
+
+        return sb.toString();
     }
 
     public String getCallTree() {
-        synchronized (callTree) {
-            if (callTree.isEmpty()) return "暂无调用记录";
+        if (callTree.isEmpty()) return "暂无调用记录";
 
-            StringBuilder sb = new StringBuilder();
-            sb.append("=== 调用树 ===\n");
-            sb.append("总调用次数: ").append(hitCount.get()).append("\n\n");
-
-            for (CallNode node : callTree.values()) {
-                sb.append(node.toString()).append("\n");
-            }
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== 调用树 ===\n");
+        sb.append("总调用次数: ").append(hitCount.get()).append("\n\n");
 
-            return sb.toString();
+        for (CallNode node : callTree) {
+            sb.append(node.toString()).append("\n");
         }
+
+        return sb.toString();
     }
 
     public boolean exportToFile(String filePath) {
-        synchronized (callRecords) {
-            try {
-                StringBuilder content = new StringBuilder();
-                content.append("=== Trace 调用记录 ===\n");
-                content.append("任务ID: ").append(id).append("\n");
-                content.append("目标方法: ").append(className).append(".").append(methodName).append("\n");
-                content.append("签名: ").append(signature != null ? signature : "所有").append("\n");
-                content.append("总调用次数: ").append(hitCount.get()).append("\n");
-                content.append("记录时间: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault())
-                        .format(new Date())).append("\n\n");
-
-                content.append("=== 调用树 ===\n");
-                for (CallNode node : callTree.values()) {
-                    content.append(node.toString()).append("\n");
-                }
-                content.append("\n");
-
-                content.append("=== 详细调用记录 ===\n");
-                for (CallRecord record : callRecords) {
-                    content.append(record.toString()).append("\n");
-                }
+        try {
+            StringBuilder content = new StringBuilder();
+            content.append("=== Trace 调用记录 ===\n");
+            content.append("任务ID: ").append(id).append("\n");
+            content.append("目标方法: ").append(className).append(".").append(methodName).append("\n");
+            content.append("签名: ").append(signature != null ? signature : "所有").append("\n");
+            content.append("总调用次数: ").append(hitCount.get()).append("\n");
+            content.append("记录时间: ").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.getDefault())
+                    .format(new Date())).append("\n\n");
+
+            content.append("=== 调用树 ===\n");
+            for (CallNode node : callTree) {
+                content.append(node.toString()).append("\n");
+            }
+            content.append("\n");
 
-                IOManager.writeFile(filePath, content.toString());
-                return true;
-            } catch (IOException e) {
-                logger.error("导出trace记录失败", e);
-                return false;
+            content.append("=== 详细调用记录 ===\n");
+            SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault());
+            for (CallRecord record : getCallRecords()) {
+                record.appendTo(content, format).append("\n");
             }
+
+            IOManager.writeFile(filePath, content.toString());
+            return true;
+        } catch (IOException e) {
+            logger.error("导出trace记录失败", e);
+            return false;
         }
     }
 
-    public record CallRecord(String timestamp, String className, String methodName, int depth,
-                             Object[] args, Object returnValue, Throwable exception,
-                             long duration) {
+    private static String formatNs(long ns) {
+        return String.format(Locale.US, "%.3fms", ns / 1_000_000.0);
+    }
 
-        @NonNull
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder();
-            sb.append("[").append(timestamp).append("] ");
+    /**
+     * 一条调用记录的只读视图，由 {@link #getCallRecords()} 从环形缓冲区解码得到。
+     * 进入事件带参数，返回事件带返回值或异常以及耗时。
+     */
+    public record CallRecord(long timestampMs, long threadId, String className, String methodName,
+                             int depth, boolean enter, Object[] args, Object returnValue,
+                             Throwable exception, long durationNs) {
+
+        StringBuilder appendTo(StringBuilder sb, SimpleDateFormat format) {
+            sb.append("[").append(format.format(new Date(timestampMs))).append("] ");
+            sb.append("T").append(threadId).append(" ");
+            sb.append(enter ? "→ " : "← ");
             sb.append(className).append(".").append(methodName);
             sb.append(" (深度: ").append(depth).append(")");
 
@@ -242,65 +240,84 @@ public class TraceInterceptTask extends AbstractInterceptTask {
                 sb.append(" 返回值: ").append(returnValue);
             }
 
-            if (duration > 0) {
-                sb.append(" 耗时: ").append(duration).append("ms");
+            if (durationNs > 0) {
+                sb.append(" 耗时: ").append(formatNs(durationNs));
             }
 
-            return sb.toString();
+            return sb;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return appendTo(new StringBuilder(), new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault())).toString();
         }
     }
 
+    /** 单个方法的汇总统计，所有更新都是无锁的。 */
     public static class CallNode {
+        private static final int MAX_RETURN_SAMPLES = 10;
+
+        final int id;
         private final String className;
         private final String methodName;
-        private final AtomicInteger callCount;
-        private final AtomicInteger exceptionCount;
-        private final List<Object> returnValues;
-        private long totalDuration;
-        private long maxDuration;
-        private long minDuration;
-        private int maxDepth;
-
-        public CallNode(String className, String methodName) {
+        private final AtomicInteger callCount = new AtomicInteger(0);
+        private final AtomicInteger completedCount = new AtomicInteger(0);
+        private final AtomicInteger exceptionCount = new AtomicInteger(0);
+        private final AtomicInteger maxDepth = new AtomicInteger(0);
+        private final AtomicLong totalDurationNs = new AtomicLong(0);
+        private final AtomicLong maxDurationNs = new AtomicLong(0);
+        private final AtomicLong minDurationNs = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicInteger returnSampleCount = new AtomicInteger(0);
+        private final AtomicReferenceArray<Object> returnValues = new AtomicReferenceArray<>(MAX_RETURN_SAMPLES);
+
+        CallNode(int id, String className, String methodName) {
+            this.id = id;
             this.className = className;
             this.methodName = methodName;
-            this.callCount = new AtomicInteger(0);
-            this.exceptionCount = new AtomicInteger(0);
-            this.returnValues = new ArrayList<>();
-            this.totalDuration = 0;
-            this.maxDuration = 0;
-            this.minDuration = Long.MAX_VALUE;
-            this.maxDepth = 0;
         }
 
-        public void incrementCallCount() {
+        void onEnter(int depth) {
             callCount.incrementAndGet();
+            int current = maxDepth.get();
+            while (depth > current) {
+                if (maxDepth.compareAndSet(current, depth)) break;
+                current = maxDepth.get();
+            }
         }
 
-        public void incrementExceptionCount() {
-            exceptionCount.incrementAndGet();
-        }
+        void onExit(long durationNs, Object result, boolean threw) {
+            completedCount.incrementAndGet();
+            totalDurationNs.addAndGet(durationNs);
 
-        public void updateDuration(long duration) {
-            totalDuration += duration;
-            if (duration > maxDuration) {
-                maxDuration = duration;
+            long currentMax = maxDurationNs.get();
+            while (durationNs > currentMax) {
+                if (maxDurationNs.compareAndSet(currentMax, durationNs)) break;
+                currentMax = maxDurationNs.get();
             }
-            if (duration < minDuration) {
-                minDuration = duration;
+
+            long currentMin = minDurationNs.get();
+            while (durationNs < currentMin) {
+                if (minDurationNs.compareAndSet(currentMin, durationNs)) break;
+                currentMin = minDurationNs.get();
             }
-        }
 
-        public void updateMaxDepth(int depth) {
-            if (depth > maxDepth) {
-                maxDepth = depth;
+            if (threw) {
+                exceptionCount.incrementAndGet();
+            } else if (result != null && returnSampleCount.get() < MAX_RETURN_SAMPLES) {
+                int slot = returnSampleCount.getAndIncrement();
+                if (slot < MAX_RETURN_SAMPLES) {
+                    returnValues.set(slot, result);
+                }
             }
         }
 
-        public void addReturnValue(Object value) {
-            if (returnValues.size() < 10) {
-                returnValues.add(value);
-            }
+        public String getClassName() {
+            return className;
+        }
+
+        public String getMethodName() {
+            return methodName;
         }
 
         public int getCallCount() {
@@ -312,20 +329,21 @@ public class TraceInterceptTask extends AbstractInterceptTask {
         }
 
         public int getMaxDepth() {
-            return maxDepth;
+            return maxDepth.get();
         }
 
-        public long getAvgDuration() {
-            int count = callCount.get();
-            return count > 0 ? totalDuration / count : 0;
+        public long getAvgDurationNs() {
+            int count = completedCount.get();
+            return count > 0 ? totalDurationNs.get() / count : 0;
         }
 
-        public long getMaxDuration() {
-            return maxDuration;
+        public long getMaxDurationNs() {
+            return maxDurationNs.get();
         }
 
-        public long getMinDuration() {
-            return minDuration == Long.MAX_VALUE ? 0 : minDuration;
+        public long getMinDurationNs() {
+            long min = minDurationNs.get();
+            return min == Long.MAX_VALUE ? 0 : min;
         }
 
         @NonNull
@@ -339,21 +357,22 @@ public class TraceInterceptTask extends AbstractInterceptTask {
                 sb.append(", 异常次数: ").append(exceptionCount.get());
             }
 
-            sb.append(", 最大深度: ").append(maxDepth);
+            sb.append(", 最大深度: ").append(maxDepth.get());
 
-            if (totalDuration > 0) {
-                sb.append(", 平均耗时: ").append(getAvgDuration()).append("ms");
-                sb.append(", 最大耗时: ").append(maxDuration).append("ms");
-                sb.append(", 最小耗时: ").append(getMinDuration()).append("ms");
+            if (completedCount.get() > 0) {
+                sb.append(", 平均耗时: ").append(formatNs(getAvgDurationNs()));
+                sb.append(", 最大耗时: ").append(formatNs(getMaxDurationNs()));
+                sb.append(", 最小耗时: ").append(formatNs(getMinDurationNs()));
             }
 
             sb.append(")");
 
-            if (!returnValues.isEmpty()) {
+            int samples = Math.min(returnSampleCount.get(), MAX_RETURN_SAMPLES);
+            if (samples > 0) {
                 sb.append("\n  返回值示例: ");
-                for (int i = 0; i < returnValues.size(); i++) {
+                for (int i = 0; i < samples; i++) {
                     sb.append(returnValues.get(i));
-                    if (i < returnValues.size() - 1) {
+                    if (i < samples - 1) {
                         sb.append(", ");
                     }
                 }
@@ -140,33 +140,66 @@ public class WatchInterceptTask extends AbstractInterceptTask {
         return new XC_MethodHook() {
             @Override
             protected void beforeHookedMethod(MethodHookParam param) {
-                String timestamp = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault()).format(new Date());
-                String output = String.format("[%s] 方法 %s.%s 被调用",
-                        timestamp,
-                        targetClass.getSimpleName(),
-                        methodName);
-                addOutput(output);
-
-                if (param.args.length > 0) {
-                    StringBuilder argsStr = new StringBuilder("  参数: ");
-                    for (int i = 0; i < param.args.length; i++) {
-                        argsStr.append(param.args[i] != null ? param.args[i].toString() : "null");
-                        if (i < param.args.length - 1) argsStr.append(", ");
-                    }
-                    addOutput(argsStr.toString());
-                }
+                if (!enabled || !hasEventListeners()) return;
+                publishPayload(param, InterceptEvent.Kind.ENTER, formatArgs(param.args));
             }
 
             @Override
             protected void afterHookedMethod(MethodHookParam param) {
-                String timestamp = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault()).format(new Date());
-                Object result = param.getResult();
-                String output = String.format("[%s] 方法 %s.%s 返回: %s",
-                        timestamp,
-                        targetClass.getSimpleName(),
-                        methodName,
-                        result != null ? result.toString() : "void");
-                addOutput(output);
+                if (!enabled || !hasEventListeners()) return;
+                Throwable throwable = param.getThrowable();
+                if (throwable != null) {
+                    publishPayload(param, InterceptEvent.Kind.THROW, describe(throwable));
+                } else {
+                    Object result = param.getResult();
+                    publishPayload(param, InterceptEvent.Kind.RETURN, result != null ? describe(result) : "void");
+                }
+            }
+        };
+    }
+
+    /** 在 Hook 线程上把参数转成文本，之后参数对象被修改也不影响输出。没有参数时返回 null。 */
+    private static String formatArgs(Object[] args) {
+        if (args == null || args.length == 0) return null;
+        StringBuilder argsStr = new StringBuilder("  参数: ");
+        for (int i = 0; i < args.length; i++) {
+            argsStr.append(describe(args[i]));
+            if (i < args.length - 1) argsStr.append(", ");
+        }
+        return argsStr.toString();
+    }
+
+    /** 方法调用的输出在事件总线的后台线程上拼接，参数和返回值已在 Hook 线程上转成文本（事件 payload）。 */
+    @Override
+    protected InterceptEventListener createEventListener() {
+        return new InterceptEventListener() {
+            private final SimpleDateFormat format = new SimpleDateFormat("HH:mm:ss.SSS", Locale.getDefault());
+
+            @Override
+            public void onEvent(InterceptEvent event) {
+                String timestamp = format.format(new Date(event.getWallTimeMillis()));
+                String text = (String) event.getPayload();
+                if (event.getKind() == InterceptEvent.Kind.ENTER) {
+                    addOutput(String.format("[%s] 方法 %s.%s 被调用",
+                            timestamp,
+                            targetClass.getSimpleName(),
+                            methodName));
+                    if (text != null) {
+                        addOutput(text);
+                    }
+                } else if (event.getKind() == InterceptEvent.Kind.THROW) {
+                    addOutput(String.format("[%s] 方法 %s.%s 抛出: %s",
+                            timestamp,
+                            targetClass.getSimpleName(),
+                            methodName,
+                            text));
+                } else {
+                    addOutput(String.format("[%s] 方法 %s.%s 返回: %s",
+                            timestamp,
+                            targetClass.getSimpleName(),
+                            methodName,
+                            text));
+                }
             }
         };
     }
@@ -189,6 +222,7 @@ public class WatchInterceptTask extends AbstractInterceptTask {
         }
 
         running.set(false);
+        detachEventListener();
         logger.info("停止Watch任务: " + id);
 
         if (scheduledFuture != null) {
@@ -228,7 +262,12 @@ public class WatchInterceptTask extends AbstractInterceptTask {
 
     public String getOutput(int limit) {
         synchronized (outputBuffer) {
-            if (outputBuffer.isEmpty()) return "暂无输出";
+            if (outputBuffer.isEmpty()) {
+                if (droppedEvents.get() == 0) return "暂无输出";
+                StringBuilder sb = new StringBuilder("暂无输出\n");
+                appendDropped(sb);
+                return sb.toString();
+            }
 
             StringBuilder sb = new StringBuilder();
             sb.append("=== Watch ").append(id).append(" 输出 (最近").append(limit).append("条) ===\n");
@@ -239,10 +278,18 @@ public class WatchInterceptTask extends AbstractInterceptTask {
             }
 
             sb.append("总计: ").append(outputCount.get()).append(" 条记录\n");
+            appendDropped(sb);
             return sb.toString();
         }
     }
 
+    private void appendDropped(StringBuilder sb) {
+        long dropped = droppedEvents.get();
+        if (dropped > 0) {
+            sb.append("丢弃: ").append(dropped).append(" 条事件（事件缓冲区已满）\n");
+        }
+    }
+
     @NonNull
     @Override
     public String toString() {
@@ -6,10 +6,16 @@ import com.justnothing.testmodule.command.base.protocol.CommandResult;
 import com.justnothing.testmodule.command.functions.performance.PerfTaskManager;
 import com.justnothing.testmodule.command.functions.performance.PerformanceCommand;
 import com.justnothing.testmodule.command.functions.performance.PerformanceRequest;
+import com.justnothing.testmodule.command.functions.performance.sampler.SampleData;
+import com.justnothing.testmodule.command.functions.performance.sampler.SampleOverhead;
+import com.justnothing.testmodule.command.functions.performance.sampler.ThreadTarget;
 import com.justnothing.testmodule.command.output.Colors;
 import com.justnothing.testmodule.utils.io.IOManager;
 import com.justnothing.testmodule.utils.logging.Logger;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.Locale;
@@ -82,6 +88,63 @@ public abstract class AbstractPerfCommand<Req extends PerformanceRequest, Res ex
             return false;
         }
     }
+    /**
+     * 解析 --threads 参数，无效时输出错误并返回 null。
+     */
+    protected ThreadTarget parseThreadTarget(String spec) {
+        try {
+            return ThreadTarget.parse(spec);
+        } catch (IllegalArgumentException e) {
+            logger.warn("目标线程无效: %s (%s)", spec, e.getMessage());
+            outln("错误: " + e.getMessage(), Colors.RED);
+            outln("可用的目标线程: all, main, name:<正则>, group:<线程组>", Colors.GRAY);
+            return null;
+        }
+    }
+
+    /**
+     * 检查 --budget 参数（百分比），无效时输出错误并返回 false。
+     */
+    protected boolean checkCostBudget(double budgetPercent) {
+        if (budgetPercent < 0 || budgetPercent >= 100) {
+            outln("错误: 开销预算必须在 0 ~ 100 之间", Colors.RED);
+            return false;
+        }
+        return true;
+    }
+
+    /** 输出采样器自身的开销统计。 */
+    protected void printOverhead(SampleData data) {
+        SampleOverhead o = data.overhead();
+        double ratio = data.getOverheadRatio();
+        out("目标线程: ", Colors.CYAN); outln(o.threadTarget(), Colors.WHITE);
+        out("实际频率: ", Colors.CYAN);
+        outln(String.format(Locale.getDefault(), "%.1f Hz (请求 %d Hz)",
+                data.getEffectiveRate(), data.sampleRate()), Colors.WHITE);
+        out("采样开销: ", Colors.CYAN);
+        outln(String.format(Locale.getDefault(), "平均 %s / 最大 %s, 占用 %.2f%% 时间",
+                formatDurationNs(o.getAverageCostNs(data.totalSamples())), formatDurationNs(o.maxCostNs()),
+                ratio * 100), o.costBudget() > 0 && ratio > o.costBudget() ? Colors.YELLOW : Colors.WHITE);
+        if (o.skippedTicks() > 0) {
+            out("降频跳过: ", Colors.CYAN);
+            outln(String.format(Locale.getDefault(), "%d 次 (预算 %.1f%%, 结束时 %.1f Hz)",
+                    o.skippedTicks(), o.costBudget() * 100, o.getFinalRate()), Colors.YELLOW);
+        }
+    }
+
+    protected JSONObject overheadJson(SampleData data) throws JSONException {
+        SampleOverhead o = data.overhead();
+        return new JSONObject()
+                .put("threadTarget", o.threadTarget())
+                .put("costBudget", o.costBudget())
+                .put("effectiveRate", data.getEffectiveRate())
+                .put("overheadRatio", data.getOverheadRatio())
+                .put("totalCostNs", o.totalCostNs())
+                .put("avgCostNs", o.getAverageCostNs(data.totalSamples()))
+                .put("maxCostNs", o.maxCostNs())
+                .put("capturedStacks", o.capturedStacks())
+                .put("skippedTicks", o.skippedTicks());
+    }
 
     protected boolean isStructuredMode() {
         return context != null;
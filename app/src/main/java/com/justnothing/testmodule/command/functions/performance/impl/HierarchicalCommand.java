@@ -7,11 +7,14 @@ import com.justnothing.testmodule.command.functions.performance.request.*;
 import com.justnothing.testmodule.command.functions.performance.response.HierarchicalResult;
 import com.justnothing.testmodule.command.functions.performance.sampler.HierarchicalSampleData;
 import com.justnothing.testmodule.command.functions.performance.sampler.HierarchicalSampler;
+import com.justnothing.testmodule.command.functions.performance.sampler.StackExporter;
+import com.justnothing.testmodule.command.functions.performance.sampler.ThreadTarget;
 import com.justnothing.testmodule.command.output.Colors;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Locale;
 import java.util.Map;
@@ -22,16 +25,27 @@ import java.util.stream.Collectors;
     usage = "performance hierarchical <action> [args...]",
     examples = {
         "performance hierarchical start 1000",
+        "performance hierarchical start 200 --threads main --budget 2",
         "performance hierarchical stop 1",
         "performance hierarchical report 1",
-        "performance hierarchical export 1 /sdcard/hier.json"
+        "performance hierarchical export 1 /sdcard/hier.json",
+        "performance hierarchical export 1 /sdcard/hier.folded",
+        "performance hierarchical export 1 /sdcard/hier.txt --format tree --min-percent 1"
     },
     optionsDesc = """
         Actions:
             start [rate] [--exclude pattern]   开始分层采样
+                  [--threads target]           目标线程: all / main / name:<正则> / group:<线程组>
+                  [--budget percent]           开销预算 (默认 5%，超出时自动降频)
             stop <id>                          停止采样
             report [id]                        查看报告 (默认最新)
-            export <id> <path>                 导出数据"""
+            export <id> <path> [--format f]    导出数据
+
+        导出格式 (--format, 默认按扩展名推断):
+            json        采样概要 JSON
+            collapsed   折叠栈 (.folded)，可交给 flamegraph.pl 生成火焰图
+            speedscope  speedscope JSON (.speedscope.json)
+            tree        文本调用树 (.txt)，按 --min-percent 剪枝 (默认 0.5)"""
 )
 public class HierarchicalCommand extends AbstractPerfCommand<PerformanceRequest, HierarchicalResult> {
 
@@ -73,9 +87,16 @@ public class HierarchicalCommand extends AbstractPerfCommand<PerformanceRequest,
             outln("警告: 频率过高", Colors.YELLOW);
         }
 
+        ThreadTarget target = parseThreadTarget(req.getThreads());
+        if (target == null || !checkCostBudget(req.getBudget())) {
+            return null;
+        }
+
         PerfTaskManager mgr = getTaskManager();
-        int id = mgr.addHierarchicalSampler(new HierarchicalSampler(rate));
-        mgr.getHierarchicalSampler(id).start();
+        HierarchicalSampler sampler = new HierarchicalSampler(rate, target);
+        sampler.setCostBudget(req.getBudget() / 100);
+        int id = mgr.addHierarchicalSampler(sampler);
+        sampler.start();
 
         logger.info("[hier/start] ✅ 分层采样器已启动: ID=%d, rate=%dHz", id, rate);
 
@@ -83,11 +104,14 @@ public class HierarchicalCommand extends AbstractPerfCommand<PerformanceRequest,
         r.setTaskId(id);
         r.setSampleRate(rate);
         r.setStatus("running");
+        r.setThreadTarget(target.toString());
         outln("分层采样器已启动", Colors.GREEN);
         out("ID: ", Colors.CYAN);
         outln(String.valueOf(id), Colors.YELLOW);
         out("频率: ", Colors.CYAN);
         outln(rate + " Hz", Colors.YELLOW);
+        out("目标线程: ", Colors.CYAN);
+        outln(target.toString(), Colors.YELLOW);
         return r;
     }
 
@@ -114,8 +138,10 @@ public class HierarchicalCommand extends AbstractPerfCommand<PerformanceRequest,
         logger.info("[hier/stop] 采样器已停止: ID=%d, 总采样=%d, 持续=%s, 方法数=%d",
                 taskId, totalSamples, formatDurationNs(duration), s.getMethodCount());
 
-        HierarchicalSampleData d = new HierarchicalSampleData(taskId, s.getSampleRate(), s.getStartTime(),
-                s.getStopTime(), s.getTotalSamples(), s.getReport(), s.getCallerCounts(), s.getMethodCount());
+        HierarchicalSampleData sampled = s.getData();
+        HierarchicalSampleData d = new HierarchicalSampleData(taskId, sampled.sampleRate(), sampled.startTime(),
+                sampled.stopTime(), sampled.totalSamples(), sampled.methodCallInfos(), sampled.callerCounts(),
+                sampled.methodCount(), sampled.callTree(), sampled.overhead());
         mgr.addHierarchicalSampleData(taskId, d);
 
         logger.debug("[hier/stop] 数据已存储: ID=%d, 方法数=%d", taskId, d.methodCount());
@@ -126,11 +152,13 @@ public class HierarchicalCommand extends AbstractPerfCommand<PerformanceRequest,
         r.setStatus("stopped");
         r.setTotalSamples(s.getTotalSamples());
         r.setMethodCount(s.getMethodCount());
+        fillOverhead(r, d);
         outln("采样器已停止", Colors.YELLOW);
         out("ID: ", Colors.CYAN); outln(String.valueOf(taskId), Colors.YELLOW);
         out("总采样次数: ", Colors.CYAN); outln(String.valueOf(totalSamples), Colors.YELLOW);
         out("持续时间: ", Colors.CYAN); outln(formatDurationNs(duration), Colors.YELLOW);
         out("捕获方法数: ", Colors.CYAN); outln(String.valueOf(s.getMethodCount()), Colors.YELLOW);
+        printOverhead(d);
         return r;
     }
 
@@ -190,6 +218,7 @@ public class HierarchicalCommand extends AbstractPerfCommand<PerformanceRequest,
         r.setSampleRate(d.sampleRate());
         r.setTotalSamples(d.totalSamples());
         r.setMethodCount(d.methodCount());
+        fillOverhead(r, d);
 
         outln("", Colors.DEFAULT);
         outln("=== 分层采样报告 ===", Colors.CYAN);
@@ -197,6 +226,7 @@ public class HierarchicalCommand extends AbstractPerfCommand<PerformanceRequest,
         out("采样率: ", Colors.CYAN); outln(d.sampleRate() + " Hz", Colors.WHITE);
         out("总采样数: ", Colors.CYAN); outln(String.valueOf(d.totalSamples()), Colors.WHITE);
         out("持续时间: ", Colors.CYAN); outln(formatDurationNs(d.getDuration()), Colors.WHITE);
+        printOverhead(d);
         out("热点方法 TOP-" + Math.min(d.methodCallInfos().size(), 20) + ":", Colors.CYAN);
         outln("", Colors.DEFAULT);
 
@@ -263,18 +293,32 @@ public class HierarchicalCommand extends AbstractPerfCommand<PerformanceRequest,
             return null;
         }
 
-        JSONObject j = new JSONObject();
-        j.put("id", d.id()).put("sampleRate", d.sampleRate())
-         .put("totalSamples", d.totalSamples()).put("methodCount", d.methodCount())
-         .put("duration", d.getDuration());
+        StackExporter.Format format;
+        try {
+            format = StackExporter.Format.resolve(req.getFormat(), filePath);
+        } catch (IllegalArgumentException e) {
+            logger.warn("[hier/export] ❌ %s", e.getMessage());
+            outln("错误: " + e.getMessage(), Colors.RED);
+            outln("可用格式: json, collapsed, speedscope, tree", Colors.GRAY);
+            return null;
+        }
+
+        String content;
+        try {
+            content = formatExport(d, format, req.getMinPercent());
+        } catch (IOException e) {
+            logger.error("[hier/export] ❌ 生成导出内容失败", e);
+            outln("导出失败: " + e.getMessage(), Colors.RED);
+            return null;
+        }
 
-        if (!writeToFile(filePath, j.toString(2))) {
+        if (!writeToFile(filePath, content)) {
             logger.error("[hier/export] ❌ 写入文件失败: %s", filePath);
             outln("导出失败: 无法写入文件", Colors.RED);
             return null;
         }
 
-        logger.info("[hier/export] ✅ 导出成功: %s, 方法数=%d", filePath, d.methodCount());
+        logger.info("[hier/export] ✅ 导出成功: %s, 格式=%s, 方法数=%d", filePath, format, d.methodCount());
 
         HierarchicalResult r = new HierarchicalResult();
         r.setTaskId(taskId);
@@ -282,11 +326,40 @@ public class HierarchicalCommand extends AbstractPerfCommand<PerformanceRequest,
         r.setExportPath(filePath);
         outln("数据已导出", Colors.GREEN);
         out("路径: ", Colors.CYAN); outln(filePath, Colors.YELLOW);
+        out("格式: ", Colors.CYAN); outln(format.name().toLowerCase(Locale.ROOT), Colors.WHITE);
         out("方法数: ", Colors.CYAN); outln(String.valueOf(d.methodCount()), Colors.WHITE);
         out("总采样: ", Colors.CYAN); outln(String.valueOf(d.totalSamples()), Colors.WHITE);
+        if (format != StackExporter.Format.JSON) {
+            out("调用树节点: ", Colors.CYAN); outln(String.valueOf(d.callTree().getNodeCount()), Colors.WHITE);
+        }
         return r;
     }
 
+    private String formatExport(HierarchicalSampleData d, StackExporter.Format format, double minPercent)
+            throws IOException, JSONException {
+        StringBuilder sb = new StringBuilder();
+        switch (format) {
+            case COLLAPSED -> StackExporter.writeCollapsed(d.callTree(), sb);
+            case SPEEDSCOPE -> StackExporter.writeSpeedscope(d.callTree(), "hierarchical #" + d.id(), sb);
+            case TREE -> StackExporter.writeTree(d.callTree(), minPercent, Integer.MAX_VALUE, sb);
+            default -> {
+                JSONObject j = new JSONObject();
+                j.put("id", d.id()).put("sampleRate", d.sampleRate())
+                 .put("totalSamples", d.totalSamples()).put("methodCount", d.methodCount())
+                 .put("duration", d.getDuration());
+                j.put("overhead", overheadJson(d));
+                sb.append(j.toString(2));
+            }
+        }
+        return sb.toString();
+    }
+
+    private void fillOverhead(HierarchicalResult r, HierarchicalSampleData d) {
+        r.setThreadTarget(d.overhead().threadTarget());
+        r.setEffectiveRate(d.getEffectiveRate());
+        r.setOverheadRatio(d.getOverheadRatio());
+    }
+
     private Integer findLatestId(Map<Integer, ?> dataMap) {
         int maxId = -1;
         for (Integer id : dataMap.keySet()) {
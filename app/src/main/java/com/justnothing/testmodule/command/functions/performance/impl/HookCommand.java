@@ -3,6 +3,7 @@ package com.justnothing.testmodule.command.functions.performance.impl;
 import com.justnothing.testmodule.command.base.command.SubCommandInfo;
 import androidx.annotation.NonNull;
 
+import com.justnothing.testmodule.command.functions.intercept.LatencyHistogram;
 import com.justnothing.testmodule.command.functions.intercept.PerformanceInterceptTask;
 import com.justnothing.testmodule.command.functions.performance.PerformanceManager;
 import com.justnothing.testmodule.command.functions.performance.PerformanceRequest;
@@ -12,7 +13,9 @@ import com.justnothing.testmodule.command.output.Colors;
 
 import org.json.JSONObject;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @SubCommandInfo(
@@ -147,6 +150,7 @@ public class HookCommand extends AbstractPerfCommand<PerformanceRequest, PerfHoo
             outln(formatDurationNs((long) stats.avgDurationNs()) + "/"
                     + formatDurationNs(stats.minDurationNs()) + "/"
                     + formatDurationNs(stats.maxDurationNs()), Colors.YELLOW);
+            printPercentiles("p50/p90/p99/p999: ", stats.latency());
         }
         return r;
     }
@@ -166,10 +170,45 @@ public class HookCommand extends AbstractPerfCommand<PerformanceRequest, PerfHoo
             r.setMinDurationNs(stats.minDurationNs());
             r.setMaxDurationNs(stats.maxDurationNs());
             r.setMonitorDuration(stats.getDurationMs());
+            fillLatency(r, stats);
         }
         return r;
     }
 
+    private static void fillLatency(PerfHookResult r, PerformanceInterceptTask.PerformanceStats stats) {
+        LatencyHistogram.Snapshot all = stats.latency();
+        r.setP50Ns(all.getP50Ns());
+        r.setP90Ns(all.getP90Ns());
+        r.setP99Ns(all.getP99Ns());
+        r.setP999Ns(all.getP999Ns());
+
+        List<PerfHookResult.LatencyEntry> windows = new ArrayList<>();
+        windows.add(toLatencyEntry("10s", stats.latencyShortWindow()));
+        windows.add(toLatencyEntry("1m", stats.latencyLongWindow()));
+        r.setLatencyWindows(windows);
+
+        List<PerfHookResult.LatencyEntry> methods = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram.Snapshot> e : stats.latencyByMethod().entrySet()) {
+            methods.add(toLatencyEntry(e.getKey(), e.getValue()));
+        }
+        r.setMethodLatencies(methods);
+    }
+
+    private static PerfHookResult.LatencyEntry toLatencyEntry(String name, LatencyHistogram.Snapshot s) {
+        return new PerfHookResult.LatencyEntry(name, s.getCount(), s.getP50Ns(), s.getP90Ns(),
+                s.getP99Ns(), s.getP999Ns(), s.getMaxNs());
+    }
+
+    private static JSONObject latencyJson(LatencyHistogram.Snapshot s) throws org.json.JSONException {
+        return new JSONObject()
+                .put("count", s.getCount())
+                .put("p50Ns", s.getP50Ns())
+                .put("p90Ns", s.getP90Ns())
+                .put("p99Ns", s.getP99Ns())
+                .put("p999Ns", s.getP999Ns())
+                .put("maxNs", s.getMaxNs());
+    }
+
     private PerfHookResult handleReport(PerfHookReportRequest req) {
         Integer taskId = req.getTaskId();
 
@@ -213,6 +252,7 @@ public class HookCommand extends AbstractPerfCommand<PerformanceRequest, PerfHoo
             r.setMinDurationNs(stats.minDurationNs());
             r.setMaxDurationNs(stats.maxDurationNs());
             r.setMonitorDuration(stats.getDurationMs());
+            fillLatency(r, stats);
             printStats(stats);
             return r;
         } else {
@@ -255,12 +295,37 @@ public class HookCommand extends AbstractPerfCommand<PerformanceRequest, PerfHoo
         out("平均/最小/最大: ", Colors.CYAN);
         outln(formatDurationNs((long) s.avgDurationNs()) + "/" + formatDurationNs(s.minDurationNs()) + "/"
                 + formatDurationNs(s.maxDurationNs()), Colors.YELLOW);
+        printPercentiles("p50/p90/p99/p999: ", s.latency());
+        printPercentiles("最近10s: ", s.latencyShortWindow());
+        printPercentiles("最近1min: ", s.latencyLongWindow());
+        if (s.latencyByMethod().size() > 1) {
+            outln("按方法:", Colors.CYAN);
+            for (Map.Entry<String, LatencyHistogram.Snapshot> e : s.latencyByMethod().entrySet()) {
+                out("  " + e.getKey() + " ", Colors.WHITE);
+                out("(" + e.getValue().getCount() + "次) ", Colors.GRAY);
+                outln(formatPercentiles(e.getValue()), Colors.YELLOW);
+            }
+        }
         if (s.getDurationMs() > 0) {
             out("监控时长: ", Colors.CYAN);
             outln(s.getDurationMs() + "ms", Colors.WHITE);
         }
     }
 
+    private void printPercentiles(String label, LatencyHistogram.Snapshot snapshot) {
+        out(label, Colors.CYAN);
+        if (snapshot.getCount() == 0) {
+            outln("无数据", Colors.GRAY);
+            return;
+        }
+        outln(formatPercentiles(snapshot) + " (" + snapshot.getCount() + "次)", Colors.YELLOW);
+    }
+
+    private String formatPercentiles(LatencyHistogram.Snapshot s) {
+        return formatDurationNs(s.getP50Ns()) + "/" + formatDurationNs(s.getP90Ns()) + "/"
+                + formatDurationNs(s.getP99Ns()) + "/" + formatDurationNs(s.getP999Ns());
+    }
+
     private PerfHookResult handleExport(PerfHookExportRequest req) {
         int taskId = req.getTaskId();
         String filePath = req.getFilePath();
@@ -295,6 +360,7 @@ public class HookCommand extends AbstractPerfCommand<PerformanceRequest, PerfHoo
         r.setCallCount(stats.callCount());
         r.setTotalDurationNs(stats.totalDurationNs());
         r.setAvgDurationNs(stats.avgDurationNs());
+        fillLatency(r, stats);
         r.setExportPath(filePath);
 
         JSONObject json = new JSONObject();
@@ -308,7 +374,16 @@ public class HookCommand extends AbstractPerfCommand<PerformanceRequest, PerfHoo
                .put("avgDurationNs", stats.avgDurationNs())
                .put("minDurationNs", stats.minDurationNs())
                .put("maxDurationNs", stats.maxDurationNs())
-               .put("monitorDurationMs", stats.getDurationMs());
+               .put("monitorDurationMs", stats.getDurationMs())
+               .put("latency", latencyJson(stats.latency()))
+               .put("latency10s", latencyJson(stats.latencyShortWindow()))
+               .put("latency1m", latencyJson(stats.latencyLongWindow()));
+
+            JSONObject methods = new JSONObject();
+            for (Map.Entry<String, LatencyHistogram.Snapshot> e : stats.latencyByMethod().entrySet()) {
+                methods.put(e.getKey(), latencyJson(e.getValue()));
+            }
+            json.put("methods", methods);
 
             if (!writeToFile(filePath, json.toString(2))) {
                 logger.error("[hook/export] ❌ 写入文件失败: %s", filePath);
@@ -7,6 +7,7 @@ import com.justnothing.testmodule.command.functions.performance.request.*;
 import com.justnothing.testmodule.command.functions.performance.response.MultiThreadResult;
 import com.justnothing.testmodule.command.functions.performance.sampler.MultiThreadSampleData;
 import com.justnothing.testmodule.command.functions.performance.sampler.MultiThreadSampler;
+import com.justnothing.testmodule.command.functions.performance.sampler.ThreadTarget;
 import com.justnothing.testmodule.command.output.Colors;
 
 import org.json.JSONException;
@@ -23,6 +24,7 @@ import java.util.stream.Collectors;
     usage = "performance multithread <action> [args...]",
     examples = {
         "performance multithread start 1000",
+        "performance multithread start 200 --threads group:main --budget 2",
         "performance multithread stop 1",
         "performance multithread report 1",
         "performance multithread export 1 /sdcard/mt.json"
@@ -30,6 +32,8 @@ import java.util.stream.Collectors;
     optionsDesc = """
         Actions:
             start [rate] [--exclude pattern]   开始多线程采样
+                  [--threads target]           目标线程: all / main / name:<正则> / group:<线程组>
+                  [--budget percent]           开销预算 (默认 5%，超出时自动降频)
             stop <id>                          停止采样
             report [id]                        查看报告 (默认最新)
             export <id> <path>                 导出数据"""
@@ -74,9 +78,16 @@ public class MultiThreadCommand extends AbstractPerfCommand<PerformanceRequest,
             outln("警告: 频率过高", Colors.YELLOW);
         }
 
+        ThreadTarget target = parseThreadTarget(req.getThreads());
+        if (target == null || !checkCostBudget(req.getBudget())) {
+            return null;
+        }
+
         PerfTaskManager mgr = getTaskManager();
-        int id = mgr.addMultiThreadSampler(new MultiThreadSampler(rate));
-        mgr.getMultiThreadSampler(id).start();
+        MultiThreadSampler sampler = new MultiThreadSampler(rate, target);
+        sampler.setCostBudget(req.getBudget() / 100);
+        int id = mgr.addMultiThreadSampler(sampler);
+        sampler.start();
 
         logger.info("[mt/start] ✅ 多线程采样器已启动: ID=%d, rate=%dHz", id, rate);
 
@@ -84,11 +95,14 @@ public class MultiThreadCommand extends AbstractPerfCommand<PerformanceRequest,
         r.setTaskId(id);
         r.setSampleRate(rate);
         r.setStatus("running");
+        r.setThreadTarget(target.toString());
         outln("多线程采样器已启动", Colors.GREEN);
         out("ID: ", Colors.CYAN);
         outln(String.valueOf(id), Colors.YELLOW);
         out("频率: ", Colors.CYAN);
         outln(rate + " Hz", Colors.YELLOW);
+        out("目标线程: ", Colors.CYAN);
+        outln(target.toString(), Colors.YELLOW);
         return r;
     }
 
@@ -116,7 +130,8 @@ public class MultiThreadCommand extends AbstractPerfCommand<PerformanceRequest,
                 taskId, totalSamples, formatDurationNs(duration), s.getThreadCount());
 
         MultiThreadSampleData d = new MultiThreadSampleData(taskId, s.getSampleRate(), s.getStartTime(),
-                s.getStopTime(), s.getTotalSamples(), s.getReport(), s.getThreadSampleCounts(), s.getThreadCount());
+                s.getStopTime(), s.getTotalSamples(), s.getReport(), s.getThreadSampleCounts(), s.getThreadCount(),
+                s.getOverhead());
         mgr.addMultiThreadSampleData(taskId, d);
 
         logger.debug("[mt/stop] 数据已存储: ID=%d, 线程数=%d", taskId, d.threadCount());
@@ -127,11 +142,13 @@ public class MultiThreadCommand extends AbstractPerfCommand<PerformanceRequest,
         r.setStatus("stopped");
         r.setTotalSamples(s.getTotalSamples());
         r.setThreadCount(s.getThreadCount());
+        fillOverhead(r, d);
         outln("采样器已停止", Colors.YELLOW);
         out("ID: ", Colors.CYAN); outln(String.valueOf(taskId), Colors.YELLOW);
         out("总采样次数: ", Colors.CYAN); outln(String.valueOf(totalSamples), Colors.YELLOW);
         out("持续时间: ", Colors.CYAN); outln(formatDurationNs(duration), Colors.YELLOW);
         out("检测线程数: ", Colors.CYAN); outln(String.valueOf(s.getThreadCount()), Colors.YELLOW);
+        printOverhead(d);
         return r;
     }
 
@@ -191,6 +208,7 @@ public class MultiThreadCommand extends AbstractPerfCommand<PerformanceRequest,
         r.setSampleRate(d.sampleRate());
         r.setTotalSamples(d.totalSamples());
         r.setThreadCount(d.threadCount());
+        fillOverhead(r, d);
 
         outln("", Colors.DEFAULT);
         outln("=== 多线程采样报告 ===", Colors.CYAN);
@@ -199,6 +217,7 @@ public class MultiThreadCommand extends AbstractPerfCommand<PerformanceRequest,
         out("总采样数: ", Colors.CYAN); outln(String.valueOf(d.totalSamples()), Colors.WHITE);
         out("持续时间: ", Colors.CYAN); outln(formatDurationNs(d.getDuration()), Colors.WHITE);
         out("检测线程数: ", Colors.CYAN); outln(String.valueOf(d.threadCount()), Colors.WHITE);
+        printOverhead(d);
         outln("", Colors.DEFAULT);
 
         ArrayList<MultiThreadResult.ThreadEntry> threadEntries = new ArrayList<>();
@@ -257,6 +276,7 @@ public class MultiThreadCommand extends AbstractPerfCommand<PerformanceRequest,
         JSONObject json = new JSONObject();
         json.put("id", d.id()).put("sampleRate", d.sampleRate()).put("totalSamples", d.totalSamples())
                 .put("threadCount", d.threadCount()).put("duration", d.getDuration());
+        json.put("overhead", overheadJson(d));
 
         if (!writeToFile(filePath, json.toString(2))) {
             logger.error("[mt/export] ❌ 写入文件失败: %s", filePath);
@@ -277,6 +297,12 @@ public class MultiThreadCommand extends AbstractPerfCommand<PerformanceRequest,
         return r;
     }
 
+    private void fillOverhead(MultiThreadResult r, MultiThreadSampleData d) {
+        r.setThreadTarget(d.overhead().threadTarget());
+        r.setEffectiveRate(d.getEffectiveRate());
+        r.setOverheadRatio(d.getOverheadRatio());
+    }
+
     private Integer findLatestId(Map<Integer, ?> dataMap) {
         int maxId = -1;
         for (Integer id : dataMap.keySet()) {
@@ -7,11 +7,14 @@ import com.justnothing.testmodule.command.functions.performance.request.*;
 import com.justnothing.testmodule.command.functions.performance.response.SampleResult;
 import com.justnothing.testmodule.command.functions.performance.sampler.SimpleSampleData;
 import com.justnothing.testmodule.command.functions.performance.sampler.SimpleSampler;
+import com.justnothing.testmodule.command.functions.performance.sampler.StackExporter;
+import com.justnothing.testmodule.command.functions.performance.sampler.ThreadTarget;
 import com.justnothing.testmodule.command.output.Colors;
 
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Locale;
 import java.util.Map;
@@ -24,17 +27,36 @@ import java.util.stream.Collectors;
     examples = {
         "performance sample start 1000",
         "performance sample start 500 --exclude android.*",
+        "performance sample start 1000 --threads main",
+        "performance sample start 500 -t \"name:^(RenderThread|binder:.*)$\" --budget 2",
         "performance sample stop 1",
         "performance sample report 1",
         "performance sample report",
-        "performance sample export 1 /sdcard/sample.json"
+        "performance sample export 1 /sdcard/sample.json",
+        "performance sample export 1 /sdcard/sample.folded",
+        "performance sample export 1 /sdcard/sample.speedscope.json",
+        "performance sample export 1 /sdcard/sample.txt --format tree --min-percent 1"
     },
     optionsDesc = """
         Actions:
             start [rate] [--exclude pattern]   开始采样 (默认100Hz)
+                  [--threads target]           目标线程 (默认 all)
+                  [--budget percent]           开销预算 (默认 5%，超出时自动降频)
             stop <id>                          停止采样
             report [id]                        查看报告 (默认最新)
-            export <id> <path>                 导出数据"""
+            export <id> <path> [--format f]    导出数据
+
+        导出格式 (--format, 默认按扩展名推断):
+            json        方法计数 JSON
+            collapsed   折叠栈 (.folded)，可交给 flamegraph.pl 生成火焰图
+            speedscope  speedscope JSON (.speedscope.json)
+            tree        文本调用树 (.txt)，按 --min-percent 剪枝 (默认 0.5)
+
+        目标线程 (--threads):
+            all                全部线程 (默认)
+            main               主线程
+            name:<正则>        线程名匹配正则的线程 (也可以直接写正则)
+            group:<线程组>     属于该线程组的线程"""
 )
 public class SampleCommand extends AbstractPerfCommand<PerformanceRequest, SampleResult> {
 
@@ -77,9 +99,16 @@ public class SampleCommand extends AbstractPerfCommand<PerformanceRequest, Sampl
             outln("警告: 频率过高", Colors.YELLOW);
         }
 
+        ThreadTarget target = parseThreadTarget(req.getThreads());
+        if (target == null || !checkCostBudget(req.getBudget())) {
+            return null;
+        }
+
         PerfTaskManager mgr = getTaskManager();
-        int id = mgr.addSimpleSampler(new SimpleSampler(rate));
-        mgr.getSimpleSampler(id).start();
+        SimpleSampler sampler = new SimpleSampler(rate, target);
+        sampler.setCostBudget(req.getBudget() / 100);
+        int id = mgr.addSimpleSampler(sampler);
+        sampler.start();
 
         logger.info("[sample/start] ✅ 采样器已启动: ID=%d, rate=%dHz", id, rate);
 
@@ -87,11 +116,14 @@ public class SampleCommand extends AbstractPerfCommand<PerformanceRequest, Sampl
         r.setTaskId(id);
         r.setSampleRate(rate);
         r.setStatus("running");
+        r.setThreadTarget(target.toString());
         outln("采样器已启动", Colors.GREEN);
         out("ID: ", Colors.CYAN);
         outln(String.valueOf(id), Colors.YELLOW);
         out("频率: ", Colors.CYAN);
         outln(rate + " Hz", Colors.YELLOW);
+        out("目标线程: ", Colors.CYAN);
+        outln(target.toString(), Colors.YELLOW);
         if (exclude != null && !exclude.isEmpty()) {
             out("排除模式: ", Colors.CYAN);
             outln(exclude, Colors.YELLOW);
@@ -127,7 +159,7 @@ public class SampleCommand extends AbstractPerfCommand<PerformanceRequest, Sampl
                 taskId, totalSamples, formatDurationNs(duration));
 
         SimpleSampleData data = new SimpleSampleData(taskId, s.getSampleRate(), s.getStartTime(), s.getStopTime(),
-                (int) totalSamples, s.getReport());
+                (int) totalSamples, s.getReport(), s.getCallTree(), s.getOverhead());
         mgr.addSimpleSampleData(taskId, data);
 
         logger.debug("[sample/stop] 数据已存储: ID=%d, 方法数=%d", taskId, data.methodCounts().size());
@@ -139,12 +171,14 @@ public class SampleCommand extends AbstractPerfCommand<PerformanceRequest, Sampl
         r.setTotalSamples((int) totalSamples);
         r.setDuration(data.getDuration());
         r.setDurationStr(data.getDurationString());
+        fillOverhead(r, data);
 
         outln("采样器已停止", Colors.YELLOW);
         out("ID: ", Colors.CYAN); outln(String.valueOf(taskId), Colors.YELLOW);
         out("总采样次数: ", Colors.CYAN); outln(String.valueOf(totalSamples), Colors.YELLOW);
         out("持续时间: ", Colors.CYAN); outln(data.getDurationString(), Colors.YELLOW);
         out("捕获方法数: ", Colors.CYAN); outln(String.valueOf(data.methodCounts().size()), Colors.YELLOW);
+        printOverhead(data);
         return r;
     }
 
@@ -205,6 +239,7 @@ public class SampleCommand extends AbstractPerfCommand<PerformanceRequest, Sampl
         r.setTotalSamples(data.totalSamples());
         r.setDuration(data.getDuration());
         r.setDurationStr(data.getDurationString());
+        fillOverhead(r, data);
 
         outln("", Colors.DEFAULT);
         outln("=== 单线程采样报告 ===", Colors.CYAN);
@@ -212,6 +247,7 @@ public class SampleCommand extends AbstractPerfCommand<PerformanceRequest, Sampl
         out("采样率: ", Colors.CYAN); outln(data.sampleRate() + " Hz", Colors.WHITE);
         out("总采样数: ", Colors.CYAN); outln(String.valueOf(data.totalSamples()), Colors.WHITE);
         out("持续时间: ", Colors.CYAN); outln(data.getDurationString(), Colors.WHITE);
+        printOverhead(data);
         out("热点方法 TOP-" + Math.min(data.methodCounts().size(), 20) + ":", Colors.CYAN);
         outln("", Colors.DEFAULT);
 
@@ -254,33 +290,76 @@ public class SampleCommand extends AbstractPerfCommand<PerformanceRequest, Sampl
             return null;
         }
 
-        JSONObject json = new JSONObject();
-        json.put("id", data.id()).put("sampleRate", data.sampleRate())
-           .put("totalSamples", data.totalSamples()).put("duration", data.getDuration());
-        JSONObject mc = new JSONObject();
-        for (Map.Entry<String, Integer> e : data.methodCounts().entrySet()) {
-            mc.put(e.getKey(), e.getValue());
+        StackExporter.Format format;
+        try {
+            format = StackExporter.Format.resolve(req.getFormat(), filePath);
+        } catch (IllegalArgumentException e) {
+            logger.warn("[sample/export] ❌ %s", e.getMessage());
+            outln("错误: " + e.getMessage(), Colors.RED);
+            outln("可用格式: json, collapsed, speedscope, tree", Colors.GRAY);
+            return null;
+        }
+
+        String content;
+        try {
+            content = formatExport(data, format, req.getMinPercent());
+        } catch (IOException e) {
+            logger.error("[sample/export] ❌ 生成导出内容失败", e);
+            outln("导出失败: " + e.getMessage(), Colors.RED);
+            return null;
         }
-        json.put("methodCounts", mc);
 
-        if (!writeToFile(filePath, json.toString(2))) {
+        if (!writeToFile(filePath, content)) {
             logger.error("[sample/export] ❌ 写入文件失败: %s", filePath);
             outln("导出失败: 无法写入文件", Colors.RED);
             return null;
         }
 
-        logger.info("[sample/export] ✅ 导出成功: %s (%d bytes approx)", filePath,
-                json.toString().length());
+        logger.info("[sample/export] ✅ 导出成功: %s, 格式=%s (%d bytes approx)", filePath,
+                format, content.length());
         SampleResult r = new SampleResult();
         r.setTaskId(taskId);
         r.setStatus("exported");
         r.setExportPath(filePath);
         outln("数据已导出", Colors.GREEN);
         out("路径: ", Colors.CYAN); outln(filePath, Colors.YELLOW);
+        out("格式: ", Colors.CYAN); outln(format.name().toLowerCase(Locale.ROOT), Colors.WHITE);
         out("方法数: ", Colors.CYAN); outln(String.valueOf(data.methodCounts().size()), Colors.WHITE);
+        if (format != StackExporter.Format.JSON) {
+            out("调用树节点: ", Colors.CYAN); outln(String.valueOf(data.callTree().getNodeCount()), Colors.WHITE);
+        }
         return r;
     }
 
+    private String formatExport(SimpleSampleData data, StackExporter.Format format, double minPercent)
+            throws IOException, JSONException {
+        StringBuilder sb = new StringBuilder();
+        switch (format) {
+            case COLLAPSED -> StackExporter.writeCollapsed(data.callTree(), sb);
+            case SPEEDSCOPE -> StackExporter.writeSpeedscope(data.callTree(), "sample #" + data.id(), sb);
+            case TREE -> StackExporter.writeTree(data.callTree(), minPercent, Integer.MAX_VALUE, sb);
+            default -> {
+                JSONObject json = new JSONObject();
+                json.put("id", data.id()).put("sampleRate", data.sampleRate())
+                   .put("totalSamples", data.totalSamples()).put("duration", data.getDuration());
+                JSONObject mc = new JSONObject();
+                for (Map.Entry<String, Integer> e : data.methodCounts().entrySet()) {
+                    mc.put(e.getKey(), e.getValue());
+                }
+                json.put("methodCounts", mc);
+                json.put("overhead", overheadJson(data));
+                sb.append(json.toString(2));
+            }
+        }
+        return sb.toString();
+    }
+
+    private void fillOverhead(SampleResult r, SimpleSampleData data) {
+        r.setThreadTarget(data.overhead().threadTarget());
+        r.setEffectiveRate(data.getEffectiveRate());
+        r.setOverheadRatio(data.getOverheadRatio());
+    }
+
     private Integer findLatestId(Map<Integer, ?> dataMap) {
         int maxId = -1;
         for (Integer id : dataMap.keySet()) {
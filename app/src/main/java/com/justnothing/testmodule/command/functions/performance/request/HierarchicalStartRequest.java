@@ -26,6 +26,22 @@ public class HierarchicalStartRequest extends PerformanceRequest {
     )
     private String exclude;
 
+    @CmdParam(
+        name = "--threads",
+        aliases = {"-t"},
+        required = false,
+        description = "采样目标线程: all / main / name:<正则> / group:<线程组>"
+    )
+    private String threads;
+
+    @CmdParam(
+        name = "--budget",
+        required = false,
+        defaultValue = "5",
+        description = "采样开销预算（占用时间的百分比），超出时自动降低频率，0 表示固定频率"
+    )
+    private double budget = 5;
+
     public HierarchicalStartRequest() {
         super();
     }
@@ -36,11 +52,19 @@ public class HierarchicalStartRequest extends PerformanceRequest {
     public String getExclude() { return exclude; }
     public void setExclude(String exclude) { this.exclude = exclude; }
 
+    public String getThreads() { return threads; }
+    public void setThreads(String threads) { this.threads = threads; }
+
+    public double getBudget() { return budget; }
+    public void setBudget(double budget) { this.budget = budget; }
+
     @Override
     public JSONObject toJson() throws JSONException {
         JSONObject obj = super.toJson();
         obj.put("rate", rate);
         if (exclude != null) obj.put("exclude", exclude);
+        if (threads != null) obj.put("threads", threads);
+        obj.put("budget", budget);
         return obj;
     }
 
@@ -49,6 +73,8 @@ public class HierarchicalStartRequest extends PerformanceRequest {
         setRequestId(obj.optString("requestId"));
         setRate(obj.optInt("rate", 100));
         setExclude(obj.optString("exclude", null));
+        setThreads(obj.optString("threads", null));
+        setBudget(obj.optDouble("budget", 5));
         return this;
     }
 }
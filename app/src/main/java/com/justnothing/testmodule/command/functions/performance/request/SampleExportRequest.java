@@ -25,6 +25,22 @@ public class SampleExportRequest extends PerformanceRequest {
     )
     private String filePath;
 
+    @CmdParam(
+        name = "--format",
+        aliases = {"-f"},
+        required = false,
+        description = "导出格式: json / collapsed / speedscope / tree（默认按扩展名推断）"
+    )
+    private String format;
+
+    @CmdParam(
+        name = "--min-percent",
+        required = false,
+        defaultValue = "0.5",
+        description = "tree 格式剪掉占比低于该百分比的分支"
+    )
+    private double minPercent = 0.5;
+
     public SampleExportRequest() {
         super();
     }
@@ -35,11 +51,19 @@ public class SampleExportRequest extends PerformanceRequest {
     public String getFilePath() { return filePath; }
     public void setFilePath(String filePath) { this.filePath = filePath; }
 
+    public String getFormat() { return format; }
+    public void setFormat(String format) { this.format = format; }
+
+    public double getMinPercent() { return minPercent; }
+    public void setMinPercent(double minPercent) { this.minPercent = minPercent; }
+
     @Override
     public JSONObject toJson() throws JSONException {
         JSONObject obj = super.toJson();
         obj.put("taskId", taskId);
         if (filePath != null) obj.put("filePath", filePath);
+        if (format != null) obj.put("format", format);
+        obj.put("minPercent", minPercent);
         return obj;
     }
 
@@ -48,6 +72,8 @@ public class SampleExportRequest extends PerformanceRequest {
         setRequestId(obj.optString("requestId"));
         setTaskId(obj.optInt("taskId", 0));
         setFilePath(obj.optString("filePath", null));
+        setFormat(obj.optString("format", null));
+        setMinPercent(obj.optDouble("minPercent", 0.5));
         return this;
     }
 }
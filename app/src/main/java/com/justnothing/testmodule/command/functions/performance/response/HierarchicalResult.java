@@ -25,6 +25,12 @@ public class HierarchicalResult extends CommandResult {
 
     private String exportPath;
 
+    private String threadTarget;
+
+    private double effectiveRate;
+
+    private double overheadRatio;
+
     public static class MethodCallEntry {
         private String methodKey;
 
@@ -82,4 +88,10 @@ public class HierarchicalResult extends CommandResult {
     public void setHotMethods(List<MethodCallEntry> v) { hotMethods = v; }
     public String getExportPath() { return exportPath; }
     public void setExportPath(String v) { exportPath = v; }
+    public String getThreadTarget() { return threadTarget; }
+    public void setThreadTarget(String v) { threadTarget = v; }
+    public double getEffectiveRate() { return effectiveRate; }
+    public void setEffectiveRate(double v) { effectiveRate = v; }
+    public double getOverheadRatio() { return overheadRatio; }
+    public void setOverheadRatio(double v) { overheadRatio = v; }
 }
@@ -24,6 +24,12 @@ public class MultiThreadResult extends CommandResult {
 
     private String exportPath;
 
+    private String threadTarget;
+
+    private double effectiveRate;
+
+    private double overheadRatio;
+
     public static class ThreadEntry {
         private String threadName;
 
@@ -73,4 +79,10 @@ public class MultiThreadResult extends CommandResult {
     public void setThreadData(List<ThreadEntry> v) { threadData = v; }
     public String getExportPath() { return exportPath; }
     public void setExportPath(String v) { exportPath = v; }
+    public String getThreadTarget() { return threadTarget; }
+    public void setThreadTarget(String v) { threadTarget = v; }
+    public double getEffectiveRate() { return effectiveRate; }
+    public void setEffectiveRate(double v) { effectiveRate = v; }
+    public double getOverheadRatio() { return overheadRatio; }
+    public void setOverheadRatio(double v) { overheadRatio = v; }
 }
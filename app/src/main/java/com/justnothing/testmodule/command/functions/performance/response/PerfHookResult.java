@@ -3,6 +3,8 @@ package com.justnothing.testmodule.command.functions.performance.response;
 import com.justnothing.testmodule.command.base.protocol.CommandResult;
 import com.justnothing.testmodule.command.base.protocol.SerializeKeyName;
 
+import java.util.List;
+
 @SerializeKeyName("PerfHookResult")
 public class PerfHookResult extends CommandResult {
 
@@ -32,8 +34,63 @@ public class PerfHookResult extends CommandResult {
 
     private long monitorDuration;
 
+    private long p50Ns;
+
+    private long p90Ns;
+
+    private long p99Ns;
+
+    private long p999Ns;
+
+    private List<LatencyEntry> latencyWindows;
+
+    private List<LatencyEntry> methodLatencies;
+
     private String exportPath;
 
+    public static class LatencyEntry {
+        private String name;
+
+        private long count;
+
+        private long p50Ns;
+
+        private long p90Ns;
+
+        private long p99Ns;
+
+        private long p999Ns;
+
+        private long maxNs;
+
+        public LatencyEntry() {}
+
+        public LatencyEntry(String name, long count, long p50Ns, long p90Ns, long p99Ns, long p999Ns, long maxNs) {
+            this.name = name;
+            this.count = count;
+            this.p50Ns = p50Ns;
+            this.p90Ns = p90Ns;
+            this.p99Ns = p99Ns;
+            this.p999Ns = p999Ns;
+            this.maxNs = maxNs;
+        }
+
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public long getCount() { return count; }
+        public void setCount(long count) { this.count = count; }
+        public long getP50Ns() { return p50Ns; }
+        public void setP50Ns(long p50Ns) { this.p50Ns = p50Ns; }
+        public long getP90Ns() { return p90Ns; }
+        public void setP90Ns(long p90Ns) { this.p90Ns = p90Ns; }
+        public long getP99Ns() { return p99Ns; }
+        public void setP99Ns(long p99Ns) { this.p99Ns = p99Ns; }
+        public long getP999Ns() { return p999Ns; }
+        public void setP999Ns(long p999Ns) { this.p999Ns = p999Ns; }
+        public long getMaxNs() { return maxNs; }
+        public void setMaxNs(long maxNs) { this.maxNs = maxNs; }
+    }
+
     public PerfHookResult() {}
     public PerfHookResult(String requestId) { super(requestId); }
 
@@ -63,6 +120,18 @@ public class PerfHookResult extends CommandResult {
     public void setAvgDurationMs(double v) { avgDurationMs = v; }
     public long getMonitorDuration() { return monitorDuration; }
     public void setMonitorDuration(long v) { monitorDuration = v; }
+    public long getP50Ns() { return p50Ns; }
+    public void setP50Ns(long v) { p50Ns = v; }
+    public long getP90Ns() { return p90Ns; }
+    public void setP90Ns(long v) { p90Ns = v; }
+    public long getP99Ns() { return p99Ns; }
+    public void setP99Ns(long v) { p99Ns = v; }
+    public long getP999Ns() { return p999Ns; }
+    public void setP999Ns(long v) { p999Ns = v; }
+    public List<LatencyEntry> getLatencyWindows() { return latencyWindows; }
+    public void setLatencyWindows(List<LatencyEntry> v) { latencyWindows = v; }
+    public List<LatencyEntry> getMethodLatencies() { return methodLatencies; }
+    public void setMethodLatencies(List<LatencyEntry> v) { methodLatencies = v; }
     public String getExportPath() { return exportPath; }
     public void setExportPath(String v) { exportPath = v; }
 }
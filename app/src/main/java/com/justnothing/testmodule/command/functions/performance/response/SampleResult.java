@@ -24,6 +24,12 @@ public class SampleResult extends CommandResult {
 
     private String exportPath;
 
+    private String threadTarget;
+
+    private double effectiveRate;
+
+    private double overheadRatio;
+
     public static class MethodEntry {
         private String methodName;
 
@@ -66,4 +72,10 @@ public class SampleResult extends CommandResult {
     public void setHotMethods(List<MethodEntry> hotMethods) { this.hotMethods = hotMethods; }
     public String getExportPath() { return exportPath; }
     public void setExportPath(String exportPath) { this.exportPath = exportPath; }
+    public String getThreadTarget() { return threadTarget; }
+    public void setThreadTarget(String threadTarget) { this.threadTarget = threadTarget; }
+    public double getEffectiveRate() { return effectiveRate; }
+    public void setEffectiveRate(double effectiveRate) { this.effectiveRate = effectiveRate; }
+    public double getOverheadRatio() { return overheadRatio; }
+    public void setOverheadRatio(double overheadRatio) { this.overheadRatio = overheadRatio; }
 }
@@ -3,23 +3,82 @@ package com.justnothing.testmodule.command.functions.performance.sampler;
 import com.justnothing.testmodule.utils.concurrent.ThreadPoolManager;
 import com.justnothing.testmodule.utils.logging.Logger;
 
+import java.util.List;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * 采样器基类。
+ * <p>
+ * 每次采样只抓取 {@link ThreadTarget} 选中的线程的调用栈，交给子类的 {@link #onStack} 处理。
+ * 采样耗时超过预算（{@link #setCostBudget}，占墙上时间的比例）时自动拉长采样间隔，
+ * 开销降下来后再恢复到请求的频率；开销统计见 {@link #getOverhead()}。
+ * </p>
+ */
 public abstract class AbstractSampler<T extends SampleData> implements Sampler<T> {
 
+    /** 默认允许采样占用 5% 的时间。 */
+    public static final double DEFAULT_COST_BUDGET = 0.05;
+
+    // 目标线程列表的刷新间隔，期间新建的线程要等下一次刷新才会被采到
+    private static final long TARGET_REFRESH_NS = TimeUnit.SECONDS.toNanos(1);
+    private static final double COST_SMOOTHING = 0.2;
+
     protected final Logger logger = Logger.getLoggerForName(getClass().getSimpleName());
 
     protected volatile boolean running = false;
     protected final AtomicInteger totalSamples = new AtomicInteger(0);
     protected Future<?> samplerFuture;
     protected final int sampleRate;
+    protected final ThreadTarget threadTarget;
     protected long startTime;
     protected long stopTime;
 
+    private final long baseIntervalNs;
+    private volatile double costBudget = DEFAULT_COST_BUDGET;
+
+    // 以下状态只由采样线程写入，volatile 仅为了让查询方看到最新值
+    private volatile long currentIntervalNs;
+    private volatile long totalCostNs;
+    private volatile long maxCostNs;
+    private volatile long capturedStacks;
+    private volatile int skippedTicks;
+    private long nextDueNs;
+    private double smoothedCostNs;
+    private boolean backedOff;
+    private List<Thread> targets = List.of();
+    private long targetsResolvedAt;
+    private boolean targetsResolved;
+
     protected AbstractSampler(int sampleRate) {
+        this(sampleRate, ThreadTarget.all());
+    }
+
+    protected AbstractSampler(int sampleRate, ThreadTarget threadTarget) {
         this.sampleRate = sampleRate;
+        this.threadTarget = threadTarget != null ? threadTarget : ThreadTarget.all();
+        this.baseIntervalNs = 1_000_000_000L / sampleRate;
+        this.currentIntervalNs = baseIntervalNs;
+        this.nextDueNs = System.nanoTime();
+    }
+
+    /**
+     * 设置采样开销预算，{@code budget} 为采样耗时占墙上时间的比例，0 表示固定频率、不自适应。
+     */
+    public void setCostBudget(double budget) {
+        if (budget < 0 || budget >= 1) {
+            throw new IllegalArgumentException("开销预算必须在 [0, 1) 之间: " + budget);
+        }
+        this.costBudget = budget;
+    }
+
+    public double getCostBudget() {
+        return costBudget;
+    }
+
+    public ThreadTarget getThreadTarget() {
+        return threadTarget;
     }
 
     @Override
@@ -30,18 +89,99 @@ public abstract class AbstractSampler<T extends SampleData> implements Sampler<T
 
         running = true;
         startTime = System.currentTimeMillis();
-        long intervalMs = 1_000_000_000 / sampleRate;
+        nextDueNs = System.nanoTime();
 
-        logger.info("启动采样器 (频率: " + sampleRate + " Hz)");
+        logger.info("启动采样器 (频率: " + sampleRate + " Hz, 目标线程: " + threadTarget
+                + ", 开销预算: " + Math.round(costBudget * 100) + "%)");
 
         samplerFuture = ThreadPoolManager.scheduleWithFixedDelayWhile(
-            this::doSample,
-            0, intervalMs, TimeUnit.NANOSECONDS,
+            this::tick,
+            0, baseIntervalNs, TimeUnit.NANOSECONDS,
             () -> running
         );
     }
 
-    protected abstract void doSample();
+    /**
+     * 调度入口。开销超出预算时间隔被拉长，未到期的调度直接跳过。
+     */
+    void tick() {
+        long now = System.nanoTime();
+        if (now - nextDueNs < 0) {
+            skippedTicks++;
+            return;
+        }
+        doSample();
+        long cost = System.nanoTime() - now;
+        recordCost(cost);
+        nextDueNs = now + currentIntervalNs;
+    }
+
+    /**
+     * 执行一次采样：抓取每个目标线程的调用栈并交给 {@link #onStack}。
+     */
+    protected void doSample() {
+        int threadCount = 0;
+        int stackCount = 0;
+        int frameCount = 0;
+        for (Thread thread : currentTargets()) {
+            StackTraceElement[] stackTrace = thread.getStackTrace();
+            threadCount++;
+            if (stackTrace.length == 0) {
+                // 线程已经结束或尚未启动
+                continue;
+            }
+            onStack(thread, stackTrace);
+            stackCount++;
+            frameCount += stackTrace.length;
+        }
+        capturedStacks += stackCount;
+        onSampleComplete(incrementSampleCount(), threadCount, frameCount);
+    }
+
+    /** 处理一个线程的调用栈，{@code stackTrace[0]} 为栈顶。空栈不会传进来。 */
+    protected abstract void onStack(Thread thread, StackTraceElement[] stackTrace);
+
+    /**
+     * 一次采样结束，可用于输出进度。{@code threadCount} 是抓取过调用栈的目标线程数，
+     * 与旧版一致也算上栈为空的线程；{@code frameCount} 只统计非空栈的帧。
+     */
+    protected void onSampleComplete(int sampleCount, int threadCount, int frameCount) {
+    }
+
+    private List<Thread> currentTargets() {
+        long now = System.nanoTime();
+        if (!targetsResolved || now - targetsResolvedAt >= TARGET_REFRESH_NS) {
+            targets = threadTarget.resolve();
+            targetsResolvedAt = now;
+            targetsResolved = true;
+        }
+        return targets;
+    }
+
+    private void recordCost(long cost) {
+        totalCostNs += cost;
+        if (cost > maxCostNs) {
+            maxCostNs = cost;
+        }
+        smoothedCostNs = smoothedCostNs == 0 ? cost : smoothedCostNs + COST_SMOOTHING * (cost - smoothedCostNs);
+
+        double budget = costBudget;
+        long interval = budget > 0
+                ? Math.max(baseIntervalNs, (long) (smoothedCostNs / budget))
+                : baseIntervalNs;
+        currentIntervalNs = interval;
+
+        boolean over = interval > baseIntervalNs;
+        if (over != backedOff) {
+            backedOff = over;
+            if (over) {
+                logger.info("采样开销超出预算 (平均 %.2fms/次)，频率降至 %.1f Hz",
+                        smoothedCostNs / 1_000_000.0, 1_000_000_000.0 / interval);
+            } else {
+                logger.info("采样开销回到预算内，恢复 %d Hz", sampleRate);
+            }
+        }
+    }
 
     @Override
     public void stop() {
@@ -56,7 +196,8 @@ public abstract class AbstractSampler<T extends SampleData> implements Sampler<T
             samplerFuture.cancel(true);
         }
 
-        logger.info("停止采样器 (采样次数: " + totalSamples.get() + ")");
+        logger.info("停止采样器 (采样次数: " + totalSamples.get() + ", 采样耗时: "
+                + totalCostNs / 1_000_000 + "ms, 跳过: " + skippedTicks + ")");
     }
 
     @Override
@@ -87,6 +228,17 @@ public abstract class AbstractSampler<T extends SampleData> implements Sampler<T
         return stopTime;
     }
 
+    /** 当前实际采样间隔，开销超出预算时大于请求频率对应的间隔。 */
+    public long getCurrentIntervalNs() {
+        return currentIntervalNs;
+    }
+
+    @Override
+    public SampleOverhead getOverhead() {
+        return new SampleOverhead(threadTarget.toString(), costBudget, totalCostNs, maxCostNs,
+                capturedStacks, skippedTicks, currentIntervalNs);
+    }
+
     protected int incrementSampleCount() {
         return totalSamples.incrementAndGet();
     }
@@ -5,5 +5,6 @@ import java.util.Map;
 public record HierarchicalSampleData(int id, int sampleRate, long startTime, long stopTime,
                                      int totalSamples,
                                      Map<String, HierarchicalSampler.MethodCallInfo> methodCallInfos,
-                                     Map<String, Integer> callerCounts, int methodCount) implements SampleData {
+                                     Map<String, Integer> callerCounts, int methodCount,
+                                     StackTrie callTree, SampleOverhead overhead) implements SampleData {
 }
@@ -1,5 +1,6 @@
 package com.justnothing.testmodule.command.functions.performance.sampler;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -7,77 +8,100 @@ import java.util.concurrent.atomic.AtomicLong;
 
 public class HierarchicalSampler extends AbstractSampler<HierarchicalSampleData> {
 
-    private final Map<String, MethodCallInfo> methodCallInfos = new ConcurrentHashMap<>();
-    private final Map<String, AtomicInteger> callerCounts = new ConcurrentHashMap<>();
+    private final StackTrie callTree = new StackTrie();
 
     public HierarchicalSampler(int sampleRate) {
         super(sampleRate);
     }
 
-    @Override
-    protected void doSample() {
-        Map<Thread, StackTraceElement[]> allStackTraces = Thread.getAllStackTraces();
-
-        for (Map.Entry<Thread, StackTraceElement[]> entry : allStackTraces.entrySet()) {
-            Thread thread = entry.getKey();
-            StackTraceElement[] stackTrace = entry.getValue();
-
-            if (thread.getName().contains("Fast-Pool")) {
-                continue;
-            }
+    public HierarchicalSampler(int sampleRate, ThreadTarget threadTarget) {
+        super(sampleRate, threadTarget);
+    }
 
-            if (stackTrace == null || stackTrace.length == 0) {
-                continue;
-            }
+    @Override
+    protected void onStack(Thread thread, StackTraceElement[] stackTrace) {
+        callTree.addSample(stackTrace);
+    }
 
-            for (int i = 0; i < stackTrace.length; i++) {
-                StackTraceElement element = stackTrace[i];
-                String methodKey = element.getClassName() + "." + element.getMethodName();
+    /**
+     * 从调用树汇总每个方法的采样数、平均深度和调用者（调用树中的父节点）。
+     */
+    public Map<String, MethodCallInfo> getReport() {
+        return summarize(callTree.copy());
+    }
 
-                MethodCallInfo info = methodCallInfos.computeIfAbsent(methodKey,
-                        k -> new MethodCallInfo(methodKey));
+    public Map<String, Integer> getCallerCounts() {
+        return callerCounts(callTree.copy());
+    }
 
-                info.sampleCount.incrementAndGet();
-                info.totalDepth.addAndGet(stackTrace.length - i);
+    public int getMethodCount() {
+        return callTree.getFrameCount();
+    }
 
-                if (i > 0) {
-                    StackTraceElement callerElement = stackTrace[i - 1];
-                    String callerKey = callerElement.getClassName() + "." + callerElement.getMethodName();
+    /** 当前调用树的快照，用于导出火焰图。 */
+    public StackTrie getCallTree() {
+        return callTree.copy();
+    }
 
-                    info.callers.computeIfAbsent(callerKey, k -> new AtomicInteger(0)).incrementAndGet();
-                    callerCounts.computeIfAbsent(callerKey, k -> new AtomicInteger(0)).incrementAndGet();
-                }
+    static Map<String, MethodCallInfo> summarize(StackTrie tree) {
+        List<String> names = tree.frameNames();
+        MethodCallInfo[] infos = new MethodCallInfo[names.size()];
+        for (int node = 1; node < tree.nodeLimit(); node++) {
+            int frame = tree.frameOf(node);
+            MethodCallInfo info = infos[frame];
+            if (info == null) {
+                info = infos[frame] = new MethodCallInfo(names.get(frame));
+            }
+            int total = tree.totalOf(node);
+            info.sampleCount.addAndGet(total);
+            info.totalDepth.addAndGet((long) tree.depthOf(node) * total);
+            int parent = tree.parentOf(node);
+            if (parent != StackTrie.ROOT) {
+                info.callers.computeIfAbsent(names.get(tree.frameOf(parent)), k -> new AtomicInteger(0))
+                        .addAndGet(total);
             }
         }
-
-        incrementSampleCount();
-    }
-
-    public Map<String, MethodCallInfo> getReport() {
-        return new ConcurrentHashMap<>(methodCallInfos);
+        Map<String, MethodCallInfo> report = new ConcurrentHashMap<>();
+        for (MethodCallInfo info : infos) {
+            if (info != null) {
+                report.put(info.methodKey, info);
+            }
+        }
+        return report;
     }
 
-    public Map<String, Integer> getCallerCounts() {
+    static Map<String, Integer> callerCounts(StackTrie tree) {
+        List<String> names = tree.frameNames();
+        int[] counts = new int[names.size()];
+        for (int node = 1; node < tree.nodeLimit(); node++) {
+            int parent = tree.parentOf(node);
+            if (parent != StackTrie.ROOT) {
+                counts[tree.frameOf(parent)] += tree.totalOf(node);
+            }
+        }
         Map<String, Integer> report = new ConcurrentHashMap<>();
-        callerCounts.forEach((k, v) -> report.put(k, v.get()));
+        for (int frame = 0; frame < counts.length; frame++) {
+            if (counts[frame] > 0) {
+                report.put(names.get(frame), counts[frame]);
+            }
+        }
         return report;
     }
 
-    public int getMethodCount() {
-        return methodCallInfos.size();
-    }
-
     @Override
     public HierarchicalSampleData getData() {
+        StackTrie tree = callTree.copy();
         return new HierarchicalSampleData(
                 0,
                 sampleRate,
                 startTime,
                 getStopTime(),
                 totalSamples.get(),
-                getReport(),
-                getCallerCounts(),
-                getMethodCount()
+                summarize(tree),
+                callerCounts(tree),
+                tree.getFrameCount(),
+                tree,
+                getOverhead()
         );
     }
 
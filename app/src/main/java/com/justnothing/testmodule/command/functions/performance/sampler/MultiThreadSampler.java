@@ -6,63 +6,43 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 public class MultiThreadSampler extends AbstractSampler<MultiThreadSampleData> {
 
-    private final Map<String, Map<String, AtomicInteger>> threadMethodCounts = new ConcurrentHashMap<>();
-    private final Map<String, AtomicInteger> totalSamplesPerThread = new ConcurrentHashMap<>();
+    // 按线程 ID 分桶，线程名只在第一次见到时拼接
+    private final Map<Long, ThreadSamples> threadSamples = new ConcurrentHashMap<>();
 
     public MultiThreadSampler(int sampleRate) {
         super(sampleRate);
     }
 
-    @Override
-    protected void doSample() {
-        Map<Thread, StackTraceElement[]> allStackTraces = Thread.getAllStackTraces();
-
-        for (Map.Entry<Thread, StackTraceElement[]> entry : allStackTraces.entrySet()) {
-            Thread thread = entry.getKey();
-            StackTraceElement[] stackTrace = entry.getValue();
-
-            if (thread.getName().contains("Fast-Pool")) {
-                continue;
-            }
-
-            if (stackTrace == null || stackTrace.length == 0) {
-                continue;
-            }
-
-            String threadKey = thread.getName() + " (ID: " + thread.getId() + ")";
-
-            Map<String, AtomicInteger> methodCounts = threadMethodCounts.computeIfAbsent(
-                    threadKey, k -> new ConcurrentHashMap<>());
-
-            for (StackTraceElement element : stackTrace) {
-                String methodKey = element.getClassName() + "." + element.getMethodName();
-                methodCounts.computeIfAbsent(methodKey, k -> new AtomicInteger(0)).incrementAndGet();
-            }
+    public MultiThreadSampler(int sampleRate, ThreadTarget threadTarget) {
+        super(sampleRate, threadTarget);
+    }
 
-            totalSamplesPerThread.computeIfAbsent(threadKey, k -> new AtomicInteger(0)).incrementAndGet();
+    @Override
+    protected void onStack(Thread thread, StackTraceElement[] stackTrace) {
+        ThreadSamples samples = threadSamples.get(thread.getId());
+        if (samples == null) {
+            samples = new ThreadSamples(thread.getName() + " (ID: " + thread.getId() + ")");
+            threadSamples.put(thread.getId(), samples);
         }
-
-        incrementSampleCount();
+        samples.callTree.addSample(stackTrace);
+        samples.count.incrementAndGet();
     }
 
     public Map<String, Map<String, Integer>> getReport() {
         Map<String, Map<String, Integer>> report = new ConcurrentHashMap<>();
-        threadMethodCounts.forEach((thread, methods) -> {
-            Map<String, Integer> methodReport = new ConcurrentHashMap<>();
-            methods.forEach((k, v) -> methodReport.put(k, v.get()));
-            report.put(thread, methodReport);
-        });
+        threadSamples.values().forEach(samples ->
+                report.put(samples.threadKey, samples.callTree.getMethodCounts()));
         return report;
     }
 
     public Map<String, Integer> getThreadSampleCounts() {
         Map<String, Integer> report = new ConcurrentHashMap<>();
-        totalSamplesPerThread.forEach((k, v) -> report.put(k, v.get()));
+        threadSamples.values().forEach(samples -> report.put(samples.threadKey, samples.count.get()));
         return report;
     }
 
     public int getThreadCount() {
-        return threadMethodCounts.size();
+        return threadSamples.size();
     }
 
     @Override
@@ -75,7 +55,18 @@ public class MultiThreadSampler extends AbstractSampler<MultiThreadSampleData> {
                 totalSamples.get(),
                 getReport(),
                 getThreadSampleCounts(),
-                getThreadCount()
+                getThreadCount(),
+                getOverhead()
         );
     }
+
+    private static final class ThreadSamples {
+        final String threadKey;
+        final StackTrie callTree = new StackTrie();
+        final AtomicInteger count = new AtomicInteger();
+
+        ThreadSamples(String threadKey) {
+            this.threadKey = threadKey;
+        }
+    }
 }
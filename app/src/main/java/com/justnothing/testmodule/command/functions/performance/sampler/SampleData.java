@@ -6,6 +6,7 @@ public interface SampleData {
     long startTime();
     long stopTime();
     int totalSamples();
+    SampleOverhead overhead();
     default long getDuration() {
         return stopTime() - startTime();
     }
@@ -21,4 +22,16 @@ public interface SampleData {
             return minutes + " 分 " + seconds + " 秒";
         }
     }
+
+    /** 采样耗时占采样时长的比例。 */
+    default double getOverheadRatio() {
+        long duration = getDuration();
+        return duration > 0 ? overhead().totalCostNs() / (duration * 1_000_000.0) : 0;
+    }
+
+    /** 实际达到的平均采样频率（Hz），开销超出预算时低于 {@link #sampleRate()}。 */
+    default double getEffectiveRate() {
+        long duration = getDuration();
+        return duration > 0 ? totalSamples() * 1000.0 / duration : 0;
+    }
 }
@@ -0,0 +1,25 @@
+package com.justnothing.testmodule.command.functions.performance.sampler;
+
+/**
+ * 采样器自身的开销统计。
+ *
+ * @param threadTarget    采样目标（{@link ThreadTarget#toString()}）
+ * @param costBudget      允许的采样开销占比（0 表示不自适应）
+ * @param totalCostNs     所有采样耗时之和
+ * @param maxCostNs       单次采样的最大耗时
+ * @param capturedStacks  抓取的调用栈总数
+ * @param skippedTicks    因开销超出预算而跳过的调度次数
+ * @param finalIntervalNs 结束时的实际采样间隔
+ */
+public record SampleOverhead(String threadTarget, double costBudget, long totalCostNs, long maxCostNs,
+                             long capturedStacks, int skippedTicks, long finalIntervalNs) {
+
+    public long getAverageCostNs(int samples) {
+        return samples > 0 ? totalCostNs / samples : 0;
+    }
+
+    /** 结束时的实际采样频率（Hz）。 */
+    public double getFinalRate() {
+        return finalIntervalNs > 0 ? 1_000_000_000.0 / finalIntervalNs : 0;
+    }
+}
@@ -10,6 +10,9 @@ public interface Sampler<T extends SampleData> {
     long getStopTime();
     T getData();
 
+    /** 采样器自身的开销统计。 */
+    SampleOverhead getOverhead();
+
     default long getDuration() {
         return getStopTime() - getStartTime();
     }
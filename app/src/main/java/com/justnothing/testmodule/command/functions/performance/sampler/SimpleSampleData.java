@@ -3,5 +3,6 @@ package com.justnothing.testmodule.command.functions.performance.sampler;
 import java.util.Map;
 
 public record SimpleSampleData(int id, int sampleRate, long startTime, long stopTime, 
-                               int totalSamples, Map<String, Integer> methodCounts) implements SampleData {
+                               int totalSamples, Map<String, Integer> methodCounts,
+                               StackTrie callTree, SampleOverhead overhead) implements SampleData {
 }
@@ -0,0 +1,174 @@
+package com.justnothing.testmodule.command.functions.performance.sampler;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 把 {@link StackTrie} 导出成常见的火焰图格式。
+ * <ul>
+ *     <li>{@link Format#COLLAPSED}：Brendan Gregg 的折叠栈格式，每行 {@code a;b;c 次数}，可直接交给 flamegraph.pl；</li>
+ *     <li>{@link Format#SPEEDSCOPE}：speedscope 的 sampled 格式 JSON，可拖进 https://www.speedscope.app 查看；</li>
+ *     <li>{@link Format#TREE}：缩进文本调用树，按占比剪枝。</li>
+ * </ul>
+ * 传入的调用树应当是 {@link StackTrie#copy()} 得到的快照。
+ */
+public final class StackExporter {
+
+    public enum Format {
+        JSON, COLLAPSED, SPEEDSCOPE, TREE;
+
+        /**
+         * 解析格式名，为空时按文件扩展名推断：{@code .folded}/{@code .collapsed} 为折叠栈，
+         * {@code .speedscope.json} 为 speedscope，{@code .txt} 为文本树，其余为 JSON。
+         */
+        public static Format resolve(String name, String filePath) {
+            if (name != null && !name.isEmpty()) {
+                for (Format format : values()) {
+                    if (format.name().equalsIgnoreCase(name)) {
+                        return format;
+                    }
+                }
+                throw new IllegalArgumentException("未知的导出格式: " + name);
+            }
+            String path = filePath == null ? "" : filePath.toLowerCase(Locale.ROOT);
+            if (path.endsWith(".folded") || path.endsWith(".collapsed")) return COLLAPSED;
+            if (path.endsWith(".speedscope.json")) return SPEEDSCOPE;
+            if (path.endsWith(".txt")) return TREE;
+            return JSON;
+        }
+    }
+
+    /** 文本树默认剪掉占比低于该值（百分比）的分支。 */
+    public static final double DEFAULT_MIN_PERCENT = 0.5;
+
+    private StackExporter() {
+    }
+
+    public static void writeCollapsed(StackTrie trie, Appendable out) throws IOException {
+        List<String> names = trie.frameNames();
+        int[] path = new int[maxDepth(trie)];
+        for (int node = 1; node < trie.nodeLimit(); node++) {
+            int self = trie.selfOf(node);
+            if (self == 0) continue;
+            int length = trie.pathOf(node, path);
+            for (int i = 0; i < length; i++) {
+                if (i > 0) out.append(';');
+                out.append(names.get(path[i]));
+            }
+            out.append(' ').append(String.valueOf(self)).append('\n');
+        }
+    }
+
+    public static void writeSpeedscope(StackTrie trie, String name, Appendable out) throws IOException {
+        List<String> names = trie.frameNames();
+        out.append("{\"$schema\":\"https://www.speedscope.app/file-format-schema.json\",");
+        out.append("\"name\":");
+        appendJsonString(out, name);
+        out.append(",\"activeProfileIndex\":0,\"exporter\":\"JustNothing-TestModule\",");
+        out.append("\"shared\":{\"frames\":[");
+        for (int i = 0; i < names.size(); i++) {
+            if (i > 0) out.append(',');
+            out.append("{\"name\":");
+            appendJsonString(out, names.get(i));
+            out.append('}');
+        }
+        out.append("]},\"profiles\":[{\"type\":\"sampled\",\"name\":");
+        appendJsonString(out, name);
+        out.append(",\"unit\":\"none\",\"startValue\":0,\"endValue\":")
+                .append(String.valueOf(trie.getStackCount()))
+                .append(",\"samples\":[");
+
+        int[] path = new int[maxDepth(trie)];
+        StringBuilder weights = new StringBuilder();
+        boolean first = true;
+        for (int node = 1; node < trie.nodeLimit(); node++) {
+            int self = trie.selfOf(node);
+            if (self == 0) continue;
+            if (!first) {
+                out.append(',');
+                weights.append(',');
+            }
+            first = false;
+            int length = trie.pathOf(node, path);
+            out.append('[');
+            for (int i = 0; i < length; i++) {
+                if (i > 0) out.append(',');
+                out.append(String.valueOf(path[i]));
+            }
+            out.append(']');
+            weights.append(self);
+        }
+        out.append("],\"weights\":[").append(weights).append("]}]}");
+    }
+
+    /**
+     * 输出缩进文本树，子节点按采样数降序；占比低于 {@code minPercent} 或深度超过 {@code maxDepth} 的分支被剪掉。
+     */
+    public static void writeTree(StackTrie trie, double minPercent, int maxDepth, Appendable out) throws IOException {
+        long rootTotal = trie.totalOf(StackTrie.ROOT);
+        if (rootTotal == 0) {
+            return;
+        }
+        int[][] children = trie.buildChildren();
+        long threshold = (long) Math.ceil(rootTotal * minPercent / 100.0);
+        for (int child : children[StackTrie.ROOT]) {
+            writeTreeNode(trie, children, child, rootTotal, threshold, maxDepth, out);
+        }
+    }
+
+    private static void writeTreeNode(StackTrie trie, int[][] children, int node, long rootTotal,
+                                      long threshold, int maxDepth, Appendable out) throws IOException {
+        int total = trie.totalOf(node);
+        if (total < threshold) {
+            return;
+        }
+        int depth = trie.depthOf(node);
+        for (int i = 1; i < depth; i++) {
+            out.append("  ");
+        }
+        out.append(trie.frameNames().get(trie.frameOf(node)));
+        out.append(String.format(Locale.ROOT, "  %d (%.1f%%)", total, total * 100.0 / rootTotal));
+        int self = trie.selfOf(node);
+        if (self > 0) {
+            out.append(" self=").append(String.valueOf(self));
+        }
+        out.append('\n');
+        if (depth >= maxDepth) {
+            return;
+        }
+        for (int child : children[node]) {
+            writeTreeNode(trie, children, child, rootTotal, threshold, maxDepth, out);
+        }
+    }
+
+    private static int maxDepth(StackTrie trie) {
+        int max = 0;
+        for (int node = 1; node < trie.nodeLimit(); node++) {
+            max = Math.max(max, trie.depthOf(node));
+        }
+        return max;
+    }
+
+    private static void appendJsonString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,303 @@
+package com.justnothing.testmodule.command.functions.performance.sampler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 采样调用树。
+ * <p>
+ * 栈帧按 {@code 类名 + 方法名} 驻留成整数 ID，每次采样的调用栈从根到叶插入一棵前缀树，
+ * 节点只记录计数：{@code total} 为经过该节点的采样数，{@code self} 为恰好停在该节点的采样数。
+ * 采样线程上不拼接字符串、不为每一帧创建对象，只有第一次见到的帧和分支才会分配。
+ * </p>
+ * <p>
+ * 写入由采样线程完成，读取（报告、导出）通常先 {@link #copy()} 出一份快照再慢慢处理。
+ * 节点 0 是虚拟根节点，不对应任何帧。
+ * </p>
+ */
+public final class StackTrie {
+
+    static final int ROOT = 0;
+
+    private static final int INITIAL_NODES = 256;
+
+    // 帧驻留表：类名 -> 方法名 -> 帧 ID，避免每帧拼接 "类名.方法名"
+    private final Map<String, Map<String, Integer>> frameIds;
+    private final List<String> frameNames;
+
+    // 节点按下标平铺存放
+    private int nodeCount;
+    private int[] nodeFrame;
+    private int[] nodeParent;
+    private int[] nodeDepth;
+    private int[] nodeTotal;
+    private int[] nodeSelf;
+
+    // (父节点, 帧) -> 子节点 的开放寻址表，键为 parent << 32 | frame，值为节点下标 + 1（0 表示空位）
+    private long[] childKeys;
+    private int[] childValues;
+    private int childCount;
+
+    private long stackCount;
+    private int[] pathBuffer = new int[64];
+
+    public StackTrie() {
+        frameIds = new HashMap<>();
+        frameNames = new ArrayList<>();
+        nodeFrame = new int[INITIAL_NODES];
+        nodeParent = new int[INITIAL_NODES];
+        nodeDepth = new int[INITIAL_NODES];
+        nodeTotal = new int[INITIAL_NODES];
+        nodeSelf = new int[INITIAL_NODES];
+        childKeys = new long[INITIAL_NODES * 2];
+        childValues = new int[INITIAL_NODES * 2];
+        nodeFrame[ROOT] = -1;
+        nodeParent[ROOT] = -1;
+        nodeCount = 1;
+    }
+
+    private StackTrie(StackTrie source) {
+        frameIds = new HashMap<>();
+        source.frameIds.forEach((cls, methods) -> frameIds.put(cls, new HashMap<>(methods)));
+        frameNames = new ArrayList<>(source.frameNames);
+        nodeCount = source.nodeCount;
+        nodeFrame = Arrays.copyOf(source.nodeFrame, nodeCount);
+        nodeParent = Arrays.copyOf(source.nodeParent, nodeCount);
+        nodeDepth = Arrays.copyOf(source.nodeDepth, nodeCount);
+        nodeTotal = Arrays.copyOf(source.nodeTotal, nodeCount);
+        nodeSelf = Arrays.copyOf(source.nodeSelf, nodeCount);
+        childKeys = source.childKeys.clone();
+        childValues = source.childValues.clone();
+        childCount = source.childCount;
+        stackCount = source.stackCount;
+    }
+
+    /**
+     * 记录一次调用栈。{@code stack[0]} 是栈顶（正在执行的方法），与 {@link Thread#getStackTrace()} 一致。
+     */
+    public synchronized void addSample(StackTraceElement[] stack) {
+        if (stack == null || stack.length == 0) {
+            return;
+        }
+        if (pathBuffer.length < stack.length) {
+            pathBuffer = new int[Math.max(stack.length, pathBuffer.length * 2)];
+        }
+        int[] path = pathBuffer;
+        for (int i = 0; i < stack.length; i++) {
+            StackTraceElement element = stack[stack.length - 1 - i];
+            path[i] = internFrame(element.getClassName(), element.getMethodName());
+        }
+        addPath(path, stack.length, 1);
+    }
+
+    /**
+     * 按帧 ID 记录一条从根到叶的路径，{@code count} 为这条路径的采样数。
+     */
+    synchronized void addPath(int[] path, int length, int count) {
+        int node = ROOT;
+        nodeTotal[ROOT] += count;
+        for (int i = 0; i < length; i++) {
+            node = childOf(node, path[i]);
+            nodeTotal[node] += count;
+        }
+        nodeSelf[node] += count;
+        stackCount += count;
+    }
+
+    synchronized int internFrame(String className, String methodName) {
+        Map<String, Integer> methods = frameIds.get(className);
+        if (methods == null) {
+            methods = new HashMap<>();
+            frameIds.put(className, methods);
+        }
+        Integer id = methods.get(methodName);
+        if (id == null) {
+            id = frameNames.size();
+            frameNames.add(className + "." + methodName);
+            methods.put(methodName, id);
+        }
+        return id;
+    }
+
+    private int childOf(int parent, int frame) {
+        long key = ((long) parent << 32) | (frame & 0xFFFFFFFFL);
+        int mask = childKeys.length - 1;
+        int slot = mix(key) & mask;
+        while (true) {
+            int value = childValues[slot];
+            if (value == 0) {
+                break;
+            }
+            if (childKeys[slot] == key) {
+                return value - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int node = newNode(parent, frame);
+        childKeys[slot] = key;
+        childValues[slot] = node + 1;
+        if (++childCount * 2 > childKeys.length) {
+            rehash();
+        }
+        return node;
+    }
+
+    private int newNode(int parent, int frame) {
+        if (nodeCount == nodeFrame.length) {
+            int size = nodeCount * 2;
+            nodeFrame = Arrays.copyOf(nodeFrame, size);
+            nodeParent = Arrays.copyOf(nodeParent, size);
+            nodeDepth = Arrays.copyOf(nodeDepth, size);
+            nodeTotal = Arrays.copyOf(nodeTotal, size);
+            nodeSelf = Arrays.copyOf(nodeSelf, size);
+        }
+        int node = nodeCount++;
+        nodeFrame[node] = frame;
+        nodeParent[node] = parent;
+        nodeDepth[node] = nodeDepth[parent] + 1;
+        return node;
+    }
+
+    private void rehash() {
+        long[] oldKeys = childKeys;
+        int[] oldValues = childValues;
+        childKeys = new long[oldKeys.length * 2];
+        childValues = new int[oldValues.length * 2];
+        int mask = childKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == 0) continue;
+            int slot = mix(oldKeys[i]) & mask;
+            while (childValues[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            childKeys[slot] = oldKeys[i];
+            childValues[slot] = oldValues[i];
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /** 复制一份互不影响的快照，用于在采样继续进行时生成报告或导出。 */
+    public synchronized StackTrie copy() {
+        return new StackTrie(this);
+    }
+
+    /** 插入过的调用栈数（每个线程每次采样算一条）。 */
+    public synchronized long getStackCount() {
+        return stackCount;
+    }
+
+    /** 不同的帧（方法）数。 */
+    public synchronized int getFrameCount() {
+        return frameNames.size();
+    }
+
+    /** 调用树节点数，不含根节点。 */
+    public synchronized int getNodeCount() {
+        return nodeCount - 1;
+    }
+
+    public synchronized String getFrameName(int frameId) {
+        return frameNames.get(frameId);
+    }
+
+    /**
+     * 每个方法出现在调用栈中的次数（递归调用每层各算一次），与旧版按方法名计数的结果一致。
+     */
+    public synchronized Map<String, Integer> getMethodCounts() {
+        int[] counts = new int[frameNames.size()];
+        for (int node = 1; node < nodeCount; node++) {
+            counts[nodeFrame[node]] += nodeTotal[node];
+        }
+        Map<String, Integer> result = new HashMap<>(counts.length * 2);
+        for (int frame = 0; frame < counts.length; frame++) {
+            result.put(frameNames.get(frame), counts[frame]);
+        }
+        return result;
+    }
+
+    // 以下访问器供同包的导出器和报告使用，调用方应持有快照（copy）而不是正在写入的实例
+
+    int nodeLimit() {
+        return nodeCount;
+    }
+
+    int frameOf(int node) {
+        return nodeFrame[node];
+    }
+
+    int parentOf(int node) {
+        return nodeParent[node];
+    }
+
+    int depthOf(int node) {
+        return nodeDepth[node];
+    }
+
+    int totalOf(int node) {
+        return nodeTotal[node];
+    }
+
+    int selfOf(int node) {
+        return nodeSelf[node];
+    }
+
+    List<String> frameNames() {
+        return frameNames;
+    }
+
+    /**
+     * 把节点到根的路径（不含根）按从根到叶的顺序写入 {@code out}，返回路径长度。
+     */
+    int pathOf(int node, int[] out) {
+        int length = nodeDepth[node];
+        for (int i = length - 1; i >= 0; i--) {
+            out[i] = nodeFrame[node];
+            node = nodeParent[node];
+        }
+        return length;
+    }
+
+    /** 各节点的子节点列表，按 total 降序排列。 */
+    int[][] buildChildren() {
+        int[] childCounts = new int[nodeCount];
+        for (int node = 1; node < nodeCount; node++) {
+            childCounts[nodeParent[node]]++;
+        }
+        int[][] children = new int[nodeCount][];
+        for (int node = 0; node < nodeCount; node++) {
+            children[node] = new int[childCounts[node]];
+            childCounts[node] = 0;
+        }
+        for (int node = 1; node < nodeCount; node++) {
+            int parent = nodeParent[node];
+            children[parent][childCounts[parent]++] = node;
+        }
+        for (int[] list : children) {
+            if (list.length > 1) {
+                sortByTotalDesc(list);
+            }
+        }
+        return children;
+    }
+
+    private void sortByTotalDesc(int[] nodes) {
+        // 子节点通常很少，插入排序即可
+        for (int i = 1; i < nodes.length; i++) {
+            int node = nodes[i];
+            int j = i - 1;
+            while (j >= 0 && nodeTotal[nodes[j]] < nodeTotal[node]) {
+                nodes[j + 1] = nodes[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.justnothing.testmodule.command.functions.performance.sampler;
+
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 采样目标线程的选择规则。
+ * <p>
+ * 采样器不再调用 {@link Thread#getAllStackTraces()}（它会挂起并遍历进程内每个线程），而是先用
+ * {@link ThreadGroup#enumerate(Thread[], boolean)} 列出线程（不抓栈），按规则筛选后再逐个调用
+ * {@link Thread#getStackTrace()}。在线程数上百的进程里只采主线程或少数几个线程时开销会小得多。
+ * </p>
+ * 规则的文本形式（{@link #parse(String)}）：
+ * <ul>
+ *     <li>{@code all}：全部线程（排除采样自身所在的线程池），默认值；</li>
+ *     <li>{@code main}：主线程（Looper 主线程）；</li>
+ *     <li>{@code group:<名称>}：属于该线程组（含子组）的线程；</li>
+ *     <li>{@code name:<正则>} 或直接写正则：线程名匹配该正则的线程。</li>
+ * </ul>
+ * 实例不可变，可以被多个采样器共享。
+ */
+public final class ThreadTarget {
+
+    public enum Mode {
+        ALL, MAIN, NAME, GROUP
+    }
+
+    private static final ThreadTarget ALL = new ThreadTarget(Mode.ALL, null, null);
+    private static final ThreadTarget MAIN = new ThreadTarget(Mode.MAIN, null, null);
+
+    private final Mode mode;
+    private final String argument;
+    private final Pattern namePattern;
+
+    private ThreadTarget(Mode mode, String argument, Pattern namePattern) {
+        this.mode = mode;
+        this.argument = argument;
+        this.namePattern = namePattern;
+    }
+
+    public static ThreadTarget all() {
+        return ALL;
+    }
+
+    public static ThreadTarget main() {
+        return MAIN;
+    }
+
+    public static ThreadTarget byName(String regex) {
+        try {
+            return new ThreadTarget(Mode.NAME, regex, Pattern.compile(regex));
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("线程名正则无效: " + regex, e);
+        }
+    }
+
+    public static ThreadTarget byGroup(String groupName) {
+        return new ThreadTarget(Mode.GROUP, groupName, null);
+    }
+
+    /**
+     * 解析规则文本，空值表示 {@code all}。
+     *
+     * @throws IllegalArgumentException 正则或线程组名无效
+     */
+    public static ThreadTarget parse(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            return ALL;
+        }
+        String value = spec.trim();
+        String lower = value.toLowerCase(Locale.ROOT);
+        if (lower.equals("all")) return ALL;
+        if (lower.equals("main")) return MAIN;
+        if (lower.startsWith("group:")) {
+            String group = value.substring("group:".length()).trim();
+            if (group.isEmpty()) {
+                throw new IllegalArgumentException("线程组名不能为空");
+            }
+            return byGroup(group);
+        }
+        if (lower.startsWith("name:")) {
+            return byName(value.substring("name:".length()));
+        }
+        return byName(value);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * 列出当前匹配规则的存活线程，不包括调用线程本身。
+     */
+    public List<Thread> resolve() {
+        Thread self = Thread.currentThread();
+        List<Thread> result = new ArrayList<>();
+        if (mode == Mode.MAIN) {
+            Thread main = findMainThread();
+            if (main != null && main != self && main.isAlive()) {
+                result.add(main);
+            }
+            return result;
+        }
+        for (Thread thread : enumerateThreads()) {
+            if (thread != self && thread.isAlive() && matches(thread)) {
+                result.add(thread);
+            }
+        }
+        return result;
+    }
+
+    public boolean matches(Thread thread) {
+        return switch (mode) {
+            case MAIN -> thread == findMainThread();
+            case NAME -> namePattern.matcher(thread.getName()).find();
+            case GROUP -> inGroup(thread, argument);
+            // 沿用旧版的过滤：命令执行所在的线程池不参与采样
+            case ALL -> !thread.getName().contains("Fast-Pool");
+        };
+    }
+
+    private static boolean inGroup(Thread thread, String groupName) {
+        for (ThreadGroup group = thread.getThreadGroup(); group != null; group = group.getParent()) {
+            if (groupName.equals(group.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 列出进程内的全部线程，只读取线程对象，不会挂起线程或抓取调用栈。
+     */
+    public static Thread[] enumerateThreads() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        if (root == null) {
+            return new Thread[0];
+        }
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Thread[] threads = new Thread[Math.max(16, root.activeCount() * 2)];
+        int count;
+        while ((count = root.enumerate(threads, true)) == threads.length) {
+            threads = new Thread[threads.length * 2];
+        }
+        Thread[] result = new Thread[count];
+        System.arraycopy(threads, 0, result, 0, count);
+        return result;
+    }
+
+    private static Thread findMainThread() {
+        try {
+            Looper looper = Looper.getMainLooper();
+            if (looper != null) {
+                return looper.getThread();
+            }
+        } catch (Throwable ignored) {
+            // 非 Android 环境（例如单元测试）没有 Looper
+        }
+        for (Thread thread : enumerateThreads()) {
+            if (thread.getId() == 1 || "main".equals(thread.getName())) {
+                return thread;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return switch (mode) {
+            case ALL -> "all";
+            case MAIN -> "main";
+            case NAME -> "name:" + argument;
+            case GROUP -> "group:" + argument;
+        };
+    }
+}
@@ -13,6 +13,7 @@ import com.justnothing.engine.security.SandboxConfig;
 
 import com.justnothing.engine.ScriptRunner;
 import com.justnothing.engine.eval.EvalException;
+import com.justnothing.engine.eval.ScriptProfiler;
 import com.justnothing.engine.parser.CythavaParseException;
 
 import com.justnothing.testmodule.command.functions.script.ScriptResult;
@@ -37,6 +38,8 @@ import java.util.concurrent.atomic.AtomicReference;
     description = "脚本执行引擎 - run/import/export/interactive",
     examples = {
         "script run <name>                 执行脚本",
+        "script run <name> --profile       执行并输出最热的源码行",
+        "script run <name> --flame <file>  导出 collapsed-stack（火焰图）",
         "script import <path>              导入外部文件",
         "script export <name> <path>       导出脚本文件",
         "script interactive                REPL 交互模式"
@@ -100,11 +103,14 @@ public class ScriptExecCommand extends AbstractScriptCommand<ScriptBaseRequest,
         long startTime = System.currentTimeMillis();
         SandboxConfig config = currentPermissionConfig.get();
         AtomicReference<Throwable> errorRef = new AtomicReference<>(null);
+        ScriptProfiler profiler = request.isProfile() ? new ScriptProfiler() : null;
 
         Future<?> future = ThreadPoolManager.submitIOCallable(() -> {
             try {
                 ScriptRunner runner = new ScriptRunner(context.classLoader());
                 runner.setClassFinder(new AppClassFinder());
+                runner.setScriptCache(DataBridge.getScriptCache());
+                runner.setProfiler(profiler);
 
                 if (config != null) {
                     if (config.getAstPermissionChecker() != null) {
@@ -150,6 +156,9 @@ public class ScriptExecCommand extends AbstractScriptCommand<ScriptBaseRequest,
                 context.println("脚本执行成功", Colors.GREEN);
                 r.setSuccess(true);
             }
+            if (profiler != null) {
+                printProfile(profiler, request);
+            }
         } catch (TimeoutException e) {
             future.cancel(true);
             context.println("脚本执行超时（5分钟），已取消", Colors.RED);
@@ -165,6 +174,23 @@ public class ScriptExecCommand extends AbstractScriptCommand<ScriptBaseRequest,
         return r;
     }
 
+    /** 输出剖析报告（失败的执行同样输出，便于定位卡在哪里）。 */
+    private void printProfile(ScriptProfiler profiler, ScriptRunRequest request) {
+        context.println("===== 最热的源码行 =====", Colors.CYAN);
+        context.print(profiler.formatHotLines(request.getTop()), Colors.WHITE);
+        String flameFile = request.getFlameFile();
+        if (flameFile != null && !flameFile.isEmpty()) {
+            try {
+                IOManager.writeFile(new File(flameFile).getAbsolutePath(), profiler.toCollapsedStacks());
+                context.print("collapsed-stack 已写入: ", Colors.CYAN);
+                context.println(flameFile, Colors.GREEN);
+            } catch (IOException e) {
+                context.print("写入 collapsed-stack 失败: ", Colors.RED);
+                context.println(Objects.requireNonNullElse(e.getMessage(), "没有详细信息"), Colors.ORANGE);
+            }
+        }
+    }
+
     protected ScriptResult handleImport(ScriptImportRequest request) throws IOException {
         ScriptResult r = new ScriptResult(java.util.UUID.randomUUID().toString());
         r.setSubCommand("import");
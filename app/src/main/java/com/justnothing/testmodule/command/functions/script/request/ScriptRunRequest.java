@@ -11,17 +11,35 @@ public class ScriptRunRequest extends ScriptBaseRequest {
     @CmdParam(name = "name", position = 1, required = true, description = "脚本名称")
     private String name;
 
+    @CmdParam(name = "--profile", aliases = {"-P"}, description = "执行后输出最热的源码行")
+    private boolean profile;
+
+    @CmdParam(name = "--top", defaultValue = "20", description = "剖析报告显示的行数")
+    private int top = 20;
+
+    @CmdParam(name = "--flame", description = "将 collapsed-stack 写入该文件（可用于生成火焰图，隐含 --profile）")
+    private String flameFile;
+
     public ScriptRunRequest() {
         super();
     }
 
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
+    public boolean isProfile() { return profile || flameFile != null; }
+    public void setProfile(boolean profile) { this.profile = profile; }
+    public int getTop() { return top; }
+    public void setTop(int top) { this.top = top; }
+    public String getFlameFile() { return flameFile; }
+    public void setFlameFile(String flameFile) { this.flameFile = flameFile; }
 
     @Override
     public JSONObject toJson() throws JSONException {
         JSONObject obj = super.toJson();
         obj.put("name", name);
+        obj.put("profile", profile);
+        obj.put("top", top);
+        if (flameFile != null) obj.put("flameFile", flameFile);
         return obj;
     }
 
@@ -29,6 +47,9 @@ public class ScriptRunRequest extends ScriptBaseRequest {
     public ScriptRunRequest fromJson(JSONObject obj) {
         setRequestId(obj.optString("requestId"));
         setName(obj.optString("name"));
+        setProfile(obj.optBoolean("profile", false));
+        setTop(obj.optInt("top", 20));
+        setFlameFile(obj.optString("flameFile", null));
         return this;
     }
 }
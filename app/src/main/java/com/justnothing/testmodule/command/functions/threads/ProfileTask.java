@@ -1,5 +1,6 @@
 package com.justnothing.testmodule.command.functions.threads;
 
+import com.justnothing.testmodule.command.functions.performance.sampler.ThreadTarget;
 import com.justnothing.testmodule.utils.concurrent.ThreadPoolManager;
 import com.justnothing.testmodule.utils.logging.Logger;
 
@@ -12,7 +13,6 @@ import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
-import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -128,8 +128,8 @@ public class ProfileTask implements Runnable {
 
     private int getThreadCount() {
         try {
-            Map<Thread, StackTraceElement[]> allStackTraces = Thread.getAllStackTraces();
-            return allStackTraces.size();
+            // 只统计数量，不需要像 getAllStackTraces 那样挂起每个线程抓栈
+            return ThreadTarget.enumerateThreads().length;
         } catch (Exception e) {
             logger.error("获取线程数失败", e);
             return 0;
@@ -196,10 +196,7 @@ public class ProfileTask implements Runnable {
 
     private void collectThreadStats() {
         try {
-            Map<Thread, StackTraceElement[]> allStackTraces = Thread.getAllStackTraces();
-            
-            for (Map.Entry<Thread, StackTraceElement[]> entry : allStackTraces.entrySet()) {
-                Thread thread = entry.getKey();
+            for (Thread thread : ThreadTarget.enumerateThreads()) {
                 String threadName = thread.getName();
                 Thread.State state = thread.getState();
                 double cpuUsage = 0.0;
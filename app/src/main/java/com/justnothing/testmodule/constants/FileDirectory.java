@@ -16,6 +16,7 @@ public class FileDirectory {
     public static final String EXPORT_DIR_NAME = "TestModuleExports";
     public static final String SCRIPTS_DIR_NAME = "scripts";
     public static final String SCRIPTS_FILE_NAME = "scripts.json";
+    public static final String SCRIPT_CACHE_DIR_NAME = ".cache";
     public static final String CONTENTS_DIR_NAME = "contents";
     public static final String CONTENT_FILE_PREFIX = "content_";
     public static final String MODULE_STATUS_FILE_NAME = "module_status.json";
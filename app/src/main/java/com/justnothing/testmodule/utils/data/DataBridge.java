@@ -2,6 +2,7 @@ package com.justnothing.testmodule.utils.data;
 
 import android.util.Log;
 
+import com.justnothing.engine.cache.ScriptCache;
 import com.justnothing.methodsclient.StreamClient;
 import com.justnothing.testmodule.constants.AppEnvironment;
 import com.justnothing.testmodule.constants.FileDirectory;
@@ -69,6 +70,8 @@ public class DataBridge {
 
     private static String modulePath = null;
 
+    private static volatile ScriptCache scriptCache = null;
+
     private DataBridge() {
         throw new UnsupportedOperationException("不能实例化DataBridge...");
     }
@@ -86,6 +89,28 @@ public class DataBridge {
         return new File(FileDirectory.METHODS_DATA_DIR, FileDirectory.SCRIPTS_DIR_NAME);
     }
 
+    public static File getScriptCacheDirectory() {
+        return new File(getScriptsDirectory(), FileDirectory.SCRIPT_CACHE_DIR_NAME);
+    }
+
+    /**
+     * Hook 与 script 命令共用的预编译脚本缓存。
+     * 键中带模块版本号，模块升级后旧的缓存文件不再命中。
+     */
+    public static ScriptCache getScriptCache() {
+        ScriptCache cache = scriptCache;
+        if (cache == null) {
+            synchronized (DataBridge.class) {
+                cache = scriptCache;
+                if (cache == null) {
+                    cache = new ScriptCache(getScriptCacheDirectory(), FileDirectory.APPLICATION_VERSION);
+                    scriptCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
     public static void setModulePath(String path) {
         modulePath = path;
     }
@@ -0,0 +1,191 @@
+package com.justnothing.testmodule.command.functions.intercept;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InterceptEventBusTest {
+
+    private static final Method METHOD;
+
+    static {
+        try {
+            METHOD = String.class.getMethod("length");
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static boolean publish(InterceptEventBus bus, int taskId, InterceptEvent.Kind kind, Object result) {
+        return bus.publish(taskId, kind, METHOD, "this", new Object[]{"a"}, result, null, 42, 1);
+    }
+
+    /** 只记录需要的字段，事件对象本身会被复用。 */
+    private static class Recorder implements InterceptEventListener {
+        final List<String> seen = new ArrayList<>();
+        final List<Boolean> hadStack = new ArrayList<>();
+        int batches;
+        private final boolean wantsStack;
+
+        Recorder(boolean wantsStack) {
+            this.wantsStack = wantsStack;
+        }
+
+        @Override
+        public void onEvent(InterceptEvent event) {
+            seen.add(event.getTaskId() + ":" + event.getKind() + ":" + event.getResult());
+            hadStack.add(event.getStackTrace() != null);
+        }
+
+        @Override
+        public void onBatchEnd() {
+            batches++;
+        }
+
+        @Override
+        public boolean needsStackTrace() {
+            return wantsStack;
+        }
+    }
+
+    @Test
+    public void testPublishWithoutListenersIsNoop() {
+        InterceptEventBus bus = new InterceptEventBus(16, false);
+        assertFalse(bus.hasListeners(1));
+        assertFalse(publish(bus, 1, InterceptEvent.Kind.ENTER, null));
+        assertEquals(0, bus.getPendingCount());
+        assertEquals(0, bus.getDroppedCount());
+    }
+
+    @Test
+    public void testDeliversInOrderToTaskListeners() {
+        InterceptEventBus bus = new InterceptEventBus(16, false);
+        Recorder task1 = new Recorder(false);
+        Recorder any = new Recorder(false);
+        bus.subscribe(1, task1);
+        bus.subscribe(InterceptEventBus.ANY_TASK, any);
+
+        assertTrue(publish(bus, 1, InterceptEvent.Kind.ENTER, null));
+        assertTrue(publish(bus, 2, InterceptEvent.Kind.RETURN, "x"));
+        assertTrue(publish(bus, 1, InterceptEvent.Kind.RETURN, "y"));
+        assertEquals(3, bus.getPendingCount());
+
+        assertEquals(3, bus.drain());
+        assertEquals(List.of("1:ENTER:null", "1:RETURN:y"), task1.seen);
+        assertEquals(List.of("1:ENTER:null", "2:RETURN:x", "1:RETURN:y"), any.seen);
+        assertEquals(1, task1.batches);
+        assertEquals(1, any.batches);
+        assertEquals(0, bus.getPendingCount());
+    }
+
+    @Test
+    public void testStackCapturedOnlyWhenRequested() {
+        InterceptEventBus bus = new InterceptEventBus(16, false);
+        Recorder plain = new Recorder(false);
+        Recorder withStack = new Recorder(true);
+        bus.subscribe(1, plain);
+        bus.subscribe(2, withStack);
+
+        publish(bus, 1, InterceptEvent.Kind.ENTER, null);
+        publish(bus, 2, InterceptEvent.Kind.ENTER, null);
+        bus.drain();
+
+        assertEquals(List.of(false), plain.hadStack);
+        assertEquals(List.of(true), withStack.hadStack);
+    }
+
+    @Test
+    public void testDropsWhenFullAndRecoversAfterDrain() {
+        InterceptEventBus bus = new InterceptEventBus(4, false);
+        Recorder recorder = new Recorder(false);
+        bus.subscribe(1, recorder);
+
+        for (int i = 0; i < 6; i++) {
+            publish(bus, 1, InterceptEvent.Kind.RETURN, i);
+        }
+        assertEquals(4, bus.getPendingCount());
+        assertEquals(2, bus.getDroppedCount());
+
+        bus.drain();
+        assertEquals(List.of("1:RETURN:0", "1:RETURN:1", "1:RETURN:2", "1:RETURN:3"), recorder.seen);
+        assertTrue(publish(bus, 1, InterceptEvent.Kind.RETURN, 9));
+        bus.drain();
+        assertEquals("1:RETURN:9", recorder.seen.get(4));
+    }
+
+    @Test
+    public void testUnsubscribeAllStopsDelivery() {
+        InterceptEventBus bus = new InterceptEventBus(16, false);
+        bus.subscribe(3, new Recorder(false));
+        assertTrue(bus.hasListeners(3));
+        bus.unsubscribeAll(3);
+        assertFalse(bus.hasListeners(3));
+        assertFalse(publish(bus, 3, InterceptEvent.Kind.ENTER, null));
+    }
+
+    @Test
+    public void testPayloadDeliveredAndCleared() {
+        InterceptEventBus bus = new InterceptEventBus(2, false);
+        List<Object> payloads = new ArrayList<>();
+        bus.subscribe(4, event -> payloads.add(event.getPayload()));
+        assertTrue(bus.publish(4, InterceptEvent.Kind.ENTER, METHOD, null, null, null, null, 0, -1, "args"));
+        assertTrue(publish(bus, 4, InterceptEvent.Kind.RETURN, null));
+        assertEquals(2, bus.drain());
+        // 槽位被复用时不能带着上一轮的 payload
+        assertTrue(publish(bus, 4, InterceptEvent.Kind.RETURN, null));
+        assertEquals(1, bus.drain());
+        assertEquals(Arrays.asList("args", null, null), payloads);
+    }
+
+    @Test
+    public void testAwaitDrainedBeforeUnsubscribe() {
+        InterceptEventBus bus = new InterceptEventBus(1024, true);
+        List<Integer> seen = new ArrayList<>();
+        bus.subscribe(5, event -> {
+            synchronized (seen) {
+                seen.add((Integer) event.getResult());
+            }
+        });
+        for (int i = 0; i < 100; i++) {
+            assertTrue(publish(bus, 5, InterceptEvent.Kind.RETURN, i));
+        }
+        assertTrue(bus.awaitDrained(5, TimeUnit.SECONDS));
+        bus.unsubscribeAll(5);
+        synchronized (seen) {
+            assertEquals(100, seen.size());
+        }
+        assertEquals(0, bus.getPendingCount());
+    }
+
+    @Test
+    public void testBackgroundThreadDrains() throws InterruptedException {
+        InterceptEventBus bus = new InterceptEventBus(1024, true);
+        int threads = 4;
+        int perThread = 200;
+        CountDownLatch received = new CountDownLatch(threads * perThread);
+        bus.subscribe(1, event -> received.countDown());
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    while (!publish(bus, 1, InterceptEvent.Kind.RETURN, i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertTrue(received.await(5, TimeUnit.SECONDS));
+    }
+}
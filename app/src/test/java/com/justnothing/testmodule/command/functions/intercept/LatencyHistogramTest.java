@@ -0,0 +1,91 @@
+package com.justnothing.testmodule.command.functions.intercept;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketBoundsCoverValue() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123_456, 16_666_667, 1_000_000_000L};
+        for (long v : values) {
+            int bucket = LatencyHistogram.bucketOf(v);
+            long high = LatencyHistogram.highestValueOf(bucket);
+            assertTrue("上界应不小于原值: " + v, high >= v);
+            assertTrue("相对误差应在 1/32 以内: " + v, high - v <= Math.max(0, v / 32));
+            assertEquals(bucket, LatencyHistogram.bucketOf(high));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L, 0);
+        }
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        assertEquals(1000, s.getCount());
+        assertNear(500_000, s.getP50Ns());
+        assertNear(900_000, s.getP90Ns());
+        assertNear(990_000, s.getP99Ns());
+        assertNear(999_000, s.getP999Ns());
+        assertNear(1_000_000, s.getMaxNs());
+    }
+
+    @Test
+    public void testSpikeShowsInTailOnly() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 999; i++) {
+            histogram.record(1_000_000, 0);
+        }
+        histogram.record(200_000_000, 0);
+        LatencyHistogram.Snapshot s = histogram.snapshot();
+        assertNear(1_000_000, s.getP99Ns());
+        assertNear(200_000_000, s.getP999Ns());
+    }
+
+    @Test
+    public void testWindowDropsOldSlots() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long slot = LatencyHistogram.SLOT_NS;
+        long start = -3 * slot; // nanoTime 可能为负
+        histogram.record(5_000, start);
+        histogram.record(7_000, start + 20 * slot);
+
+        assertEquals(2, histogram.snapshot().getCount());
+        LatencyHistogram.Snapshot recent = histogram.snapshot(10 * slot, start + 20 * slot);
+        assertEquals(1, recent.getCount());
+        assertNear(7_000, recent.getMaxNs());
+
+        assertEquals(1, histogram.snapshot(10 * slot, start).getCount());
+        assertEquals(0, histogram.snapshot(slot, start + 40 * slot).getCount());
+    }
+
+    @Test
+    public void testUnwindowedKeepsTotalsOnly() {
+        LatencyHistogram histogram = new LatencyHistogram(false);
+        assertFalse(histogram.isWindowed());
+        histogram.record(5_000, 0);
+        histogram.record(7_000, 20 * LatencyHistogram.SLOT_NS);
+        assertEquals(2, histogram.snapshot().getCount());
+        assertThrows(IllegalStateException.class, () -> histogram.snapshot(LatencyHistogram.SLOT_NS, 0));
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getCount());
+    }
+
+    @Test
+    public void testEmptySnapshot() {
+        LatencyHistogram.Snapshot s = new LatencyHistogram().snapshot();
+        assertEquals(0, s.getCount());
+        assertEquals(0, s.getP99Ns());
+        assertEquals(0, s.getMaxNs());
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                actual >= expected && actual - expected <= expected / 32);
+    }
+}
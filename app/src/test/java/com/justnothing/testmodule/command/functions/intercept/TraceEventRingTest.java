@@ -0,0 +1,88 @@
+package com.justnothing.testmodule.command.functions.intercept;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TraceEventRingTest {
+
+    @Test
+    public void testCapacityRoundsUpToPowerOfTwo() {
+        assertEquals(1024, new TraceEventRing(1000).capacity());
+        assertEquals(1024, new TraceEventRing(1024).capacity());
+    }
+
+    @Test
+    public void testSnapshotKeepsOrderAndFields() {
+        TraceEventRing ring = new TraceEventRing(16);
+        Object[] args = {"a"};
+        ring.write(100, 7, 3, 2, TraceEventRing.KIND_ENTER, 0, args);
+        ring.write(250, 7, 3, 2, TraceEventRing.KIND_RETURN, 150, "ok");
+
+        List<TraceEventRing.Event> events = ring.snapshot(16);
+        assertEquals(2, events.size());
+
+        TraceEventRing.Event enter = events.get(0);
+        assertEquals(100, enter.nanoTime());
+        assertEquals(7, enter.threadId());
+        assertEquals(3, enter.methodId());
+        assertEquals(2, enter.depth());
+        assertEquals(TraceEventRing.KIND_ENTER, enter.kind());
+        assertSame(args, enter.payload());
+
+        TraceEventRing.Event exit = events.get(1);
+        assertEquals(TraceEventRing.KIND_RETURN, exit.kind());
+        assertEquals(150, exit.durationNs());
+        assertEquals("ok", exit.payload());
+    }
+
+    @Test
+    public void testOverwritesOldestWhenFull() {
+        TraceEventRing ring = new TraceEventRing(16);
+        int capacity = ring.capacity();
+        for (int i = 0; i < capacity + 5; i++) {
+            ring.write(i, 1, 0, 0, TraceEventRing.KIND_ENTER, 0, null);
+        }
+
+        List<TraceEventRing.Event> all = ring.snapshot(Integer.MAX_VALUE);
+        assertEquals(capacity, all.size());
+        assertEquals(5, all.get(0).nanoTime());
+        assertEquals(capacity + 4, all.get(all.size() - 1).nanoTime());
+
+        List<TraceEventRing.Event> recent = ring.snapshot(3);
+        assertEquals(3, recent.size());
+        assertEquals(capacity + 2, recent.get(0).nanoTime());
+    }
+
+    @Test
+    public void testConcurrentWritersDoNotCorruptRecords() throws InterruptedException {
+        TraceEventRing ring = new TraceEventRing(1 << 16);
+        int threads = 4;
+        int perThread = 10000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int tid = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // 各字段都由同一个值推出，读到半条记录就会对不上
+                    ring.write(i, tid, tid * 100, i & 0xFF, TraceEventRing.KIND_RETURN, i * 2L, null);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        List<TraceEventRing.Event> events = ring.snapshot(Integer.MAX_VALUE);
+        assertEquals(threads * perThread, ring.written());
+        assertEquals(threads * perThread, events.size());
+        for (TraceEventRing.Event event : events) {
+            assertEquals(event.threadId() * 100, event.methodId());
+            assertEquals(event.nanoTime() & 0xFF, event.depth());
+            assertEquals(event.nanoTime() * 2, event.durationNs());
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.justnothing.testmodule.command.functions.performance.sampler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AbstractSamplerTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private ThreadGroup group;
+    private Thread target;
+    private Thread other;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        group = new ThreadGroup("probe-group");
+        CountDownLatch started = new CountDownLatch(2);
+        target = new Thread(group, () -> parkUntilReleased(started), "probe-target-1");
+        other = new Thread(() -> parkUntilReleased(started), "probe-other");
+        target.start();
+        other.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        release.countDown();
+        target.join(5000);
+        other.join(5000);
+    }
+
+    private void parkUntilReleased(CountDownLatch started) {
+        started.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    @Test
+    public void testParseModes() {
+        assertEquals(ThreadTarget.Mode.ALL, ThreadTarget.parse(null).getMode());
+        assertEquals(ThreadTarget.Mode.ALL, ThreadTarget.parse(" ALL ").getMode());
+        assertEquals(ThreadTarget.Mode.MAIN, ThreadTarget.parse("main").getMode());
+        assertEquals("group:probe-group", ThreadTarget.parse("group:probe-group").toString());
+        assertEquals("name:^Render", ThreadTarget.parse("name:^Render").toString());
+        assertEquals(ThreadTarget.Mode.NAME, ThreadTarget.parse("binder:.*").getMode());
+        assertThrows(IllegalArgumentException.class, () -> ThreadTarget.parse("name:(unclosed"));
+        assertThrows(IllegalArgumentException.class, () -> ThreadTarget.parse("group:"));
+    }
+
+    @Test
+    public void testResolveByNameAndGroup() {
+        List<Thread> byName = ThreadTarget.parse("^probe-target-").resolve();
+        assertEquals(List.of(target), byName);
+
+        List<Thread> byGroup = ThreadTarget.byGroup("probe-group").resolve();
+        assertEquals(List.of(target), byGroup);
+
+        List<Thread> all = ThreadTarget.all().resolve();
+        assertTrue(all.contains(target));
+        assertTrue(all.contains(other));
+        assertFalse(all.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void testSamplesOnlyTargetThreads() throws InterruptedException {
+        SimpleSampler sampler = new SimpleSampler(1000, ThreadTarget.byName("^probe-target-"));
+        sampler.setCostBudget(0);
+        for (int i = 0; i < 3; i++) {
+            sampler.tick();
+            Thread.sleep(2); // 间隔 1ms，早到的调度会被跳过
+        }
+
+        assertEquals(3, sampler.getTotalSamples());
+        SampleOverhead overhead = sampler.getOverhead();
+        assertEquals(3, overhead.capturedStacks());
+        assertEquals("name:^probe-target-", overhead.threadTarget());
+        assertTrue(overhead.totalCostNs() > 0);
+        assertTrue(overhead.maxCostNs() <= overhead.totalCostNs());
+
+        Map<String, Integer> report = sampler.getReport();
+        String parkFrame = AbstractSamplerTest.class.getName() + ".parkUntilReleased";
+        assertEquals(Integer.valueOf(3), report.get(parkFrame));
+        assertEquals(3, sampler.getCallTree().getStackCount());
+    }
+
+    @Test
+    public void testBacksOffWhenOverBudget() {
+        SlowSampler sampler = new SlowSampler(TimeUnit.MILLISECONDS.toNanos(2));
+        sampler.setCostBudget(0.1);
+        sampler.tick();
+
+        // 2ms 的采样在 10% 预算下至少要间隔 20ms
+        assertTrue(sampler.getCurrentIntervalNs() >= TimeUnit.MILLISECONDS.toNanos(19));
+        sampler.tick();
+        assertEquals(1, sampler.getTotalSamples());
+        assertEquals(1, sampler.getOverhead().skippedTicks());
+        assertTrue(sampler.getOverhead().getFinalRate() < 1000);
+    }
+
+    @Test
+    public void testFixedRateWithoutBudget() {
+        SlowSampler sampler = new SlowSampler(TimeUnit.MILLISECONDS.toNanos(2));
+        sampler.setCostBudget(0);
+        sampler.tick();
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), sampler.getCurrentIntervalNs());
+        assertThrows(IllegalArgumentException.class, () -> sampler.setCostBudget(1.5));
+    }
+
+    /** 每次处理调用栈都忙等一段时间，模拟昂贵的采样。 */
+    private class SlowSampler extends AbstractSampler<SimpleSampleData> {
+        private final long costNs;
+
+        SlowSampler(long costNs) {
+            super(1000, ThreadTarget.byName("^probe-target-"));
+            this.costNs = costNs;
+        }
+
+        @Override
+        protected void onStack(Thread thread, StackTraceElement[] stackTrace) {
+            long end = System.nanoTime() + costNs;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public SimpleSampleData getData() {
+            return null;
+        }
+    }
+}
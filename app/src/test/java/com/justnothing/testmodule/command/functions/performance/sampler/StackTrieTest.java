@@ -0,0 +1,131 @@
+package com.justnothing.testmodule.command.functions.performance.sampler;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class StackTrieTest {
+
+    /** 按 "类.方法" 从栈顶到栈底构造调用栈，与 Thread#getStackTrace 的顺序一致。 */
+    private static StackTraceElement[] stack(String... topToBottom) {
+        StackTraceElement[] result = new StackTraceElement[topToBottom.length];
+        for (int i = 0; i < topToBottom.length; i++) {
+            String frame = topToBottom[i];
+            int dot = frame.lastIndexOf('.');
+            result[i] = new StackTraceElement(frame.substring(0, dot), frame.substring(dot + 1), null, i + 1);
+        }
+        return result;
+    }
+
+    private static StackTrie sampleTree() {
+        StackTrie trie = new StackTrie();
+        trie.addSample(stack("a.C.work", "a.B.run", "a.A.main"));
+        trie.addSample(stack("a.C.work", "a.B.run", "a.A.main"));
+        trie.addSample(stack("a.B.run", "a.A.main"));
+        trie.addSample(stack("a.D.idle", "a.A.main"));
+        return trie;
+    }
+
+    @Test
+    public void testSharesPrefixesAndCounts() {
+        StackTrie trie = sampleTree();
+        assertEquals(4, trie.getStackCount());
+        assertEquals(4, trie.getFrameCount());
+        assertEquals(4, trie.getNodeCount());
+
+        Map<String, Integer> counts = trie.getMethodCounts();
+        assertEquals(Integer.valueOf(4), counts.get("a.A.main"));
+        assertEquals(Integer.valueOf(3), counts.get("a.B.run"));
+        assertEquals(Integer.valueOf(2), counts.get("a.C.work"));
+        assertEquals(Integer.valueOf(1), counts.get("a.D.idle"));
+    }
+
+    @Test
+    public void testLineNumbersDoNotSplitFrames() {
+        StackTrie trie = new StackTrie();
+        trie.addSample(new StackTraceElement[]{new StackTraceElement("x.Y", "m", "Y.java", 10)});
+        trie.addSample(new StackTraceElement[]{new StackTraceElement("x.Y", "m", "Y.java", 20)});
+        assertEquals(1, trie.getNodeCount());
+        assertEquals(Integer.valueOf(2), trie.getMethodCounts().get("x.Y.m"));
+    }
+
+    @Test
+    public void testCopyIsIndependent() {
+        StackTrie trie = sampleTree();
+        StackTrie copy = trie.copy();
+        trie.addSample(stack("a.E.other", "a.A.main"));
+        assertEquals(4, copy.getStackCount());
+        assertEquals(4, copy.getFrameCount());
+        assertEquals(5, trie.getStackCount());
+    }
+
+    @Test
+    public void testManyBranchesSurviveRehash() {
+        StackTrie trie = new StackTrie();
+        for (int i = 0; i < 2000; i++) {
+            trie.addSample(stack("p.Leaf.m" + i, "p.Root.main"));
+            trie.addSample(stack("p.Leaf.m" + i, "p.Root.main"));
+        }
+        assertEquals(2001, trie.getNodeCount());
+        assertEquals(Integer.valueOf(2), trie.getMethodCounts().get("p.Leaf.m1234"));
+        assertEquals(Integer.valueOf(4000), trie.getMethodCounts().get("p.Root.main"));
+    }
+
+    @Test
+    public void testCollapsedStacks() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        StackExporter.writeCollapsed(sampleTree(), sb);
+        assertEquals("a.A.main;a.B.run 1\n"
+                + "a.A.main;a.B.run;a.C.work 2\n"
+                + "a.A.main;a.D.idle 1\n", sb.toString());
+    }
+
+    @Test
+    public void testSpeedscope() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        StackExporter.writeSpeedscope(sampleTree(), "s\"1", sb);
+        String json = sb.toString();
+        assertTrue(json.contains("\"name\":\"s\\\"1\""));
+        assertTrue(json.contains("\"frames\":[{\"name\":\"a.A.main\"},{\"name\":\"a.B.run\"},"
+                + "{\"name\":\"a.C.work\"},{\"name\":\"a.D.idle\"}]"));
+        assertTrue(json.contains("\"samples\":[[0,1],[0,1,2],[0,3]],\"weights\":[1,2,1]"));
+        assertTrue(json.contains("\"endValue\":4"));
+    }
+
+    @Test
+    public void testTreePrunesSmallBranches() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        StackExporter.writeTree(sampleTree(), 30, Integer.MAX_VALUE, sb);
+        assertEquals("a.A.main  4 (100.0%)\n"
+                + "  a.B.run  3 (75.0%) self=1\n"
+                + "    a.C.work  2 (50.0%) self=2\n", sb.toString());
+    }
+
+    @Test
+    public void testHierarchicalSummaryUsesRealCallers() {
+        StackTrie trie = sampleTree();
+        Map<String, HierarchicalSampler.MethodCallInfo> infos = HierarchicalSampler.summarize(trie);
+        HierarchicalSampler.MethodCallInfo work = infos.get("a.C.work");
+        assertEquals(2, work.getSampleCount());
+        assertEquals(3.0, work.getAverageDepth(), 1e-9);
+        assertEquals(Map.of("a.B.run", 2), work.getCallers());
+        assertTrue(infos.get("a.A.main").getCallers().isEmpty());
+
+        Map<String, Integer> callerCounts = HierarchicalSampler.callerCounts(trie);
+        assertEquals(Integer.valueOf(4), callerCounts.get("a.A.main"));
+        assertEquals(Integer.valueOf(2), callerCounts.get("a.B.run"));
+    }
+
+    @Test
+    public void testFormatResolve() {
+        assertEquals(StackExporter.Format.COLLAPSED, StackExporter.Format.resolve(null, "/sdcard/a.folded"));
+        assertEquals(StackExporter.Format.SPEEDSCOPE, StackExporter.Format.resolve("", "/sdcard/a.speedscope.json"));
+        assertEquals(StackExporter.Format.TREE, StackExporter.Format.resolve(null, "/sdcard/a.txt"));
+        assertEquals(StackExporter.Format.JSON, StackExporter.Format.resolve(null, "/sdcard/a.json"));
+        assertEquals(StackExporter.Format.TREE, StackExporter.Format.resolve("Tree", "/sdcard/a.json"));
+        assertThrows(IllegalArgumentException.class, () -> StackExporter.Format.resolve("svg", "a"));
+    }
+}
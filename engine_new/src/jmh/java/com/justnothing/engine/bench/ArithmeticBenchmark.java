@@ -0,0 +1,97 @@
+package com.justnothing.engine.bench;
+
+import com.justnothing.engine.CompiledScript;
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.codegen.CompileTier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 算术循环：顶层循环（始终解释执行）与函数内循环（可由编译层编译为字节码）。
+ * <p>{@code tier} 为 false 时关闭编译层，两者都走 Evaluator。</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArithmeticBenchmark {
+
+    private static final String INT_LOOP =
+            "var s = 0;\n"
+            + "for (var i = 0; i < 10000; i++) {\n"
+            + "    s = s + i * 3 % 7 - (i >> 2);\n"
+            + "}\n"
+            + "s;";
+
+    private static final String DOUBLE_LOOP =
+            "var x = 0.0;\n"
+            + "for (var i = 0; i < 10000; i++) {\n"
+            + "    x = x * 0.5 + i / 3.0;\n"
+            + "}\n"
+            + "x;";
+
+    private static final String FUNCTION_LOOP =
+            "function mix(n) {\n"
+            + "    var s = 0;\n"
+            + "    for (var i = 0; i < n; i++) { s = s + i * i % 11; }\n"
+            + "    return s;\n"
+            + "}\n"
+            + "var total = 0;\n"
+            + "for (var k = 0; k < 100; k++) { total = total + mix(100); }\n"
+            + "total;";
+
+    @Param({"false", "true"})
+    public boolean tier;
+
+    private ScriptRunner runner;
+    private CompiledScript intLoop;
+    private CompiledScript doubleLoop;
+    private CompiledScript functionLoop;
+    private boolean tierWasEnabled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tierWasEnabled = CompileTier.isEnabled();
+        CompileTier.setEnabled(tier);
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        intLoop = runner.compile(INT_LOOP);
+        doubleLoop = runner.compile(DOUBLE_LOOP);
+        functionLoop = runner.compile(FUNCTION_LOOP);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CompileTier.setEnabled(tierWasEnabled);
+    }
+
+    @Benchmark
+    public Object intLoop() {
+        return runner.executeWithResult(intLoop);
+    }
+
+    @Benchmark
+    public Object doubleLoop() {
+        return runner.executeWithResult(doubleLoop);
+    }
+
+    @Benchmark
+    public Object loopInFunction() {
+        return runner.executeWithResult(functionLoop);
+    }
+}
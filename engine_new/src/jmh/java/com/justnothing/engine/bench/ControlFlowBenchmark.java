@@ -0,0 +1,95 @@
+package com.justnothing.engine.bench;
+
+import com.justnothing.engine.CompiledScript;
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.codegen.CompileTier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解释器中 break / continue / return 的开销。
+ * <p>编译层在此关闭，确保测到的是 Evaluator 的完成信号路径而不是字节码。</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControlFlowBenchmark {
+
+    private static final String LOOP_WITH_CONTINUE =
+            "var hits = 0;\n"
+            + "for (var i = 0; i < 100000; i++) {\n"
+            + "    if (i % 3 != 0) continue;\n"
+            + "    hits++;\n"
+            + "}\n"
+            + "hits;";
+
+    private static final String EARLY_RETURN_IN_LOOP =
+            "function find(n) {\n"
+            + "    for (var i = 0; i < 1000; i++) {\n"
+            + "        if (i * i >= n) return i;\n"
+            + "    }\n"
+            + "    return -1;\n"
+            + "}\n"
+            + "var total = 0;\n"
+            + "for (var k = 0; k < 1000; k++) { total += find(k); }\n"
+            + "total;";
+
+    private static final String LOOP_WITH_BREAK =
+            "var n = 0;\n"
+            + "for (var round = 0; round < 10000; round++) {\n"
+            + "    while (true) { n++; if (n % 10 == 0) break; }\n"
+            + "}\n"
+            + "n;";
+
+    private ScriptRunner runner;
+    private CompiledScript loopWithContinue;
+    private CompiledScript earlyReturnInLoop;
+    private CompiledScript loopWithBreak;
+    private boolean tierWasEnabled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        tierWasEnabled = CompileTier.isEnabled();
+        CompileTier.setEnabled(false);
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        loopWithContinue = runner.compile(LOOP_WITH_CONTINUE);
+        earlyReturnInLoop = runner.compile(EARLY_RETURN_IN_LOOP);
+        loopWithBreak = runner.compile(LOOP_WITH_BREAK);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CompileTier.setEnabled(tierWasEnabled);
+    }
+
+    @Benchmark
+    public Object loopWithContinue() {
+        return runner.executeWithResult(loopWithContinue);
+    }
+
+    @Benchmark
+    public Object earlyReturnInLoop() {
+        return runner.executeWithResult(earlyReturnInLoop);
+    }
+
+    @Benchmark
+    public Object loopWithBreak() {
+        return runner.executeWithResult(loopWithBreak);
+    }
+}
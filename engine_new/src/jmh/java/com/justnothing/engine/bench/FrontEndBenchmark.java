@@ -0,0 +1,116 @@
+package com.justnothing.engine.bench;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.cache.ScriptCache;
+import com.justnothing.engine.lexer.Lexer;
+import com.justnothing.engine.lexer.Token;
+import com.justnothing.engine.parser.ParseContext;
+import com.justnothing.engine.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 前端（词法 + 语法）在大脚本上的开销。
+ * <p>
+ * 脚本由 {@code functions} 个结构相同的函数拼成，覆盖声明、循环、条件、方法调用、lambda、字符串字面量。
+ * 每次解析使用新的 ParseContext（同一上下文重复声明同名函数会报错），其构造开销一并计入。
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontEndBenchmark {
+
+    @Param({"10", "200"})
+    public int functions;
+
+    private String source;
+    private ScriptCache cache;
+
+    @Setup
+    public void setUp() throws IOException {
+        source = generateScript(functions);
+        cache = new ScriptCache(Files.createTempDirectory("bench-script-cache").toFile());
+        newRunner(cache).compile(source, "<bench>");
+    }
+
+    @TearDown
+    public void tearDown() {
+        cache.clear();
+        cache.getDirectory().delete();
+    }
+
+    private static ScriptRunner newRunner(ScriptCache cache) {
+        ScriptRunner runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        runner.addImport("java.util.*");
+        runner.setScriptCache(cache);
+        return runner;
+    }
+
+    static String generateScript(int functions) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < functions; i++) {
+            sb.append("function work").append(i).append("(n) {\n")
+                    .append("    var total = 0;\n")
+                    .append("    var names = new ArrayList();\n")
+                    .append("    for (var i = 0; i < n; i++) {\n")
+                    .append("        if (i % 3 == 0 && i > ").append(i).append(") {\n")
+                    .append("            total = total + i * 2 - (i / 3);\n")
+                    .append("        } else {\n")
+                    .append("            names.add(\"item-\" + i);\n")
+                    .append("        }\n")
+                    .append("    }\n")
+                    .append("    var f = (x) -> x * ").append(i + 1).append(" + 1;\n")
+                    .append("    return f(total) + names.size() + Math.max(n, ").append(i).append(");\n")
+                    .append("}\n");
+        }
+        sb.append("work0(10);\n");
+        return sb.toString();
+    }
+
+    @Benchmark
+    public List<Token> tokenize() throws Exception {
+        return new Lexer(source, "<bench>").tokenize();
+    }
+
+    @Benchmark
+    public List<ASTNode> tokenizeAndParse() throws Exception {
+        List<Token> tokens = new Lexer(source, "<bench>").tokenize();
+        ParseContext context = new ParseContext();
+        context.setStrictMode(false);
+        context.addImport("java.util.*");
+        return new Parser(tokens, context, "<bench>").parse();
+    }
+
+    /** 完整的编译入口：预处理 + 词法 + 语法 + 槽位解析（含 ScriptRunner 构造）。 */
+    @Benchmark
+    public Object compile() {
+        return newRunner(null).compile(source, "<bench>");
+    }
+
+    /** 与 {@link #compile()} 相同的入口，但命中预编译缓存：读文件 + 解码 + 槽位解析。 */
+    @Benchmark
+    public Object compileFromCache() {
+        return newRunner(cache).compile(source, "<bench>");
+    }
+}
@@ -0,0 +1,94 @@
+package com.justnothing.engine.bench;
+
+import com.justnothing.engine.builtins.Lambda;
+import com.justnothing.engine.codegen.FunctionalAdapters;
+import com.justnothing.engine.eval.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * lambda 转函数式接口：转换本身的开销，以及经由接口调用的开销。
+ * <p>
+ * 函数体是一个直接返回 Value 的 Java 函数，测到的只有适配层；
+ * proxy* 用 {@link Proxy} 重现旧实现作对照。
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionalAdapterBenchmark {
+
+    private Lambda lambda;
+    private Comparator<Object> adapter;
+    private Comparator<Object> proxy;
+    private Integer left;
+    private Integer right;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Function<Value[], Value> body = args -> Value.of(args[0].asInt() - args[1].asInt());
+        lambda = new Lambda(body, List.of("a", "b"), null);
+        adapter = lambda.asInterface(Comparator.class);
+        proxy = (Comparator<Object>) Proxy.newProxyInstance(Comparator.class.getClassLoader(),
+                new Class<?>[]{Comparator.class}, (p, method, javaArgs) -> {
+                    if (!"compare".equals(method.getName())) {
+                        return method.getName().equals("hashCode") ? System.identityHashCode(p) : null;
+                    }
+                    return body.apply(new Value[]{Value.of(javaArgs[0]), Value.of(javaArgs[1])}).asJavaObject();
+                });
+        left = 1000;
+        right = 7;
+    }
+
+    @Benchmark
+    public Object convert() {
+        return lambda.asInterface(Comparator.class);
+    }
+
+    @Benchmark
+    public Object convertViaProxy() {
+        return Proxy.newProxyInstance(Comparator.class.getClassLoader(), new Class<?>[]{Comparator.class},
+                (p, method, javaArgs) -> null);
+    }
+
+    @Benchmark
+    public int compareViaAdapter() {
+        return adapter.compare(left, right);
+    }
+
+    @Benchmark
+    public int compareViaProxy() {
+        return proxy.compare(left, right);
+    }
+
+    @Benchmark
+    public Object unwrap() {
+        return FunctionalAdapters.sourceOf(adapter);
+    }
+
+    @Benchmark
+    public Object sortSmallList() {
+        List<Integer> list = new java.util.ArrayList<>(List.of(9, 3, 7, 1, 8, 2, 6, 4, 5, 0));
+        Collections.sort(list, adapter);
+        return list;
+    }
+}
@@ -0,0 +1,127 @@
+package com.justnothing.engine.bench;
+
+import com.justnothing.engine.eval.Value;
+import com.justnothing.engine.util.FieldAccessor;
+import com.justnothing.engine.util.MethodInvoker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Point;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Java 调用路径对比：旧路径（Stream 转实参 + Method.invoke / Constructor.newInstance / Field.get）
+ * 与 {@link MethodInvoker} / {@link FieldAccessor} 的 MethodHandle 路径。
+ * <p>实参以 {@code List<Value>} 给出，与 Evaluator 中的调用现场一致。</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvocationBenchmark {
+
+    private Method substring;
+    private Method max;
+    private Constructor<?> sbCtor;
+    private Field pointX;
+
+    private MethodInvoker substringInvoker;
+    private MethodInvoker maxInvoker;
+    private MethodInvoker sbCtorInvoker;
+    private FieldAccessor pointXAccessor;
+
+    private String receiver;
+    private Point point;
+    private List<Value> oneArg;
+    private List<Value> twoArgs;
+    private List<Value> ctorArgs;
+
+    @Setup
+    public void setUp() throws Exception {
+        substring = String.class.getMethod("substring", int.class, int.class);
+        max = Math.class.getMethod("max", long.class, long.class);
+        sbCtor = StringBuilder.class.getConstructor(String.class);
+        pointX = Point.class.getField("x");
+
+        substringInvoker = MethodInvoker.of(substring);
+        maxInvoker = MethodInvoker.of(max);
+        sbCtorInvoker = MethodInvoker.of(sbCtor);
+        pointXAccessor = FieldAccessor.of(pointX);
+
+        receiver = "benchmark";
+        point = new Point(3, 4);
+        oneArg = List.of(Value.of("seed"));
+        twoArgs = List.of(Value.of(1), Value.of(5));
+        ctorArgs = oneArg;
+    }
+
+    private static Object[] toJavaArgs(List<Value> args) {
+        Object[] result = new Object[args.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = args.get(i).asJavaObject();
+        }
+        return result;
+    }
+
+    // ==================== 实例方法 ====================
+
+    @Benchmark
+    public Object instanceReflect() throws Exception {
+        return substring.invoke(receiver, twoArgs.stream().map(Value::asJavaObject).toArray());
+    }
+
+    @Benchmark
+    public Object instanceHandle() throws Exception {
+        return substringInvoker.invoke(receiver, toJavaArgs(twoArgs));
+    }
+
+    // ==================== 静态方法（含拓宽转换 int → long） ====================
+
+    @Benchmark
+    public Object staticReflect() throws Exception {
+        return max.invoke(null, twoArgs.stream().map(Value::asJavaObject).toArray());
+    }
+
+    @Benchmark
+    public Object staticHandle() throws Exception {
+        return maxInvoker.invoke(null, toJavaArgs(twoArgs));
+    }
+
+    // ==================== 构造器 ====================
+
+    @Benchmark
+    public Object constructorReflect() throws Exception {
+        return sbCtor.newInstance(ctorArgs.stream().map(Value::asJavaObject).toArray());
+    }
+
+    @Benchmark
+    public Object constructorHandle() throws Exception {
+        return sbCtorInvoker.newInstance(toJavaArgs(ctorArgs));
+    }
+
+    // ==================== 字段读取 ====================
+
+    @Benchmark
+    public Object fieldReflect() throws Exception {
+        return pointX.get(point);
+    }
+
+    @Benchmark
+    public Object fieldHandle() throws Exception {
+        return pointXAccessor.get(point);
+    }
+}
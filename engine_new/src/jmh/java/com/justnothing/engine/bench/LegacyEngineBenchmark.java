@@ -0,0 +1,87 @@
+package com.justnothing.engine.bench;
+
+import com.justnothing.engine.CompiledScript;
+import com.justnothing.engine.ScriptRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 与旧版 {@code engine} 模块（com.justnothing.javainterpreter）的对照。
+ * <p>
+ * 旧版每次执行都重新词法 / 语法分析，因此 engine_new 同时给出“从源码执行”（可直接对比）
+ * 和“执行预编译脚本”两组数据。脚本只使用两边都支持的 Java 语法子集。
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegacyEngineBenchmark {
+
+    private static final String ARITHMETIC =
+            "int s = 0;\n"
+            + "for (int i = 0; i < 1000; i++) { s = s + i * 3 % 7; }\n"
+            + "s;";
+
+    private static final String METHOD_CALLS =
+            "String str = \"benchmark\"; int n = 0;\n"
+            + "for (int i = 0; i < 1000; i++) { n = n + str.substring(1, 4).length(); }\n"
+            + "n;";
+
+    private static final String COLLECTION =
+            "java.util.ArrayList l = new java.util.ArrayList();\n"
+            + "for (int i = 0; i < 1000; i++) { l.add(i); }\n"
+            + "int r = 0;\n"
+            + "for (Object o : l) { r = r + (Integer) o; }\n"
+            + "r;";
+
+    @Param({"arithmetic", "methodCalls", "collection"})
+    public String workload;
+
+    private String source;
+    private com.justnothing.javainterpreter.ScriptRunner legacy;
+    private ScriptRunner runner;
+    private CompiledScript compiled;
+
+    @Setup
+    public void setUp() {
+        source = switch (workload) {
+            case "arithmetic" -> ARITHMETIC;
+            case "methodCalls" -> METHOD_CALLS;
+            case "collection" -> COLLECTION;
+            default -> throw new IllegalArgumentException(workload);
+        };
+        legacy = new com.justnothing.javainterpreter.ScriptRunner();
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        compiled = runner.compile(source);
+    }
+
+    @Benchmark
+    public Object legacyFromSource() {
+        return legacy.executeWithResult(source);
+    }
+
+    @Benchmark
+    public Object newFromSource() {
+        return runner.executeWithResult(source);
+    }
+
+    @Benchmark
+    public Object newPrecompiled() {
+        return runner.executeWithResult(compiled);
+    }
+}
@@ -0,0 +1,78 @@
+package com.justnothing.engine.bench;
+
+import com.justnothing.engine.CompiledScript;
+import com.justnothing.engine.ScriptRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 集合管道：{@code |>} 与嵌套 builtin 调用两种写法，对照等价的手写循环和 parallel 版本。
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    private static final String PIPE =
+            "range(10000) |> map((x) -> x * 2) |> filter((x) -> x % 3 == 0) |> reduce((a, b) -> a + b);";
+
+    private static final String NESTED =
+            "reduce(filter(map(range(10000), (x) -> x * 2), (x) -> x % 3 == 0), (a, b) -> a + b);";
+
+    private static final String PARALLEL =
+            "reduce(filter(map(parallel(range(10000)), (x) -> x * 2), (x) -> x % 3 == 0), (a, b) -> a + b);";
+
+    private static final String LOOP =
+            "var s = 0;\n"
+            + "for (var i = 0; i < 10000; i++) { var x = i * 2; if (x % 3 == 0) s = s + x; }\n"
+            + "s;";
+
+    private ScriptRunner runner;
+    private CompiledScript pipe;
+    private CompiledScript nested;
+    private CompiledScript parallel;
+    private CompiledScript loop;
+
+    @Setup
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        pipe = runner.compile(PIPE);
+        nested = runner.compile(NESTED);
+        parallel = runner.compile(PARALLEL);
+        loop = runner.compile(LOOP);
+    }
+
+    @Benchmark
+    public Object pipeOperator() {
+        return runner.executeWithResult(pipe);
+    }
+
+    @Benchmark
+    public Object nestedBuiltins() {
+        return runner.executeWithResult(nested);
+    }
+
+    @Benchmark
+    public Object parallelPipeline() {
+        return runner.executeWithResult(parallel);
+    }
+
+    @Benchmark
+    public Object handWrittenLoop() {
+        return runner.executeWithResult(loop);
+    }
+}
@@ -0,0 +1,61 @@
+package com.justnothing.engine.bench;
+
+import com.justnothing.engine.CompiledScript;
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.security.BasicPermissionChecker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 沙箱对 Java 调用的额外开销：同一脚本分别在无检查器与 {@link BasicPermissionChecker#createSandbox()} 下执行。
+ * <p>脚本包含构造器、实例方法、静态方法和静态字段读取，每类每次执行 1000 次。</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SandboxBenchmark {
+
+    private static final String CALLS =
+            "var n = 0;\n"
+            + "for (var i = 0; i < 1000; i++) {\n"
+            + "    var sb = new StringBuilder(\"sandbox\");\n"
+            + "    n = n + sb.length() + sb.indexOf(\"d\");\n"
+            + "    n = n + Math.abs(-i) + Integer.MAX_VALUE % 7;\n"
+            + "}\n"
+            + "n;";
+
+    @Param({"none", "sandbox"})
+    public String checker;
+
+    private ScriptRunner runner;
+    private CompiledScript calls;
+
+    @Setup
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        if ("sandbox".equals(checker)) {
+            runner.setPermissionChecker(BasicPermissionChecker.createSandbox());
+        }
+        calls = runner.compile(CALLS);
+    }
+
+    @Benchmark
+    public Object javaCalls() {
+        return runner.executeWithResult(calls);
+    }
+}
@@ -0,0 +1,125 @@
+package com.justnothing.engine.bench;
+
+import com.justnothing.engine.CompiledScript;
+import com.justnothing.engine.ScriptRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 脚本中的 Java 反射调用：每次按名字解析（经内联缓存）的普通调用，与预先绑定接收者的方法引用对比，
+ * 另有静态方法、构造器、字段读取和 lambda 的创建 / 调用 / 转函数式接口。
+ * <p>每个脚本循环 1000 次，结果为一次执行（即 1000 次调用）的耗时。</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptCallBenchmark {
+
+    private static final String INSTANCE_CALL =
+            "var s = \"benchmark\"; var n = 0;\n"
+            + "for (var i = 0; i < 1000; i++) { n = n + s.substring(1, 4).length(); }\n"
+            + "n;";
+
+    private static final String BOUND_METHOD_REF =
+            "var s = \"benchmark\"; var sub = s::substring; var n = 0;\n"
+            + "for (var i = 0; i < 1000; i++) { n = n + sub(1, 4).length(); }\n"
+            + "n;";
+
+    private static final String STATIC_CALL =
+            "var n = 0;\n"
+            + "for (var i = 0; i < 1000; i++) { n = n + Math.max(i, 500); }\n"
+            + "n;";
+
+    private static final String CONSTRUCTOR_AND_FIELD =
+            "var n = 0;\n"
+            + "for (var i = 0; i < 1000; i++) { var p = new java.awt.Point(i, 2); n = n + p.x; }\n"
+            + "n;";
+
+    private static final String LAMBDA_CREATE =
+            "var n = 0;\n"
+            + "for (var i = 0; i < 1000; i++) { var f = (x) -> x + i; n = n + 1; }\n"
+            + "n;";
+
+    private static final String LAMBDA_INVOKE =
+            "var f = (x) -> x * 2; var n = 0;\n"
+            + "for (var i = 0; i < 1000; i++) { n = n + f(i); }\n"
+            + "n;";
+
+    private static final String LAMBDA_AS_COMPARATOR =
+            "var l = new ArrayList();\n"
+            + "for (var i = 0; i < 1000; i++) { l.add((i * 7919) % 1000); }\n"
+            + "java.util.Collections.sort(l, (p, q) -> p - q);\n"
+            + "l.get(999);";
+
+    private ScriptRunner runner;
+    private CompiledScript instanceCall;
+    private CompiledScript boundMethodRef;
+    private CompiledScript staticCall;
+    private CompiledScript constructorAndField;
+    private CompiledScript lambdaCreate;
+    private CompiledScript lambdaInvoke;
+    private CompiledScript lambdaAsComparator;
+
+    @Setup
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        runner.addImport("java.util.*");
+        instanceCall = runner.compile(INSTANCE_CALL);
+        boundMethodRef = runner.compile(BOUND_METHOD_REF);
+        staticCall = runner.compile(STATIC_CALL);
+        constructorAndField = runner.compile(CONSTRUCTOR_AND_FIELD);
+        lambdaCreate = runner.compile(LAMBDA_CREATE);
+        lambdaInvoke = runner.compile(LAMBDA_INVOKE);
+        lambdaAsComparator = runner.compile(LAMBDA_AS_COMPARATOR);
+    }
+
+    @Benchmark
+    public Object instanceCall() {
+        return runner.executeWithResult(instanceCall);
+    }
+
+    @Benchmark
+    public Object boundMethodRef() {
+        return runner.executeWithResult(boundMethodRef);
+    }
+
+    @Benchmark
+    public Object staticCall() {
+        return runner.executeWithResult(staticCall);
+    }
+
+    @Benchmark
+    public Object constructorAndField() {
+        return runner.executeWithResult(constructorAndField);
+    }
+
+    @Benchmark
+    public Object lambdaCreate() {
+        return runner.executeWithResult(lambdaCreate);
+    }
+
+    @Benchmark
+    public Object lambdaInvoke() {
+        return runner.executeWithResult(lambdaInvoke);
+    }
+
+    /** 1000 个元素排序：lambda 经函数式适配层被 JDK 回调约 1 万次。 */
+    @Benchmark
+    public Object lambdaAsComparator() {
+        return runner.executeWithResult(lambdaAsComparator);
+    }
+}
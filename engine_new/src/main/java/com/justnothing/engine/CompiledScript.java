@@ -0,0 +1,49 @@
+package com.justnothing.engine;
+
+import com.justnothing.engine.ast.ASTNode;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 已编译（预处理 + 词法 + 语法解析 + 槽位解析完成）的脚本。
+ * <p>
+ * 由 {@link ScriptRunner#compile(String, String)} 产生，可以反复交给
+ * {@link ScriptRunner#executeWithResult(CompiledScript)} 执行，每次只运行求值器，
+ * 不再重复 Preprocessor / Lexer / Parser。适用于同一段源码被高频执行的场景（例如 Hook 回调）。
+ * </p>
+ *
+ * <p>AST 中的类型、运算符回调等是针对编译它的 ScriptRunner 的 ParseContext 绑定的，
+ * 因此只能在同一个 ScriptRunner 上执行。</p>
+ *
+ * <p>编译完成后 AST 只读（运行期缓存均为无锁发布），同一个 CompiledScript 可以通过
+ * {@link ScriptRunner#executeIsolated(CompiledScript, java.util.Map, java.util.Map)} 在多个线程上同时执行，
+ * 每次执行使用各自的帧。</p>
+ */
+public final class CompiledScript {
+
+    private final ScriptRunner owner;
+    private final List<ASTNode> nodes;
+    private final String sourceFileName;
+
+    CompiledScript(ScriptRunner owner, List<ASTNode> nodes, String sourceFileName) {
+        this.owner = owner;
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.sourceFileName = sourceFileName;
+    }
+
+    /** 编译该脚本的 ScriptRunner。 */
+    public ScriptRunner getOwner() {
+        return owner;
+    }
+
+    /** 顶层 AST 节点列表（只读）。 */
+    public List<ASTNode> getNodes() {
+        return nodes;
+    }
+
+    /** 编译时使用的源文件名（用于错误定位）。 */
+    public String getSourceFileName() {
+        return sourceFileName;
+    }
+}
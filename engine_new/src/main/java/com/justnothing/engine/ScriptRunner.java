@@ -4,15 +4,19 @@ import com.justnothing.engine.api.DefaultOutputHandler;
 import com.justnothing.engine.api.IClassFinder;
 import com.justnothing.engine.api.IOutputHandler;
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.GenericType;
 import com.justnothing.engine.ast.nodes.ClassDeclarationNode;
 import com.justnothing.engine.codegen.DynamicClassGenerator;
 import com.justnothing.engine.builtins.BuiltinRegistry;
 import com.justnothing.engine.builtins.Builtins;
+import com.justnothing.engine.cache.ScriptCache;
+import com.justnothing.engine.cache.ScriptCodec;
 import com.justnothing.engine.eval.CustomClassExecutor;
 import com.justnothing.engine.parser.OperatorRegistry;
 import com.justnothing.engine.eval.EvalContext;
 import com.justnothing.engine.eval.EvalException;
 import com.justnothing.engine.eval.Evaluator;
+import com.justnothing.engine.eval.ScriptProfiler;
 import com.justnothing.engine.eval.Value;
 import com.justnothing.engine.lexer.Lexer;
 import com.justnothing.engine.parser.CythavaParseException;
@@ -24,10 +28,15 @@ import com.justnothing.engine.security.SandboxConfig;
 import com.justnothing.engine.security.SecurityGate;
 import com.justnothing.engine.util.CompositeClassLoader;
 
+import java.io.IOException;
+import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 public class ScriptRunner {
 
@@ -39,6 +48,8 @@ public class ScriptRunner {
     private IOutputHandler outputHandler;
     private IOutputHandler errorHandler;
     private boolean enablePreprocessor = true;
+    private ScriptCache scriptCache;
+    private final String classLoaderFingerprint;
 
     public ScriptRunner() {
         this(Thread.currentThread().getContextClassLoader());
@@ -70,6 +81,7 @@ public class ScriptRunner {
         CompositeClassLoader composite = new CompositeClassLoader(appClassLoader);
         composite.addFirst(codegen.getLoader());
         this.classLoader = composite;
+        this.classLoaderFingerprint = fingerprintOf(appClassLoader);
 
         this.parseContext = new ParseContext(this.classLoader);
         this.parseContext.setBuiltinRegistry(registry);
@@ -121,33 +133,62 @@ public class ScriptRunner {
     }
 
     public Object executeWithResult(String code, String sourceFileName) {
-        try {
-            String processedCode = preprocess(code);
-            Lexer lexer = new Lexer(processedCode, sourceFileName);
-            Parser parser = new Parser(lexer.tokenize(), parseContext, sourceFileName);
-            List<ASTNode> nodes = parser.parse();
+        return executeWithResult(compile(code, sourceFileName));
+    }
 
-            for (ASTNode node : nodes) {
-                if (node instanceof ClassDeclarationNode classDecl) {
-                    parseContext.declareClass(classDecl);
-                    try {
-                        codegen.generate(classDecl);
-                    } catch (Exception e) {
-                        // skip
-                    }
-                }
+    /**
+     * 执行已编译的脚本，只运行求值器。
+     *
+     * @param script 由本 ScriptRunner 的 {@link #compile(String, String)} 产生的脚本
+     * @return 最后一条语句的值（void 时为 null）
+     */
+    public Object executeWithResult(CompiledScript script) {
+        if (script.getOwner() != this) {
+            throw new IllegalArgumentException("CompiledScript was compiled by another ScriptRunner: " + script.getSourceFileName());
+        }
+        return run(script, evalContext);
+    }
+
+    /**
+     * 在独立的执行帧中运行已编译脚本，可由多个线程同时调用（例如同一个 Hook 在多个 binder 线程上触发）。
+     * <p>
+     * 每次执行只新建一个子上下文作为帧：脚本顶层声明的变量和 bindings 都只存在于本帧，
+     * 执行之间互不可见；{@link #setVariable} 设置的全局变量照常可读，对它们的赋值写入线程安全的全局表。
+     * builtins 只对本次执行生效，覆盖同名的共享 builtin，不会修改注册表。
+     * </p>
+     *
+     * @param script   由本 ScriptRunner 编译的脚本
+     * @param bindings 本次执行的局部变量，可为 null
+     * @param builtins 本次执行私有的 builtin，可为 null；函数名需在编译前通过 {@link #addBuiltin} 登记，解析期才能识别
+     * @return 最后一条语句的值（void 时为 null）
+     */
+    public Object executeIsolated(CompiledScript script, Map<String, Object> bindings,
+                                  Map<String, Builtins.BuiltinFunction> builtins) {
+        if (script.getOwner() != this) {
+            throw new IllegalArgumentException("CompiledScript was compiled by another ScriptRunner: " + script.getSourceFileName());
+        }
+        EvalContext frame = evalContext.createFrame(builtins);
+        if (bindings != null) {
+            for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+                frame.setVariable(entry.getKey(), Value.of(entry.getValue()));
             }
+        }
+        return run(script, frame);
+    }
 
-            CustomClassExecutor.setContext(evalContext, parseContext);
-            Evaluator evaluator = new Evaluator(evalContext, parseContext);
-            List<Value> results = evaluator.evaluateAll(nodes);
-            CustomClassExecutor.clearContext();
+    public Object executeIsolated(CompiledScript script, Map<String, Object> bindings) {
+        return executeIsolated(script, bindings, null);
+    }
+
+    private Object run(CompiledScript script, EvalContext context) {
+        try {
+            // 恢复调用前的上下文：脚本可能在另一段脚本的执行中被重入调用（Hook 代码触发另一个 Hook）
+            List<Value> results = CustomClassExecutor.callWithContext(context, parseContext,
+                    () -> new Evaluator(context, parseContext).evaluateAll(script.getNodes()));
 
             if (results.isEmpty()) return null;
             Value last = results.get(results.size() - 1);
             return last instanceof Value.VoidValue ? null : last.asJavaObject();
-        } catch (CythavaParseException e) {
-            throw new RuntimeException("Parse error: " + e.getMessage(), e);
         } catch (EvalException e) {
             throw e;
         } catch (Exception e) {
@@ -155,6 +196,10 @@ public class ScriptRunner {
         }
     }
 
+    public void execute(CompiledScript script) {
+        executeWithResult(script);
+    }
+
     public void execute(String code) {
         executeWithResult(code);
     }
@@ -190,11 +235,149 @@ public class ScriptRunner {
 
     // ==================== Parsing ====================
 
+    public CompiledScript compile(String code) {
+        return compile(code, "<stdin>");
+    }
+
+    /**
+     * 预处理并解析源码，得到可重复执行的 {@link CompiledScript}。
+     * <p>其中的类声明会在此时注册并生成字节码，与 {@link #execute(String)} 的行为一致。</p>
+     * <p>解析会修改 ParseContext（作用域、类声明等），因此编译互斥；编译结果之后只读，可并发执行。</p>
+     *
+     * @throws RuntimeException 解析失败（消息以 "Parse error: " 开头）
+     */
+    public synchronized CompiledScript compile(String code, String sourceFileName) {
+        try {
+            String cacheKey = cacheKeyFor(code, sourceFileName);
+            if (cacheKey != null) {
+                byte[] cached = scriptCache.read(cacheKey);
+                if (cached != null) {
+                    try {
+                        return new CompiledScript(this, ScriptCodec.decode(cached, parseContext), sourceFileName);
+                    } catch (IOException e) {
+                        // 损坏或引用的类已不存在：丢弃后按源码重新编译
+                        scriptCache.invalidate(cacheKey);
+                    }
+                }
+            }
+
+            ScriptCodec.ContextMark mark = cacheKey != null ? ScriptCodec.mark(parseContext) : null;
+            String processedCode = preprocess(code);
+            Lexer lexer = new Lexer(processedCode, sourceFileName);
+            Parser parser = new Parser(lexer.tokenize(), parseContext, sourceFileName);
+            List<ASTNode> nodes = parser.parse();
+
+            for (ASTNode node : nodes) {
+                if (node instanceof ClassDeclarationNode classDecl) {
+                    parseContext.declareClass(classDecl);
+                    try {
+                        codegen.generate(classDecl);
+                    } catch (Exception e) {
+                        // skip
+                    }
+                }
+            }
+            if (cacheKey != null) {
+                try {
+                    scriptCache.write(cacheKey, ScriptCodec.encode(nodes, parseContext, mark));
+                } catch (IOException e) {
+                    // 含类声明等不支持缓存的内容：每次按源码编译
+                }
+            }
+            return new CompiledScript(this, nodes, sourceFileName);
+        } catch (CythavaParseException e) {
+            throw new RuntimeException("Parse error: " + e.getMessage(), e);
+        } catch (EvalException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 缓存键：源码加上所有会改变解析结果的状态。未设置缓存、或源码含预处理指令
+     * （{@code #define}、{@code #pragma} 等会修改 Preprocessor / ParseContext 的状态，加载时无法重放）时返回 null。
+     */
+    private String cacheKeyFor(String code, String sourceFileName) {
+        if (scriptCache == null || (enablePreprocessor && preprocessor != null && hasDirective(code))) {
+            return null;
+        }
+        StringBuilder env = new StringBuilder();
+        env.append("file=").append(sourceFileName)
+                .append("\nstrict=").append(parseContext.isStrictMode())
+                .append("\nimports=").append(parseContext.getImports())
+                .append("\naliases=").append(new TreeMap<>(parseContext.getTypeAliases()))
+                .append("\nclasses=").append(new TreeMap<>(parseContext.getClassDeclarations()).keySet());
+        env.append("\nvariables=");
+        for (ParseContext.VariableSymbol symbol : parseContext.getVisibleVariables().values()) {
+            env.append(symbol.getName()).append(symbol.isFinal() ? "!" : "")
+                    .append(':').append(typeKey(symbol.getDeclaredType())).append(';');
+        }
+        if (enablePreprocessor && preprocessor != null) {
+            env.append("\nmacros=").append(new TreeMap<>(preprocessor.getMacros()));
+        }
+        BuiltinRegistry builtins = parseContext.getBuiltinRegistry();
+        if (builtins != null) {
+            env.append("\nbuiltins=").append(new TreeSet<>(builtins.getAllNames()));
+        }
+        env.append("\noperators=");
+        OperatorRegistry operators = parseContext.getOperatorRegistry();
+        if (operators != null && operators.isBuiltinOnly()) {
+            // 内置运算符表随引擎版本固定，已由缓存版本覆盖
+            env.append("builtin");
+        } else if (operators != null) {
+            for (OperatorRegistry.Overload overload : operators.getAllOverloads()) {
+                env.append(overload.operator()).append(overload.parameterTypes())
+                        .append("->").append(overload.returnType())
+                        .append(overload.isBuiltin() ? "" : "*").append(';');
+            }
+        }
+        env.append("\nloader=").append(classLoaderFingerprint);
+        return scriptCache.keyOf(code, env.toString());
+    }
+
+    /**
+     * 类加载器链的描述，宿主换了 apk / classpath 时随之变化。默认的 Object.toString 带对象哈希，
+     * 每次进程都不同，只取类名；URLClassLoader 另外带上它的 URL 列表。
+     */
+    private static String fingerprintOf(ClassLoader loader) {
+        StringBuilder sb = new StringBuilder();
+        for (ClassLoader l = loader; l != null; l = l.getParent()) {
+            String text = l.toString();
+            String identity = l.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(l));
+            sb.append(text.equals(identity) ? l.getClass().getName() : text);
+            if (l instanceof URLClassLoader) {
+                sb.append(Arrays.toString(((URLClassLoader) l).getURLs()));
+            }
+            sb.append(" <- ");
+        }
+        return sb.append("boot").toString();
+    }
+
+    private static boolean hasDirective(String code) {
+        for (String line : code.split("\n")) {
+            if (line.trim().startsWith("#")) return true;
+        }
+        return false;
+    }
+
+    private static String typeKey(GenericType type) {
+        if (type == null) return "";
+        StringBuilder sb = new StringBuilder(type.getRawType() != null
+                ? type.getRawType().getName() : String.valueOf(type.getOriginalTypeName()));
+        if (!type.getTypeArguments().isEmpty()) {
+            sb.append('<');
+            for (GenericType arg : type.getTypeArguments()) sb.append(typeKey(arg)).append(',');
+            sb.append('>');
+        }
+        return sb.append("[]".repeat(type.getArrayDepth())).toString();
+    }
+
     public List<ASTNode> tryParse(String code) {
         return tryParse(code, "<stdin>");
     }
 
-    public List<ASTNode> tryParse(String code, String sourceFileName) {
+    public synchronized List<ASTNode> tryParse(String code, String sourceFileName) {
         try {
             String processedCode = preprocess(code);
             Lexer lexer = new Lexer(processedCode, sourceFileName);
@@ -294,6 +477,21 @@ public class ScriptRunner {
         this.errorHandler = errorHandler;
     }
 
+    // ==================== Script cache ====================
+
+    /**
+     * 设置（或以 null 关闭）预编译缓存。开启后 {@link #compile(String, String)} 先按源码与编译环境的哈希
+     * 查找缓存，命中时直接加载 AST，跳过预处理、词法和语法分析；未命中时照常编译并写回缓存。
+     * <p>含类声明或预处理指令的脚本不缓存。缓存实例可在多个 ScriptRunner 之间共享。</p>
+     */
+    public void setScriptCache(ScriptCache scriptCache) {
+        this.scriptCache = scriptCache;
+    }
+
+    public ScriptCache getScriptCache() {
+        return scriptCache;
+    }
+
     // ==================== Preprocessor ====================
 
     private String preprocess(String code) {
@@ -384,6 +582,20 @@ public class ScriptRunner {
         }
     }
 
+    // ==================== Profiler ====================
+
+    /**
+     * 开启（或以 null 关闭）执行剖析。开启后每次执行按节点与源码行记录耗时，
+     * 通过 {@link ScriptProfiler#formatHotLines(int)} / {@link ScriptProfiler#writeCollapsedStacks(Appendable)} 输出报告。
+     */
+    public void setProfiler(ScriptProfiler profiler) {
+        evalContext.setProfiler(profiler);
+    }
+
+    public ScriptProfiler getProfiler() {
+        return evalContext.getProfiler();
+    }
+
     /** 获取当前的权限检查器。 */
     public IPermissionChecker getPermissionChecker() {
         SecurityGate gate = evalContext.getSecurityGate();
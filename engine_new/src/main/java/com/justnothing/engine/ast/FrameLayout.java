@@ -0,0 +1,68 @@
+package com.justnothing.engine.ast;
+
+import java.util.Arrays;
+
+/**
+ * 运行期作用域帧布局。
+ * <p>
+ * 由 {@link com.justnothing.engine.parser.SlotResolver} 为每个会在运行期创建
+ * {@code EvalContext} 的节点（块、循环、lambda、函数体、case、catch）生成，
+ * 记录该帧内局部变量的槽位顺序。EvalContext 据此分配定长的 Value 数组，
+ * 已解析的变量按下标读写，不再经过字符串哈希和父链逐级查找。
+ * </p>
+ *
+ * <p>同一个布局实例同时充当帧的身份标识：运行期只有当 EvalContext 的布局与
+ * {@link SlotRef#frame()} 是同一对象时才走槽位快速路径，否则退回按名字查找。</p>
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class FrameLayout {
+
+    private String[] names = new String[4];
+    private int size;
+
+    /**
+     * 在帧内声明变量并返回其槽位下标。同名变量重复声明时复用原槽位。
+     *
+     * @param name 变量名
+     * @return 槽位下标
+     */
+    public int declare(String name) {
+        int existing = indexOf(name);
+        if (existing >= 0) return existing;
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+        }
+        names[size] = name;
+        return size++;
+    }
+
+    /**
+     * 查找变量的槽位下标。帧内变量通常很少，线性扫描即可。
+     *
+     * @param name 变量名
+     * @return 槽位下标，未声明返回 -1
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /** 槽位数量。 */
+    public int size() {
+        return size;
+    }
+
+    /** 获取槽位对应的变量名。 */
+    public String nameAt(int index) {
+        return names[index];
+    }
+
+    @Override
+    public String toString() {
+        return "FrameLayout" + Arrays.toString(Arrays.copyOf(names, size));
+    }
+}
@@ -0,0 +1,76 @@
+package com.justnothing.engine.ast;
+
+import java.util.Arrays;
+
+/**
+ * 调用点内联缓存（单态 / 多态）。
+ * <p>
+ * 挂在调用节点上，按“接收者类型 + 实参类型”缓存运行期的解析结果（重载选择、覆写查找），
+ * 同一调用点再次遇到相同的类型组合时直接命中，跳过 {@code getMethods()} 遍历与打分。
+ * 一个调用点最多记住 {@link #MAX_ENTRIES} 种类型组合；超过后视为超态（megamorphic），
+ * 清空并停止缓存，此后每次都重新解析（避免缓存无限增长和线性比对退化）。
+ * </p>
+ *
+ * <p>读路径无锁：条目数组整体替换并通过 volatile 发布，更新时加锁。</p>
+ *
+ * @param <T> 缓存的解析结果类型
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class InlineCache<T> {
+
+    /** 多态缓存的最大条目数。 */
+    public static final int MAX_ENTRIES = 4;
+
+    /** 只按接收者类型缓存时使用的实参类型（例如覆写查找）。 */
+    public static final Class<?>[] NO_ARGS = new Class<?>[0];
+
+    private record Entry<T>(Class<?> receiver, Class<?>[] argTypes, T target) {
+    }
+
+    @SuppressWarnings("unchecked")
+    private volatile Entry<T>[] entries = (Entry<T>[]) new Entry<?>[0];
+    private volatile boolean megamorphic;
+
+    /**
+     * 查找缓存。
+     *
+     * @param receiver 接收者类型（静态调用为目标类）
+     * @param argTypes 实参的运行期类型
+     * @return 命中的解析结果，未命中返回 null
+     */
+    public T lookup(Class<?> receiver, Class<?>[] argTypes) {
+        for (Entry<T> entry : entries) {
+            if (entry.receiver() == receiver && Arrays.equals(entry.argTypes(), argTypes)) {
+                return entry.target();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 记录一次解析结果。已是超态或结果为 null 时忽略。
+     */
+    public synchronized void update(Class<?> receiver, Class<?>[] argTypes, T target) {
+        if (megamorphic || target == null || lookup(receiver, argTypes) != null) return;
+        Entry<T>[] current = entries;
+        if (current.length >= MAX_ENTRIES) {
+            megamorphic = true;
+            entries = Arrays.copyOf(current, 0);
+            return;
+        }
+        Entry<T>[] next = Arrays.copyOf(current, current.length + 1);
+        next[current.length] = new Entry<>(receiver, argTypes.clone(), target);
+        entries = next;
+    }
+
+    /** 是否已退化为超态（不再缓存）。 */
+    public boolean isMegamorphic() {
+        return megamorphic;
+    }
+
+    /** 当前缓存的类型组合数。 */
+    public int size() {
+        return entries.length;
+    }
+}
@@ -0,0 +1,15 @@
+package com.justnothing.engine.ast;
+
+/**
+ * 已解析的局部变量地址。
+ * <p>
+ * {@code depth} 为从引用处所在帧向外跳过的帧数，{@code index} 为目标帧内的槽位下标，
+ * {@code frame} 为目标帧的布局（运行期用于校验帧身份）。
+ * </p>
+ *
+ * @param depth 向外跳过的帧数（0 表示当前帧）
+ * @param index 目标帧内的槽位下标
+ * @param frame 目标帧布局
+ */
+public record SlotRef(int depth, int index, FrameLayout frame) {
+}
@@ -0,0 +1,52 @@
+package com.justnothing.engine.ast;
+
+import com.justnothing.engine.eval.Value;
+
+import java.util.Map;
+
+/**
+ * switch 的分支查找表。
+ * <p>
+ * 挂在 {@link com.justnothing.engine.ast.nodes.SwitchNode} 上，首次执行时由 Evaluator 构建：
+ * 常量标签（字面量、static final 字段，含枚举常量）求值一次后放入哈希表，按值 O(1) 找到分支下标；
+ * 其余标签（变量、方法调用等）记为动态分支，每次执行仍按顺序求值比较。
+ * </p>
+ *
+ * <p>
+ * 语义与逐个比较相同：多个标签相等时取最靠前的分支；动态分支只在下标小于常量命中分支时才需要求值。
+ * </p>
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class SwitchTable {
+
+    private static final int[] NO_CASES = new int[0];
+
+    private final Map<Value, Integer> constants;
+    private final int[] dynamicCases;
+
+    /**
+     * @param constants    常量标签值 → 第一个该标签的分支下标
+     * @param dynamicCases 动态标签的分支下标（升序）
+     */
+    public SwitchTable(Map<Value, Integer> constants, int[] dynamicCases) {
+        this.constants = constants;
+        this.dynamicCases = dynamicCases.length == 0 ? NO_CASES : dynamicCases;
+    }
+
+    /** 与 value 相等的常量标签所在分支下标，没有则返回 -1。 */
+    public int constantIndex(Value value) {
+        Integer index = constants.get(value);
+        return index != null ? index : -1;
+    }
+
+    /** 动态标签的分支下标（升序）。 */
+    public int[] getDynamicCases() {
+        return dynamicCases;
+    }
+
+    public int constantCount() {
+        return constants.size();
+    }
+}
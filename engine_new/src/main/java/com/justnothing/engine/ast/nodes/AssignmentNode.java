@@ -1,6 +1,7 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.SlotRef;
 import com.justnothing.engine.ast.GenericType;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
@@ -21,6 +22,7 @@ public class AssignmentNode extends ASTNode {
     private final boolean isDeclaration;
     private final GenericType declaredType;
     private final boolean isFinal;
+    private SlotRef slot;
     
     public AssignmentNode(String variableName, ASTNode value, boolean isDeclaration, 
                         GenericType declaredType, SourceLocation location) {
@@ -60,6 +62,16 @@ public class AssignmentNode extends ASTNode {
     public boolean isFinal() {
         return isFinal;
     }
+
+    /** 解析期分配的局部变量槽位（null 表示按名字查找）。 */
+    public SlotRef getSlot() {
+        return slot;
+    }
+
+    /** 设置局部变量槽位（由 SlotResolver 调用）。 */
+    public void setSlot(SlotRef slot) {
+        this.slot = slot;
+    }
     
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
@@ -68,7 +68,8 @@ public class BinaryOpNode extends ASTNode {
     private final Operator operator;
     private final ASTNode left;
     private final ASTNode right;
-    private OperatorCallback operatorCallback;
+    /** 运行期缓存的运算符重载回调；编译好的脚本可能被多个线程同时执行，因此 volatile 发布。 */
+    private volatile OperatorCallback operatorCallback;
 
     private BinaryOpNode(Operator operator, ASTNode left, ASTNode right, SourceLocation location) {
         super(location);
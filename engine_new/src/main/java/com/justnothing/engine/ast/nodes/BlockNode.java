@@ -1,6 +1,7 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.FrameLayout;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
 
@@ -20,6 +21,7 @@ import java.util.List;
 public class BlockNode extends ASTNode {
     
     private final List<ASTNode> statements;
+    private FrameLayout frameLayout;
     
 
     private BlockNode(List<ASTNode> statements, SourceLocation location) {
@@ -32,6 +34,16 @@ public class BlockNode extends ASTNode {
     public List<ASTNode> getStatements() {
         return statements;
     }
+
+    /** 运行期帧布局（由 SlotResolver 在解析后设置，null 表示按名字查找）。 */
+    public FrameLayout getFrameLayout() {
+        return frameLayout;
+    }
+
+    /** 设置运行期帧布局（由 SlotResolver 调用）。 */
+    public void setFrameLayout(FrameLayout frameLayout) {
+        this.frameLayout = frameLayout;
+    }
     
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
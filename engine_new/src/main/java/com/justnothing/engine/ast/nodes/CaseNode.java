@@ -1,6 +1,7 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.FrameLayout;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
 
@@ -9,6 +10,7 @@ import java.util.List;
 public class CaseNode extends ASTNode {
     private final ASTNode value;
     private final List<ASTNode> statements;
+    private FrameLayout frameLayout;
     
     private CaseNode(ASTNode value, List<ASTNode> statements, SourceLocation location) {
         super(location);
@@ -23,6 +25,16 @@ public class CaseNode extends ASTNode {
     public List<ASTNode> getStatements() {
         return statements;
     }
+
+    /** 运行期帧布局（由 SlotResolver 在解析后设置，null 表示按名字查找）。 */
+    public FrameLayout getFrameLayout() {
+        return frameLayout;
+    }
+
+    /** 设置运行期帧布局（由 SlotResolver 调用）。 */
+    public void setFrameLayout(FrameLayout frameLayout) {
+        this.frameLayout = frameLayout;
+    }
     
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
@@ -1,6 +1,7 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.FrameLayout;
 import com.justnothing.engine.ast.SourceLocation;
 
 import java.util.List;
@@ -10,6 +11,7 @@ public class CatchClause {
     private final String variableName;
     private final ASTNode body;
     private final SourceLocation location;
+    private FrameLayout frameLayout;
     
     private CatchClause(List<Class<?>> exceptionTypes, String variableName, ASTNode body, SourceLocation location) {
         this.exceptionTypes = exceptionTypes;
@@ -29,6 +31,16 @@ public class CatchClause {
     public ASTNode getBody() {
         return body;
     }
+
+    /** 运行期帧布局（由 SlotResolver 在解析后设置，null 表示按名字查找）。 */
+    public FrameLayout getFrameLayout() {
+        return frameLayout;
+    }
+
+    /** 设置运行期帧布局（由 SlotResolver 调用）。 */
+    public void setFrameLayout(FrameLayout frameLayout) {
+        this.frameLayout = frameLayout;
+    }
     
     public SourceLocation getLocation() {
         return location;
@@ -1,6 +1,7 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.FrameLayout;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
 
@@ -10,6 +11,9 @@ public class ForEachNode extends ASTNode {
     private final String itemName;
     private final ASTNode collection;
     private final ASTNode body;
+    private FrameLayout frameLayout;
+    private boolean sourceAnalyzed;
+    private boolean snapshotSource;
     
     private ForEachNode(Class<?> itemType, ClassDeclarationNode itemTypeNode, String itemName, ASTNode collection, ASTNode body, SourceLocation location) {
         super(location);
@@ -35,7 +39,34 @@ public class ForEachNode extends ASTNode {
     public ASTNode getBody() {
         return body;
     }
+
+    /** 运行期帧布局（由 SlotResolver 在解析后设置，null 表示按名字查找）。 */
+    public FrameLayout getFrameLayout() {
+        return frameLayout;
+    }
+
+    /** 设置运行期帧布局（由 SlotResolver 调用）。 */
+    public void setFrameLayout(FrameLayout frameLayout) {
+        this.frameLayout = frameLayout;
+    }
     
+    /**
+     * 遍历前是否需要先拷贝集合快照。
+     * <p>
+     * 未经 SlotResolver 分析的节点（如类方法体内的循环）保守地返回 true；
+     * 分析过的节点只有循环体可能修改数据源时才为 true，否则直接在迭代器上逐个取元素。
+     * </p>
+     */
+    public boolean isSnapshotSource() {
+        return !sourceAnalyzed || snapshotSource;
+    }
+
+    /** 记录数据源分析结果（由 SlotResolver 调用）。 */
+    public void setSnapshotSource(boolean snapshotSource) {
+        this.sourceAnalyzed = true;
+        this.snapshotSource = snapshotSource;
+    }
+
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
@@ -1,6 +1,7 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.FrameLayout;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
 
@@ -19,6 +20,7 @@ public class ForNode extends ASTNode {
     private final ASTNode condition;
     private final ASTNode update;
     private final ASTNode body;
+    private FrameLayout frameLayout;
 
     
 
@@ -47,6 +49,16 @@ public class ForNode extends ASTNode {
     public ASTNode getBody() {
         return body;
     }
+
+    /** 运行期帧布局（由 SlotResolver 在解析后设置，null 表示按名字查找）。 */
+    public FrameLayout getFrameLayout() {
+        return frameLayout;
+    }
+
+    /** 设置运行期帧布局（由 SlotResolver 调用）。 */
+    public void setFrameLayout(FrameLayout frameLayout) {
+        this.frameLayout = frameLayout;
+    }
     
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
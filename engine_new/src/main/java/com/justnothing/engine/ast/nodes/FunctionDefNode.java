@@ -1,8 +1,10 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.FrameLayout;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
+import com.justnothing.engine.codegen.CompileTier;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -14,6 +16,8 @@ public class FunctionDefNode extends ASTNode {
     private final ClassReferenceNode returnType;
     private final List<LambdaNode.Parameter> parameters;
     private final ASTNode body;
+    private FrameLayout frameLayout;
+    private final CompileTier.State compileState = new CompileTier.State();
 
     /**
      * @deprecated 使用 {@link Builder} 替代。
@@ -47,6 +51,21 @@ public class FunctionDefNode extends ASTNode {
         return body;
     }
 
+    /** 运行期帧布局（由 SlotResolver 在解析后设置，null 表示按名字查找）。 */
+    public FrameLayout getFrameLayout() {
+        return frameLayout;
+    }
+
+    /** 设置运行期帧布局（由 SlotResolver 调用）。 */
+    public void setFrameLayout(FrameLayout frameLayout) {
+        this.frameLayout = frameLayout;
+    }
+
+    /** 字节码编译层的调用计数与编译结果（该节点产生的所有闭包共享）。 */
+    public CompileTier.State getCompileState() {
+        return compileState;
+    }
+
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
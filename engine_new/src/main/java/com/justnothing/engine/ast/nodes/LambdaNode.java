@@ -1,8 +1,10 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.FrameLayout;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
+import com.justnothing.engine.codegen.CompileTier;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -26,9 +28,13 @@ public class LambdaNode extends ASTNode {
     }
     
     private final List<Parameter> parameters;
+    private final List<String> parameterNames;
     private final ASTNode body;
     private Class<?> functionalInterfaceType;
     private final ClassReferenceNode returnType;
+    private FrameLayout frameLayout;
+    private String[] capturedNames;
+    private final CompileTier.State compileState = new CompileTier.State();
     
     /**
      * @deprecated 使用 {@link Builder} 替代。
@@ -47,6 +53,9 @@ public class LambdaNode extends ASTNode {
         this.parameters = parameters != null ? 
             Collections.unmodifiableList(new ArrayList<>(parameters)) : 
             Collections.emptyList();
+        List<String> names = new ArrayList<>(this.parameters.size());
+        for (Parameter p : this.parameters) names.add(p.name());
+        this.parameterNames = Collections.unmodifiableList(names);
         this.body = body;
         this.returnType = returnType;
     }
@@ -55,9 +64,39 @@ public class LambdaNode extends ASTNode {
         return parameters;
     }
     
+    /** 参数名列表（构造时计算一次，供每次求值 lambda 时复用）。 */
+    public List<String> getParameterNames() {
+        return parameterNames;
+    }
+
     public ASTNode getBody() {
         return body;
     }
+
+    /** 运行期帧布局（由 SlotResolver 在解析后设置，null 表示按名字查找）。 */
+    public FrameLayout getFrameLayout() {
+        return frameLayout;
+    }
+
+    /** 设置运行期帧布局（由 SlotResolver 调用）。 */
+    public void setFrameLayout(FrameLayout frameLayout) {
+        this.frameLayout = frameLayout;
+    }
+
+    /** 函数体引用的外层变量名（由 SlotResolver 在解析后设置，null 表示未分析）。 */
+    public String[] getCapturedNames() {
+        return capturedNames;
+    }
+
+    /** 设置外层变量名（由 SlotResolver 调用）。 */
+    public void setCapturedNames(String[] capturedNames) {
+        this.capturedNames = capturedNames;
+    }
+
+    /** 字节码编译层的调用计数与编译结果（该节点产生的所有闭包共享）。 */
+    public CompileTier.State getCompileState() {
+        return compileState;
+    }
     
     public ClassReferenceNode getReturnType() {
         return returnType;
@@ -3,12 +3,16 @@ package com.justnothing.engine.ast.nodes;
 import com.justnothing.engine.ast.ASTNode;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
+import com.justnothing.engine.eval.Value;
 
 /**
  * 字面量节点
  * <p>
  * 表示各种字面量值，如数字、字符串、布尔值、null等。
  * </p>
+ * <p>
+ * 对应的运行期 {@link Value} 在构造时预先算好，求值时直接返回同一实例，不再每次重新包装。
+ * </p>
  * 
  * @author JustNothing1021
  * @since 1.0.0
@@ -17,12 +21,22 @@ public class LiteralNode extends ASTNode {
     
     private final Object value;
     private final Class<?> type;
+    private final Value constant;
     
 
     private LiteralNode(Object value, Class<?> type, SourceLocation location) {
         super(location);
         this.value = value;
         this.type = type;
+        this.constant = toConstant(value, type);
+    }
+
+    /** 字面量的运行期值；数组等可变值返回 null，需由求值器每次重新包装。 */
+    private static Value toConstant(Object value, Class<?> type) {
+        if (value == null) return Value.NullValue.INSTANCE;
+        if (type == void.class) return Value.VoidValue.INSTANCE;
+        if (value.getClass().isArray()) return null;
+        return Value.of(value);
     }
     
     public Object getValue() {
@@ -32,6 +46,11 @@ public class LiteralNode extends ASTNode {
     public Class<?> getType() {
         return type;
     }
+
+    /** 获取预先计算的运行期值（可能为 null，见 {@link #toConstant}）。 */
+    public Value getConstant() {
+        return constant;
+    }
     
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
@@ -1,8 +1,10 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.InlineCache;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
+import com.justnothing.engine.util.MethodInvoker;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -32,6 +34,11 @@ public class MethodCallNode extends ASTNode {
      * </p>
      */
     private Method boundMethod;
+
+    /**
+     * 运行期内联缓存：未绑定时缓存重载选择结果，已绑定时缓存接收者类型上的覆写方法。
+     */
+    private final InlineCache<MethodInvoker> inlineCache = new InlineCache<>();
     
 
     private MethodCallNode(ASTNode target, String methodName,
@@ -65,6 +72,11 @@ public class MethodCallNode extends ASTNode {
     public void setBoundMethod(Method method) {
         this.boundMethod = method;
     }
+
+    /** 获取该调用点的运行期内联缓存。 */
+    public InlineCache<MethodInvoker> getInlineCache() {
+        return inlineCache;
+    }
     
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
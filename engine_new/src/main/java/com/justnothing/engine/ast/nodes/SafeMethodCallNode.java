@@ -4,14 +4,19 @@ import java.util.ArrayList;
 import java.util.List;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.InlineCache;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
+import com.justnothing.engine.util.MethodInvoker;
 
 public class SafeMethodCallNode extends ASTNode {
     
     private final ASTNode target;
     private final String methodName;
     private final List<ASTNode> arguments;
+
+    /** 运行期内联缓存：按接收者类型缓存查找到的方法。 */
+    private final InlineCache<MethodInvoker> inlineCache = new InlineCache<>();
     
 
     private SafeMethodCallNode(ASTNode target, String methodName, List<ASTNode> arguments, SourceLocation location) {
@@ -32,6 +37,11 @@ public class SafeMethodCallNode extends ASTNode {
     public List<ASTNode> getArguments() {
         return arguments;
     }
+
+    /** 获取该调用点的运行期内联缓存。 */
+    public InlineCache<MethodInvoker> getInlineCache() {
+        return inlineCache;
+    }
     
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
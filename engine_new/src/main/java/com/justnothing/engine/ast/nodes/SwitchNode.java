@@ -2,6 +2,7 @@ package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
 import com.justnothing.engine.ast.SourceLocation;
+import com.justnothing.engine.ast.SwitchTable;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
 
 import java.util.List;
@@ -10,6 +11,7 @@ public class SwitchNode extends ASTNode {
     private final ASTNode expression;
     private final List<CaseNode> cases;
     private final ASTNode defaultCase;
+    private volatile SwitchTable switchTable;
     
 
     private SwitchNode(ASTNode expression, List<CaseNode> cases, ASTNode defaultCase, SourceLocation location) {
@@ -30,6 +32,15 @@ public class SwitchNode extends ASTNode {
     public ASTNode getDefaultCase() {
         return defaultCase;
     }
+
+    /** 分支查找表（首次执行时由 Evaluator 构建，null 表示尚未构建）。 */
+    public SwitchTable getSwitchTable() {
+        return switchTable;
+    }
+
+    public void setSwitchTable(SwitchTable switchTable) {
+        this.switchTable = switchTable;
+    }
     
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
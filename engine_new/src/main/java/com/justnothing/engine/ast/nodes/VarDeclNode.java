@@ -1,6 +1,7 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.SlotRef;
 import com.justnothing.engine.ast.GenericType;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
@@ -30,6 +31,7 @@ public class VarDeclNode extends ASTNode {
     private final ASTNode initializer;
     private final boolean isFinal;
     private final List<AnnotationNode> annotations;
+    private SlotRef slot;
 
 
     private VarDeclNode(String varName, GenericType declaredType, ASTNode initializer,
@@ -67,6 +69,16 @@ public class VarDeclNode extends ASTNode {
         return annotations;
     }
 
+    /** 解析期分配的局部变量槽位（null 表示按名字查找）。 */
+    public SlotRef getSlot() {
+        return slot;
+    }
+
+    /** 设置局部变量槽位（由 SlotResolver 调用）。 */
+    public void setSlot(SlotRef slot) {
+        this.slot = slot;
+    }
+
     @Override
     public <T> T accept(ASTVisitor<T> visitor) {
         return visitor.visit(this);
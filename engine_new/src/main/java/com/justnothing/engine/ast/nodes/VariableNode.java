@@ -1,6 +1,7 @@
 package com.justnothing.engine.ast.nodes;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.SlotRef;
 import com.justnothing.engine.ast.SourceLocation;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
 
@@ -24,6 +25,7 @@ public class VariableNode extends ASTNode {
     private ClassReferenceNode declaredType;
     private boolean isFinal;
     private List<AnnotationNode> annotations = Collections.emptyList();
+    private SlotRef slot;
 
 
     private VariableNode(String name, SourceLocation location) {
@@ -45,6 +47,16 @@ public class VariableNode extends ASTNode {
         isFieldAccess = fieldAccess;
     }
 
+    /** 解析期分配的局部变量槽位（null 表示按名字查找）。 */
+    public SlotRef getSlot() {
+        return slot;
+    }
+
+    /** 设置局部变量槽位（由 SlotResolver 调用）。 */
+    public void setSlot(SlotRef slot) {
+        this.slot = slot;
+    }
+
     // ==================== 声明元数据 ====================
 
     /**
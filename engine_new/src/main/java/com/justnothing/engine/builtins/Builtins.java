@@ -2,6 +2,7 @@ package com.justnothing.engine.builtins;
 
 import com.justnothing.engine.api.IOutputHandler;
 import com.justnothing.engine.eval.Value;
+import com.justnothing.engine.util.MethodInvoker;
 
 import java.io.InputStream;
 import java.lang.reflect.Array;
@@ -103,7 +104,7 @@ public class Builtins {
     };
 
     private static String formatValue(Object value) {
-        if (value.getClass().isArray()) return Arrays.deepToString((Object[]) value);
+        if (value.getClass().isArray()) return Value.ofArray(value).toString();
         return Objects.toString(value);
     }
 
@@ -117,16 +118,6 @@ public class Builtins {
         return Double.parseDouble(v.toString());
     }
 
-    private static List<Integer> createRange(int start, int end, int step) {
-        List<Integer> list = new ArrayList<>();
-        if (step > 0) {
-            for (int i = start; i < end; i += step) list.add(i);
-        } else if (step < 0) {
-            for (int i = start; i > end; i += step) list.add(i);
-        }
-        return list;
-    }
-
     /** Unwrap all args to raw Java objects. */
     private static Object[] unwrap(List<Value> args) {
         Object[] raw = new Object[args.size()];
@@ -141,8 +132,19 @@ public class Builtins {
         return Value.of(obj);
     }
 
-    /** Call a function stored as Value.ObjectValue(Function<Value[], Value>). */
-    private Object callFunctionValue(Object funcObj, Object... callArgs) {
+    /** Call a script lambda, method reference, or function stored as Value.ObjectValue(Function<Value[], Value>). */
+    private static Object callFunctionValue(Object funcObj, Object... callArgs) {
+        if (funcObj instanceof Lambda lambda) {
+            Value[] wrapped = new Value[callArgs.length];
+            for (int i = 0; i < callArgs.length; i++) {
+                wrapped[i] = Value.of(callArgs[i]);
+            }
+            Value result = lambda.invoke(wrapped);
+            return result != null ? result.asJavaObject() : null;
+        }
+        if (funcObj instanceof MethodReference ref) {
+            return ref.invoke(callArgs);
+        }
         if (funcObj instanceof Function) {
             @SuppressWarnings("unchecked")
             Function<Value[], Value> f = (Function<Value[], Value>) funcObj;
@@ -155,7 +157,7 @@ public class Builtins {
         }
         if (funcObj instanceof Method m) {
             try {
-                return m.invoke(null, callArgs);
+                return MethodInvoker.of(m).invoke(null, callArgs);
             } catch (Exception e) {
                 throw new RuntimeException("Failed to call method: " + e.getMessage());
             }
@@ -163,7 +165,7 @@ public class Builtins {
         throw new RuntimeException("Not a callable function: " + funcObj);
     }
 
-    private boolean callPredicate(Object predicate, Object item) {
+    private static boolean callPredicate(Object predicate, Object item) {
         Object result = callFunctionValue(predicate, item);
         return result instanceof Boolean b ? b : result != null;
     }
@@ -221,12 +223,13 @@ public class Builtins {
     private void registerCollectionFunctions() {
         registerFunction("range", args -> {
             int argCount = args.size();
+            Object[] raw = unwrap(args);
             if (argCount == 1) {
-                return wrap(createRange(0, toInt(unwrap(args)[0]), 1));
+                return wrap(LazySequence.range(0, toInt(raw[0]), 1));
             } else if (argCount == 2) {
-                return wrap(createRange(toInt(unwrap(args)[0]), toInt(unwrap(args)[1]), 1));
+                return wrap(LazySequence.range(toInt(raw[0]), toInt(raw[1]), 1));
             } else if (argCount == 3) {
-                return wrap(createRange(toInt(unwrap(args)[0]), toInt(unwrap(args)[1]), toInt(unwrap(args)[2])));
+                return wrap(LazySequence.range(toInt(raw[0]), toInt(raw[1]), toInt(raw[2])));
             }
             throw new RuntimeException("range() takes 1-3 arguments");
         });
@@ -256,6 +259,7 @@ public class Builtins {
             if (args.size() != 1) throw new RuntimeException("size() requires exactly 1 argument");
             Object obj = args.get(0).asJavaObject();
             if (obj instanceof Collection<?> c) return wrap(c.size());
+            if (obj instanceof LazySequence seq) return wrap(seq.count());
             if (obj instanceof Map<?, ?> m) return wrap(m.size());
             if (obj != null && obj.getClass().isArray()) return wrap(Array.getLength(obj));
             throw new RuntimeException("size() argument must be a Collection, Map, or Array");
@@ -266,6 +270,7 @@ public class Builtins {
             Object col = args.get(0).asJavaObject();
             Object elem = args.get(1).asJavaObject();
             if (col instanceof Collection<?> c) return wrap(c.contains(elem));
+            if (col instanceof LazySequence seq) return wrap(seq.contains(elem));
             if (col instanceof Map<?, ?> m) return wrap(m.containsKey(elem));
             if (col != null && col.getClass().isArray()) {
                 int len = Array.getLength(col);
@@ -288,94 +293,66 @@ public class Builtins {
             if (args.isEmpty() || args.size() > 2) throw new RuntimeException("join() requires 1 or 2 arguments");
             Object col = args.get(0).asJavaObject();
             String delimiter = args.size() > 1 ? args.get(1).asString() : "";
-            StringBuilder sb = new StringBuilder();
-            if (col instanceof Collection<?> c) {
-                boolean first = true;
-                for (Object item : c) {
-                    if (!first) sb.append(delimiter);
-                    sb.append(item != null ? item.toString() : "null");
-                    first = false;
-                }
-            } else if (col != null && col.getClass().isArray()) {
-                int len = Array.getLength(col);
-                for (int i = 0; i < len; i++) {
-                    if (i > 0) sb.append(delimiter);
-                    Object item = Array.get(col, i);
-                    sb.append(item != null ? item.toString() : "null");
-                }
-            } else {
+            if (!LazySequence.isIterable(col)) {
                 throw new RuntimeException("join() first argument must be a Collection or Array");
             }
+            StringBuilder sb = new StringBuilder();
+            boolean first = true;
+            for (Object item : LazySequence.asIterable(col)) {
+                if (!first) sb.append(delimiter);
+                sb.append(item != null ? item.toString() : "null");
+                first = false;
+            }
             return wrap(sb.toString());
         });
 
         registerFunction("filter", args -> {
             if (args.size() != 2) throw new RuntimeException("filter() requires exactly 2 arguments: collection and predicate");
-            Object col = args.get(0).asJavaObject();
             Object predicate = args.get(1).asJavaObject();
-            List<Object> result = new ArrayList<>();
-            if (col instanceof Collection<?> c) {
-                for (Object item : c) {
-                    if (callPredicate(predicate, item)) result.add(item);
-                }
-            } else if (col != null && col.getClass().isArray()) {
-                int len = Array.getLength(col);
-                for (int i = 0; i < len; i++) {
-                    Object item = Array.get(col, i);
-                    if (callPredicate(predicate, item)) result.add(item);
-                }
-            } else {
-                throw new RuntimeException("filter() first argument must be a Collection or Array");
-            }
-            return wrap(result.toArray());
+            return wrap(sequenceArg("filter", args).filter(item -> callPredicate(predicate, item)));
         });
 
         registerFunction("map", args -> {
             if (args.size() != 2) throw new RuntimeException("map() requires exactly 2 arguments: collection and mapper");
-            Object col = args.get(0).asJavaObject();
             Object mapper = args.get(1).asJavaObject();
-            List<Object> result = new ArrayList<>();
-            if (col instanceof Collection<?> c) {
-                for (Object item : c) {
-                    result.add(callFunctionValue(mapper, item));
-                }
-            } else if (col != null && col.getClass().isArray()) {
-                int len = Array.getLength(col);
-                for (int i = 0; i < len; i++) {
-                    result.add(callFunctionValue(mapper, Array.get(col, i)));
-                }
-            } else {
-                throw new RuntimeException("map() first argument must be a Collection or Array");
-            }
-            return wrap(result.toArray());
+            return wrap(sequenceArg("map", args).map(item -> callFunctionValue(mapper, item)));
         });
 
         registerFunction("reduce", args -> {
             if (args.size() < 2 || args.size() > 3) throw new RuntimeException("reduce() requires 2 or 3 arguments");
-            Object col = args.get(0).asJavaObject();
             Object reducer = args.get(1).asJavaObject();
             Object acc = args.size() > 2 ? args.get(2).asJavaObject() : null;
-            if (col instanceof Collection<?> c) {
-                boolean first = (acc == null);
-                for (Object item : c) {
-                    if (first) { acc = item; first = false; }
-                    else acc = callFunctionValue(reducer, acc, item);
-                }
-            } else if (col != null && col.getClass().isArray()) {
-                int len = Array.getLength(col);
-                boolean first = (acc == null);
-                for (int i = 0; i < len; i++) {
-                    Object item = Array.get(col, i);
-                    if (first) { acc = item; first = false; }
-                    else acc = callFunctionValue(reducer, acc, item);
-                }
-            } else {
-                throw new RuntimeException("reduce() first argument must be a Collection or Array");
-            }
-            return wrap(acc);
+            return wrap(sequenceArg("reduce", args).reduce(
+                    (left, right) -> callFunctionValue(reducer, left, right), acc, acc != null));
+        });
+
+        registerFunction("forEach", args -> {
+            if (args.size() != 2) throw new RuntimeException("forEach() requires exactly 2 arguments: collection and action");
+            Object action = args.get(1).asJavaObject();
+            sequenceArg("forEach", args).forEach(item -> callFunctionValue(action, item));
+            return Value.VoidValue.INSTANCE;
+        });
+
+        registerFunction("parallel", args -> {
+            if (args.size() != 1) throw new RuntimeException("parallel() requires exactly 1 argument");
+            return wrap(sequenceArg("parallel", args).parallel());
+        });
+
+        registerFunction("toList", args -> {
+            if (args.size() != 1) throw new RuntimeException("toList() requires exactly 1 argument");
+            return wrap(sequenceArg("toList", args).toList());
         });
     }
 
+    /** 第一个实参作为序列（Collection、Iterable、数组或 LazySequence，不拷贝）。 */
+    private static LazySequence sequenceArg(String name, List<Value> args) {
+        Object col = args.get(0).asJavaObject();
+        if (!LazySequence.isIterable(col)) {
+            throw new RuntimeException(name + "() first argument must be a Collection or Array");
+        }
+        return LazySequence.of(col);
+    }
+
     // ============================================================
     // Reflection functions
     // ============================================================
@@ -471,7 +448,7 @@ public class Builtins {
                 for (Method m : obj.getClass().getDeclaredMethods()) {
                     if (m.getName().equals(methodName)) {
                         m.setAccessible(true);
-                        return wrap(m.invoke(obj, methodArgs.toArray()));
+                        return wrap(MethodInvoker.of(m).invoke(obj, methodArgs.toArray()));
                     }
                 }
                 throw new RuntimeException("Method not found: " + methodName);
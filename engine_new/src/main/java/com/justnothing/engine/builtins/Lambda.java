@@ -1,13 +1,11 @@
 package com.justnothing.engine.builtins;
 
+import com.justnothing.engine.codegen.FunctionalAdapters;
 import com.justnothing.engine.eval.EvalContext;
 import com.justnothing.engine.eval.Value;
 
-import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
-import java.lang.reflect.Proxy;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -18,26 +16,23 @@ public class Lambda {
     private final Function<Value[], Value> func;
     private final List<String> parameterNames;
     private final EvalContext closureContext;
-    private final Map<String, Value> capturedVariables;
+    /** 解析期得到的自由变量名；null 表示未分析，按整条作用域链处理。 */
+    private final String[] capturedNames;
 
     public Lambda(Function<Value[], Value> func, List<String> parameterNames, EvalContext closureContext) {
+        this(func, parameterNames, closureContext, null);
+    }
+
+    /**
+     * @param closureContext 定义处的作用域，函数体直接引用它，创建时不拷贝任何变量
+     * @param capturedNames  函数体引用的外层变量名（SlotResolver 分析结果），null 表示未知
+     */
+    public Lambda(Function<Value[], Value> func, List<String> parameterNames, EvalContext closureContext,
+                  String[] capturedNames) {
         this.func = func;
         this.parameterNames = parameterNames;
         this.closureContext = closureContext;
-        this.capturedVariables = captureVariables();
-    }
-
-    private Map<String, Value> captureVariables() {
-        Map<String, Value> captured = new HashMap<>();
-        if (closureContext == null) return captured;
-        EvalContext ctx = closureContext;
-        while (ctx != null) {
-            for (Map.Entry<String, Value> entry : ctx.getVariables().entrySet()) {
-                captured.putIfAbsent(entry.getKey(), entry.getValue());
-            }
-            ctx = ctx.getParent();
-        }
-        return captured;
+        this.capturedNames = capturedNames;
     }
 
     public Function<Value[], Value> asFunction() {
@@ -64,37 +59,49 @@ public class Lambda {
     }
 
 
+    /** 函数体引用的外层变量名；null 表示未经解析期分析。 */
+    public String[] getCapturedNames() {
+        return capturedNames;
+    }
+
+    /**
+     * 捕获变量的当前值（调用时按需从闭包作用域读取，不是创建时的副本）。
+     * <p>有解析期分析结果时只包含函数体实际引用且已定义的变量，否则退回整条作用域链的全部可见变量。</p>
+     */
     public Map<String, Value> getCapturedVariables() {
-        return capturedVariables;
+        Map<String, Value> captured = new LinkedHashMap<>();
+        if (closureContext == null) return captured;
+        if (capturedNames == null) {
+            for (EvalContext ctx = closureContext; ctx != null; ctx = ctx.getParent()) {
+                ctx.collectVariables(captured);
+            }
+            return captured;
+        }
+        for (String name : capturedNames) {
+            if (closureContext.hasVariable(name)) {
+                captured.put(name, closureContext.getVariable(name));
+            }
+        }
+        return captured;
     }
 
+    /**
+     * 转换为函数式接口实例（每个接口一个生成的适配类，见 {@link FunctionalAdapters}）。
+     * <p>Java 实参包装为 Value 传给函数体，结果按 SAM 的返回类型转换。</p>
+     */
     @SuppressWarnings("unchecked")
     public <T> T asInterface(Class<T> fiType) {
         Method sam = getSAM(fiType);
         if (sam == null) return (T) func;
-        return (T) Proxy.newProxyInstance(
-                fiType.getClassLoader(),
-                new Class<?>[]{fiType},
-                (proxy, method, javaArgs) -> {
-                    if (method.getDeclaringClass() == Object.class) {
-                        return handleObjectMethod(proxy, method, javaArgs);
-                    }
-                    if (!method.equals(sam)) {
-                        if (method.isDefault()) {
-                            return InvocationHandler.invokeDefault(proxy, method, javaArgs);
-                        }
-                        throw new UnsupportedOperationException("Not a SAM: " + method);
-                    }
-                    int paramCount = sam.getParameterCount();
-                    Value[] valueArgs = new Value[paramCount];
-                    for (int i = 0; i < paramCount; i++) {
-                        valueArgs[i] = javaArgs != null && i < javaArgs.length
-                                ? Value.of(javaArgs[i])
-                                : Value.NullValue.INSTANCE;
-                    }
-                    Value result = func.apply(valueArgs);
-                    return convertToJavaReturnType(result, sam.getReturnType());
-                });
+        int paramCount = sam.getParameterCount();
+        Class<?> returnType = sam.getReturnType();
+        return FunctionalAdapters.implement(fiType, this, javaArgs -> {
+            Value[] valueArgs = new Value[paramCount];
+            for (int i = 0; i < paramCount; i++) {
+                valueArgs[i] = i < javaArgs.length ? Value.of(javaArgs[i]) : Value.NullValue.INSTANCE;
+            }
+            return convertToJavaReturnType(func.apply(valueArgs), returnType);
+        });
     }
 
     static Object convertToJavaReturnType(Value value, Class<?> returnType) {
@@ -103,28 +110,12 @@ public class Lambda {
         return value.asJavaObject();
     }
 
+    /** 函数式接口的 SAM（按接口缓存）；不是接口或没有抽象方法时返回 null。 */
     public static Method getSAM(Class<?> fiType) {
-        if (fiType == null || !fiType.isInterface()) return null;
-        for (Method m : fiType.getMethods()) {
-            if (m.getDeclaringClass() == Object.class) continue;
-            if (Modifier.isAbstract(m.getModifiers()) && !m.isDefault()) {
-                return m;
-            }
-        }
-        return null;
+        return FunctionalAdapters.findSam(fiType);
     }
 
     public static boolean isFunctionalInterface(Class<?> type) {
-        return type != null && type.isInterface() && getSAM(type) != null;
-    }
-
-    static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
-        String name = method.getName();
-        return switch (name) {
-            case "toString" -> "Lambda[proxy=" + System.identityHashCode(proxy) + "]";
-            case "hashCode" -> System.identityHashCode(proxy);
-            case "equals" -> args != null && args.length > 0 && args[0] == proxy;
-            default -> throw new UnsupportedOperationException("Unknown Object method: " + name);
-        };
+        return getSAM(type) != null;
     }
 }
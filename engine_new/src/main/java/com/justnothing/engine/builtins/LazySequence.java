@@ -0,0 +1,389 @@
+package com.justnothing.engine.builtins;
+
+import com.justnothing.engine.eval.CustomClassExecutor;
+
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 惰性序列：内置函数 {@code map} / {@code filter} / {@code parallel} 的结果。
+ *
+ * <p>
+ * 序列只记录数据源和一串 map / filter 阶段，不分配中间集合。
+ * 终结操作（{@code reduce}、{@code join}、{@code forEach}、for-each 循环、{@code |>} 传给的函数等）
+ * 遍历时，每个元素依次通过全部阶段（融合）后交给消费者；每次遍历都会重新计算，阶段函数的副作用会重复发生。
+ * </p>
+ *
+ * <p>
+ * {@link #parallel()} 标记的序列在终结操作中改用 fork-join 公共池并行执行
+ * （已知规模小于 {@link #PARALLEL_THRESHOLD} 时仍顺序执行）：
+ * {@link #toList()} / {@link #toArray()} 保持原顺序，{@link #forEach(Consumer)} 不保证顺序，
+ * {@link #reduce} 要求累加函数满足结合律。
+ * 工作线程上的阶段函数通过 {@link CustomClassExecutor#bindContext} 沿用发起线程的执行上下文。
+ * </p>
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class LazySequence implements Iterable<Object> {
+
+    /** 并行序列的最小规模，数据源已知元素数少于该值时顺序执行。 */
+    public static final int PARALLEL_THRESHOLD = 1024;
+
+    /** 被 filter 阶段丢弃的元素。 */
+    private static final Object SKIP = new Object();
+
+    private static final Stage[] NO_STAGES = new Stage[0];
+
+    /** 单个阶段：mapper 与 predicate 恰有一个非 null。 */
+    private record Stage(Function<Object, Object> mapper, Predicate<Object> predicate) {
+    }
+
+    private final Iterable<?> source;
+    private final Stage[] stages;
+    private final boolean parallel;
+
+    private LazySequence(Iterable<?> source, Stage[] stages, boolean parallel) {
+        this.source = source;
+        this.stages = stages;
+        this.parallel = parallel;
+    }
+
+    /**
+     * 以 Iterable、数组或已有序列为数据源创建序列（不拷贝数据源）。
+     *
+     * @throws IllegalArgumentException 不是可遍历的对象
+     */
+    public static LazySequence of(Object source) {
+        if (source instanceof LazySequence seq) return seq;
+        return new LazySequence(asIterable(source), NO_STAGES, false);
+    }
+
+    /** 能否作为序列的数据源。 */
+    public static boolean isIterable(Object source) {
+        return source instanceof Iterable<?> || (source != null && source.getClass().isArray());
+    }
+
+    /**
+     * 把 Iterable 或数组视为 Iterable（数组按下标包装，不拷贝）。
+     *
+     * @throws IllegalArgumentException 不是可遍历的对象
+     */
+    public static Iterable<?> asIterable(Object source) {
+        if (source instanceof Iterable<?> iterable) return iterable;
+        if (source instanceof Object[] array) return Arrays.asList(array);
+        if (source != null && source.getClass().isArray()) return new PrimitiveArrayList(source);
+        throw new IllegalArgumentException("Not iterable: "
+                + (source != null ? source.getClass().getName() : "null"));
+    }
+
+    /**
+     * 整数区间 [start, end)，步长为 step（可为负，为 0 时为空）。O(1) 空间，支持随机访问。
+     */
+    public static List<Integer> range(int start, int end, int step) {
+        return new Range(start, end, step);
+    }
+
+    // ==================== 中间操作 ====================
+
+    public LazySequence map(Function<Object, Object> mapper) {
+        return append(new Stage(Objects.requireNonNull(mapper), null));
+    }
+
+    public LazySequence filter(Predicate<Object> predicate) {
+        return append(new Stage(null, Objects.requireNonNull(predicate)));
+    }
+
+    /** 同一序列的并行版本（阶段与数据源共享）。 */
+    public LazySequence parallel() {
+        return parallel ? this : new LazySequence(source, stages, true);
+    }
+
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    private LazySequence append(Stage stage) {
+        Stage[] next = Arrays.copyOf(stages, stages.length + 1);
+        next[stages.length] = stage;
+        return new LazySequence(source, next, parallel);
+    }
+
+    // ==================== 终结操作 ====================
+
+    @Override
+    public Iterator<Object> iterator() {
+        Iterator<?> it = source.iterator();
+        return new Iterator<>() {
+            private Object next;
+            private boolean ready;
+
+            @Override
+            public boolean hasNext() {
+                while (!ready && it.hasNext()) {
+                    Object value = apply(it.next());
+                    if (value != SKIP) {
+                        next = value;
+                        ready = true;
+                    }
+                }
+                return ready;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                ready = false;
+                Object value = next;
+                next = null;
+                return value;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super Object> action) {
+        if (runsInParallel()) {
+            Function<Object, Object> bound = CustomClassExecutor.bindContext(value -> {
+                action.accept(value);
+                return null;
+            });
+            stream().forEach(bound::apply);
+            return;
+        }
+        for (Object item : source) {
+            Object value = apply(item);
+            if (value != SKIP) action.accept(value);
+        }
+    }
+
+    /**
+     * 归约。
+     *
+     * @param hasInitial 为 false 时以第一个元素为初值
+     * @return 结果；没有初值且序列为空时返回 null
+     */
+    public Object reduce(BinaryOperator<Object> reducer, Object initial, boolean hasInitial) {
+        if (runsInParallel()) {
+            Function<Object[], Object> bound = CustomClassExecutor.bindContext(pair -> reducer.apply(pair[0], pair[1]));
+            // SKIP 作为单位元，元素或中间结果为 null 时也能归约
+            BinaryOperator<Object> combine = (a, b) -> a == SKIP ? b : b == SKIP ? a : bound.apply(new Object[]{a, b});
+            Object folded = stream().reduce(SKIP, combine, combine);
+            if (folded == SKIP) return hasInitial ? initial : null;
+            return hasInitial ? reducer.apply(initial, folded) : folded;
+        }
+        Object acc = initial;
+        boolean first = !hasInitial;
+        for (Object item : source) {
+            Object value = apply(item);
+            if (value == SKIP) continue;
+            if (first) {
+                acc = value;
+                first = false;
+            } else {
+                acc = reducer.apply(acc, value);
+            }
+        }
+        return acc;
+    }
+
+    public List<Object> toList() {
+        if (runsInParallel()) return stream().collect(Collectors.toList());
+        List<Object> result = source instanceof Collection<?> c && stages.length == 0
+                ? new ArrayList<>(c.size()) : new ArrayList<>();
+        forEach(result::add);
+        return result;
+    }
+
+    public Object[] toArray() {
+        return toList().toArray();
+    }
+
+    /** 元素个数（需要完整遍历一次）。 */
+    public int count() {
+        if (stages.length == 0 && source instanceof Collection<?> c) return c.size();
+        int count = 0;
+        for (Object item : source) {
+            if (apply(item) != SKIP) count++;
+        }
+        return count;
+    }
+
+    /** 是否包含 elem（找到即停止遍历）。 */
+    public boolean contains(Object elem) {
+        for (Object item : this) {
+            if (Objects.equals(item, elem)) return true;
+        }
+        return false;
+    }
+
+    /** 以 Stream 形式取出（并行序列返回并行流）。 */
+    public Stream<Object> stream() {
+        boolean inParallel = runsInParallel();
+        @SuppressWarnings("unchecked")
+        Stream<Object> stream = (Stream<Object>) StreamSupport.stream(source.spliterator(), inParallel);
+        for (Stage stage : stages) {
+            if (stage.predicate != null) {
+                Predicate<Object> predicate = stage.predicate;
+                if (inParallel) {
+                    Function<Object, Boolean> bound = CustomClassExecutor.bindContext(predicate::test);
+                    predicate = bound::apply;
+                }
+                stream = stream.filter(predicate);
+            } else {
+                stream = stream.map(inParallel ? CustomClassExecutor.bindContext(stage.mapper) : stage.mapper);
+            }
+        }
+        return stream;
+    }
+
+    /** 打印时展开全部元素。 */
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+
+    private boolean runsInParallel() {
+        if (!parallel) return false;
+        return !(source instanceof Collection<?> c) || c.size() >= PARALLEL_THRESHOLD;
+    }
+
+    private Object apply(Object value) {
+        for (Stage stage : stages) {
+            if (stage.predicate != null) {
+                if (!stage.predicate.test(value)) return SKIP;
+            } else {
+                value = stage.mapper.apply(value);
+            }
+        }
+        return value;
+    }
+
+    // ==================== 数据源 ====================
+
+    /**
+     * {@code range()} 的结果：只保存起点、步长和长度。
+     * <p>
+     * 脚本会直接调用它的 List 方法，所以类必须是 public 的；第一次修改时复制成 {@link ArrayList}，
+     * 之后的读写都走副本，行为与原来返回的 ArrayList 相同。
+     * </p>
+     */
+    public static final class Range extends AbstractList<Integer> implements RandomAccess {
+        private final int start;
+        private final int step;
+        private final int size;
+        /** 第一次修改后的副本，null 表示仍是只读区间。 */
+        private ArrayList<Integer> copy;
+
+        Range(int start, int end, int step) {
+            long span = step > 0 ? (long) end - start : (long) start - end;
+            long magnitude = Math.abs((long) step);
+            this.start = start;
+            this.step = step;
+            this.size = span <= 0 || step == 0 ? 0 : (int) Math.min(Integer.MAX_VALUE, (span + magnitude - 1) / magnitude);
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (copy != null) return copy.get(index);
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return start + index * step;
+        }
+
+        @Override
+        public int size() {
+            return copy != null ? copy.size() : size;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (copy != null) return copy.contains(o);
+            if (!(o instanceof Integer i) || size == 0) return false;
+            long offset = (long) i - start;
+            if (offset % step != 0) return false;
+            long index = offset / step;
+            return index >= 0 && index < size;
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (copy != null) return copy.indexOf(o);
+            return contains(o) ? (int) (((long) (Integer) o - start) / step) : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            if (copy != null) return copy.lastIndexOf(o);
+            return indexOf(o);
+        }
+
+        @Override
+        public Integer set(int index, Integer element) {
+            return materialize().set(index, element);
+        }
+
+        @Override
+        public void add(int index, Integer element) {
+            materialize().add(index, element);
+            modCount++;
+        }
+
+        @Override
+        public Integer remove(int index) {
+            Integer removed = materialize().remove(index);
+            modCount++;
+            return removed;
+        }
+
+        @Override
+        public void clear() {
+            materialize().clear();
+            modCount++;
+        }
+
+        private ArrayList<Integer> materialize() {
+            if (copy == null) {
+                ArrayList<Integer> values = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) values.add(start + i * step);
+                copy = values;
+            }
+            return copy;
+        }
+    }
+
+    /** 基本类型数组的只读 List 视图（元素按需装箱）；脚本可能直接调用它的方法，因此是 public 的。 */
+    public static final class PrimitiveArrayList extends AbstractList<Object> implements RandomAccess {
+        private final Object array;
+        private final int length;
+
+        PrimitiveArrayList(Object array) {
+            this.array = array;
+            this.length = Array.getLength(array);
+        }
+
+        @Override
+        public Object get(int index) {
+            return Array.get(array, index);
+        }
+
+        @Override
+        public int size() {
+            return length;
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package com.justnothing.engine.builtins;
 
-import java.lang.reflect.InvocationHandler;
+import com.justnothing.engine.codegen.FunctionalAdapters;
+
 import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.util.List;
 import java.util.function.Function;
 
@@ -34,6 +34,21 @@ public class MethodReference {
         return methodName;
     }
 
+    /** 目标类全限定名（可能为 null）。 */
+    public String getTargetClassName() {
+        return targetClassName;
+    }
+
+    /** 绑定的实例（bound 方法引用时非 null）。 */
+    public Object getBoundTarget() {
+        return boundTarget;
+    }
+
+    /** 解析期绑定的具体重载（可能为 null）。 */
+    public Method getBoundMethod() {
+        return boundMethod;
+    }
+
     public Object invoke(Object... args) {
         return refFunc.apply(args);
     }
@@ -82,29 +97,14 @@ public class MethodReference {
         return boundTarget == null && targetClassName != null;
     }
 
+    /**
+     * 转换为函数式接口实例（见 {@link FunctionalAdapters}）。
+     * <p>接口的抽象方法（包括用户直接调用的 invoke）都以原始 Java 实参转发给方法引用。</p>
+     */
     @SuppressWarnings("unchecked")
     public <T> T asInterface(Class<T> fiType) {
         Method sam = Lambda.getSAM(fiType);
         if (sam == null) return (T) refFunc;
-        return (T) Proxy.newProxyInstance(
-                fiType.getClassLoader(),
-                new Class<?>[]{fiType},
-                (proxy, method, javaArgs) -> {
-                    if (method.getDeclaringClass() == Object.class) {
-                        return Lambda.handleObjectMethod(proxy, method, javaArgs);
-                    }
-                    // 支持 .invoke() 调用：代理默认只暴露 SAM 接口方法，
-                    // 但用户可能直接在方法引用上调用 invoke(args)
-                    if ("invoke".equals(method.getName())) {
-                        return refFunc.apply(javaArgs != null ? javaArgs : new Object[0]);
-                    }
-                    if (!method.equals(sam)) {
-                        if (method.isDefault()) {
-                            return InvocationHandler.invokeDefault(proxy, method, javaArgs);
-                        }
-                        throw new UnsupportedOperationException("Not a SAM: " + method);
-                    }
-                    return refFunc.apply(javaArgs != null ? javaArgs : new Object[0]);
-                });
+        return FunctionalAdapters.implement(fiType, this, refFunc);
     }
 }
@@ -0,0 +1,208 @@
+package com.justnothing.engine.cache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 预编译脚本的磁盘缓存，按内容哈希存放 {@link ScriptCodec} 的产出。
+ * <p>
+ * 键由 {@link #keyOf(String, String)} 计算：源码、编译环境（严格模式、import、已声明变量等，
+ * 由 ScriptRunner 提供）、缓存版本与 {@link ScriptCodec#FORMAT_VERSION} 一起做 SHA-256，
+ * 任何一项变化都会落到新的文件上，因此不需要失效通知。
+ * </p>
+ * <p>
+ * 条目数和总字节数有上限（见构造参数），超出后按最近读写时间淘汰最旧的文件，
+ * 所以环境变化留下的旧条目最终会被清掉；也可以用 {@link #clear()} 立即清理。
+ * </p>
+ * <p>
+ * 写入先落临时文件再改名，读到的文件要么完整要么不存在。所有 IO 失败都只让缓存不命中，
+ * 不影响编译本身。实例可被多个 ScriptRunner 在多个线程上共享。
+ * </p>
+ */
+public class ScriptCache {
+
+    private static final String SUFFIX = ".cyc";
+
+    /** 默认最多保留的条目数。 */
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+    /** 默认最多占用的字节数。 */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private final File directory;
+    private final String version;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ScriptCache(File directory) {
+        this(directory, "");
+    }
+
+    /**
+     * @param directory 缓存目录，不存在时在首次写入时创建
+     * @param version   宿主版本号等附加盐值；宿主升级（引擎行为可能变化）后旧缓存自动失效
+     */
+    public ScriptCache(File directory, String version) {
+        this(directory, version, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxEntries 最多保留的条目数
+     * @param maxBytes   所有条目最多占用的字节数
+     */
+    public ScriptCache(File directory, String version, int maxEntries, long maxBytes) {
+        if (maxEntries <= 0 || maxBytes <= 0) {
+            throw new IllegalArgumentException("cache limits must be positive: " + maxEntries + ", " + maxBytes);
+        }
+        this.directory = directory;
+        this.version = version != null ? version : "";
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * 计算缓存键。
+     *
+     * @param source      预处理前的源码
+     * @param environment 影响解析结果的编译环境描述
+     * @return 64 位十六进制 SHA-256
+     */
+    public String keyOf(String source, String environment) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        update(digest, version);
+        update(digest, Integer.toString(ScriptCodec.FORMAT_VERSION));
+        update(digest, environment);
+        update(digest, source);
+        byte[] hash = digest.digest();
+        StringBuilder sb = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /** 各段以长度前缀分隔，避免 "ab"+"c" 与 "a"+"bc" 相撞。 */
+    private static void update(MessageDigest digest, String part) {
+        byte[] bytes = (part != null ? part : "").getBytes(StandardCharsets.UTF_8);
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    /** 读取缓存内容，不存在或读取失败时返回 null。 */
+    public byte[] read(String key) {
+        File file = fileFor(key);
+        if (file.isFile()) {
+            try {
+                byte[] data = Files.readAllBytes(file.toPath());
+                // 修改时间兼作最近使用时间，淘汰时据此排序
+                file.setLastModified(System.currentTimeMillis());
+                hits.incrementAndGet();
+                return data;
+            } catch (IOException ignored) {
+                // 按未命中处理
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /** 写入缓存（临时文件 + 改名）。失败时静默放弃。 */
+    public void write(String key, byte[] data) {
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            return;
+        }
+        File temp = null;
+        try {
+            temp = File.createTempFile(key, ".tmp", directory);
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(data);
+            }
+            File target = fileFor(key);
+            if (!temp.renameTo(target)) {
+                // 部分平台不允许覆盖已有文件
+                target.delete();
+                if (!temp.renameTo(target)) {
+                    temp.delete();
+                    return;
+                }
+            }
+            trim(target);
+        } catch (IOException e) {
+            if (temp != null) temp.delete();
+        }
+    }
+
+    /** 超出条目数或字节数上限时，从最久未使用的条目开始删除（刚写入的 {@code keep} 除外）。 */
+    private void trim(File keep) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) return;
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        int count = files.length;
+        if (count <= maxEntries && total <= maxBytes) return;
+
+        long[] lastUsed = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastUsed[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> lastUsed[i]));
+        for (int i = 0; i < order.length && (count > maxEntries || total > maxBytes); i++) {
+            File file = files[order[i]];
+            if (file.equals(keep)) continue;
+            long length = file.length();
+            if (file.delete()) {
+                count--;
+                total -= length;
+            }
+        }
+    }
+
+    /** 删除一条缓存（例如内容无法解码时）。 */
+    public void invalidate(String key) {
+        fileFor(key).delete();
+    }
+
+    /** 删除目录下的全部缓存文件。 */
+    public void clear() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX) || name.endsWith(".tmp"));
+        if (files == null) return;
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, key + SUFFIX);
+    }
+}
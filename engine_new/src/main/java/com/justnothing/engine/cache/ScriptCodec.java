@@ -0,0 +1,1365 @@
+package com.justnothing.engine.cache;
+
+import com.justnothing.engine.api.IClassFinder;
+import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.GenericType;
+import com.justnothing.engine.ast.SourceLocation;
+import com.justnothing.engine.ast.nodes.*;
+import com.justnothing.engine.parser.CythavaParseException;
+import com.justnothing.engine.parser.JType;
+import com.justnothing.engine.parser.OperatorRegistry;
+import com.justnothing.engine.parser.ParseContext;
+import com.justnothing.engine.parser.SlotResolver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 已解析 AST 的紧凑二进制格式。
+ * <p>
+ * 保存的是 {@link com.justnothing.engine.parser.Parser} 的完整产出：节点结构、字面量常量、
+ * 解析期推断出的类型（{@link ParseContext#setType}），以及解析期已经绑定的方法、字段、
+ * 函数式接口与内置运算符回调。加载时按描述符（类名 + 方法名 + 参数类型）重新反射查找，
+ * 再跑一遍 {@link SlotResolver}，得到与重新解析等价的 AST，跳过预处理、词法和语法分析。
+ * </p>
+ *
+ * <h3>格式</h3>
+ * <pre>
+ * magic(int) version(varint)
+ * strings: count, (len, utf-8)*
+ * classes: count, (name)*                          -- 引用 strings
+ * methods: count, (owner, name, argc, (param)*)*   -- 引用 classes / strings
+ * fields:  count, (owner, name)*
+ * body:    符号表增量, 节点列表
+ * </pre>
+ * <p>
+ * 解析除了产出 AST，还会修改 ParseContext：顶层声明的变量（后续脚本据此做符号检查和类型推断）、
+ * {@code using} 引入的 import 与类型别名。编码时与 {@link #mark} 记下的解析前状态比较，
+ * 把增量一并写入；解码成功后原样应用，使加载与重新解析对 ParseContext 的影响一致。
+ * </p>
+ * <p>
+ * 表内下标和长度均为 varint；节点体中可空的引用以 {@code 下标 + 1} 存储，0 表示 null。
+ * 每个节点依次写出标签、源码位置、各字段，最后是可选的解析期类型。
+ * </p>
+ *
+ * <h3>范围</h3>
+ * <p>
+ * 类声明（含匿名类）需要在加载时生成字节码、注册到 ParseContext，不在此格式内：
+ * 遇到时 {@link #encode} 抛出 {@link NotSerializableException}，调用方应退回源码编译。
+ * 泛型类型只保存擦除后的原始类型、类型实参和数组维度。
+ * </p>
+ */
+public final class ScriptCodec {
+
+    /** 格式版本。节点字段或编码方式变化时递增，旧缓存随之失效。 */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x43594243; // "CYBC"
+
+    // ==================== 节点标签 ====================
+
+    private static final int T_NULL = 0;
+    private static final int T_LITERAL = 1;
+    private static final int T_VARIABLE = 2;
+    private static final int T_BINARY = 3;
+    private static final int T_UNARY = 4;
+    private static final int T_ASSIGNMENT = 5;
+    private static final int T_VAR_DECL = 6;
+    private static final int T_METHOD_CALL = 7;
+    private static final int T_FIELD_ACCESS = 8;
+    private static final int T_CONSTRUCTOR_CALL = 9;
+    private static final int T_TERNARY = 10;
+    private static final int T_ARRAY_ACCESS = 11;
+    private static final int T_ARRAY_ASSIGNMENT = 12;
+    private static final int T_ARRAY_LITERAL = 13;
+    private static final int T_NEW_ARRAY = 14;
+    private static final int T_CAST = 15;
+    private static final int T_INSTANCEOF = 16;
+    private static final int T_PIPELINE = 17;
+    private static final int T_BLOCK = 18;
+    private static final int T_IF = 19;
+    private static final int T_WHILE = 20;
+    private static final int T_DO_WHILE = 21;
+    private static final int T_FOR = 22;
+    private static final int T_FOR_EACH = 23;
+    private static final int T_SWITCH = 24;
+    private static final int T_CASE = 25;
+    private static final int T_RETURN = 26;
+    private static final int T_BREAK = 27;
+    private static final int T_CONTINUE = 28;
+    private static final int T_LAMBDA = 29;
+    private static final int T_FUNCTION_DEF = 30;
+    private static final int T_FUNCTION_CALL = 31;
+    private static final int T_DIRECT_CALL = 32;
+    private static final int T_ASYNC = 33;
+    private static final int T_AWAIT = 34;
+    private static final int T_MAP_LITERAL = 35;
+    private static final int T_INTERPOLATED = 36;
+    private static final int T_FIELD_ASSIGNMENT = 37;
+    private static final int T_METHOD_REF = 38;
+    private static final int T_SAFE_FIELD = 39;
+    private static final int T_SAFE_METHOD = 40;
+    private static final int T_THROW = 41;
+    private static final int T_DELETE = 42;
+    private static final int T_LABELED = 43;
+    private static final int T_IMPORT = 44;
+    private static final int T_USING_ALIAS = 45;
+    private static final int T_USING_STATIC = 46;
+    private static final int T_TRY = 47;
+    private static final int T_CLASS_REF = 48;
+    private static final int T_CONDITIONAL_ASSIGN = 49;
+    private static final int T_NULL_COALESCING_ASSIGN = 50;
+    private static final int T_SUPER_METHOD_CALL = 51;
+    private static final int T_ANNOTATION = 52;
+
+    // ==================== 常量值标签（字面量、注解参数） ====================
+
+    private static final int V_NULL = 0;
+    private static final int V_BOOLEAN = 1;
+    private static final int V_CHAR = 2;
+    private static final int V_BYTE = 3;
+    private static final int V_SHORT = 4;
+    private static final int V_INT = 5;
+    private static final int V_LONG = 6;
+    private static final int V_FLOAT = 7;
+    private static final int V_DOUBLE = 8;
+    private static final int V_STRING = 9;
+    private static final int V_CLASS = 10;
+    private static final int V_NODE = 11;
+    private static final int V_ARRAY = 12;
+
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+
+    static {
+        for (Class<?> c : new Class<?>[]{boolean.class, byte.class, char.class, short.class,
+                int.class, long.class, float.class, double.class, void.class}) {
+            PRIMITIVES.put(c.getName(), c);
+        }
+    }
+
+    private ScriptCodec() {
+    }
+
+    /** 解析前的 ParseContext 状态，用于计算解析带来的符号表增量。 */
+    public static final class ContextMark {
+        private final Map<String, ParseContext.VariableSymbol> variables;
+        private final List<String> imports;
+        private final Map<String, String> typeAliases;
+
+        private ContextMark(ParseContext context) {
+            this.variables = context.getVisibleVariables();
+            this.imports = new ArrayList<>(context.getImports());
+            this.typeAliases = new HashMap<>(context.getTypeAliases());
+        }
+    }
+
+    /** 在解析前调用，记录当前的变量、import 与类型别名。 */
+    public static ContextMark mark(ParseContext context) {
+        return new ContextMark(context);
+    }
+
+    /**
+     * 把解析结果编码为字节数组。
+     *
+     * @param nodes   {@link com.justnothing.engine.parser.Parser#parse()} 的结果
+     * @param context 解析这些节点的 ParseContext（读取解析期类型和解析后的符号表）
+     * @param before  解析前的 {@link #mark}
+     * @throws NotSerializableException AST 中含有不支持的节点（类声明、匿名类等）
+     */
+    public static byte[] encode(List<ASTNode> nodes, ParseContext context, ContextMark before) throws IOException {
+        Writer writer = new Writer(context);
+        writer.contextDelta(before);
+        writer.nodeList(nodes);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(writer.buffer.size() + 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        writeVarInt(out, FORMAT_VERSION);
+        writer.writeTables(out);
+        writer.buffer.writeTo(out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * 从字节数组还原 AST，并恢复解析期类型与绑定、完成槽位解析，最后应用符号表增量。
+     *
+     * @param data    {@link #encode} 的产出
+     * @param context 执行这些节点的 ScriptRunner 的 ParseContext；只有成功解码后才会修改其符号表
+     * @throws StreamCorruptedException 数据损坏或版本不符
+     * @throws InvalidClassException    引用的类、方法或字段在当前类加载器下不存在
+     */
+    public static List<ASTNode> decode(byte[] data, ParseContext context) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new StreamCorruptedException("Not a compiled script");
+            }
+            int version = readVarInt(in);
+            if (version != FORMAT_VERSION) {
+                throw new StreamCorruptedException("Unsupported compiled script version: " + version);
+            }
+            Reader reader = new Reader(in, context);
+            reader.readTables();
+            Runnable applyDelta = reader.contextDelta();
+            List<ASTNode> nodes = reader.nodeList();
+            if (nodes == null || in.read() != -1) {
+                throw new StreamCorruptedException("Malformed compiled script body");
+            }
+            SlotResolver.resolve(nodes, context.getBuiltinRegistry());
+            applyDelta.run();
+            return nodes;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | ClassCastException
+                 | NegativeArraySizeException e) {
+            // 非法枚举名、越界下标、标签与节点类型不符
+            StreamCorruptedException sce = new StreamCorruptedException("Malformed compiled script: " + e.getMessage());
+            sce.initCause(e);
+            throw sce;
+        }
+    }
+
+    // ==================== varint ====================
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+
+    // ==================== 编码 ====================
+
+    private static final class Writer {
+        private final ParseContext context;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+        private final DataOutputStream out = new DataOutputStream(buffer);
+
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+        private final Map<Class<?>, Integer> classIndex = new HashMap<>();
+        private final List<Class<?>> classes = new ArrayList<>();
+        private final Map<Method, Integer> methodIndex = new HashMap<>();
+        private final List<Method> methods = new ArrayList<>();
+        private final Map<Field, Integer> fieldIndex = new HashMap<>();
+        private final List<Field> fields = new ArrayList<>();
+
+        Writer(ParseContext context) {
+            this.context = context;
+        }
+
+        void writeTables(DataOutputStream dst) throws IOException {
+            // 方法 / 字段表会登记新的类和字符串，类表会登记字符串：先把下标全部分配完再写
+            int[][] methodRefs = new int[methods.size()][];
+            for (int i = 0; i < methods.size(); i++) {
+                Method m = methods.get(i);
+                Class<?>[] params = m.getParameterTypes();
+                int[] ref = new int[params.length + 2];
+                ref[0] = classRef(m.getDeclaringClass());
+                ref[1] = stringRef(m.getName());
+                for (int p = 0; p < params.length; p++) ref[p + 2] = classRef(params[p]);
+                methodRefs[i] = ref;
+            }
+            int[][] fieldRefs = new int[fields.size()][];
+            for (int i = 0; i < fields.size(); i++) {
+                Field f = fields.get(i);
+                fieldRefs[i] = new int[]{classRef(f.getDeclaringClass()), stringRef(f.getName())};
+            }
+            int[] classNames = new int[classes.size()];
+            for (int i = 0; i < classes.size(); i++) classNames[i] = stringRef(classes.get(i).getName());
+
+            writeVarInt(dst, strings.size());
+            for (String s : strings) {
+                byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(dst, utf8.length);
+                dst.write(utf8);
+            }
+            writeVarInt(dst, classNames.length);
+            for (int name : classNames) writeVarInt(dst, name);
+            writeVarInt(dst, methodRefs.length);
+            for (int[] ref : methodRefs) {
+                writeVarInt(dst, ref[0]);
+                writeVarInt(dst, ref[1]);
+                writeVarInt(dst, ref.length - 2);
+                for (int p = 2; p < ref.length; p++) writeVarInt(dst, ref[p]);
+            }
+            writeVarInt(dst, fieldRefs.length);
+            for (int[] ref : fieldRefs) {
+                writeVarInt(dst, ref[0]);
+                writeVarInt(dst, ref[1]);
+            }
+        }
+
+        private int stringRef(String s) {
+            Integer index = stringIndex.get(s);
+            if (index == null) {
+                index = strings.size();
+                strings.add(s);
+                stringIndex.put(s, index);
+            }
+            return index;
+        }
+
+        private int classRef(Class<?> c) {
+            Integer index = classIndex.get(c);
+            if (index == null) {
+                index = classes.size();
+                classes.add(c);
+                classIndex.put(c, index);
+            }
+            return index;
+        }
+
+        // ---------- 基本字段 ----------
+
+        void varInt(int value) throws IOException {
+            writeVarInt(out, value);
+        }
+
+        void bool(boolean value) throws IOException {
+            out.writeBoolean(value);
+        }
+
+        void str(String s) throws IOException {
+            varInt(s == null ? 0 : stringRef(s) + 1);
+        }
+
+        void cls(Class<?> c) throws IOException {
+            varInt(c == null ? 0 : classRef(c) + 1);
+        }
+
+        void method(Method m) throws IOException {
+            if (m == null) {
+                varInt(0);
+                return;
+            }
+            Integer index = methodIndex.get(m);
+            if (index == null) {
+                index = methods.size();
+                methods.add(m);
+                methodIndex.put(m, index);
+            }
+            varInt(index + 1);
+        }
+
+        void field(Field f) throws IOException {
+            if (f == null) {
+                varInt(0);
+                return;
+            }
+            Integer index = fieldIndex.get(f);
+            if (index == null) {
+                index = fields.size();
+                fields.add(f);
+                fieldIndex.put(f, index);
+            }
+            varInt(index + 1);
+        }
+
+        void location(SourceLocation loc) throws IOException {
+            if (loc == null) {
+                varInt(0);
+                return;
+            }
+            varInt(loc.getLine() + 1);
+            varInt(loc.getColumn());
+            str(loc.getSource());
+        }
+
+        void genericType(GenericType type) throws IOException {
+            if (type == null) {
+                bool(false);
+                return;
+            }
+            bool(true);
+            cls(type.getRawType());
+            varInt(type.getArrayDepth());
+            str(type.getOriginalTypeName());
+            List<GenericType> args = type.getTypeArguments();
+            varInt(args == null ? 0 : args.size());
+            if (args != null) {
+                for (GenericType arg : args) genericType(arg);
+            }
+        }
+
+        void genericTypeList(List<GenericType> types) throws IOException {
+            if (types == null) {
+                varInt(0);
+                return;
+            }
+            varInt(types.size() + 1);
+            for (GenericType type : types) genericType(type);
+        }
+
+        void value(Object v) throws IOException {
+            if (v == null) {
+                varInt(V_NULL);
+            } else if (v instanceof Boolean b) {
+                varInt(V_BOOLEAN);
+                out.writeBoolean(b);
+            } else if (v instanceof Character c) {
+                varInt(V_CHAR);
+                out.writeChar(c);
+            } else if (v instanceof Byte b) {
+                varInt(V_BYTE);
+                out.writeByte(b);
+            } else if (v instanceof Short s) {
+                varInt(V_SHORT);
+                out.writeShort(s);
+            } else if (v instanceof Integer i) {
+                varInt(V_INT);
+                out.writeInt(i);
+            } else if (v instanceof Long l) {
+                varInt(V_LONG);
+                out.writeLong(l);
+            } else if (v instanceof Float f) {
+                varInt(V_FLOAT);
+                out.writeFloat(f);
+            } else if (v instanceof Double d) {
+                varInt(V_DOUBLE);
+                out.writeDouble(d);
+            } else if (v instanceof String s) {
+                varInt(V_STRING);
+                str(s);
+            } else if (v instanceof Class<?> c) {
+                varInt(V_CLASS);
+                cls(c);
+            } else if (v instanceof ASTNode n) {
+                varInt(V_NODE);
+                node(n);
+            } else if (v.getClass().isArray()) {
+                varInt(V_ARRAY);
+                cls(v.getClass().getComponentType());
+                int length = Array.getLength(v);
+                varInt(length);
+                for (int i = 0; i < length; i++) value(Array.get(v, i));
+            } else {
+                throw new NotSerializableException(v.getClass().getName());
+            }
+        }
+
+        void nodeList(List<? extends ASTNode> nodes) throws IOException {
+            if (nodes == null) {
+                varInt(0);
+                return;
+            }
+            varInt(nodes.size() + 1);
+            for (ASTNode n : nodes) node(n);
+        }
+
+        /** 解析新增（或重新声明）的变量、新增的 import、新增或改写的类型别名。 */
+        void contextDelta(ContextMark before) throws IOException {
+            List<ParseContext.VariableSymbol> declared = new ArrayList<>();
+            for (Map.Entry<String, ParseContext.VariableSymbol> entry : context.getVisibleVariables().entrySet()) {
+                if (before.variables.get(entry.getKey()) != entry.getValue()) {
+                    declared.add(entry.getValue());
+                }
+            }
+            varInt(declared.size());
+            for (ParseContext.VariableSymbol symbol : declared) {
+                str(symbol.getName());
+                bool(symbol.isFinal());
+                genericType(symbol.getDeclaredType());
+            }
+
+            List<String> imports = new ArrayList<>();
+            for (String imp : context.getImports()) {
+                if (!before.imports.contains(imp)) imports.add(imp);
+            }
+            varInt(imports.size());
+            for (String imp : imports) str(imp);
+
+            Map<String, String> aliases = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : context.getTypeAliases().entrySet()) {
+                if (!entry.getValue().equals(before.typeAliases.get(entry.getKey()))) {
+                    aliases.put(entry.getKey(), entry.getValue());
+                }
+            }
+            varInt(aliases.size());
+            for (Map.Entry<String, String> entry : aliases.entrySet()) {
+                str(entry.getKey());
+                str(entry.getValue());
+            }
+        }
+
+        // ---------- 节点 ----------
+
+        void node(ASTNode node) throws IOException {
+            if (node == null) {
+                varInt(T_NULL);
+                return;
+            }
+            if (node instanceof LiteralNode n) {
+                begin(T_LITERAL, n);
+                value(n.getValue());
+                cls(n.getType());
+            } else if (node instanceof VariableNode n) {
+                begin(T_VARIABLE, n);
+                str(n.getName());
+                bool(n.isFinal());
+                bool(n.isFieldAccess());
+                node(n.getDeclaredType());
+                nodeList(n.getAnnotations());
+            } else if (node instanceof BinaryOpNode n) {
+                begin(T_BINARY, n);
+                str(n.getOperator().name());
+                node(n.getLeft());
+                node(n.getRight());
+                // 解析期绑定的内置运算符：记下绑定时两侧的类型，加载时按同一签名重新查找
+                boolean bound = n.getOperatorCallback() != null;
+                bool(bound);
+                if (bound) {
+                    cls(rawType(n.getLeft()));
+                    cls(rawType(n.getRight()));
+                }
+            } else if (node instanceof UnaryOpNode n) {
+                begin(T_UNARY, n);
+                str(n.getOperator().name());
+                node(n.getOperand());
+            } else if (node instanceof AssignmentNode n) {
+                begin(T_ASSIGNMENT, n);
+                str(n.getVariableName());
+                node(n.getValue());
+                bool(n.isDeclaration());
+                bool(n.isFinal());
+                genericType(n.getDeclaredType());
+            } else if (node instanceof VarDeclNode n) {
+                begin(T_VAR_DECL, n);
+                str(n.getVarName());
+                genericType(n.getDeclaredType());
+                node(n.getInitializer());
+                bool(n.isFinal());
+                nodeList(n.getAnnotations());
+            } else if (node instanceof MethodCallNode n) {
+                begin(T_METHOD_CALL, n);
+                node(n.getTarget());
+                str(n.getMethodName());
+                nodeList(n.getArguments());
+                method(n.getBoundMethod());
+            } else if (node instanceof FieldAccessNode n) {
+                begin(T_FIELD_ACCESS, n);
+                node(n.getTarget());
+                str(n.getFieldName());
+                field(n.getBoundField());
+            } else if (node instanceof ConstructorCallNode n) {
+                if (n.isAnonymousClass()) {
+                    throw new NotSerializableException("anonymous class " + n.getClassName());
+                }
+                begin(T_CONSTRUCTOR_CALL, n);
+                genericType(n.getType());
+                nodeList(n.getArguments());
+                node(n.getArrayInitializer());
+            } else if (node instanceof TernaryNode n) {
+                begin(T_TERNARY, n);
+                node(n.getCondition());
+                node(n.getThenExpr());
+                node(n.getElseExpr());
+            } else if (node instanceof ArrayAccessNode n) {
+                begin(T_ARRAY_ACCESS, n);
+                node(n.getArray());
+                node(n.getIndex());
+            } else if (node instanceof ArrayAssignmentNode n) {
+                begin(T_ARRAY_ASSIGNMENT, n);
+                node(n.getArray());
+                node(n.getIndex());
+                node(n.getValue());
+            } else if (node instanceof ArrayLiteralNode n) {
+                begin(T_ARRAY_LITERAL, n);
+                nodeList(n.getElements());
+                cls(n.getExpectedElementType());
+                node(n.getArrayLength());
+            } else if (node instanceof NewArrayNode n) {
+                begin(T_NEW_ARRAY, n);
+                cls(n.getElementType());
+                node(n.getSize());
+                nodeList(n.getSizes());
+            } else if (node instanceof CastNode n) {
+                begin(T_CAST, n);
+                cls(n.getTargetType());
+                node(n.getExpression());
+            } else if (node instanceof InstanceofNode n) {
+                begin(T_INSTANCEOF, n);
+                str(n.getTypeName());
+                node(n.getExpression());
+            } else if (node instanceof PipelineNode n) {
+                begin(T_PIPELINE, n);
+                node(n.getInput());
+                node(n.getFunction());
+            } else if (node instanceof BlockNode n) {
+                begin(T_BLOCK, n);
+                nodeList(n.getStatements());
+            } else if (node instanceof IfNode n) {
+                begin(T_IF, n);
+                node(n.getCondition());
+                node(n.getThenBlock());
+                node(n.getElseBlock());
+            } else if (node instanceof WhileNode n) {
+                begin(T_WHILE, n);
+                node(n.getCondition());
+                node(n.getBody());
+            } else if (node instanceof DoWhileNode n) {
+                begin(T_DO_WHILE, n);
+                node(n.getBody());
+                node(n.getCondition());
+            } else if (node instanceof ForNode n) {
+                begin(T_FOR, n);
+                node(n.getInitialization());
+                node(n.getCondition());
+                node(n.getUpdate());
+                node(n.getBody());
+            } else if (node instanceof ForEachNode n) {
+                begin(T_FOR_EACH, n);
+                cls(n.getItemType());
+                str(n.getItemName());
+                node(n.getCollection());
+                node(n.getBody());
+            } else if (node instanceof SwitchNode n) {
+                begin(T_SWITCH, n);
+                node(n.getExpression());
+                nodeList(n.getCases());
+                node(n.getDefaultCase());
+            } else if (node instanceof CaseNode n) {
+                begin(T_CASE, n);
+                node(n.getValue());
+                nodeList(n.getStatements());
+            } else if (node instanceof ReturnNode n) {
+                begin(T_RETURN, n);
+                node(n.getValue());
+            } else if (node instanceof BreakNode n) {
+                begin(T_BREAK, n);
+                str(n.getLabel());
+            } else if (node instanceof ContinueNode n) {
+                begin(T_CONTINUE, n);
+            } else if (node instanceof LambdaNode n) {
+                begin(T_LAMBDA, n);
+                parameters(n.getParameters());
+                node(n.getBody());
+                node(n.getReturnType());
+                cls(n.getFunctionalInterfaceType());
+            } else if (node instanceof FunctionDefNode n) {
+                begin(T_FUNCTION_DEF, n);
+                str(n.getFunctionName());
+                parameters(n.getParameters());
+                node(n.getBody());
+                node(n.getReturnType());
+            } else if (node instanceof FunctionCallNode n) {
+                begin(T_FUNCTION_CALL, n);
+                str(n.getFunctionName());
+                nodeList(n.getArguments());
+            } else if (node instanceof DirectCallNode n) {
+                begin(T_DIRECT_CALL, n);
+                node(n.getTarget());
+                nodeList(n.getArguments());
+            } else if (node instanceof AsyncNode n) {
+                begin(T_ASYNC, n);
+                node(n.getExpression());
+            } else if (node instanceof AwaitNode n) {
+                begin(T_AWAIT, n);
+                node(n.getExpression());
+            } else if (node instanceof MapLiteralNode n) {
+                begin(T_MAP_LITERAL, n);
+                Map<ASTNode, ASTNode> entries = n.getEntries();
+                varInt(entries == null ? 0 : entries.size() + 1);
+                if (entries != null) {
+                    for (Map.Entry<ASTNode, ASTNode> entry : entries.entrySet()) {
+                        node(entry.getKey());
+                        node(entry.getValue());
+                    }
+                }
+            } else if (node instanceof InterpolatedStringNode n) {
+                begin(T_INTERPOLATED, n);
+                List<InterpolatedStringNode.Part> parts = n.getParts();
+                varInt(parts.size());
+                for (InterpolatedStringNode.Part part : parts) {
+                    bool(part.isExpression());
+                    if (part.isExpression()) {
+                        node(part.getExpression());
+                    } else {
+                        str(part.getLiteralText());
+                    }
+                }
+            } else if (node instanceof FieldAssignmentNode n) {
+                begin(T_FIELD_ASSIGNMENT, n);
+                node(n.getTarget());
+                str(n.getFieldName());
+                node(n.getValue());
+            } else if (node instanceof MethodReferenceNode n) {
+                begin(T_METHOD_REF, n);
+                node(n.getTarget());
+                str(n.getMethodName());
+                genericTypeList(n.getTypeArguments());
+                method(n.getBoundMethod());
+                cls(n.getFunctionalInterfaceType());
+            } else if (node instanceof SafeFieldAccessNode n) {
+                begin(T_SAFE_FIELD, n);
+                node(n.getTarget());
+                str(n.getFieldName());
+            } else if (node instanceof SafeMethodCallNode n) {
+                begin(T_SAFE_METHOD, n);
+                node(n.getTarget());
+                str(n.getMethodName());
+                nodeList(n.getArguments());
+            } else if (node instanceof ThrowNode n) {
+                begin(T_THROW, n);
+                node(n.getExpression());
+            } else if (node instanceof DeleteNode n) {
+                begin(T_DELETE, n);
+                str(n.getVariableName());
+                bool(n.isDeleteAll());
+            } else if (node instanceof LabeledStatementNode n) {
+                begin(T_LABELED, n);
+                str(n.getLabel());
+                node(n.getStatement());
+            } else if (node instanceof ImportNode n) {
+                begin(T_IMPORT, n);
+                str(n.getPackageName());
+            } else if (node instanceof UsingAliasNode n) {
+                begin(T_USING_ALIAS, n);
+                str(n.getAliasName());
+                str(n.getFullClassName());
+            } else if (node instanceof UsingStaticNode n) {
+                begin(T_USING_STATIC, n);
+                str(n.getClassName());
+            } else if (node instanceof TryNode n) {
+                begin(T_TRY, n);
+                node(n.getTryBlock());
+                List<CatchClause> catches = n.getCatchClauses();
+                varInt(catches == null ? 0 : catches.size() + 1);
+                if (catches != null) {
+                    for (CatchClause clause : catches) catchClause(clause);
+                }
+                node(n.getFinallyBlock());
+                List<ResourceDeclaration> resources = n.getResources();
+                varInt(resources == null ? 0 : resources.size() + 1);
+                if (resources != null) {
+                    for (ResourceDeclaration resource : resources) resource(resource);
+                }
+            } else if (node instanceof ClassReferenceNode n) {
+                begin(T_CLASS_REF, n);
+                str(n.getOriginalTypeName());
+                cls(n.getResolvedClass());
+                bool(n.isPrimitive());
+                varInt(n.getArrayDepth());
+                nodeList(n.getTypeArguments());
+            } else if (node instanceof ConditionalAssignNode n) {
+                begin(T_CONDITIONAL_ASSIGN, n);
+                str(n.getVariableName());
+                node(n.getValue());
+            } else if (node instanceof NullCoalescingAssignNode n) {
+                begin(T_NULL_COALESCING_ASSIGN, n);
+                str(n.getVariableName());
+                node(n.getValue());
+            } else if (node instanceof SuperMethodCallNode n) {
+                begin(T_SUPER_METHOD_CALL, n);
+                str(n.getMethodName());
+                nodeList(n.getArguments());
+            } else if (node instanceof AnnotationNode n) {
+                begin(T_ANNOTATION, n);
+                str(n.getAnnotationName());
+                Map<String, Object> values = n.getValues();
+                varInt(values == null ? 0 : values.size() + 1);
+                if (values != null) {
+                    for (Map.Entry<String, Object> entry : values.entrySet()) {
+                        str(entry.getKey());
+                        value(entry.getValue());
+                    }
+                }
+            } else {
+                // 类声明及其成员：加载时需要生成字节码并注册到 ParseContext
+                throw new NotSerializableException(node.getClass().getSimpleName());
+            }
+            GenericType type = context.getInferredType(node);
+            genericType(type);
+        }
+
+        private void begin(int tag, ASTNode node) throws IOException {
+            varInt(tag);
+            location(node.getLocation());
+        }
+
+        private Class<?> rawType(ASTNode node) {
+            JType type = context.getType(node);
+            return type != null ? type.getRawType() : null;
+        }
+
+        private void parameters(List<LambdaNode.Parameter> params) throws IOException {
+            if (params == null) {
+                varInt(0);
+                return;
+            }
+            varInt(params.size() + 1);
+            for (LambdaNode.Parameter p : params) {
+                str(p.name());
+                cls(p.type());
+            }
+        }
+
+        private void catchClause(CatchClause clause) throws IOException {
+            location(clause.getLocation());
+            List<Class<?>> types = clause.getExceptionTypes();
+            varInt(types == null ? 0 : types.size() + 1);
+            if (types != null) {
+                for (Class<?> type : types) cls(type);
+            }
+            str(clause.getVariableName());
+            node(clause.getBody());
+        }
+
+        private void resource(ResourceDeclaration resource) throws IOException {
+            if (resource.isReference()) {
+                throw new NotSerializableException("try-with-resources reference " + resource.getVariableName());
+            }
+            location(resource.getLocation());
+            cls(resource.getType());
+            str(resource.getVariableName());
+            node(resource.getInitializer());
+        }
+    }
+
+    // ==================== 解码 ====================
+
+    private static final class Reader {
+        private final DataInputStream in;
+        private final ParseContext context;
+
+        private String[] strings;
+        private Class<?>[] classes;
+        private Method[] methods;
+        private Field[] fields;
+
+        Reader(DataInputStream in, ParseContext context) {
+            this.in = in;
+            this.context = context;
+        }
+
+        void readTables() throws IOException {
+            strings = new String[count()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] utf8 = new byte[count()];
+                in.readFully(utf8);
+                strings[i] = new String(utf8, StandardCharsets.UTF_8);
+            }
+            classes = new Class<?>[count()];
+            for (int i = 0; i < classes.length; i++) {
+                classes[i] = loadClass(strings[readVarInt(in)]);
+            }
+            methods = new Method[count()];
+            for (int i = 0; i < methods.length; i++) {
+                Class<?> owner = classes[readVarInt(in)];
+                String name = strings[readVarInt(in)];
+                Class<?>[] params = new Class<?>[count()];
+                for (int p = 0; p < params.length; p++) params[p] = classes[readVarInt(in)];
+                try {
+                    methods[i] = owner.getDeclaredMethod(name, params);
+                } catch (NoSuchMethodException | LinkageError e) {
+                    throw new InvalidClassException(owner.getName(), "no method " + name);
+                }
+            }
+            fields = new Field[count()];
+            for (int i = 0; i < fields.length; i++) {
+                Class<?> owner = classes[readVarInt(in)];
+                String name = strings[readVarInt(in)];
+                try {
+                    fields[i] = owner.getDeclaredField(name);
+                } catch (NoSuchFieldException | LinkageError e) {
+                    throw new InvalidClassException(owner.getName(), "no field " + name);
+                }
+            }
+        }
+
+        /** 与解析期相同的查找顺序：类加载器（含动态生成类）优先，再交给 ClassFinder。 */
+        private Class<?> loadClass(String name) throws InvalidClassException {
+            Class<?> primitive = PRIMITIVES.get(name);
+            if (primitive != null) return primitive;
+            ClassLoader loader = context.getClassLoader();
+            try {
+                return Class.forName(name, false, loader);
+            } catch (ClassNotFoundException | LinkageError ignored) {
+                // 退回 ClassFinder（宿主可能提供额外的查找逻辑）
+            }
+            IClassFinder finder = context.getClassFinder();
+            Class<?> found = finder != null ? finder.findClass(name, loader) : null;
+            if (found == null) {
+                throw new InvalidClassException(name, "class not found");
+            }
+            return found;
+        }
+
+        // ---------- 基本字段 ----------
+
+        private int count() throws IOException {
+            int n = readVarInt(in);
+            if (n < 0 || n > in.available() + 1) {
+                throw new StreamCorruptedException("Invalid length: " + n);
+            }
+            return n;
+        }
+
+        /** 可空列表的长度：0 表示 null，否则为 {@code size + 1}；返回 -1 表示 null。 */
+        private int optionalCount() throws IOException {
+            return count() - 1;
+        }
+
+        private boolean bool() throws IOException {
+            return in.readBoolean();
+        }
+
+        private String str() throws IOException {
+            int ref = readVarInt(in);
+            return ref == 0 ? null : strings[ref - 1];
+        }
+
+        private Class<?> cls() throws IOException {
+            int ref = readVarInt(in);
+            return ref == 0 ? null : classes[ref - 1];
+        }
+
+        private Method method() throws IOException {
+            int ref = readVarInt(in);
+            return ref == 0 ? null : methods[ref - 1];
+        }
+
+        private Field field() throws IOException {
+            int ref = readVarInt(in);
+            return ref == 0 ? null : fields[ref - 1];
+        }
+
+        private SourceLocation location() throws IOException {
+            int line = readVarInt(in);
+            if (line == 0) return null;
+            int column = readVarInt(in);
+            return new SourceLocation(line - 1, column, str());
+        }
+
+        private GenericType genericType() throws IOException {
+            if (!bool()) return null;
+            Class<?> raw = cls();
+            int arrayDepth = readVarInt(in);
+            String originalName = str();
+            int argc = count();
+            List<GenericType> args = new ArrayList<>(argc);
+            for (int i = 0; i < argc; i++) args.add(genericType());
+            return new GenericType(raw, args, arrayDepth, originalName);
+        }
+
+        private List<GenericType> genericTypeList() throws IOException {
+            int n = optionalCount();
+            if (n < 0) return null;
+            List<GenericType> types = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) types.add(genericType());
+            return types;
+        }
+
+        private Object value() throws IOException {
+            int tag = readVarInt(in);
+            switch (tag) {
+                case V_NULL: return null;
+                case V_BOOLEAN: return in.readBoolean();
+                case V_CHAR: return in.readChar();
+                case V_BYTE: return in.readByte();
+                case V_SHORT: return in.readShort();
+                case V_INT: return in.readInt();
+                case V_LONG: return in.readLong();
+                case V_FLOAT: return in.readFloat();
+                case V_DOUBLE: return in.readDouble();
+                case V_STRING: return str();
+                case V_CLASS: return cls();
+                case V_NODE: return node();
+                case V_ARRAY: {
+                    Class<?> component = cls();
+                    int length = count();
+                    Object array = Array.newInstance(component, length);
+                    for (int i = 0; i < length; i++) Array.set(array, i, value());
+                    return array;
+                }
+                default: throw new StreamCorruptedException("Unknown value tag: " + tag);
+            }
+        }
+
+        List<ASTNode> nodeList() throws IOException {
+            int n = optionalCount();
+            if (n < 0) return null;
+            List<ASTNode> nodes = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) nodes.add(node());
+            return nodes;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends ASTNode> List<T> typedList() throws IOException {
+            return (List<T>) (List<?>) nodeList();
+        }
+
+        private List<LambdaNode.Parameter> parameters() throws IOException {
+            int n = optionalCount();
+            if (n < 0) return null;
+            List<LambdaNode.Parameter> params = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) params.add(new LambdaNode.Parameter(str(), cls()));
+            return params;
+        }
+
+        /** 读出符号表增量，返回在整个脚本解码成功后再执行的应用动作。 */
+        Runnable contextDelta() throws IOException {
+            int n = count();
+            List<String> names = new ArrayList<>(n);
+            boolean[] finals = new boolean[n];
+            List<GenericType> types = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                names.add(str());
+                finals[i] = bool();
+                types.add(genericType());
+            }
+            int importCount = count();
+            List<String> imports = new ArrayList<>(importCount);
+            for (int i = 0; i < importCount; i++) imports.add(str());
+            int aliasCount = count();
+            Map<String, String> aliases = new LinkedHashMap<>();
+            for (int i = 0; i < aliasCount; i++) aliases.put(str(), str());
+
+            return () -> {
+                for (int i = 0; i < names.size(); i++) {
+                    String name = names.get(i);
+                    if (context.isVariableDeclared(name)) {
+                        // 宽松模式允许顶层重复声明：沿用已有符号，只更新类型
+                        context.resolveVariable(name).setDeclaredType(types.get(i));
+                        continue;
+                    }
+                    try {
+                        context.declareVariable(name, finals[i], types.get(i));
+                    } catch (CythavaParseException e) {
+                        // 没有活动作用域，ParseContext 不可用
+                        throw new IllegalStateException(e);
+                    }
+                }
+                context.addImports(imports);
+                for (Map.Entry<String, String> entry : aliases.entrySet()) {
+                    context.addTypeAlias(entry.getKey(), entry.getValue());
+                }
+            };
+        }
+
+        // ---------- 节点 ----------
+
+        ASTNode node() throws IOException {
+            int tag = readVarInt(in);
+            if (tag == T_NULL) return null;
+            SourceLocation loc = location();
+            ASTNode node;
+            switch (tag) {
+                case T_LITERAL: {
+                    Object value = value();
+                    node = new LiteralNode.Builder().value(value).type(cls()).location(loc).build();
+                    break;
+                }
+                case T_VARIABLE:
+                    node = new VariableNode.Builder().name(str()).isFinal(bool()).fieldAccess(bool())
+                            .declaredType((ClassReferenceNode) node())
+                            .annotations(this.<AnnotationNode>typedList()).location(loc).build();
+                    break;
+                case T_BINARY: {
+                    BinaryOpNode.Operator op = BinaryOpNode.Operator.valueOf(str());
+                    BinaryOpNode binary = (BinaryOpNode) new BinaryOpNode.Builder().operator(op)
+                            .left(node()).right(node()).location(loc).build();
+                    if (bool()) {
+                        bindOperator(binary, cls(), cls());
+                    }
+                    node = binary;
+                    break;
+                }
+                case T_UNARY:
+                    node = new UnaryOpNode.Builder().operator(UnaryOpNode.Operator.valueOf(str()))
+                            .operand(node()).location(loc).build();
+                    break;
+                case T_ASSIGNMENT:
+                    node = new AssignmentNode.Builder().variableName(str()).value(node()).isDeclaration(bool())
+                            .isFinal(bool()).declaredType(genericType()).location(loc).build();
+                    break;
+                case T_VAR_DECL:
+                    node = new VarDeclNode.Builder().varName(str()).declaredType(genericType())
+                            .initializer(node()).isFinal(bool())
+                            .annotations(this.<AnnotationNode>typedList()).location(loc).build();
+                    break;
+                case T_METHOD_CALL: {
+                    MethodCallNode call = (MethodCallNode) new MethodCallNode.Builder().target(node())
+                            .methodName(str()).arguments(nodeList()).location(loc).build();
+                    Method bound = method();
+                    if (bound != null) call.setBoundMethod(bound);
+                    node = call;
+                    break;
+                }
+                case T_FIELD_ACCESS: {
+                    FieldAccessNode access = new FieldAccessNode.Builder().target(node())
+                            .fieldName(str()).location(loc).build();
+                    Field bound = field();
+                    if (bound != null) access.setBoundField(bound);
+                    node = access;
+                    break;
+                }
+                case T_CONSTRUCTOR_CALL:
+                    node = new ConstructorCallNode.Builder().type(genericType()).arguments(nodeList())
+                            .arrayInitializer(node()).location(loc).build();
+                    break;
+                case T_TERNARY:
+                    node = new TernaryNode.Builder().condition(node()).thenExpr(node()).elseExpr(node())
+                            .location(loc).build();
+                    break;
+                case T_ARRAY_ACCESS:
+                    node = new ArrayAccessNode.Builder().array(node()).index(node()).location(loc).build();
+                    break;
+                case T_ARRAY_ASSIGNMENT:
+                    node = new ArrayAssignmentNode.Builder().array(node()).index(node()).value(node())
+                            .location(loc).build();
+                    break;
+                case T_ARRAY_LITERAL:
+                    node = new ArrayLiteralNode.Builder().elements(nodeList()).expectedElementType(cls())
+                            .arrayLength(node()).location(loc).build();
+                    break;
+                case T_NEW_ARRAY:
+                    node = new NewArrayNode.Builder().elementType(cls()).size(node()).sizes(nodeList())
+                            .location(loc).build();
+                    break;
+                case T_CAST:
+                    node = new CastNode.Builder().targetType(cls()).expression(node()).location(loc).build();
+                    break;
+                case T_INSTANCEOF:
+                    node = new InstanceofNode.Builder().typeName(str()).expression(node()).location(loc).build();
+                    break;
+                case T_PIPELINE:
+                    node = new PipelineNode.Builder().input(node()).function(node()).location(loc).build();
+                    break;
+                case T_BLOCK:
+                    node = new BlockNode.Builder().statements(nodeList()).location(loc).build();
+                    break;
+                case T_IF:
+                    node = new IfNode.Builder().condition(node()).thenBlock(node()).elseBlock(node())
+                            .location(loc).build();
+                    break;
+                case T_WHILE:
+                    node = new WhileNode.Builder().condition(node()).body(node()).location(loc).build();
+                    break;
+                case T_DO_WHILE:
+                    node = new DoWhileNode.Builder().body(node()).condition(node()).location(loc).build();
+                    break;
+                case T_FOR:
+                    node = new ForNode.Builder().initialization(node()).condition(node()).update(node())
+                            .body(node()).location(loc).build();
+                    break;
+                case T_FOR_EACH:
+                    node = new ForEachNode.Builder().itemType(cls()).itemName(str()).collection(node())
+                            .body(node()).location(loc).build();
+                    break;
+                case T_SWITCH:
+                    node = new SwitchNode.Builder().expression(node()).cases(this.<CaseNode>typedList())
+                            .defaultCase(node()).location(loc).build();
+                    break;
+                case T_CASE:
+                    node = new CaseNode.Builder().value(node()).statements(nodeList()).location(loc).build();
+                    break;
+                case T_RETURN:
+                    node = new ReturnNode.Builder().value(node()).location(loc).build();
+                    break;
+                case T_BREAK:
+                    node = new BreakNode.Builder().label(str()).location(loc).build();
+                    break;
+                case T_CONTINUE:
+                    node = new ContinueNode.Builder().location(loc).build();
+                    break;
+                case T_LAMBDA: {
+                    LambdaNode lambda = (LambdaNode) new LambdaNode.Builder().parameters(parameters())
+                            .body(node()).returnType((ClassReferenceNode) node()).location(loc).build();
+                    Class<?> fiType = cls();
+                    if (fiType != null) lambda.setFunctionalInterfaceType(fiType);
+                    node = lambda;
+                    break;
+                }
+                case T_FUNCTION_DEF:
+                    node = new FunctionDefNode.Builder().functionName(str()).parameters(parameters())
+                            .body(node()).returnType((ClassReferenceNode) node()).location(loc).build();
+                    break;
+                case T_FUNCTION_CALL:
+                    node = new FunctionCallNode.Builder().functionName(str()).arguments(nodeList())
+                            .location(loc).build();
+                    break;
+                case T_DIRECT_CALL:
+                    node = new DirectCallNode.Builder().target(node()).arguments(nodeList()).location(loc).build();
+                    break;
+                case T_ASYNC:
+                    node = new AsyncNode.Builder().expression(node()).location(loc).build();
+                    break;
+                case T_AWAIT:
+                    node = new AwaitNode.Builder().expression(node()).location(loc).build();
+                    break;
+                case T_MAP_LITERAL: {
+                    int n = optionalCount();
+                    Map<ASTNode, ASTNode> entries = null;
+                    if (n >= 0) {
+                        entries = new LinkedHashMap<>();
+                        for (int i = 0; i < n; i++) entries.put(node(), node());
+                    }
+                    node = new MapLiteralNode.Builder().entries(entries).location(loc).build();
+                    break;
+                }
+                case T_INTERPOLATED: {
+                    InterpolatedStringNode.Builder builder = new InterpolatedStringNode.Builder();
+                    int n = count();
+                    for (int i = 0; i < n; i++) {
+                        if (bool()) {
+                            builder.addExpression(node());
+                        } else {
+                            builder.addLiteral(str());
+                        }
+                    }
+                    node = builder.location(loc).build();
+                    break;
+                }
+                case T_FIELD_ASSIGNMENT:
+                    node = new FieldAssignmentNode.Builder().target(node()).fieldName(str()).value(node())
+                            .location(loc).build();
+                    break;
+                case T_METHOD_REF: {
+                    MethodReferenceNode ref = (MethodReferenceNode) new MethodReferenceNode.Builder()
+                            .target(node()).methodName(str()).typeArguments(genericTypeList())
+                            .location(loc).build();
+                    Method bound = method();
+                    if (bound != null) ref.setBoundMethod(bound);
+                    Class<?> fiType = cls();
+                    if (fiType != null) ref.setFunctionalInterfaceType(fiType);
+                    node = ref;
+                    break;
+                }
+                case T_SAFE_FIELD:
+                    node = new SafeFieldAccessNode.Builder().target(node()).fieldName(str()).location(loc).build();
+                    break;
+                case T_SAFE_METHOD:
+                    node = new SafeMethodCallNode.Builder().target(node()).methodName(str())
+                            .arguments(nodeList()).location(loc).build();
+                    break;
+                case T_THROW:
+                    node = new ThrowNode.Builder().expression(node()).location(loc).build();
+                    break;
+                case T_DELETE:
+                    node = new DeleteNode.Builder().variableName(str()).deleteAll(bool()).location(loc).build();
+                    break;
+                case T_LABELED:
+                    node = new LabeledStatementNode.Builder().label(str()).statement(node()).location(loc).build();
+                    break;
+                case T_IMPORT:
+                    node = new ImportNode.Builder().packageName(str()).location(loc).build();
+                    break;
+                case T_USING_ALIAS:
+                    node = new UsingAliasNode.Builder().aliasName(str()).fullClassName(str()).location(loc).build();
+                    break;
+                case T_USING_STATIC:
+                    node = new UsingStaticNode.Builder().className(str()).location(loc).build();
+                    break;
+                case T_TRY: {
+                    ASTNode tryBlock = node();
+                    int n = optionalCount();
+                    List<CatchClause> catches = null;
+                    if (n >= 0) {
+                        catches = new ArrayList<>(n);
+                        for (int i = 0; i < n; i++) catches.add(catchClause());
+                    }
+                    ASTNode finallyBlock = node();
+                    n = optionalCount();
+                    List<ResourceDeclaration> resources = null;
+                    if (n >= 0) {
+                        resources = new ArrayList<>(n);
+                        for (int i = 0; i < n; i++) {
+                            SourceLocation resourceLoc = location();
+                            resources.add(new ResourceDeclaration(cls(), str(), node(), resourceLoc));
+                        }
+                    }
+                    node = new TryNode.Builder().tryBlock(tryBlock).catchClauses(catches)
+                            .finallyBlock(finallyBlock).resources(resources).location(loc).build();
+                    break;
+                }
+                case T_CLASS_REF:
+                    node = new ClassReferenceNode.Builder().originalTypeName(str()).resolvedClass(cls())
+                            .isPrimitive(bool()).arrayDepth(readVarInt(in))
+                            .typeArguments(this.<ClassReferenceNode>typedList()).location(loc).build();
+                    break;
+                case T_CONDITIONAL_ASSIGN:
+                    node = new ConditionalAssignNode.Builder().variableName(str()).value(node())
+                            .location(loc).build();
+                    break;
+                case T_NULL_COALESCING_ASSIGN:
+                    node = new NullCoalescingAssignNode.Builder().variableName(str()).value(node())
+                            .location(loc).build();
+                    break;
+                case T_SUPER_METHOD_CALL:
+                    node = new SuperMethodCallNode.Builder().methodName(str()).arguments(nodeList())
+                            .location(loc).build();
+                    break;
+                case T_ANNOTATION: {
+                    String name = str();
+                    int n = optionalCount();
+                    Map<String, Object> values = null;
+                    if (n >= 0) {
+                        values = new LinkedHashMap<>();
+                        for (int i = 0; i < n; i++) values.put(str(), value());
+                    }
+                    node = new AnnotationNode.Builder().annotationName(name).values(values).location(loc).build();
+                    break;
+                }
+                default:
+                    throw new StreamCorruptedException("Unknown node tag: " + tag);
+            }
+            GenericType type = genericType();
+            if (type != null) {
+                context.setType(node, JType.fromGenericType(type));
+            }
+            return node;
+        }
+
+        private CatchClause catchClause() throws IOException {
+            SourceLocation loc = location();
+            int n = optionalCount();
+            List<Class<?>> types = null;
+            if (n >= 0) {
+                types = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) types.add(cls());
+            }
+            return new CatchClause.Builder().location(loc).exceptionTypes(types).variableName(str())
+                    .body(node()).build();
+        }
+
+        /**
+         * 按编码时记下的两侧类型重新查找内置运算符。找不到（注册表变化）时保持未绑定，
+         * 运行期走 Evaluator 的兜底分派，与宽松模式下的解析结果一致。
+         */
+        private void bindOperator(BinaryOpNode binary, Class<?> lhsType, Class<?> rhsType) {
+            OperatorRegistry registry = context.getOperatorRegistry();
+            if (registry == null || lhsType == null || rhsType == null) return;
+            OperatorRegistry.Overload overload =
+                    registry.findBinaryCompatible(binary.getOperator().getSymbol(), lhsType, rhsType);
+            if (overload != null && overload.isBuiltin()) {
+                binary.setOperatorCallback(overload.toOperatorCallback(null));
+            }
+        }
+    }
+}
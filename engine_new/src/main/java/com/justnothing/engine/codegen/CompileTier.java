@@ -0,0 +1,80 @@
+package com.justnothing.engine.codegen;
+
+/**
+ * 字节码编译层的全局开关与每个函数节点的编译状态。
+ * <p>
+ * 脚本函数（{@code FunctionDefNode}）和 lambda（{@code LambdaNode}）每被调用一次计数一次，
+ * 超过阈值后由 {@link FunctionCompiler} 尝试把函数体编译为 JVM 字节码；
+ * 编译失败（包含不支持的节点）则永久退回树遍历解释执行。
+ * </p>
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class CompileTier {
+
+    /** 默认编译阈值：调用次数达到该值后尝试编译。 */
+    public static final int DEFAULT_THRESHOLD = 1000;
+
+    private static volatile boolean enabled = true;
+    private static volatile int threshold = DEFAULT_THRESHOLD;
+
+    private CompileTier() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 开启/关闭编译层（关闭后已编译的函数也不再使用）。 */
+    public static void setEnabled(boolean enabled) {
+        CompileTier.enabled = enabled;
+    }
+
+    public static int getThreshold() {
+        return threshold;
+    }
+
+    /** 设置编译阈值（最小为 1，即第一次调用就编译）。 */
+    public static void setThreshold(int threshold) {
+        CompileTier.threshold = Math.max(1, threshold);
+    }
+
+    /**
+     * 单个函数节点的编译状态，挂在 AST 节点上，在该节点产生的所有闭包之间共享。
+     * <p>计数器不加锁：并发下少计几次只会让编译稍晚发生。</p>
+     */
+    public static final class State {
+        private int invocations;
+        private volatile CompiledFunction compiled;
+        private volatile boolean failed;
+
+        /** 已编译的函数，尚未编译或编译失败返回 null。 */
+        public CompiledFunction getCompiled() {
+            return compiled;
+        }
+
+        /** 是否已放弃编译。 */
+        public boolean isFailed() {
+            return failed;
+        }
+
+        /**
+         * 记录一次调用。
+         *
+         * @return 是否已达到编译阈值（调用方此时应尝试编译）
+         */
+        public boolean countInvocation() {
+            return ++invocations >= threshold;
+        }
+
+        /** 记录编译结果，null 表示放弃编译。 */
+        public void setCompiled(CompiledFunction compiled) {
+            if (compiled == null) {
+                this.failed = true;
+            } else {
+                this.compiled = compiled;
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.justnothing.engine.codegen;
+
+import com.justnothing.engine.eval.EvalException;
+import com.justnothing.engine.eval.Value;
+import com.justnothing.engine.exception.ErrorCode;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 由 {@link FunctionCompiler} 生成的函数体。
+ * <p>
+ * 编译按首次达到阈值时的实参类型做特化（例如 {@code (int, int) -> int}）。
+ * 调用时先校验实参的 Value 类型与特化一致，不一致返回 null，由调用方退回解释执行，
+ * 因此编译结果永远不会改变脚本的动态类型语义。
+ * </p>
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class CompiledFunction {
+
+    private final Function<Object[], Object> body;
+    private final FunctionCompiler.Kind[] parameterKinds;
+    private final FunctionCompiler.Kind returnKind;
+    private final List<String> writeBackNames;
+
+    CompiledFunction(Function<Object[], Object> body, FunctionCompiler.Kind[] parameterKinds,
+                     FunctionCompiler.Kind returnKind, List<String> writeBackNames) {
+        this.body = body;
+        this.parameterKinds = parameterKinds;
+        this.returnKind = returnKind;
+        this.writeBackNames = writeBackNames;
+    }
+
+    /**
+     * 块结束时解释器会写回外层同名变量的局部变量名。
+     * <p>这些名字若在闭包外层可见，编译后的代码无法复现写回，调用方应退回解释执行。</p>
+     */
+    public List<String> getWriteBackNames() {
+        return writeBackNames;
+    }
+
+    /**
+     * 调用编译后的函数体。
+     *
+     * @param args 实参
+     * @return 返回值；实参个数或类型与特化不一致时返回 null
+     */
+    public Value invoke(Value[] args) {
+        if (args.length != parameterKinds.length) return null;
+        Object[] raw = new Object[args.length];
+        for (int i = 0; i < args.length; i++) {
+            if (!parameterKinds[i].accepts(args[i])) return null;
+            raw[i] = args[i].asJavaObject();
+        }
+        Object result;
+        try {
+            result = body.apply(raw);
+        } catch (ArithmeticException e) {
+            // 生成的代码只在显式的除零检查处抛出 ArithmeticException
+            throw new EvalException(e.getMessage(), ErrorCode.EVAL_DIVISION_BY_ZERO);
+        } catch (UndeclaredThrowableException e) {
+            // Java 方法调用抛出的异常被包装，message 为方法名（与解释器的报错格式一致）
+            Throwable cause = e.getUndeclaredThrowable();
+            throw new EvalException("Exception in " + e.getMessage() + ": " + cause.getMessage(),
+                    cause, ErrorCode.EVAL_EXCEPTION_THROWN);
+        }
+        return returnKind == FunctionCompiler.Kind.VOID ? Value.VoidValue.INSTANCE : Value.of(result);
+    }
+}
@@ -18,6 +18,7 @@ import org.objectweb.asm.Opcodes;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -40,10 +41,10 @@ public final class DynamicClassGenerator {
         return defaultClassDefiner;
     }
 
-    // CustomClassExecutor.execute(className, methodName, descriptor, instance, args)
-    private static final String EXECUTE_SIGNATURE = "(Ljava/lang/String;Ljava/lang/String;Ljava/lang/String;Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+    // CustomClassExecutor.invoke(handle, instance, args)
+    private static final String EXECUTE_SIGNATURE = "(ILjava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
     private static final String EXECUTE_CLASS = "com/justnothing/engine/eval/CustomClassExecutor";
-    private static final String EXECUTE_METHOD = "execute";
+    private static final String EXECUTE_METHOD = "invoke";
     private static final String OBJECT = "java/lang/Object";
     private static final String SHORT = "java/lang/Short";
     private static final String INTEGER = "java/lang/Integer";
@@ -206,12 +207,16 @@ public final class DynamicClassGenerator {
         }
 
         // 方法
+        int[] handles = new int[classDecl.getMethods().size()];
+        int handleCount = 0;
         for (MethodDeclarationNode method : classDecl.getMethods()) {
             if (delegateToExecutor) {
-                String desc = buildDescriptor(method);
-                addDelegateMethod(cw, method, name, classDecl.isInterface());
-                CustomClassExecutor.registerMethod(
-                        name, method.getMethodName(), desc, method);
+                int handle = -1;
+                if (!classDecl.isInterface()) {
+                    handle = CustomClassExecutor.registerHandle(name, method);
+                    handles[handleCount++] = handle;
+                }
+                addDelegateMethod(cw, method, handle, classDecl.isInterface());
             } else {
                 addEmptyMethod(cw, method, classDecl.isInterface());
             }
@@ -219,7 +224,28 @@ public final class DynamicClassGenerator {
 
         cw.visitEnd();
 
-        byte[] bytecode = cw.toByteArray();
+        if (handleCount == 0) {
+            return defineClass(name, cw.toByteArray());
+        }
+        int[] registered = Arrays.copyOf(handles, handleCount);
+        Class<?> generated;
+        try {
+            generated = defineClass(name, cw.toByteArray());
+        } catch (RuntimeException e) {
+            CustomClassExecutor.releaseHandles(registered);
+            throw e;
+        }
+        CustomClassExecutor.trackHandles(generated, registered);
+        return generated;
+    }
+
+    /**
+     * 用当前的 ClassDefiner 定义一个已生成好的类（供编译层等其他字节码生成器复用）。
+     *
+     * @param name     类的二进制名（点分隔）
+     * @param bytecode 类文件字节
+     */
+    public Class<?> defineClass(String name, byte[] bytecode) {
         try {
             return classDefiner.defineClass(name, bytecode, loader.getParent());
         } catch (RuntimeException e) {
@@ -484,29 +510,12 @@ public final class DynamicClassGenerator {
 
         initializeFieldLiterals(mv, internalName, fields);
 
-        // register method body for executor
-        if (delegateToExecutor && ctor.getBody() != null) {
-            CustomClassExecutor.registerMethod(
-                    className, INIT, descriptor,
-                    wrapConstructorAsMethod(ctor));
-        }
-
         mv.visitInsn(Opcodes.RETURN);
         int maxLocals = 1 + (ctor.getParameters() != null ? ctor.getParameters().size() : 0);
         mv.visitMaxs(3, maxLocals);
         mv.visitEnd();
     }
 
-    private static MethodDeclarationNode wrapConstructorAsMethod(ConstructorDeclarationNode ctor) {
-        return (MethodDeclarationNode) new MethodDeclarationNode.Builder()
-                .methodName(INIT)
-                .returnType(ClassReferenceNode.of("void", void.class, true, null))
-                .parameters(ctor.getParameters())
-                .body(ctor.getBody())
-                .modifiers(ctor.getModifiers())
-                .build();
-    }
-
     private static void initializeFieldLiterals(MethodVisitor mv, String internalName,
                                                  List<FieldDeclarationNode> fields) {
         if (fields == null) return;
@@ -617,8 +626,12 @@ public final class DynamicClassGenerator {
 
     // ==================== 委托执行器方法 ====================
 
+    /**
+     * 生成委托方法：把实参装箱后连同方法句柄交给 {@link CustomClassExecutor#invoke}，
+     * 句柄是编进字节码的整数常量，分派时只需一次数组读取。
+     */
     private void addDelegateMethod(ClassWriter cw, MethodDeclarationNode method,
-                                    String className, boolean isInterface) {
+                                    int handle, boolean isInterface) {
         String methodName = method.getMethodName();
         String descriptor = buildDescriptor(method);
         String returnDesc = descriptor.substring(descriptor.indexOf(')') + 1);
@@ -639,12 +652,8 @@ public final class DynamicClassGenerator {
         MethodVisitor mv = cw.visitMethod(mods, methodName, descriptor, null, null);
         mv.visitCode();
 
-        // LDC className
-        mv.visitLdcInsn(className);
-        // LDC methodName
-        mv.visitLdcInsn(methodName);
-        // LDC descriptor (全描述符，用于精确重载匹配)
-        mv.visitLdcInsn(descriptor);
+        // 方法句柄
+        pushInt(mv, handle);
 
         // this / null (static)
         boolean isStatic = method.getModifiers() != null && method.getModifiers().isStatic();
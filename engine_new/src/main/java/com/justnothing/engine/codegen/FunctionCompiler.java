@@ -0,0 +1,1094 @@
+package com.justnothing.engine.codegen;
+
+import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.FrameLayout;
+import com.justnothing.engine.ast.SlotRef;
+import com.justnothing.engine.ast.nodes.*;
+import com.justnothing.engine.eval.Evaluator;
+import com.justnothing.engine.eval.Value;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 把脚本函数体中静态类型可确定的子集编译为 JVM 字节码。
+ *
+ * <h3>支持的子集</h3>
+ * <ul>
+ *   <li>值类型：int / long / double / boolean（按首次编译时的实参类型特化）</li>
+ *   <li>表达式：字面量、局部变量、算术/比较/逻辑/位运算、一元运算与自增自减、三元、基本类型强转、
+ *       解析期已绑定的 public 静态 Java 方法（{@link MethodCallNode#getBoundMethod()}）</li>
+ *   <li>语句：块、局部变量声明与赋值、if / while / do-while / for、break / continue、return</li>
+ * </ul>
+ * <p>
+ * 遇到子集之外的节点（字符串、对象、闭包变量、嵌套 lambda 等）整函数放弃编译，继续树遍历解释执行。
+ * 生成的代码逐条复现 Evaluator 与内置运算符的语义：数值提升（double &gt; long &gt; int）、
+ * 除零抛 EvalException、{@code &&}/{@code ||} 两侧都求值、块正常结束时写回外层同名变量等。
+ * </p>
+ *
+ * <h3>生成的类</h3>
+ * <pre>
+ * public final class cythava.jit.Fn$N implements java.util.function.Function {
+ *     public static R run(P0, P1, ...) { ... }
+ *     public Object apply(Object args) { return box(run(unbox(args[0]), ...)); }
+ * }
+ * </pre>
+ * 只引用 java.* 和被调用方法所在的类，通过 {@link DynamicClassGenerator#defineClass(String, byte[])}
+ * 定义，因此在 Android 上同样走可替换的 {@link ClassDefiner}。
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class FunctionCompiler {
+
+    private static final int CLASS_VERSION = Opcodes.V1_8;
+    private static final String CLASS_PREFIX = "cythava/jit/Fn$";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String FUNCTION = "java/util/function/Function";
+    private static final String ARITHMETIC_EXCEPTION = "java/lang/ArithmeticException";
+    private static final String UNDECLARED = "java/lang/reflect/UndeclaredThrowableException";
+    private static final String DIVISION_BY_ZERO = "Division by zero";
+
+    private static final AtomicInteger classCounter = new AtomicInteger();
+
+    /** 丢弃所有指令的 MethodVisitor，用于只做类型推导的预演。 */
+    private static final MethodVisitor NO_OP = new MethodVisitor(Opcodes.ASM9) {
+    };
+
+    /** 编译期值类型。 */
+    public enum Kind {
+        INT(Type.INT_TYPE, Integer.class, "intValue", Value.IntValue.class),
+        LONG(Type.LONG_TYPE, Long.class, "longValue", Value.LongValue.class),
+        DOUBLE(Type.DOUBLE_TYPE, Double.class, "doubleValue", Value.DoubleValue.class),
+        BOOLEAN(Type.BOOLEAN_TYPE, Boolean.class, "booleanValue", Value.BooleanValue.class),
+        VOID(Type.VOID_TYPE, null, null, null);
+
+        final Type type;
+        final String boxName;
+        final String unboxMethod;
+        final Class<? extends Value> valueClass;
+
+        Kind(Type type, Class<?> box, String unboxMethod, Class<? extends Value> valueClass) {
+            this.type = type;
+            this.boxName = box != null ? Type.getInternalName(box) : null;
+            this.unboxMethod = unboxMethod;
+            this.valueClass = valueClass;
+        }
+
+        /** 实参的 Value 类型是否与此特化一致。 */
+        boolean accepts(Value value) {
+            return value != null && value.getClass() == valueClass;
+        }
+
+        boolean isNumeric() {
+            return this == INT || this == LONG || this == DOUBLE;
+        }
+
+        static Kind of(Value value) {
+            for (Kind kind : values()) {
+                if (kind.valueClass != null && kind.accepts(value)) return kind;
+            }
+            return null;
+        }
+
+        static Kind ofClass(Class<?> type) {
+            if (type == int.class) return INT;
+            if (type == long.class) return LONG;
+            if (type == double.class) return DOUBLE;
+            if (type == boolean.class) return BOOLEAN;
+            if (type == void.class) return VOID;
+            return null;
+        }
+    }
+
+    /** 不在支持子集内，放弃编译。 */
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported(String reason) {
+            super(reason, null, false, false);
+        }
+    }
+
+    private record Local(String name, Kind kind, int index) {
+    }
+
+    /** 一个运行期帧（块、for、函数参数帧）在编译期的镜像。 */
+    private static final class Scope {
+        final FrameLayout layout;
+        final boolean writesBack;
+        final Local[] slots;
+        final Map<String, Local> declared = new LinkedHashMap<>();
+
+        Scope(FrameLayout layout, boolean writesBack) {
+            this.layout = layout;
+            this.writesBack = writesBack;
+            this.slots = new Local[layout.size()];
+        }
+    }
+
+    private record LoopLabels(Label breakLabel, Label continueLabel) {
+    }
+
+    private final List<LambdaNode.Parameter> parameters;
+    private final FrameLayout parameterLayout;
+    private final ASTNode body;
+    private final boolean lambda;
+    private final Kind[] parameterKinds;
+    private final ClassLoader loader;
+
+    private final Map<ASTNode, Kind> kinds = new IdentityHashMap<>();
+    private final Set<String> writeBackNames = new LinkedHashSet<>();
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+    private final Deque<LoopLabels> loops = new ArrayDeque<>();
+    private MethodVisitor mv;
+    private Kind returnKind;
+    private int nextLocal;
+
+    private FunctionCompiler(List<LambdaNode.Parameter> parameters, FrameLayout parameterLayout,
+                             ASTNode body, boolean lambda, Kind[] parameterKinds, ClassLoader loader) {
+        this.parameters = parameters;
+        this.parameterLayout = parameterLayout;
+        this.body = body;
+        this.lambda = lambda;
+        this.parameterKinds = parameterKinds;
+        this.loader = loader;
+    }
+
+    /**
+     * 尝试编译一个函数体。
+     *
+     * @param parameters      形参列表
+     * @param parameterLayout 函数参数帧布局（SlotResolver 生成）
+     * @param body            函数体
+     * @param lambda          是否为 lambda（lambda 的块体以最后一条语句的值作为返回值）
+     * @param args            触发编译时的实参，用于类型特化
+     * @param codegen         定义生成类所用的生成器
+     * @return 编译结果；不支持时返回 null
+     */
+    public static CompiledFunction compile(List<LambdaNode.Parameter> parameters, FrameLayout parameterLayout,
+                                           ASTNode body, boolean lambda, Value[] args,
+                                           DynamicClassGenerator codegen) {
+        if (codegen == null || parameterLayout == null || body == null) return null;
+        if (args.length != parameters.size()) return null;
+        Kind[] parameterKinds = new Kind[args.length];
+        for (int i = 0; i < args.length; i++) {
+            parameterKinds[i] = Kind.of(args[i]);
+            if (parameterKinds[i] == null) return null;
+        }
+        ClassLoader loader = codegen.getLoader().getParent();
+        FunctionCompiler compiler = new FunctionCompiler(parameters, parameterLayout, body, lambda, parameterKinds, loader);
+        try {
+            // 第一遍只推导返回类型并检查是否在支持子集内
+            compiler.emitBody(NO_OP);
+            Kind returnKind = compiler.returnKind != null ? compiler.returnKind : Kind.VOID;
+            compiler.reset(returnKind);
+            String internalName = CLASS_PREFIX + classCounter.incrementAndGet();
+            byte[] bytecode = compiler.generateClass(internalName, returnKind);
+            Class<?> clazz = codegen.defineClass(internalName.replace('/', '.'), bytecode);
+            @SuppressWarnings("unchecked")
+            Function<Object[], Object> instance = (Function<Object[], Object>) clazz.getConstructor().newInstance();
+            return new CompiledFunction(instance, parameterKinds, returnKind, List.copyOf(compiler.writeBackNames));
+        } catch (Unsupported e) {
+            return null;
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    private void reset(Kind returnKind) {
+        this.kinds.clear();
+        this.writeBackNames.clear();
+        this.scopes.clear();
+        this.loops.clear();
+        this.returnKind = returnKind;
+    }
+
+    // ==================== 类与方法骨架 ====================
+
+    private byte[] generateClass(String internalName, Kind returnKind) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // 生成的代码中只有 Throwable 类引用会在控制流汇合点出现
+                return OBJECT;
+            }
+        };
+        cw.visit(CLASS_VERSION, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                internalName, null, OBJECT, new String[]{FUNCTION});
+
+        MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        String runDescriptor = runDescriptor(returnKind);
+        MethodVisitor run = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "run", runDescriptor, null, null);
+        run.visitCode();
+        emitBody(run);
+        run.visitMaxs(0, 0);
+        run.visitEnd();
+
+        MethodVisitor apply = cw.visitMethod(Opcodes.ACC_PUBLIC, "apply", "(Ljava/lang/Object;)Ljava/lang/Object;", null, null);
+        apply.visitCode();
+        for (int i = 0; i < parameterKinds.length; i++) {
+            Kind kind = parameterKinds[i];
+            apply.visitVarInsn(Opcodes.ALOAD, 1);
+            apply.visitTypeInsn(Opcodes.CHECKCAST, "[Ljava/lang/Object;");
+            pushInt(apply, i);
+            apply.visitInsn(Opcodes.AALOAD);
+            apply.visitTypeInsn(Opcodes.CHECKCAST, kind.boxName);
+            apply.visitMethodInsn(Opcodes.INVOKEVIRTUAL, kind.boxName, kind.unboxMethod,
+                    "()" + kind.type.getDescriptor(), false);
+        }
+        apply.visitMethodInsn(Opcodes.INVOKESTATIC, internalName, "run", runDescriptor, false);
+        if (returnKind == Kind.VOID) {
+            apply.visitInsn(Opcodes.ACONST_NULL);
+        } else {
+            apply.visitMethodInsn(Opcodes.INVOKESTATIC, returnKind.boxName, "valueOf",
+                    "(" + returnKind.type.getDescriptor() + ")L" + returnKind.boxName + ";", false);
+        }
+        apply.visitInsn(Opcodes.ARETURN);
+        apply.visitMaxs(0, 0);
+        apply.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private String runDescriptor(Kind returnKind) {
+        StringBuilder sb = new StringBuilder("(");
+        for (Kind kind : parameterKinds) {
+            sb.append(kind.type.getDescriptor());
+        }
+        return sb.append(')').append(returnKind.type.getDescriptor()).toString();
+    }
+
+    /** 生成 run 方法体（两遍共用：第一遍 mv 为 NO_OP）。 */
+    private void emitBody(MethodVisitor target) {
+        this.mv = target;
+        this.nextLocal = 0;
+        Scope parameterScope = new Scope(parameterLayout, false);
+        scopes.push(parameterScope);
+        for (int i = 0; i < parameters.size(); i++) {
+            String name = parameters.get(i).name();
+            int index = parameterLayout.indexOf(name);
+            Local local = new Local(name, parameterKinds[i], nextLocal);
+            nextLocal += parameterKinds[i].type.getSize();
+            parameterScope.slots[index] = local;
+            parameterScope.declared.put(name, local);
+        }
+
+        if (lambda) {
+            emitLambdaBody();
+        } else {
+            emitFunctionBody();
+        }
+        scopes.pop();
+    }
+
+    /** 普通函数：只有 return 能带出值，执行到末尾返回 void。 */
+    private void emitFunctionBody() {
+        boolean valued = hasValuedReturn(body);
+        if (valued) {
+            // 必须以 return 结尾，否则存在落到末尾返回 void 的路径，返回类型不唯一
+            ASTNode last = body instanceof BlockNode block && !block.getStatements().isEmpty()
+                    ? block.getStatements().get(block.getStatements().size() - 1) : body;
+            if (!(last instanceof ReturnNode)) throw new Unsupported("function may fall off the end");
+        } else {
+            unifyReturn(Kind.VOID);
+        }
+        statement(body, false);
+        if (!valued) mv.visitInsn(Opcodes.RETURN);
+    }
+
+    /** lambda：表达式体或块体的最后一条语句的值即返回值。 */
+    private void emitLambdaBody() {
+        if (body instanceof BlockNode block) {
+            List<ASTNode> statements = block.getStatements();
+            if (statements.isEmpty()) {
+                unifyReturn(Kind.VOID);
+                mv.visitInsn(Opcodes.RETURN);
+                return;
+            }
+            ASTNode last = statements.get(statements.size() - 1);
+            if (last instanceof ReturnNode) {
+                statement(block, false);
+                return;
+            }
+            if (!isExpression(last)) throw new Unsupported("lambda block must end with an expression");
+            Scope scope = enterScope(block.getFrameLayout(), true);
+            for (int i = 0; i < statements.size() - 1; i++) {
+                statement(statements.get(i), true);
+            }
+            Kind kind = kindOf(last);
+            unifyReturn(kind);
+            expression(last);
+            exitScope(scope);
+            emitReturn(kind);
+            return;
+        }
+        if (isExpression(body)) {
+            Kind kind = kindOf(body);
+            unifyReturn(kind);
+            expression(body);
+            emitReturn(kind);
+            return;
+        }
+        throw new Unsupported("unsupported lambda body");
+    }
+
+    private static boolean hasValuedReturn(ASTNode node) {
+        if (node instanceof ReturnNode r) return r.getValue() != null;
+        if (node instanceof BlockNode b) {
+            for (ASTNode s : b.getStatements()) if (hasValuedReturn(s)) return true;
+            return false;
+        }
+        if (node instanceof IfNode n) return hasValuedReturn(n.getThenBlock()) || hasValuedReturn(n.getElseBlock());
+        if (node instanceof WhileNode n) return hasValuedReturn(n.getBody());
+        if (node instanceof DoWhileNode n) return hasValuedReturn(n.getBody());
+        if (node instanceof ForNode n) return hasValuedReturn(n.getBody());
+        return false;
+    }
+
+    private void unifyReturn(Kind kind) {
+        if (returnKind == null) {
+            returnKind = kind;
+        } else if (returnKind != kind) {
+            throw new Unsupported("inconsistent return types: " + returnKind + " / " + kind);
+        }
+    }
+
+    private void emitReturn(Kind kind) {
+        mv.visitInsn(kind == Kind.VOID ? Opcodes.RETURN : kind.type.getOpcode(Opcodes.IRETURN));
+    }
+
+    // ==================== 作用域 ====================
+
+    private Scope enterScope(FrameLayout layout, boolean writesBack) {
+        if (layout == null) throw new Unsupported("unresolved frame");
+        Scope scope = new Scope(layout, writesBack);
+        scopes.push(scope);
+        return scope;
+    }
+
+    /**
+     * 离开作用域。块正常结束时，Evaluator 会把块内声明、且在外层可见的变量写回外层；
+     * 外层是编译期局部变量时生成拷贝，否则记录名字，由调用方在运行期检查闭包中是否存在同名变量。
+     */
+    private void exitScope(Scope scope) {
+        scopes.pop();
+        if (!scope.writesBack) return;
+        for (Local inner : scope.declared.values()) {
+            Local outer = lookupDeclared(inner.name());
+            if (outer == null) {
+                writeBackNames.add(inner.name());
+                continue;
+            }
+            if (outer.kind() != inner.kind()) throw new Unsupported("write-back changes type of " + inner.name());
+            mv.visitVarInsn(inner.kind().type.getOpcode(Opcodes.ILOAD), inner.index());
+            mv.visitVarInsn(outer.kind().type.getOpcode(Opcodes.ISTORE), outer.index());
+        }
+    }
+
+    private Local lookupDeclared(String name) {
+        for (Scope scope : scopes) {
+            Local local = scope.declared.get(name);
+            if (local != null) return local;
+        }
+        return null;
+    }
+
+    /**
+     * 找到变量引用对应的编译期局部变量：有槽位按 SlotResolver 分配的地址查找，
+     * 否则（例如块内 {@code s = s + 1} 读取的是外层的 s）按名字从内向外查找已执行过的声明。
+     */
+    private Local resolve(SlotRef slot, String name) {
+        if (slot == null) {
+            Local local = lookupDeclared(name);
+            if (local == null) throw new Unsupported("variable outside compiled frames: " + name);
+            return local;
+        }
+        int depth = slot.depth();
+        for (Scope scope : scopes) {
+            if (depth-- > 0) continue;
+            if (scope.layout != slot.frame()) break;
+            Local local = scope.slots[slot.index()];
+            if (local == null) break;
+            return local;
+        }
+        throw new Unsupported("variable outside compiled frames");
+    }
+
+    private Local declare(SlotRef slot, String name, Kind kind) {
+        Scope scope = scopes.peek();
+        if (scope == null) throw new Unsupported("declaration outside frame");
+        if (slot != null && (slot.depth() != 0 || scope.layout != slot.frame())) {
+            throw new Unsupported("declaration outside frame");
+        }
+        if (kind == Kind.VOID) throw new Unsupported("void variable");
+        Local existing = slot != null ? scope.slots[slot.index()] : scope.declared.get(name);
+        if (existing != null) {
+            if (existing.kind() != kind) throw new Unsupported("redeclaration changes type of " + name);
+            return existing;
+        }
+        Local local = new Local(name, kind, nextLocal);
+        nextLocal += kind.type.getSize();
+        if (slot != null) scope.slots[slot.index()] = local;
+        scope.declared.put(name, local);
+        return local;
+    }
+
+    // ==================== 语句 ====================
+
+    /**
+     * 编译一条语句，不在操作数栈上留下值。
+     *
+     * @param declarationAllowed 是否允许出现变量声明（只允许作为块或 for 初始化的直接成员，
+     *                           保证之后的引用一定已经执行过声明）
+     */
+    private void statement(ASTNode node, boolean declarationAllowed) {
+        if (node instanceof BlockNode n) {
+            Scope scope = enterScope(n.getFrameLayout(), true);
+            for (ASTNode stmt : n.getStatements()) {
+                statement(stmt, true);
+            }
+            exitScope(scope);
+        } else if (node instanceof VarDeclNode n) {
+            if (!declarationAllowed) throw new Unsupported("declaration in nested position");
+            Kind kind;
+            if (n.getInitializer() != null) {
+                kind = expression(n.getInitializer());
+            } else {
+                kind = defaultValue(n.getDeclaredType() != null ? n.getDeclaredType().getRawType() : null);
+            }
+            Local local = declare(n.getSlot(), n.getVarName(), kind);
+            mv.visitVarInsn(kind.type.getOpcode(Opcodes.ISTORE), local.index());
+        } else if (node instanceof AssignmentNode n && n.isDeclaration()) {
+            if (!declarationAllowed) throw new Unsupported("declaration in nested position");
+            Kind kind = expression(n.getValue());
+            Local local = declare(n.getSlot(), n.getVariableName(), kind);
+            mv.visitVarInsn(kind.type.getOpcode(Opcodes.ISTORE), local.index());
+        } else if (node instanceof IfNode n) {
+            Label elseLabel = new Label();
+            Label end = new Label();
+            condition(n.getCondition(), elseLabel);
+            statement(n.getThenBlock(), false);
+            mv.visitJumpInsn(Opcodes.GOTO, end);
+            mv.visitLabel(elseLabel);
+            if (n.getElseBlock() != null) statement(n.getElseBlock(), false);
+            mv.visitLabel(end);
+        } else if (node instanceof WhileNode n) {
+            Label start = new Label();
+            Label end = new Label();
+            mv.visitLabel(start);
+            condition(n.getCondition(), end);
+            loopBody(n.getBody(), end, start);
+            mv.visitJumpInsn(Opcodes.GOTO, start);
+            mv.visitLabel(end);
+        } else if (node instanceof DoWhileNode n) {
+            Label start = new Label();
+            Label check = new Label();
+            Label end = new Label();
+            mv.visitLabel(start);
+            loopBody(n.getBody(), end, check);
+            mv.visitLabel(check);
+            condition(n.getCondition(), end);
+            mv.visitJumpInsn(Opcodes.GOTO, start);
+            mv.visitLabel(end);
+        } else if (node instanceof ForNode n) {
+            // for 帧不写回（Evaluator.visitFor 不做写回）
+            Scope scope = enterScope(n.getFrameLayout(), false);
+            if (n.getInitialization() != null) statement(n.getInitialization(), true);
+            Label start = new Label();
+            Label update = new Label();
+            Label end = new Label();
+            mv.visitLabel(start);
+            if (n.getCondition() != null) condition(n.getCondition(), end);
+            loopBody(n.getBody(), end, update);
+            mv.visitLabel(update);
+            if (n.getUpdate() != null) statement(n.getUpdate(), false);
+            mv.visitJumpInsn(Opcodes.GOTO, start);
+            mv.visitLabel(end);
+            scopes.pop();
+        } else if (node instanceof BreakNode n) {
+            if (n.isLabeled() || loops.isEmpty()) throw new Unsupported("break outside compiled loop");
+            mv.visitJumpInsn(Opcodes.GOTO, loops.peek().breakLabel());
+        } else if (node instanceof ContinueNode) {
+            if (loops.isEmpty()) throw new Unsupported("continue outside compiled loop");
+            mv.visitJumpInsn(Opcodes.GOTO, loops.peek().continueLabel());
+        } else if (node instanceof ReturnNode n) {
+            if (n.getValue() == null) {
+                unifyReturn(Kind.VOID);
+                mv.visitInsn(Opcodes.RETURN);
+            } else {
+                Kind kind = kindOf(n.getValue());
+                unifyReturn(kind);
+                expression(n.getValue());
+                emitReturn(kind);
+            }
+        } else if (isExpression(node)) {
+            Kind kind = expression(node);
+            if (kind == Kind.LONG || kind == Kind.DOUBLE) {
+                mv.visitInsn(Opcodes.POP2);
+            } else if (kind != Kind.VOID) {
+                mv.visitInsn(Opcodes.POP);
+            }
+        } else {
+            throw new Unsupported("statement " + node.getClass().getSimpleName());
+        }
+    }
+
+    private void loopBody(ASTNode loopBody, Label breakLabel, Label continueLabel) {
+        loops.push(new LoopLabels(breakLabel, continueLabel));
+        statement(loopBody, false);
+        loops.pop();
+    }
+
+    private Kind defaultValue(Class<?> type) {
+        if (type == int.class || type == byte.class || type == short.class) {
+            mv.visitInsn(Opcodes.ICONST_0);
+            return Kind.INT;
+        }
+        if (type == long.class) {
+            mv.visitInsn(Opcodes.LCONST_0);
+            return Kind.LONG;
+        }
+        if (type == double.class || type == float.class) {
+            mv.visitInsn(Opcodes.DCONST_0);
+            return Kind.DOUBLE;
+        }
+        if (type == boolean.class) {
+            mv.visitInsn(Opcodes.ICONST_0);
+            return Kind.BOOLEAN;
+        }
+        throw new Unsupported("default value of " + type);
+    }
+
+    /** 求值条件并按 isTruthy 语义跳转：为假时跳到 falseLabel。 */
+    private void condition(ASTNode cond, Label falseLabel) {
+        truthy(expression(cond));
+        mv.visitJumpInsn(Opcodes.IFEQ, falseLabel);
+    }
+
+    /** 把栈顶值转换为 Value.isTruthy() 的 0/1。 */
+    private void truthy(Kind kind) {
+        switch (kind) {
+            case BOOLEAN -> {
+            }
+            case INT -> {
+                Label f = new Label();
+                Label end = new Label();
+                mv.visitJumpInsn(Opcodes.IFEQ, f);
+                mv.visitInsn(Opcodes.ICONST_1);
+                mv.visitJumpInsn(Opcodes.GOTO, end);
+                mv.visitLabel(f);
+                mv.visitInsn(Opcodes.ICONST_0);
+                mv.visitLabel(end);
+            }
+            case LONG -> {
+                mv.visitInsn(Opcodes.LCONST_0);
+                mv.visitInsn(Opcodes.LCMP);
+                truthy(Kind.INT);
+            }
+            case DOUBLE -> {
+                // value != 0.0 && !isNaN(value)：NaN 与自身比较不相等，需单独排除
+                Label nan = new Label();
+                Label f = new Label();
+                Label end = new Label();
+                mv.visitInsn(Opcodes.DUP2);
+                mv.visitInsn(Opcodes.DUP2);
+                mv.visitInsn(Opcodes.DCMPL);
+                mv.visitJumpInsn(Opcodes.IFNE, nan);
+                mv.visitInsn(Opcodes.DCONST_0);
+                mv.visitInsn(Opcodes.DCMPL);
+                mv.visitJumpInsn(Opcodes.IFEQ, f);
+                mv.visitInsn(Opcodes.ICONST_1);
+                mv.visitJumpInsn(Opcodes.GOTO, end);
+                mv.visitLabel(nan);
+                mv.visitInsn(Opcodes.POP2);
+                mv.visitLabel(f);
+                mv.visitInsn(Opcodes.ICONST_0);
+                mv.visitLabel(end);
+            }
+            default -> throw new Unsupported("condition of kind " + kind);
+        }
+    }
+
+    // ==================== 表达式 ====================
+
+    private static boolean isExpression(ASTNode node) {
+        return node instanceof LiteralNode || node instanceof VariableNode || node instanceof BinaryOpNode
+                || node instanceof UnaryOpNode || node instanceof TernaryNode || node instanceof CastNode
+                || node instanceof MethodCallNode
+                || (node instanceof AssignmentNode a && !a.isDeclaration());
+    }
+
+    /** 只推导表达式类型，不产生指令。 */
+    private Kind kindOf(ASTNode node) {
+        Kind cached = kinds.get(node);
+        if (cached != null) return cached;
+        MethodVisitor saved = mv;
+        mv = NO_OP;
+        try {
+            return expression(node);
+        } finally {
+            mv = saved;
+        }
+    }
+
+    /** 编译表达式，值留在操作数栈上，返回其类型。 */
+    private Kind expression(ASTNode node) {
+        Kind kind;
+        if (node instanceof LiteralNode n) {
+            kind = literal(n);
+        } else if (node instanceof VariableNode n) {
+            Local local = resolve(n.getSlot(), n.getName());
+            mv.visitVarInsn(local.kind().type.getOpcode(Opcodes.ILOAD), local.index());
+            kind = local.kind();
+        } else if (node instanceof AssignmentNode n && !n.isDeclaration()) {
+            if (n.isFinal()) throw new Unsupported("assignment to final");
+            Local local = resolve(n.getSlot(), n.getVariableName());
+            Kind valueKind = expression(n.getValue());
+            if (valueKind != local.kind()) throw new Unsupported("assignment changes type of " + local.name());
+            mv.visitInsn(valueKind.type.getSize() == 2 ? Opcodes.DUP2 : Opcodes.DUP);
+            mv.visitVarInsn(valueKind.type.getOpcode(Opcodes.ISTORE), local.index());
+            kind = valueKind;
+        } else if (node instanceof BinaryOpNode n) {
+            kind = binary(n);
+        } else if (node instanceof UnaryOpNode n) {
+            kind = unary(n);
+        } else if (node instanceof TernaryNode n) {
+            Kind thenKind = kindOf(n.getThenExpr());
+            if (kindOf(n.getElseExpr()) != thenKind) throw new Unsupported("ternary branches differ");
+            Label elseLabel = new Label();
+            Label end = new Label();
+            condition(n.getCondition(), elseLabel);
+            expression(n.getThenExpr());
+            mv.visitJumpInsn(Opcodes.GOTO, end);
+            mv.visitLabel(elseLabel);
+            expression(n.getElseExpr());
+            mv.visitLabel(end);
+            kind = thenKind;
+        } else if (node instanceof CastNode n) {
+            Kind target = Kind.ofClass(n.getTargetType());
+            if (target == null || target == Kind.VOID) throw new Unsupported("cast to " + n.getTargetType());
+            Kind source = expression(n.getExpression());
+            if (target == Kind.BOOLEAN || source == Kind.BOOLEAN) {
+                if (source != target) throw new Unsupported("boolean cast");
+            } else {
+                convert(source, target);
+            }
+            kind = target;
+        } else if (node instanceof MethodCallNode n) {
+            kind = staticCall(n);
+        } else {
+            throw new Unsupported("expression " + node.getClass().getSimpleName());
+        }
+        kinds.put(node, kind);
+        return kind;
+    }
+
+    private Kind literal(LiteralNode node) {
+        Object value = node.getValue();
+        if (value instanceof Integer i) {
+            pushInt(mv, i);
+            return Kind.INT;
+        }
+        if (value instanceof Long l) {
+            mv.visitLdcInsn(l);
+            return Kind.LONG;
+        }
+        if (value instanceof Double d) {
+            mv.visitLdcInsn(d);
+            return Kind.DOUBLE;
+        }
+        if (value instanceof Boolean b) {
+            mv.visitInsn(b ? Opcodes.ICONST_1 : Opcodes.ICONST_0);
+            return Kind.BOOLEAN;
+        }
+        throw new Unsupported("literal " + value);
+    }
+
+    private Kind binary(BinaryOpNode node) {
+        BinaryOpNode.Operator op = node.getOperator();
+        Kind left = kindOf(node.getLeft());
+        Kind right = kindOf(node.getRight());
+        switch (op) {
+            case ADD, SUBTRACT, MULTIPLY, DIVIDE, MODULO -> {
+                Kind result = promote(left, right);
+                operands(node, left, right, result);
+                if (op == BinaryOpNode.Operator.DIVIDE || op == BinaryOpNode.Operator.MODULO) {
+                    checkDivisor(result);
+                }
+                int opcode = switch (op) {
+                    case ADD -> Opcodes.IADD;
+                    case SUBTRACT -> Opcodes.ISUB;
+                    case MULTIPLY -> Opcodes.IMUL;
+                    case DIVIDE -> Opcodes.IDIV;
+                    default -> Opcodes.IREM;
+                };
+                mv.visitInsn(result.type.getOpcode(opcode));
+                return result;
+            }
+            case POWER -> {
+                if (!left.isNumeric() || !right.isNumeric()) throw new Unsupported("power of non-number");
+                expression(node.getLeft());
+                convert(left, Kind.DOUBLE);
+                expression(node.getRight());
+                convert(right, Kind.DOUBLE);
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", "pow", "(DD)D", false);
+                return Kind.DOUBLE;
+            }
+            case INT_DIVIDE, MATH_MODULO -> {
+                // 内置实现只注册了 (Integer, Integer) -> Long
+                if (left != Kind.INT || right != Kind.INT) throw new Unsupported("integer division of non-int");
+                expression(node.getLeft());
+                mv.visitInsn(Opcodes.I2L);
+                expression(node.getRight());
+                if (op == BinaryOpNode.Operator.INT_DIVIDE) {
+                    mv.visitInsn(Opcodes.I2L);
+                    checkDivisor(Kind.LONG);
+                    mv.visitInsn(Opcodes.LDIV);
+                } else {
+                    checkDivisor(Kind.INT);
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Math", "floorMod", "(JI)I", false);
+                    mv.visitInsn(Opcodes.I2L);
+                }
+                return Kind.LONG;
+            }
+            case LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL, SPACESHIP -> {
+                // 内置实现只比较数值，boolean 的大小比较在解释器里会抛异常
+                if (!left.isNumeric() || !right.isNumeric()) throw new Unsupported("ordering of non-number");
+                compare(node, left, right);
+                if (op == BinaryOpNode.Operator.SPACESHIP) return Kind.INT;
+                int jump = switch (op) {
+                    case LESS_THAN -> Opcodes.IFLT;
+                    case LESS_THAN_OR_EQUAL -> Opcodes.IFLE;
+                    case GREATER_THAN -> Opcodes.IFGT;
+                    default -> Opcodes.IFGE;
+                };
+                booleanFromJump(jump);
+                return Kind.BOOLEAN;
+            }
+            case EQUAL, NOT_EQUAL -> {
+                boolean equal = op == BinaryOpNode.Operator.EQUAL;
+                if (left != right) {
+                    // Value.equals 要求同类型：不同类型恒不等，但两侧仍要求值
+                    discard(node.getLeft(), left);
+                    discard(node.getRight(), right);
+                    mv.visitInsn(equal ? Opcodes.ICONST_0 : Opcodes.ICONST_1);
+                    return Kind.BOOLEAN;
+                }
+                if (left == Kind.VOID) throw new Unsupported("comparison of void");
+                compare(node, left, right);
+                booleanFromJump(equal ? Opcodes.IFEQ : Opcodes.IFNE);
+                return Kind.BOOLEAN;
+            }
+            case LOGICAL_AND, LOGICAL_OR -> {
+                // 内置实现两侧都会求值（不短路）
+                truthy(expression(node.getLeft()));
+                truthy(expression(node.getRight()));
+                mv.visitInsn(op == BinaryOpNode.Operator.LOGICAL_AND ? Opcodes.IAND : Opcodes.IOR);
+                return Kind.BOOLEAN;
+            }
+            case BITWISE_AND, BITWISE_OR, BITWISE_XOR, LEFT_SHIFT, RIGHT_SHIFT, UNSIGNED_RIGHT_SHIFT -> {
+                // 内置实现只注册了 (int, int) -> int
+                if (left != Kind.INT || right != Kind.INT) throw new Unsupported("bitwise op on non-int");
+                expression(node.getLeft());
+                expression(node.getRight());
+                mv.visitInsn(switch (op) {
+                    case BITWISE_AND -> Opcodes.IAND;
+                    case BITWISE_OR -> Opcodes.IOR;
+                    case BITWISE_XOR -> Opcodes.IXOR;
+                    case LEFT_SHIFT -> Opcodes.ISHL;
+                    case RIGHT_SHIFT -> Opcodes.ISHR;
+                    default -> Opcodes.IUSHR;
+                });
+                return Kind.INT;
+            }
+            default -> throw new Unsupported("operator " + op);
+        }
+    }
+
+    private static Kind promote(Kind left, Kind right) {
+        if (!left.isNumeric() || !right.isNumeric()) throw new Unsupported("arithmetic on non-number");
+        if (left == Kind.DOUBLE || right == Kind.DOUBLE) return Kind.DOUBLE;
+        if (left == Kind.LONG || right == Kind.LONG) return Kind.LONG;
+        return Kind.INT;
+    }
+
+    private void operands(BinaryOpNode node, Kind left, Kind right, Kind target) {
+        expression(node.getLeft());
+        convert(left, target);
+        expression(node.getRight());
+        convert(right, target);
+    }
+
+    /**
+     * 按内置 compareValues 语义比较，栈顶留下 int 比较结果：
+     * boolean 只用于 ==/!=，相减即可；有 double 用 Double.compare，都是 int 用 Integer.compare，否则 Long.compare。
+     */
+    private void compare(BinaryOpNode node, Kind left, Kind right) {
+        if (left == Kind.BOOLEAN && right == Kind.BOOLEAN) {
+            expression(node.getLeft());
+            expression(node.getRight());
+            mv.visitInsn(Opcodes.ISUB);
+            return;
+        }
+        Kind common = promote(left, right);
+        operands(node, left, right, common);
+        switch (common) {
+            case DOUBLE -> mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Double", "compare", "(DD)I", false);
+            case LONG -> mv.visitInsn(Opcodes.LCMP);
+            default -> mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Integer", "compare", "(II)I", false);
+        }
+    }
+
+    /** 栈顶 int 与 0 比较，按 jump 条件压入 boolean。 */
+    private void booleanFromJump(int jump) {
+        Label t = new Label();
+        Label end = new Label();
+        mv.visitJumpInsn(jump, t);
+        mv.visitInsn(Opcodes.ICONST_0);
+        mv.visitJumpInsn(Opcodes.GOTO, end);
+        mv.visitLabel(t);
+        mv.visitInsn(Opcodes.ICONST_1);
+        mv.visitLabel(end);
+    }
+
+    /** 除数在栈顶（已是目标类型）：为零时抛出与内置运算符相同消息的异常。 */
+    private void checkDivisor(Kind kind) {
+        Label ok = new Label();
+        switch (kind) {
+            case INT -> {
+                mv.visitInsn(Opcodes.DUP);
+                mv.visitJumpInsn(Opcodes.IFNE, ok);
+            }
+            case LONG -> {
+                mv.visitInsn(Opcodes.DUP2);
+                mv.visitInsn(Opcodes.LCONST_0);
+                mv.visitInsn(Opcodes.LCMP);
+                mv.visitJumpInsn(Opcodes.IFNE, ok);
+            }
+            default -> {
+                // b == 0（-0.0 也算零，NaN 不算）
+                mv.visitInsn(Opcodes.DUP2);
+                mv.visitInsn(Opcodes.DCONST_0);
+                mv.visitInsn(Opcodes.DCMPL);
+                mv.visitJumpInsn(Opcodes.IFNE, ok);
+            }
+        }
+        mv.visitTypeInsn(Opcodes.NEW, ARITHMETIC_EXCEPTION);
+        mv.visitInsn(Opcodes.DUP);
+        mv.visitLdcInsn(DIVISION_BY_ZERO);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, ARITHMETIC_EXCEPTION, "<init>", "(Ljava/lang/String;)V", false);
+        mv.visitInsn(Opcodes.ATHROW);
+        mv.visitLabel(ok);
+    }
+
+    private void discard(ASTNode node, Kind kind) {
+        expression(node);
+        if (kind == Kind.LONG || kind == Kind.DOUBLE) {
+            mv.visitInsn(Opcodes.POP2);
+        } else if (kind != Kind.VOID) {
+            mv.visitInsn(Opcodes.POP);
+        }
+    }
+
+    private void convert(Kind from, Kind to) {
+        if (from == to) return;
+        if (!from.isNumeric() || !to.isNumeric()) throw new Unsupported("conversion " + from + " -> " + to);
+        int opcode = switch (from) {
+            case INT -> to == Kind.LONG ? Opcodes.I2L : Opcodes.I2D;
+            case LONG -> to == Kind.INT ? Opcodes.L2I : Opcodes.L2D;
+            default -> to == Kind.INT ? Opcodes.D2I : Opcodes.D2L;
+        };
+        mv.visitInsn(opcode);
+    }
+
+    private Kind unary(UnaryOpNode node) {
+        switch (node.getOperator()) {
+            case POSITIVE -> {
+                return expression(node.getOperand());
+            }
+            case NEGATIVE -> {
+                Kind kind = expression(node.getOperand());
+                if (!kind.isNumeric()) throw new Unsupported("negation of " + kind);
+                mv.visitInsn(kind.type.getOpcode(Opcodes.INEG));
+                return kind;
+            }
+            case LOGICAL_NOT -> {
+                truthy(expression(node.getOperand()));
+                mv.visitInsn(Opcodes.ICONST_1);
+                mv.visitInsn(Opcodes.IXOR);
+                return Kind.BOOLEAN;
+            }
+            case BITWISE_NOT -> {
+                if (expression(node.getOperand()) != Kind.INT) throw new Unsupported("bitwise not of non-int");
+                mv.visitInsn(Opcodes.ICONST_M1);
+                mv.visitInsn(Opcodes.IXOR);
+                return Kind.INT;
+            }
+            case PRE_INCREMENT, POST_INCREMENT, PRE_DECREMENT, POST_DECREMENT -> {
+                return step(node);
+            }
+            default -> throw new Unsupported("unary " + node.getOperator());
+        }
+    }
+
+    /** ++ / --：与 Evaluator.increment/decrement 相同，保持 int/long/double 类型。 */
+    private Kind step(UnaryOpNode node) {
+        if (!(node.getOperand() instanceof VariableNode v)) throw new Unsupported("step of non-variable");
+        Local local = resolve(v.getSlot(), v.getName());
+        Kind kind = local.kind();
+        if (!kind.isNumeric()) throw new Unsupported("step of " + kind);
+        UnaryOpNode.Operator op = node.getOperator();
+        boolean post = op == UnaryOpNode.Operator.POST_INCREMENT || op == UnaryOpNode.Operator.POST_DECREMENT;
+        boolean increment = op == UnaryOpNode.Operator.PRE_INCREMENT || op == UnaryOpNode.Operator.POST_INCREMENT;
+        int dup = kind.type.getSize() == 2 ? Opcodes.DUP2 : Opcodes.DUP;
+        mv.visitVarInsn(kind.type.getOpcode(Opcodes.ILOAD), local.index());
+        if (post) mv.visitInsn(dup);
+        switch (kind) {
+            case INT -> mv.visitInsn(Opcodes.ICONST_1);
+            case LONG -> mv.visitInsn(Opcodes.LCONST_1);
+            default -> mv.visitInsn(Opcodes.DCONST_1);
+        }
+        mv.visitInsn(kind.type.getOpcode(increment ? Opcodes.IADD : Opcodes.ISUB));
+        if (!post) mv.visitInsn(dup);
+        mv.visitVarInsn(kind.type.getOpcode(Opcodes.ISTORE), local.index());
+        return kind;
+    }
+
+    /**
+     * 解析期绑定的 public 静态方法调用。
+     * <p>解释器经 Method.invoke 调用：实参装箱后按反射规则拓宽，返回值经 Value.of 转换，
+     * 被调方法抛出的异常包装为 "Exception in 方法名: ..."。这里用 UndeclaredThrowableException
+     * 携带方法名，由 {@link CompiledFunction} 还原为相同的 EvalException。</p>
+     */
+    private Kind staticCall(MethodCallNode node) {
+        Method method = node.getBoundMethod();
+        if (method == null && node.getTarget() instanceof ClassReferenceNode ref && ref.getResolvedClass() != null) {
+            // 形参类型未知时解析期无法绑定，按运行期的重载选择规则以特化后的实参类型选择
+            method = Evaluator.findBestMethod(ref.getResolvedClass(), node.getMethodName(), boxedTypes(node.getArguments()));
+        }
+        if (method == null || !Modifier.isStatic(method.getModifiers())
+                || !Modifier.isPublic(method.getModifiers())
+                || !Modifier.isPublic(method.getDeclaringClass().getModifiers())
+                || !(node.getTarget() instanceof ClassReferenceNode)
+                || "forEach".equals(node.getMethodName()) || "invoke".equals(node.getMethodName())) {
+            throw new Unsupported("call " + node.getMethodName());
+        }
+        if (!visibleFromLoader(method.getDeclaringClass())) throw new Unsupported("class not visible");
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        List<ASTNode> args = node.getArguments();
+        if (method.isVarArgs() || parameterTypes.length != args.size()) throw new Unsupported("arity");
+
+        Kind returnKind = methodReturnKind(method.getReturnType());
+        List<Kind> argKinds = new ArrayList<>();
+        for (int i = 0; i < args.size(); i++) {
+            Kind target = Kind.ofClass(parameterTypes[i]);
+            Kind actual = kindOf(args.get(i));
+            if (target == null || target == Kind.VOID || !widens(actual, target)) throw new Unsupported("argument type");
+            argKinds.add(actual);
+        }
+        for (int i = 0; i < args.size(); i++) {
+            expression(args.get(i));
+            convert(argKinds.get(i), Kind.ofClass(parameterTypes[i]));
+        }
+        Label start = new Label();
+        Label end = new Label();
+        Label handler = new Label();
+        Label after = new Label();
+        mv.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+        mv.visitLabel(start);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(method.getDeclaringClass()),
+                method.getName(), Type.getMethodDescriptor(method), method.getDeclaringClass().isInterface());
+        mv.visitLabel(end);
+        Class<?> raw = method.getReturnType();
+        if (raw == float.class) {
+            mv.visitInsn(Opcodes.F2D);
+        }
+        mv.visitJumpInsn(Opcodes.GOTO, after);
+        mv.visitLabel(handler);
+        mv.visitTypeInsn(Opcodes.NEW, UNDECLARED);
+        mv.visitInsn(Opcodes.DUP_X1);
+        mv.visitInsn(Opcodes.SWAP);
+        mv.visitLdcInsn(node.getMethodName());
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, UNDECLARED, "<init>", "(Ljava/lang/Throwable;Ljava/lang/String;)V", false);
+        mv.visitInsn(Opcodes.ATHROW);
+        mv.visitLabel(after);
+        return returnKind;
+    }
+
+    private Class<?>[] boxedTypes(List<ASTNode> args) {
+        Class<?>[] types = new Class<?>[args.size()];
+        for (int i = 0; i < types.length; i++) {
+            Kind kind = kindOf(args.get(i));
+            if (kind == Kind.VOID) throw new Unsupported("void argument");
+            types[i] = switch (kind) {
+                case INT -> Integer.class;
+                case LONG -> Long.class;
+                case DOUBLE -> Double.class;
+                default -> Boolean.class;
+            };
+        }
+        return types;
+    }
+
+    /** 返回值经 Value.of 的转换结果：byte/short → IntValue，float → DoubleValue。 */
+    private static Kind methodReturnKind(Class<?> type) {
+        if (type == byte.class || type == short.class) return Kind.INT;
+        if (type == float.class) return Kind.DOUBLE;
+        Kind kind = Kind.ofClass(type);
+        if (kind == null) throw new Unsupported("return type " + type);
+        return kind;
+    }
+
+    /** Method.invoke 对装箱实参允许的拓宽转换。 */
+    private static boolean widens(Kind from, Kind to) {
+        if (from == to) return true;
+        if (from == Kind.INT) return to == Kind.LONG || to == Kind.DOUBLE;
+        return from == Kind.LONG && to == Kind.DOUBLE;
+    }
+
+    private boolean visibleFromLoader(Class<?> type) {
+        try {
+            return Class.forName(type.getName(), false, loader) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(Opcodes.SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+}
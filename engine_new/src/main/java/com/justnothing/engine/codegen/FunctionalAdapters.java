@@ -0,0 +1,330 @@
+package com.justnothing.engine.codegen;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 把脚本可调用对象（lambda、方法引用）适配为 Java 函数式接口实例。
+ *
+ * <h3>SAM 查找</h3>
+ * <p>
+ * 每个接口的抽象方法只扫描一次并缓存。与 {@code Object} 的 public 方法签名相同的抽象方法
+ * （例如 {@link java.util.Comparator#equals(Object)}）不算 SAM。
+ * </p>
+ *
+ * <h3>适配类</h3>
+ * <p>每个函数式接口第一次转换时生成一个适配类，之后同一接口的所有转换都只是一次构造器调用：</p>
+ * <pre>
+ * public final class cythava.sam.Adapter$N implements FI {
+ *     public final Object source;                // 原始的 Lambda / MethodReference
+ *     public final Function&lt;Object[], Object&gt; target;
+ *     public R sam(P0 a0, P1 a1, ...) { return unbox(target.apply(new Object[]{box(a0), box(a1), ...})); }
+ * }
+ * </pre>
+ * <p>
+ * 接口的所有抽象方法都转发给 target，default 方法与 Object 方法保持接口 / Object 自身的实现。
+ * 适配类只引用接口本身和 java.*，用接口自己的类加载器作父加载器，
+ * 通过 {@link DynamicClassGenerator#getDefaultClassDefiner()} 定义（Android 上走可替换的 {@link ClassDefiner}）。
+ * 非 public 接口或定义失败时退回 {@link Proxy}，行为与原来相同。
+ * </p>
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class FunctionalAdapters {
+
+    private static final int CLASS_VERSION = Opcodes.V1_8;
+    private static final String CLASS_PREFIX = "cythava/sam/Adapter$";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String FUNCTION = "java/util/function/Function";
+    private static final String FUNCTION_DESC = "Ljava/util/function/Function;";
+    private static final String OBJECT_DESC = "Ljava/lang/Object;";
+    private static final MethodType CONSTRUCTOR_TYPE =
+            MethodType.methodType(Object.class, Object.class, Function.class);
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static final AtomicInteger classCounter = new AtomicInteger();
+    private static final Map<Class<?>, SamInfo> SAMS = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Factory> FACTORIES = new ConcurrentHashMap<>();
+    /** 生成的适配类 → 读取 source 字段的句柄，用于把适配实例还原为脚本对象。 */
+    private static final Map<Class<?>, MethodHandle> SOURCE_GETTERS = new ConcurrentHashMap<>();
+
+    private static final SamInfo NOT_FUNCTIONAL = new SamInfo(null, false);
+
+    private FunctionalAdapters() {
+    }
+
+    /** 接口的 SAM 查找结果；sam 为 null 表示没有抽象方法或不是接口。 */
+    private record SamInfo(Method sam, boolean unique) {
+    }
+
+    /** 某个接口的实例工厂；constructor 为 null 表示退回 Proxy。 */
+    private record Factory(MethodHandle constructor) {
+    }
+
+    /**
+     * 接口的单一抽象方法（取第一个非 Object 抽象方法，与原 {@code Lambda.getSAM} 一致）。
+     *
+     * @return SAM；不是接口或没有抽象方法时返回 null
+     */
+    public static Method findSam(Class<?> type) {
+        return samInfo(type).sam;
+    }
+
+    /** 是否为函数式接口：有且仅有一个（不同签名的）非 Object 抽象方法。 */
+    public static boolean isFunctionalInterface(Class<?> type) {
+        return samInfo(type).unique;
+    }
+
+    private static SamInfo samInfo(Class<?> type) {
+        if (type == null || !type.isInterface()) return NOT_FUNCTIONAL;
+        SamInfo info = SAMS.get(type);
+        if (info != null) return info;
+        return SAMS.computeIfAbsent(type, FunctionalAdapters::scan);
+    }
+
+    private static SamInfo scan(Class<?> type) {
+        List<Method> abstracts = abstractMethods(type);
+        if (abstracts.isEmpty()) return NOT_FUNCTIONAL;
+        return new SamInfo(abstracts.get(0), abstracts.size() == 1);
+    }
+
+    /** 接口的全部抽象方法，按签名去重并排除 Object 的 public 方法。 */
+    private static List<Method> abstractMethods(Class<?> type) {
+        Map<String, Method> bySignature = new LinkedHashMap<>();
+        for (Method m : type.getMethods()) {
+            if (m.getDeclaringClass() == Object.class) continue;
+            if (!Modifier.isAbstract(m.getModifiers()) || m.isDefault()) continue;
+            if (isObjectMethod(m)) continue;
+            bySignature.putIfAbsent(m.getName() + Type.getMethodDescriptor(m), m);
+        }
+        return new ArrayList<>(bySignature.values());
+    }
+
+    private static boolean isObjectMethod(Method m) {
+        try {
+            return Modifier.isPublic(Object.class.getMethod(m.getName(), m.getParameterTypes()).getModifiers());
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 创建函数式接口实例，接口的抽象方法调用转发给 target。
+     *
+     * @param fiType 目标接口
+     * @param source 被适配的脚本对象，可通过 {@link #sourceOf(Object)} 取回
+     * @param target 接收装箱后的 Java 实参，返回值按 SAM 返回类型拆箱 / 强转
+     * @return 接口实例；fiType 不是带抽象方法的接口时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T implement(Class<T> fiType, Object source, Function<Object[], Object> target) {
+        Method sam = findSam(fiType);
+        if (sam == null) return null;
+        Factory factory = FACTORIES.get(fiType);
+        if (factory == null) {
+            factory = FACTORIES.computeIfAbsent(fiType, t -> new Factory(generate(t)));
+        }
+        if (factory.constructor != null) {
+            try {
+                return (T) factory.constructor.invokeExact(source, target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("Failed to instantiate adapter for " + fiType.getName(), e);
+            }
+        }
+        return (T) Proxy.newProxyInstance(fiType.getClassLoader(), new Class<?>[]{fiType},
+                new ProxyHandler(source, target));
+    }
+
+    /**
+     * 由 {@link #implement} 创建的实例所适配的脚本对象。
+     *
+     * @return 原始的 source；不是适配实例时返回 null
+     */
+    public static Object sourceOf(Object instance) {
+        if (instance == null) return null;
+        Class<?> type = instance.getClass();
+        MethodHandle getter = SOURCE_GETTERS.get(type);
+        if (getter != null) {
+            try {
+                return getter.invokeExact(instance);
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+        if (Proxy.isProxyClass(type) && Proxy.getInvocationHandler(instance) instanceof ProxyHandler handler) {
+            return handler.source;
+        }
+        return null;
+    }
+
+    // ==================== 生成适配类 ====================
+
+    /** 生成并定义适配类，返回 (Object, Function)Object 形式的构造器句柄；无法生成时返回 null。 */
+    private static MethodHandle generate(Class<?> fiType) {
+        if (!Modifier.isPublic(fiType.getModifiers())) return null;
+        String internalName = CLASS_PREFIX + classCounter.incrementAndGet();
+        try {
+            byte[] bytecode = generateClass(internalName, fiType);
+            Class<?> clazz = DynamicClassGenerator.getDefaultClassDefiner()
+                    .defineClass(internalName.replace('/', '.'), bytecode, fiType.getClassLoader());
+            if (!fiType.isAssignableFrom(clazz)) return null;
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodHandle constructor = lookup.findConstructor(clazz,
+                    MethodType.methodType(void.class, Object.class, Function.class)).asType(CONSTRUCTOR_TYPE);
+            MethodHandle getter = lookup.findGetter(clazz, "source", Object.class)
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            SOURCE_GETTERS.put(clazz, getter);
+            return constructor;
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    private static byte[] generateClass(String internalName, Class<?> fiType) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(CLASS_VERSION, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+                internalName, null, OBJECT, new String[]{Type.getInternalName(fiType)});
+        cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, "source", OBJECT_DESC, null, null).visitEnd();
+        cw.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL, "target", FUNCTION_DESC, null, null).visitEnd();
+
+        MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>",
+                "(" + OBJECT_DESC + FUNCTION_DESC + ")V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitVarInsn(Opcodes.ALOAD, 1);
+        init.visitFieldInsn(Opcodes.PUTFIELD, internalName, "source", OBJECT_DESC);
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitVarInsn(Opcodes.ALOAD, 2);
+        init.visitFieldInsn(Opcodes.PUTFIELD, internalName, "target", FUNCTION_DESC);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        for (Method method : abstractMethods(fiType)) {
+            emitForwarder(cw, internalName, method);
+        }
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /** {@code return unbox(target.apply(new Object[]{box(a0), ...}))} */
+    private static void emitForwarder(ClassWriter cw, String internalName, Method method) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, method.getName(),
+                Type.getMethodDescriptor(method), null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, internalName, "target", FUNCTION_DESC);
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        pushInt(mv, parameterTypes.length);
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, OBJECT);
+        int local = 1;
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Type type = Type.getType(parameterTypes[i]);
+            mv.visitInsn(Opcodes.DUP);
+            pushInt(mv, i);
+            mv.visitVarInsn(type.getOpcode(Opcodes.ILOAD), local);
+            box(mv, parameterTypes[i]);
+            mv.visitInsn(Opcodes.AASTORE);
+            local += type.getSize();
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEINTERFACE, FUNCTION, "apply", "(" + OBJECT_DESC + ")" + OBJECT_DESC, true);
+        Class<?> returnType = method.getReturnType();
+        if (returnType == void.class) {
+            mv.visitInsn(Opcodes.POP);
+            mv.visitInsn(Opcodes.RETURN);
+        } else {
+            unbox(mv, returnType);
+            mv.visitInsn(Type.getType(returnType).getOpcode(Opcodes.IRETURN));
+        }
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else {
+            mv.visitIntInsn(Opcodes.BIPUSH, value);
+        }
+    }
+
+    private static void box(MethodVisitor mv, Class<?> type) {
+        if (!type.isPrimitive()) return;
+        Class<?> wrapper = MethodType.methodType(type).wrap().returnType();
+        String owner = Type.getInternalName(wrapper);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, owner, "valueOf",
+                "(" + Type.getDescriptor(type) + ")L" + owner + ";", false);
+    }
+
+    /** 按返回类型转换 target 的结果；数值类型经 Number 转换，允许脚本返回不同宽度的数。 */
+    private static void unbox(MethodVisitor mv, Class<?> type) {
+        if (type == boolean.class) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Boolean");
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z", false);
+        } else if (type == char.class) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Character");
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Character", "charValue", "()C", false);
+        } else if (type.isPrimitive()) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, "java/lang/Number");
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/Number", type.getName() + "Value",
+                    "()" + Type.getDescriptor(type), false);
+        } else if (type != Object.class) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+        }
+    }
+
+    // ==================== Proxy 回退 ====================
+
+    private static final class ProxyHandler implements InvocationHandler {
+        final Object source;
+        final Function<Object[], Object> target;
+
+        ProxyHandler(Object source, Function<Object[], Object> target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return handleObjectMethod(proxy, method, args);
+            }
+            if (method.isDefault()) {
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            return target.apply(args != null ? args : NO_ARGS);
+        }
+    }
+
+    private static Object handleObjectMethod(Object proxy, Method method, Object[] args) {
+        String name = method.getName();
+        return switch (name) {
+            case "toString" -> "Lambda[proxy=" + System.identityHashCode(proxy) + "]";
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> args != null && args.length > 0 && args[0] == proxy;
+            default -> throw new UnsupportedOperationException("Unknown Object method: " + name);
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package com.justnothing.engine.eval;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code async} 任务的全局调度器。
+ * <p>
+ * 默认执行器：运行时支持虚拟线程（JDK 21+）时每个任务一个虚拟线程；
+ * 否则（JDK 17、Android）使用固定上限的守护线程池，空闲线程超时后自动回收，
+ * 避免在宿主进程里常驻线程。
+ * </p>
+ * <p>可以通过 {@link #setExecutor(Executor)} 换成宿主自己的执行器（例如测试时的同步执行器）。</p>
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class AsyncScheduler {
+
+    /** 回退线程池的线程数上限。 */
+    public static final int DEFAULT_POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static volatile Executor executor;
+
+    private AsyncScheduler() {
+    }
+
+    /** 当前使用的执行器（首次调用时创建默认执行器）。 */
+    public static Executor getExecutor() {
+        Executor current = executor;
+        if (current == null) {
+            synchronized (AsyncScheduler.class) {
+                current = executor;
+                if (current == null) {
+                    current = createDefaultExecutor();
+                    executor = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** 替换执行器；传入 null 恢复默认执行器（下次使用时重新创建）。 */
+    public static void setExecutor(Executor executor) {
+        AsyncScheduler.executor = executor;
+    }
+
+    private static Executor createDefaultExecutor() {
+        try {
+            // 通过反射调用，保证在没有虚拟线程的运行时上也能加载本类
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+            return createBoundedPool();
+        }
+    }
+
+    private static ExecutorService createBoundedPool() {
+        AtomicInteger seq = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(DEFAULT_POOL_SIZE, DEFAULT_POOL_SIZE,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "engine-async-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,81 @@
+package com.justnothing.engine.eval;
+
+import com.justnothing.engine.exception.BreakException;
+import com.justnothing.engine.exception.ContinueException;
+import com.justnothing.engine.exception.LabeledBreakException;
+
+/**
+ * 语句的非正常完成信号（break / continue / return）。
+ * <p>
+ * visitBreak / visitContinue / visitReturn 只在这里记录信号并正常返回，不再构造和抛出异常。
+ * 块、循环、switch 在每条语句之后检查信号并逐层返回：
+ * 循环消费 continue 与不带标签的 break，带标签语句消费指向自己的 break，
+ * 函数体、lambda、顶层语句序列等边界通过 {@link Evaluator#takeReturn()} 消费 return。
+ * </p>
+ * <p>同一函数体内嵌套的子 Evaluator 共享同一个实例；每次函数调用使用新的实例。</p>
+ */
+final class Completion {
+
+    enum Kind { NORMAL, BREAK, CONTINUE, RETURN }
+
+    private Kind kind = Kind.NORMAL;
+    private String label;
+    private Value value;
+
+    boolean isAbrupt() {
+        return kind != Kind.NORMAL;
+    }
+
+    Kind kind() {
+        return kind;
+    }
+
+    boolean isContinue() {
+        return kind == Kind.CONTINUE;
+    }
+
+    /** 不带标签的 break，由最内层的循环或 switch 消费。 */
+    boolean isUnlabeledBreak() {
+        return kind == Kind.BREAK && label == null;
+    }
+
+    /** 指向给定标签的 break。 */
+    boolean isBreakTo(String target) {
+        return kind == Kind.BREAK && label != null && label.equals(target);
+    }
+
+    Value value() {
+        return value;
+    }
+
+    void setBreak(String label) {
+        this.kind = Kind.BREAK;
+        this.label = label;
+        this.value = null;
+    }
+
+    void setContinue() {
+        this.kind = Kind.CONTINUE;
+        this.label = null;
+        this.value = null;
+    }
+
+    void setReturn(Value value) {
+        this.kind = Kind.RETURN;
+        this.label = null;
+        this.value = value;
+    }
+
+    void clear() {
+        this.kind = Kind.NORMAL;
+        this.label = null;
+        this.value = null;
+    }
+
+    /** 越过函数边界、没有可消费者的 break / continue，还原为原来的异常形式。 */
+    RuntimeException toException() {
+        if (kind == Kind.CONTINUE) return new ContinueException();
+        if (label != null) return new LabeledBreakException(label);
+        return new BreakException();
+    }
+}
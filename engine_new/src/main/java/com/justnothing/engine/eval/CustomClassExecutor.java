@@ -2,19 +2,59 @@ package com.justnothing.engine.eval;
 
 import com.justnothing.engine.ast.ASTNode;
 import com.justnothing.engine.ast.nodes.*;
-import com.justnothing.engine.exception.ReturnException;
 import com.justnothing.engine.parser.ParseContext;
+import com.justnothing.engine.util.FieldAccessor;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class CustomClassExecutor {
 
-    private static final Map<String, MethodDeclarationNode> methodRegistry = new ConcurrentHashMap<>();
     private static final ThreadLocal<ExecutorContext> currentContext = new ThreadLocal<>();
 
+    /**
+     * 按整数句柄分派的方法表：生成的字节码把句柄作为常量直接传给 {@link #invoke}，
+     * 调用时只读一次数组，不再拼接字符串键查表。
+     * 同一 (类名, 方法声明) 共用一个句柄并计数引用，最后一个使用它的类被卸载后
+     * （见 {@link #trackHandles}）位置置 null，空出的句柄留给之后登记的方法。
+     */
+    private static volatile MethodEntry[] methodTable = new MethodEntry[64];
+    private static int methodCount;
+    private static final Map<MethodDeclarationNode, Integer> handlesByDecl = new IdentityHashMap<>();
+    private static final ArrayDeque<Integer> freeHandles = new ArrayDeque<>();
+    // 不用 java.lang.ref.Cleaner：Android 33 以下没有
+    private static final ReferenceQueue<Class<?>> unloadedClasses = new ReferenceQueue<>();
+    private static final Set<ClassHandles> trackedClasses = new HashSet<>();
+
+    private static final class MethodEntry {
+        final String className;
+        final MethodDeclarationNode method;
+        int refCount;
+
+        MethodEntry(String className, MethodDeclarationNode method) {
+            this.className = className;
+            this.method = method;
+        }
+    }
+
+    /** 每个类（含父类）的实例字段读写器，方法体按名字直接访问。 */
+    private static final ClassValue<Map<String, FieldAccessor>> instanceFields = new ClassValue<>() {
+        @Override
+        protected Map<String, FieldAccessor> computeValue(Class<?> type) {
+            Map<String, FieldAccessor> accessors = new LinkedHashMap<>();
+            for (Map.Entry<String, Field> entry : collectFields(type).entrySet()) {
+                accessors.put(entry.getKey(), FieldAccessor.of(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(accessors);
+        }
+    };
+
     public static void setContext(EvalContext evalCtx, ParseContext parseCtx) {
         currentContext.set(new ExecutorContext(evalCtx, parseCtx));
     }
@@ -23,40 +63,132 @@ public class CustomClassExecutor {
         currentContext.remove();
     }
 
+    /**
+     * 在给定上下文中执行 action，结束后恢复当前线程原来的上下文（async 任务在工作线程上使用）。
+     */
+    public static <T> T callWithContext(EvalContext evalCtx, ParseContext parseCtx, Supplier<T> action) {
+        ExecutorContext previous = currentContext.get();
+        currentContext.set(new ExecutorContext(evalCtx, parseCtx));
+        try {
+            return action.get();
+        } finally {
+            if (previous != null) {
+                currentContext.set(previous);
+            } else {
+                currentContext.remove();
+            }
+        }
+    }
+
+    /**
+     * 把当前线程的上下文绑定到 fn：返回的函数在任意线程上都以该上下文执行（并行序列的工作线程上使用）。
+     * 当前线程没有上下文时原样返回 fn。
+     */
+    public static <T, R> Function<T, R> bindContext(Function<T, R> fn) {
+        ExecutorContext ctx = currentContext.get();
+        if (ctx == null) return fn;
+        return t -> callWithContext(ctx.evalContext(), ctx.parseContext(), () -> fn.apply(t));
+    }
+
     private static ExecutorContext requireContext() {
         ExecutorContext ctx = currentContext.get();
         if (ctx == null) throw new IllegalStateException("CustomClassExecutor not initialized");
         return ctx;
     }
 
-    public static void registerMethod(String className, String methodName, String descriptor,
-                                       MethodDeclarationNode decl) {
-        methodRegistry.put(key(className, methodName, descriptor), decl);
+    /**
+     * 登记方法体并取得分派句柄（供生成的字节码调用 {@link #invoke}）。
+     * 同一类名下的同一方法声明再次生成（例如另一个生成器加载同一份脚本）时复用已有句柄。
+     */
+    public static synchronized int registerHandle(String className, MethodDeclarationNode decl) {
+        releaseUnloaded();
+        Integer existing = handlesByDecl.get(decl);
+        if (existing != null) {
+            MethodEntry entry = methodTable[existing];
+            if (entry.className.equals(className)) {
+                entry.refCount++;
+                return existing;
+            }
+        }
+        MethodEntry[] table = methodTable;
+        int handle;
+        if (!freeHandles.isEmpty()) {
+            handle = freeHandles.pop();
+        } else {
+            if (methodCount == table.length) {
+                table = Arrays.copyOf(table, table.length * 2);
+            }
+            handle = methodCount++;
+        }
+        MethodEntry entry = new MethodEntry(className, decl);
+        entry.refCount = 1;
+        table[handle] = entry;
+        methodTable = table;
+        if (existing == null) {
+            handlesByDecl.put(decl, handle);
+        }
+        return handle;
     }
 
-    public static void unregisterClass(String className) {
-        methodRegistry.entrySet().removeIf(e -> e.getKey().startsWith(className + "#"));
+    /**
+     * 记录生成类用到的句柄：该类被卸载（所属加载器不可达）后，下次登记句柄时归还它们。
+     */
+    public static synchronized void trackHandles(Class<?> owner, int[] handles) {
+        trackedClasses.add(new ClassHandles(owner, handles, unloadedClasses));
     }
 
-    private static String key(String className, String methodName, String descriptor) {
-        return className + "#" + methodName + "#" + descriptor;
+    private static void releaseUnloaded() {
+        Reference<? extends Class<?>> ref;
+        while ((ref = unloadedClasses.poll()) != null) {
+            ClassHandles unloaded = (ClassHandles) ref;
+            trackedClasses.remove(unloaded);
+            releaseHandles(unloaded.handles);
+        }
     }
 
     /**
-     * 由生成的字节码调用。参数和返回类型固定为 Object 以兼容所有签名。
+     * 归还句柄（类被卸载或定义失败时），引用计数归零后才真正移除方法体。
      */
-    public static Object execute(String className, String methodName, String descriptor,
-                                  Object instance, Object[] args) {
-        String k = key(className, methodName, descriptor);
-        MethodDeclarationNode method = methodRegistry.get(k);
-        if (method == null) {
-            // 用参数数量 fallback 查找（部分调用场景没有精确描述符）
-            method = findMethodByParamCount(className, methodName, args != null ? args.length : 0);
+    public static synchronized void releaseHandles(int[] handles) {
+        MethodEntry[] table = methodTable;
+        for (int handle : handles) {
+            MethodEntry entry = handle >= 0 && handle < methodCount ? table[handle] : null;
+            if (entry == null || --entry.refCount > 0) continue;
+            table[handle] = null;
+            handlesByDecl.remove(entry.method, handle);
+            freeHandles.push(handle);
         }
-        if (method == null) {
-            throw new RuntimeException("Method not found: " + className + "#" + methodName);
+        methodTable = table;
+    }
+
+    /** 当前登记着方法体的句柄数（先归还已卸载类的句柄）。 */
+    public static synchronized int liveHandleCount() {
+        releaseUnloaded();
+        return methodCount - freeHandles.size();
+    }
+
+    private static final class ClassHandles extends WeakReference<Class<?>> {
+        final int[] handles;
+
+        ClassHandles(Class<?> owner, int[] handles, ReferenceQueue<Class<?>> queue) {
+            super(owner, queue);
+            this.handles = handles;
         }
+    }
 
+    /**
+     * 由生成的字节码调用（句柄见 {@link #registerHandle}）。参数和返回类型固定为 Object 以兼容所有签名。
+     */
+    public static Object invoke(int handle, Object instance, Object[] args) {
+        MethodEntry[] table = methodTable;
+        MethodEntry entry = handle >= 0 && handle < table.length ? table[handle] : null;
+        if (entry == null) {
+            throw new RuntimeException("Method handle not registered: " + handle);
+        }
+        return run(entry.method, instance, args);
+    }
+
+    private static Object run(MethodDeclarationNode method, Object instance, Object[] args) {
         ExecutorContext ctx = requireContext();
         ASTNode body = method.getBody();
         if (body == null) {
@@ -66,9 +198,10 @@ public class CustomClassExecutor {
         // 创建方法级 EvalContext
         EvalContext methodCtx = ctx.evalContext.createChild();
 
-        // this
+        // this 与实例字段：字段名直接读写接收者的 JVM 字段，无需拷入和写回
         if (instance != null) {
             methodCtx.setVariable("this", Value.of(instance));
+            methodCtx.bindInstanceFields(instance, instanceFields.get(instance.getClass()));
         }
 
         // 参数
@@ -79,68 +212,23 @@ public class CustomClassExecutor {
             }
         }
 
-        // 读取实例字段 → 设置变量
-        Map<String, Field> fields = collectFields(instance != null ? instance.getClass() : null);
-        for (Field f : fields.values()) {
-            try {
-                methodCtx.setVariable(f.getName(), Value.of(f.get(instance)));
-            } catch (Exception ignored) {
-            }
-        }
-
         // 执行方法体
         Evaluator methodEval = new Evaluator(methodCtx, ctx.parseContext);
-        Value result;
-        try {
-            result = methodEval.evaluate(body);
-        } catch (ReturnException e) {
-            // 字段写回
-            for (Field f : fields.values()) {
-                try {
-                    if (methodCtx.hasVariable(f.getName())) {
-                        Value v = methodCtx.getVariable(f.getName());
-                        f.set(instance, v.asJavaObject());
-                    }
-                } catch (Exception ignored) {
-                }
-            }
-            return ((Value) e.getValue()).asJavaObject();
-        }
-
-        // 字段写回
-        for (Field f : fields.values()) {
-            try {
-                if (methodCtx.hasVariable(f.getName())) {
-                    Value v = methodCtx.getVariable(f.getName());
-                    f.set(instance, v.asJavaObject());
-                }
-            } catch (Exception ignored) {
-            }
-        }
+        Value result = methodEval.evaluate(body);
+        Value returned = methodEval.takeReturn();
+        if (returned != null) result = returned;
 
         return result != null ? result.asJavaObject() : null;
     }
 
-    private static MethodDeclarationNode findMethodByParamCount(String className, String methodName, int paramCount) {
-        String prefix = className + "#" + methodName + "#";
-        for (Map.Entry<String, MethodDeclarationNode> e : methodRegistry.entrySet()) {
-            if (e.getKey().startsWith(prefix)) {
-                List<ParameterNode> params = e.getValue().getParameters();
-                int count = params != null ? params.size() : 0;
-                if (count == paramCount) return e.getValue();
-            }
-        }
-        return null;
-    }
-
     private static Map<String, Field> collectFields(Class<?> clazz) {
         Map<String, Field> result = new LinkedHashMap<>();
         if (clazz == null) return result;
         Class<?> c = clazz;
         while (c != null && c != Object.class) {
             for (Field f : c.getDeclaredFields()) {
-                if (!Modifier.isStatic(f.getModifiers())) {
-                    f.setAccessible(true);
+                // 无法开放访问的字段（如 JDK 父类的私有字段）不绑定
+                if (!Modifier.isStatic(f.getModifiers()) && f.trySetAccessible()) {
                     result.putIfAbsent(f.getName(), f);
                 }
             }
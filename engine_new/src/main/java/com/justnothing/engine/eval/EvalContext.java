@@ -1,17 +1,31 @@
 package com.justnothing.engine.eval;
 
 import com.justnothing.engine.api.IOutputHandler;
+import com.justnothing.engine.ast.FrameLayout;
+import com.justnothing.engine.ast.SlotRef;
 import com.justnothing.engine.builtins.BuiltinRegistry;
 import com.justnothing.engine.builtins.Builtins;
 import com.justnothing.engine.exception.ErrorCode;
 import com.justnothing.engine.security.SecurityGate;
+import com.justnothing.engine.util.FieldAccessor;
+import com.justnothing.engine.util.MethodResolver;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class EvalContext implements AutoCloseable {
-    private final Map<String, Value> variables = new HashMap<>();
+    /**
+     * 按名字存储的变量，首次写入时才分配（大部分块级上下文只用槽位）。
+     * 根上下文的表在构造时分配为 ConcurrentHashMap：多个执行帧可能在不同线程上同时读写全局变量。
+     */
+    private Map<String, Value> variables;
+    /** 帧布局（由 SlotResolver 生成），null 表示该上下文只按名字存储。 */
+    private final FrameLayout layout;
+    /** 槽位存储，与 layout 一一对应；元素为 null 表示该变量尚未声明。 */
+    private final Value[] slots;
     private final EvalContext parent;
     private final IOutputHandler output;
     /** 共享的 BuiltinRegistry，与 ParseContext 使用同一实例。 */
@@ -21,6 +35,16 @@ public class EvalContext implements AutoCloseable {
     /** 安全门卫，null 表示无安全限制（默认）。 */
     private SecurityGate securityGate;
 
+    /** 实例方法体所在上下文绑定的接收者字段（由 CustomClassExecutor 设置），按名字直接读写 JVM 字段。 */
+    private Object fieldReceiver;
+    private Map<String, FieldAccessor> fieldAccessors;
+
+    /** 执行帧私有的 builtin（覆盖共享注册表中的同名函数），子上下文继承。 */
+    private Map<String, Builtins.BuiltinFunction> frameBuiltins;
+
+    /** 执行剖析器，null 表示不剖析（默认）；子上下文继承。 */
+    private ScriptProfiler profiler;
+
     /** 自包含模式（测试/REPL）：创建私有 Registry，不与其他组件共享。 */
     public EvalContext() {
         this((EvalContext) null, null);
@@ -37,47 +61,153 @@ public class EvalContext implements AutoCloseable {
 
     /** 内部构造：基于父级或自包含。 */
     private EvalContext(EvalContext parent, IOutputHandler output) {
+        this(parent, output, null);
+    }
+
+    /**
+     * 内部构造：基于父级或自包含。
+     * <p>子上下文直接复用父级的 Builtins（注册表本就共享，重复 registerAll 只会白白覆盖一遍）。</p>
+     */
+    private EvalContext(EvalContext parent, IOutputHandler output, FrameLayout layout) {
         this.parent = parent;
         this.output = output;
-        this.builtinRegistry = (parent != null) ? parent.builtinRegistry : new BuiltinRegistry();
-        this.builtins = new Builtins(builtinRegistry, output);
+        this.layout = layout;
+        this.slots = (layout != null && layout.size() > 0) ? new Value[layout.size()] : null;
+        if (parent != null) {
+            this.builtinRegistry = parent.builtinRegistry;
+            this.builtins = (output == parent.output) ? parent.builtins : new Builtins(builtinRegistry, output);
+            this.frameBuiltins = parent.frameBuiltins;
+            this.profiler = parent.profiler;
+        } else {
+            this.builtinRegistry = new BuiltinRegistry();
+            this.builtins = new Builtins(builtinRegistry, output);
+            this.variables = new ConcurrentHashMap<>();
+        }
     }
 
     /** 共享 Registry 模式（ScriptRunner 主路径推荐）。 */
     public EvalContext(BuiltinRegistry registry, IOutputHandler output) {
         this.parent = null;
         this.output = output;
+        this.layout = null;
+        this.slots = null;
         this.builtinRegistry = registry;
         this.builtins = new Builtins(registry, output);
+        this.variables = new ConcurrentHashMap<>();
+    }
+
+    /** 快照构造：与 template 共享 Registry / Builtins / 输出，但没有父链。 */
+    private EvalContext(Map<String, Value> variables, EvalContext template) {
+        this.parent = null;
+        this.output = template.output;
+        this.layout = null;
+        this.slots = null;
+        this.builtinRegistry = template.builtinRegistry;
+        this.builtins = template.builtins;
+        this.securityGate = template.securityGate;
+        this.frameBuiltins = template.frameBuiltins;
+        this.profiler = template.profiler;
+        this.variables = variables;
     }
 
     public EvalContext createChild() {
-        EvalContext child = new EvalContext(this, output);
+        return createChild(null);
+    }
+
+    /**
+     * 创建与当前作用域链隔离的快照上下文（供 async 任务在其它线程上执行）。
+     * <p>
+     * 当前可见的全部变量（含槽位变量，内层遮蔽外层）被拷贝进一张新的名字表，
+     * 快照不再引用父链，任务线程只读写自己的表，不会与发起线程并发访问同一个 HashMap。
+     * 任务内对外层变量的赋值因此不会写回发起方。
+     * </p>
+     */
+    public EvalContext snapshot() {
+        Map<String, Value> visible = new HashMap<>();
+        for (EvalContext ctx = this; ctx != null; ctx = ctx.parent) {
+            ctx.collectVariables(visible);
+        }
+        return new EvalContext(visible, this);
+    }
+
+    /**
+     * 创建带帧布局的子上下文。
+     *
+     * @param layout SlotResolver 生成的帧布局，null 表示只按名字存储
+     */
+    public EvalContext createChild(FrameLayout layout) {
+        EvalContext child = new EvalContext(this, output, layout);
         child.securityGate = this.securityGate;
         return child;
     }
 
+    /**
+     * 创建一次脚本执行专用的帧（子上下文）。
+     * <p>
+     * 帧内声明的变量只属于本次执行；builtins 只在本帧及其子上下文中可见，覆盖共享注册表中的同名函数，
+     * 不修改任何共享状态，因此同一父上下文可以同时在多个线程上各自创建帧并执行。
+     * </p>
+     *
+     * @param builtins 本帧私有的 builtin，可为 null
+     */
+    public EvalContext createFrame(Map<String, Builtins.BuiltinFunction> builtins) {
+        EvalContext frame = createChild(null);
+        if (builtins != null && !builtins.isEmpty()) {
+            if (frame.frameBuiltins != null) {
+                Map<String, Builtins.BuiltinFunction> merged = new HashMap<>(frame.frameBuiltins);
+                merged.putAll(builtins);
+                frame.frameBuiltins = merged;
+            } else {
+                frame.frameBuiltins = builtins;
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * 把 receiver 的实例字段绑定为本上下文中的变量：读写直接作用于字段，不再拷入拷出。
+     * 本上下文按名字或槽位声明的同名变量（参数、局部变量）优先。
+     */
+    public void bindInstanceFields(Object receiver, Map<String, FieldAccessor> accessors) {
+        this.fieldReceiver = receiver;
+        this.fieldAccessors = accessors.isEmpty() ? null : accessors;
+    }
+
     public void setVariable(String name, Value value) {
-        variables.put(name, value);
+        if (value == null) value = Value.NullValue.INSTANCE;
+        int index = slotIndex(name);
+        if (index >= 0) {
+            slots[index] = value;
+        } else {
+            variables().put(name, value);
+        }
     }
 
     /** 从当前作用域向上查找变量的定义位置并赋值。如果不存在则创建。 */
     public void assignVariable(String name, Value value) {
-        if (variables.containsKey(name)) {
-            variables.put(name, value);
-        } else if (parent != null && parent.hasVariable(name)) {
-            parent.assignVariable(name, value);
-        } else {
-            variables.put(name, value);
+        EvalContext ctx = this;
+        while (ctx != null) {
+            if (ctx.storeLocal(name, value)) return;
+            ctx = ctx.parent;
         }
+        setVariable(name, value);
     }
 
     public Value getVariable(String name) {
-        if (variables.containsKey(name)) {
-            return variables.get(name);
-        }
-        if (parent != null) {
-            return parent.getVariable(name);
+        EvalContext ctx = this;
+        while (ctx != null) {
+            int index = ctx.slotIndex(name);
+            if (index >= 0 && ctx.slots[index] != null) {
+                return ctx.slots[index];
+            }
+            if (ctx.variables != null && ctx.variables.containsKey(name)) {
+                return ctx.variables.get(name);
+            }
+            if (ctx.fieldAccessors != null) {
+                FieldAccessor field = ctx.fieldAccessors.get(name);
+                if (field != null) return ctx.readField(field);
+            }
+            ctx = ctx.parent;
         }
         throw new EvalException("Variable not defined: " + name, ErrorCode.SCOPE_VARIABLE_NOT_FOUND);
     }
@@ -86,12 +216,191 @@ public class EvalContext implements AutoCloseable {
         return parent;
     }
 
+    /**
+     * 按名字存储的变量表（可修改）。
+     * <p>不包含槽位变量；需要完整视图时使用 {@link #collectVariables(Map)}。</p>
+     */
     public Map<String, Value> getVariables() {
-        return variables;
+        return variables();
     }
 
     public boolean hasVariable(String name) {
-        return variables.containsKey(name) || (parent != null && parent.hasVariable(name));
+        EvalContext ctx = this;
+        while (ctx != null) {
+            if (ctx.hasLocal(name)) return true;
+            ctx = ctx.parent;
+        }
+        return false;
+    }
+
+    // ==================== 槽位访问 ====================
+
+    /**
+     * 按解析期地址读取变量。
+     *
+     * @return 变量值；帧身份不匹配或变量尚未声明时返回 null，调用方应退回按名字查找
+     */
+    public Value loadSlot(SlotRef ref) {
+        EvalContext target = frameAt(ref);
+        return target != null ? target.slots[ref.index()] : null;
+    }
+
+    /**
+     * 按解析期地址给已声明的变量赋值。
+     *
+     * @return 是否成功；false 时调用方应退回按名字赋值
+     */
+    public boolean storeSlot(SlotRef ref, Value value) {
+        EvalContext target = frameAt(ref);
+        if (target == null || target.slots[ref.index()] == null) return false;
+        target.slots[ref.index()] = value;
+        return true;
+    }
+
+    /**
+     * 在当前帧按解析期地址声明变量。
+     *
+     * @return 是否成功；false 时调用方应退回 {@link #setVariable}
+     */
+    public boolean defineSlot(SlotRef ref, Value value) {
+        if (ref.depth() != 0 || layout != ref.frame() || slots == null) return false;
+        slots[ref.index()] = value;
+        return true;
+    }
+
+    /** 直接写入当前帧的槽位（参数、for-each 迭代变量等由 SlotResolver 固定分配的位置）。 */
+    public void setSlot(int index, Value value) {
+        slots[index] = value;
+    }
+
+    /** 当前上下文的帧布局，null 表示只按名字存储。 */
+    public FrameLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * 删除当前上下文中的变量。
+     *
+     * @return 变量是否存在于当前上下文
+     */
+    public boolean removeVariable(String name) {
+        int index = slotIndex(name);
+        if (index >= 0 && slots[index] != null) {
+            slots[index] = null;
+            return true;
+        }
+        return variables != null && variables.remove(name) != null;
+    }
+
+    /** 清空当前上下文中的全部变量（槽位与名字表）。 */
+    public void clearVariables() {
+        if (slots != null) Arrays.fill(slots, null);
+        if (variables != null) variables.clear();
+    }
+
+    /**
+     * 将当前上下文中的全部变量（含槽位变量）放入 target，已存在的键不覆盖。
+     * <p>沿父链依次调用即可得到“内层遮蔽外层”的完整可见变量表。</p>
+     */
+    public void collectVariables(Map<String, Value> target) {
+        if (slots != null) {
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] != null) target.putIfAbsent(layout.nameAt(i), slots[i]);
+            }
+        }
+        if (variables != null) {
+            for (Map.Entry<String, Value> entry : variables.entrySet()) {
+                target.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        if (fieldAccessors != null) {
+            for (Map.Entry<String, FieldAccessor> entry : fieldAccessors.entrySet()) {
+                if (!target.containsKey(entry.getKey())) target.put(entry.getKey(), readField(entry.getValue()));
+            }
+        }
+    }
+
+    /**
+     * 块结束后将当前上下文中与 target 可见变量同名的值写回 target。
+     * <p>支持 CustomClassExecutor 方法体内字段写回。</p>
+     */
+    public void writeBackTo(EvalContext target) {
+        if (slots != null) {
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i] != null && target.hasVariable(layout.nameAt(i))) {
+                    target.assignVariable(layout.nameAt(i), slots[i]);
+                }
+            }
+        }
+        if (variables != null) {
+            for (Map.Entry<String, Value> entry : variables.entrySet()) {
+                if (target.hasVariable(entry.getKey())) {
+                    target.assignVariable(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private EvalContext frameAt(SlotRef ref) {
+        EvalContext ctx = this;
+        for (int i = ref.depth(); i > 0 && ctx != null; i--) {
+            ctx = ctx.parent;
+        }
+        return (ctx != null && ctx.layout == ref.frame() && ctx.slots != null) ? ctx : null;
+    }
+
+    private int slotIndex(String name) {
+        return layout != null ? layout.indexOf(name) : -1;
+    }
+
+    private boolean hasLocal(String name) {
+        int index = slotIndex(name);
+        if (index >= 0 && slots[index] != null) return true;
+        if (variables != null && variables.containsKey(name)) return true;
+        return fieldAccessors != null && fieldAccessors.containsKey(name);
+    }
+
+    private boolean storeLocal(String name, Value value) {
+        int index = slotIndex(name);
+        if (index >= 0 && slots[index] != null) {
+            slots[index] = value;
+            return true;
+        }
+        if (variables != null && variables.containsKey(name)) {
+            variables.put(name, value != null ? value : Value.NullValue.INSTANCE);
+            return true;
+        }
+        if (fieldAccessors != null) {
+            FieldAccessor field = fieldAccessors.get(name);
+            if (field != null) {
+                writeField(field, value);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Value readField(FieldAccessor field) {
+        try {
+            return Value.of(field.get(fieldReceiver));
+        } catch (Exception e) {
+            throw new EvalException("Field access failed: " + field.getField().getName() + " (" + e.getMessage() + ")",
+                    e, ErrorCode.EVAL_FIELD_ACCESS_FAILED);
+        }
+    }
+
+    private void writeField(FieldAccessor field, Value value) {
+        try {
+            field.set(fieldReceiver, MethodResolver.coerceArg(field.getField().getType(), value.asJavaObject()));
+        } catch (Exception e) {
+            throw new EvalException("Field assignment failed: " + field.getField().getName() + " (" + e.getMessage() + ")",
+                    e, ErrorCode.EVAL_FIELD_ACCESS_FAILED);
+        }
+    }
+
+    private Map<String, Value> variables() {
+        if (variables == null) variables = new HashMap<>();
+        return variables;
     }
 
     public void print(String text) {
@@ -111,7 +420,7 @@ public class EvalContext implements AutoCloseable {
     }
 
     public void close() {
-        variables.clear();
+        clearVariables();
     }
 
     // ==================== Builtins ====================
@@ -126,15 +435,20 @@ public class EvalContext implements AutoCloseable {
     }
 
     public boolean hasBuiltin(String name) {
+        if (frameBuiltins != null && frameBuiltins.containsKey(name)) return true;
         return builtins != null && builtins.hasFunction(name);
     }
 
     public Builtins.BuiltinFunction getBuiltin(String name) {
+        if (frameBuiltins != null) {
+            Builtins.BuiltinFunction func = frameBuiltins.get(name);
+            if (func != null) return func;
+        }
         return builtins != null ? builtins.getFunction(name) : null;
     }
 
     public Value callBuiltin(String name, List<Value> args) {
-        Builtins.BuiltinFunction func = builtins != null ? builtins.getFunction(name) : null;
+        Builtins.BuiltinFunction func = getBuiltin(name);
         if (func == null) {
             throw new EvalException("Unknown builtin function: " + name, ErrorCode.EVAL_UNDEFINED_VARIABLE);
         }
@@ -161,4 +475,18 @@ public class EvalContext implements AutoCloseable {
     public void setSecurityGate(SecurityGate securityGate) {
         this.securityGate = securityGate;
     }
+
+    // ==================== Profiler ====================
+
+    public ScriptProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * 设置执行剖析器。设为 null 关闭剖析（默认）。
+     * <p>只影响此后创建的子上下文与 Evaluator。</p>
+     */
+    public void setProfiler(ScriptProfiler profiler) {
+        this.profiler = profiler;
+    }
 }
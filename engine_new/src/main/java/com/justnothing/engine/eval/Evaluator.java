@@ -1,23 +1,34 @@
 package com.justnothing.engine.eval;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.FrameLayout;
 import com.justnothing.engine.ast.GenericType;
+import com.justnothing.engine.ast.InlineCache;
 import com.justnothing.engine.ast.OperatorCallback;
+import com.justnothing.engine.ast.SlotRef;
+import com.justnothing.engine.ast.SourceLocation;
+import com.justnothing.engine.ast.SwitchTable;
 import com.justnothing.engine.ast.nodes.*;
 import com.justnothing.engine.ast.visitor.ASTVisitor;
 import com.justnothing.engine.builtins.Lambda;
+import com.justnothing.engine.builtins.LazySequence;
 import com.justnothing.engine.builtins.MethodReference;
+import com.justnothing.engine.codegen.CompileTier;
+import com.justnothing.engine.codegen.CompiledFunction;
 import com.justnothing.engine.codegen.DynamicClassGenerator;
+import com.justnothing.engine.codegen.FunctionCompiler;
+import com.justnothing.engine.codegen.FunctionalAdapters;
 import com.justnothing.engine.exception.BreakException;
 import com.justnothing.engine.exception.ContinueException;
 import com.justnothing.engine.exception.ErrorCode;
 import com.justnothing.engine.exception.LabeledBreakException;
-import com.justnothing.engine.exception.ReturnException;
 import com.justnothing.engine.util.MethodResolver;
 import com.justnothing.engine.parser.OperatorRegistry;
 import com.justnothing.engine.parser.ParseContext;
 import com.justnothing.engine.security.SecurityGate;
 import com.justnothing.engine.util.CastUtils;
+import com.justnothing.engine.util.FieldAccessor;
+import com.justnothing.engine.util.MethodInvoker;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
@@ -29,9 +40,17 @@ import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -39,7 +58,12 @@ public class Evaluator implements ASTVisitor<Value> {
 
     private final EvalContext evalContext;
     private final ParseContext parseContext;
-    private static int anonSeq = 0;
+    /** break / continue / return 完成信号，同一函数体内的子 Evaluator 共享。 */
+    private final Completion completion;
+    /** 执行剖析器（取自 evalContext），null 时 evaluate 直接分派。 */
+    private final ScriptProfiler profiler;
+    /** 匿名类序号；多个线程可能同时求值匿名类表达式。 */
+    private static final AtomicInteger anonSeq = new AtomicInteger();
 
 
     public EvalContext getEvalContext() {
@@ -47,27 +71,72 @@ public class Evaluator implements ASTVisitor<Value> {
     }
 
     public Evaluator(EvalContext evalContext, ParseContext parseContext) {
+        this(evalContext, parseContext, new Completion());
+    }
+
+    private Evaluator(EvalContext evalContext, ParseContext parseContext, Completion completion) {
         this.evalContext = evalContext;
         this.parseContext = parseContext;
+        this.completion = completion;
+        this.profiler = evalContext != null ? evalContext.getProfiler() : null;
     }
 
     public Value evaluate(ASTNode node) {
-        return node.accept(this);
+        if (profiler == null) return node.accept(this);
+        ScriptProfiler.Recorder recorder = profiler.enter(node);
+        try {
+            return node.accept(this);
+        } finally {
+            recorder.exit();
+        }
     }
 
     public List<Value> evaluateAll(List<ASTNode> nodes) {
         List<Value> results = new ArrayList<>();
         for (ASTNode node : nodes) {
-            try {
-                results.add(evaluate(node));
-            } catch (ReturnException e) {
-                results.add((Value) e.getValue());
+            Value value = evaluate(node);
+            Value returned = takeReturn();
+            if (returned != null) {
+                results.add(returned);
                 break;
             }
+            results.add(value);
         }
         return results;
     }
 
+    /**
+     * 在函数体、lambda、顶层语句序列等边界消费完成信号。
+     *
+     * @return return 语句的值；正常完成时返回 null
+     * @throws RuntimeException 越过边界的 break / continue（没有外层循环可以消费）
+     */
+    Value takeReturn() {
+        if (!completion.isAbrupt()) return null;
+        if (completion.kind() != Completion.Kind.RETURN) {
+            RuntimeException e = completion.toException();
+            completion.clear();
+            throw e;
+        }
+        Value value = completion.value();
+        completion.clear();
+        return value;
+    }
+
+    /**
+     * 循环体执行后处理完成信号：消费 continue 与不带标签的 break。
+     *
+     * @return 是否应退出循环（break、return、带标签的 break）
+     */
+    private boolean exitLoop() {
+        if (completion.isContinue()) {
+            completion.clear();
+            return false;
+        }
+        if (completion.isUnlabeledBreak()) completion.clear();
+        return true;
+    }
+
     public Value visit(ASTNode node) {
         if (node instanceof LiteralNode n) return visitLiteral(n);
         if (node instanceof VariableNode n) return visitVariable(n);
@@ -121,20 +190,17 @@ public class Evaluator implements ASTVisitor<Value> {
     }
 
     private Value visitLiteral(LiteralNode node) {
-        Object value = node.getValue();
-        Class<?> type = node.getType();
-        if (value == null) return Value.NullValue.INSTANCE;
-        if (type == void.class) return Value.VoidValue.INSTANCE;
-        if (value instanceof String s) return new Value.StringValue(s);
-        if (value instanceof Integer i) return new Value.IntValue(i);
-        if (value instanceof Long l) return new Value.LongValue(l);
-        if (value instanceof Double d) return new Value.DoubleValue(d);
-        if (value instanceof Boolean b) return new Value.BooleanValue(b);
-        if (value instanceof Character c) return new Value.CharValue(c);
-        return Value.of(value);
+        Value constant = node.getConstant();
+        if (constant != null) return constant;
+        return Value.of(node.getValue());
     }
 
     private Value visitVariable(VariableNode node) {
+        SlotRef slot = node.getSlot();
+        if (slot != null) {
+            Value local = evalContext.loadSlot(slot);
+            if (local != null) return local;
+        }
         String name = node.getName();
         if (evalContext.hasVariable(name)) {
             return evalContext.getVariable(name);
@@ -219,36 +285,36 @@ public class Evaluator implements ASTVisitor<Value> {
             }
             case PRE_INCREMENT -> {
                 if (node.getOperand() instanceof VariableNode v) {
-                    Value val = evalContext.getVariable(v.getName());
+                    Value val = readVariable(v);
                     Value inc = increment(val);
-                    evalContext.assignVariable(v.getName(), inc);
+                    writeVariable(v, inc);
                     yield inc;
                 }
                 throw new EvalException("Cannot increment non-variable", ErrorCode.EVAL_INVALID_OPERATION);
             }
             case POST_INCREMENT -> {
                 if (node.getOperand() instanceof VariableNode v) {
-                    Value val = evalContext.getVariable(v.getName());
+                    Value val = readVariable(v);
                     Value inc = increment(val);
-                    evalContext.assignVariable(v.getName(), inc);
+                    writeVariable(v, inc);
                     yield val;
                 }
                 throw new EvalException("Cannot increment non-variable", ErrorCode.EVAL_INVALID_OPERATION);
             }
             case PRE_DECREMENT -> {
                 if (node.getOperand() instanceof VariableNode v) {
-                    Value val = evalContext.getVariable(v.getName());
+                    Value val = readVariable(v);
                     Value dec = decrement(val);
-                    evalContext.assignVariable(v.getName(), dec);
+                    writeVariable(v, dec);
                     yield dec;
                 }
                 throw new EvalException("Cannot decrement non-variable", ErrorCode.EVAL_INVALID_OPERATION);
             }
             case POST_DECREMENT -> {
                 if (node.getOperand() instanceof VariableNode v) {
-                    Value val = evalContext.getVariable(v.getName());
+                    Value val = readVariable(v);
                     Value dec = decrement(val);
-                    evalContext.assignVariable(v.getName(), dec);
+                    writeVariable(v, dec);
                     yield val;
                 }
                 throw new EvalException("Cannot decrement non-variable", ErrorCode.EVAL_INVALID_OPERATION);
@@ -256,25 +322,48 @@ public class Evaluator implements ASTVisitor<Value> {
         };
     }
 
+    /** 读取自增/自减的操作数变量（优先走槽位）。 */
+    private Value readVariable(VariableNode v) {
+        SlotRef slot = v.getSlot();
+        if (slot != null) {
+            Value local = evalContext.loadSlot(slot);
+            if (local != null) return local;
+        }
+        return evalContext.getVariable(v.getName());
+    }
+
+    /** 写回自增/自减的结果（优先走槽位）。 */
+    private void writeVariable(VariableNode v, Value value) {
+        SlotRef slot = v.getSlot();
+        if (slot != null && evalContext.storeSlot(slot, value)) return;
+        evalContext.assignVariable(v.getName(), value);
+    }
+
     private Value increment(Value v) {
-        if (v instanceof Value.IntValue i) return new Value.IntValue(i.getValue() + 1);
-        if (v instanceof Value.LongValue l) return new Value.LongValue(l.getValue() + 1);
+        if (v instanceof Value.IntValue i) return Value.ofInt(i.getValue() + 1);
+        if (v instanceof Value.LongValue l) return Value.ofLong(l.getValue() + 1);
         if (v instanceof Value.DoubleValue d) return new Value.DoubleValue(d.getValue() + 1.0);
         throw new EvalException("Cannot increment type: " + v.getClass().getSimpleName(), ErrorCode.EVAL_INVALID_OPERATION);
     }
 
     private Value decrement(Value v) {
-        if (v instanceof Value.IntValue i) return new Value.IntValue(i.getValue() - 1);
-        if (v instanceof Value.LongValue l) return new Value.LongValue(l.getValue() - 1);
+        if (v instanceof Value.IntValue i) return Value.ofInt(i.getValue() - 1);
+        if (v instanceof Value.LongValue l) return Value.ofLong(l.getValue() - 1);
         if (v instanceof Value.DoubleValue d) return new Value.DoubleValue(d.getValue() - 1.0);
         throw new EvalException("Cannot decrement type: " + v.getClass().getSimpleName(), ErrorCode.EVAL_INVALID_OPERATION);
     }
 
     private Value visitAssignment(AssignmentNode node) {
         Value value = evaluate(node.getValue());
+        SlotRef slot = node.getSlot();
         if (node.isDeclaration()) {
-            evalContext.setVariable(node.getVariableName(), value);
+            if (slot == null || !evalContext.defineSlot(slot, value)) {
+                evalContext.setVariable(node.getVariableName(), value);
+            }
         } else {
+            if (slot != null && !node.isFinal() && evalContext.storeSlot(slot, value)) {
+                return value;
+            }
             if (!evalContext.hasVariable(node.getVariableName())) {
                 throw new EvalException("Variable not declared: " + node.getVariableName(), ErrorCode.SCOPE_VARIABLE_NOT_FOUND);
             }
@@ -294,16 +383,19 @@ public class Evaluator implements ASTVisitor<Value> {
             Class<?> type = node.getDeclaredType() != null ? node.getDeclaredType().getRawType() : null;
             value = defaultForType(type);
         }
-        evalContext.setVariable(node.getVarName(), value);
+        SlotRef slot = node.getSlot();
+        if (slot == null || !evalContext.defineSlot(slot, value)) {
+            evalContext.setVariable(node.getVarName(), value);
+        }
         return value;
     }
 
     private Value defaultForType(Class<?> type) {
-        if (type == int.class || type == byte.class || type == short.class) return new Value.IntValue(0);
-        if (type == long.class) return new Value.LongValue(0L);
+        if (type == int.class || type == byte.class || type == short.class) return Value.ofInt(0);
+        if (type == long.class) return Value.ofLong(0L);
         if (type == double.class || type == float.class) return new Value.DoubleValue(0.0);
-        if (type == boolean.class) return new Value.BooleanValue(false);
-        if (type == char.class) return new Value.CharValue('\0');
+        if (type == boolean.class) return Value.ofBoolean(false);
+        if (type == char.class) return Value.ofChar('\0');
         return Value.NullValue.INSTANCE;
     }
 
@@ -322,6 +414,11 @@ public class Evaluator implements ASTVisitor<Value> {
             if (argObj instanceof Consumer) {
                 @SuppressWarnings("unchecked")
                 Consumer<Object> consumer = (Consumer<Object>) argObj;
+                // 惰性序列逐个产出元素，不先物化
+                if (target instanceof LazySequence seq) {
+                    seq.forEach(consumer);
+                    return Value.VoidValue.INSTANCE;
+                }
                 Object[] snapshot;
                 if (target instanceof Collection<?> coll) {
                     snapshot = coll.toArray();
@@ -349,7 +446,7 @@ public class Evaluator implements ASTVisitor<Value> {
                 return func.apply(args.toArray(new Value[0]));
             }
             if (target instanceof MethodReference mr) {
-                return Value.of(mr.invoke(args.stream().map(Value::asJavaObject).toArray()));
+                return Value.of(mr.invoke(toJavaArgs(args)));
             }
         }
 
@@ -375,18 +472,13 @@ public class Evaluator implements ASTVisitor<Value> {
 
         if (node.getBoundMethod() != null) {
             Method method = node.getBoundMethod();
-            // 多态分发：对实例方法，在目标运行时类上查找实际覆写
-            if (target != null && !Modifier.isStatic(method.getModifiers())) {
-                try {
-                    Method override = target.getClass().getMethod(method.getName(), method.getParameterTypes());
-                    if (override.getDeclaringClass() != method.getDeclaringClass()) {
-                        method = override;
-                    }
-                } catch (NoSuchMethodException ignored) { }
-            }
+            // 多态分发：对实例方法，在目标运行时类上查找实际覆写（按接收者类型缓存）
+            Class<?> receiverClass = target != null && !Modifier.isStatic(method.getModifiers())
+                    ? target.getClass() : method.getDeclaringClass();
+            MethodInvoker invoker = findOverride(node.getInlineCache(), receiverClass, method);
             try {
-                checkMethod(method); // ★ 安全检查
-                Object result = method.invoke(target, args.stream().map(Value::asJavaObject).toArray());
+                checkMethod(invoker.getMethod()); // ★ 安全检查
+                Object result = invoker.invoke(target, toJavaArgs(args));
                 return Value.of(result);
             } catch (InvocationTargetException e) {
                 throw new EvalException("Exception in " + methodName + ": " + e.getCause().getMessage(), e.getCause(), ErrorCode.EVAL_EXCEPTION_THROWN);
@@ -406,29 +498,25 @@ public class Evaluator implements ASTVisitor<Value> {
         if (clazz == null) {
             throw new EvalException("Cannot resolve method: " + methodName, ErrorCode.METHOD_NOT_FOUND);
         }
-        // 遍历所有重载，尝试匹配（支持 varargs）
-        Method bestMatch = null;
-        int bestScore = Integer.MAX_VALUE;
-        for (Method m : clazz.getMethods()) {
-            if (!m.getName().equals(methodName)) continue;
-            // 构造参数类型数组用于 isApplicable 判断
-            Class<?>[] argTypes = new Class<?>[args.size()];
-            for (int i = 0; i < args.size(); i++) {
-                Object argObj = args.get(i).asJavaObject();
-                argTypes[i] = argObj != null ? argObj.getClass() : Object.class;
-            }
-            if (!MethodResolver.isApplicable(m, argTypes)) continue;
-            // 计算匹配分数（优先非 varargs 精确匹配）
-            int score = computeMethodMatchScore(m, argTypes);
-            if (score < bestScore) {
-                bestScore = score;
-                bestMatch = m;
+        // 构造参数类型数组用于 isApplicable 判断
+        Class<?>[] argTypes = new Class<?>[args.size()];
+        for (int i = 0; i < args.size(); i++) {
+            Object argObj = args.get(i).asJavaObject();
+            argTypes[i] = argObj != null ? argObj.getClass() : Object.class;
+        }
+        InlineCache<MethodInvoker> cache = node.getInlineCache();
+        MethodInvoker bestMatch = cache.lookup(clazz, argTypes);
+        if (bestMatch == null) {
+            Method resolved = findBestMethod(clazz, methodName, argTypes);
+            if (resolved != null) {
+                bestMatch = MethodInvoker.of(resolved);
+                cache.update(clazz, argTypes, bestMatch);
             }
         }
         if (bestMatch != null) {
             try {
-                checkMethod(bestMatch);
-                Object[] javaArgs = prepareInvokeArgs(bestMatch, args);
+                checkMethod(bestMatch.getMethod());
+                Object[] javaArgs = prepareInvokeArgs(bestMatch.getMethod(), args);
                 Object result = bestMatch.invoke(target, javaArgs);
                 return Value.of(result);
             } catch (InvocationTargetException e) {
@@ -462,6 +550,57 @@ public class Evaluator implements ASTVisitor<Value> {
         }
     }
 
+    /**
+     * 在接收者的运行期类型上查找绑定方法的覆写，结果（调用器）按接收者类型缓存在调用点上。
+     */
+    private static MethodInvoker findOverride(InlineCache<MethodInvoker> cache, Class<?> receiverClass, Method method) {
+        MethodInvoker cached = cache.lookup(receiverClass, InlineCache.NO_ARGS);
+        if (cached != null) return cached;
+        Method resolved = method;
+        if (receiverClass != method.getDeclaringClass()) {
+            try {
+                Method override = receiverClass.getMethod(method.getName(), method.getParameterTypes());
+                if (override.getDeclaringClass() != method.getDeclaringClass()) {
+                    resolved = override;
+                }
+            } catch (NoSuchMethodException ignored) { }
+        }
+        MethodInvoker invoker = MethodInvoker.of(resolved);
+        cache.update(receiverClass, InlineCache.NO_ARGS, invoker);
+        return invoker;
+    }
+
+    /** 把求值结果转换为 Java 实参数组。 */
+    static Object[] toJavaArgs(List<Value> args) {
+        Object[] result = new Object[args.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = args.get(i).asJavaObject();
+        }
+        return result;
+    }
+
+    /**
+     * 运行期方法重载选择：遍历所有 public 重载（支持 varargs），取匹配分数最低者。
+     *
+     * @param argTypes 实参的运行期类型（null 实参为 Object.class）
+     * @return 最佳匹配，没有可用重载时返回 null
+     */
+    public static Method findBestMethod(Class<?> clazz, String methodName, Class<?>[] argTypes) {
+        Method bestMatch = null;
+        int bestScore = Integer.MAX_VALUE;
+        for (Method m : clazz.getMethods()) {
+            if (!m.getName().equals(methodName)) continue;
+            if (!MethodResolver.isApplicable(m, argTypes)) continue;
+            // 计算匹配分数（优先非 varargs 精确匹配）
+            int score = computeMethodMatchScore(m, argTypes);
+            if (score < bestScore) {
+                bestScore = score;
+                bestMatch = m;
+            }
+        }
+        return bestMatch;
+    }
+
     /**
      * 计算方法匹配分数（越低越好）。
      * 非varargs精确匹配优先于varargs匹配。
@@ -557,7 +696,7 @@ public class Evaluator implements ASTVisitor<Value> {
         if (node.getBoundField() != null) {
             try {
                 checkFieldRead(node.getBoundField()); // ★ 安全检查
-                return Value.of(node.getBoundField().get(obj));
+                return Value.of(FieldAccessor.of(node.getBoundField()).get(obj));
             } catch (Exception e) {
                     throw new EvalException("Field access failed: " + node.getFieldName() + " (" + e.getMessage() + ")", e, ErrorCode.EVAL_FIELD_ACCESS_FAILED);
             }
@@ -570,7 +709,7 @@ public class Evaluator implements ASTVisitor<Value> {
             }
             Field f = resolvedClass.getField(node.getFieldName());
             checkFieldRead(f); // ★ 安全检查
-            return Value.of(f.get(obj));
+            return Value.of(FieldAccessor.of(f).get(obj));
         } catch (Exception e) {
             throw new EvalException("Field not found: " + node.getFieldName() + " on " + resolvedClass.getSimpleName(), ErrorCode.EVAL_FIELD_ACCESS_FAILED);
         }
@@ -594,8 +733,7 @@ public class Evaluator implements ASTVisitor<Value> {
                     try {
                         Constructor<?> anonCtor = generated.getDeclaredConstructors()[0];
                         checkConstructor(anonCtor); // ★ 安全检查
-                        Object result = anonCtor.newInstance(
-                                args.stream().map(Value::asJavaObject).toArray());
+                        Object result = MethodInvoker.of(anonCtor).newInstance(toJavaArgs(args));
                         return Value.of(result);
                     } catch (Exception e) {
                         throw new EvalException("Anonymous class construction failed: " + anonName, e, ErrorCode.EVAL_CONSTRUCTOR_INVOCATION_FAILED);
@@ -618,7 +756,7 @@ public class Evaluator implements ASTVisitor<Value> {
                 try {
                     checkConstructor(ctor); // 安全检查
                     Object[] javaArgs = convertArgsForParameters(args, ctor.getParameterTypes(), ctor.isVarArgs());
-                    Object result = ctor.newInstance(javaArgs);
+                    Object result = MethodInvoker.of(ctor).newInstance(javaArgs);
                     return Value.of(result);
                 } catch (InvocationTargetException e) {
                     throw new EvalException("Exception in " + className + " constructor: " + e.getCause().getMessage(), e.getCause(), ErrorCode.EVAL_EXCEPTION_THROWN);
@@ -635,7 +773,7 @@ public class Evaluator implements ASTVisitor<Value> {
 
     private static String anonClassName(ConstructorCallNode node) {
         String base = node.getClassName().replace('.', '_');
-        return "anon$" + base + "$" + (++anonSeq);
+        return "anon$" + base + "$" + anonSeq.incrementAndGet();
     }
 
     /**
@@ -694,23 +832,31 @@ public class Evaluator implements ASTVisitor<Value> {
     private Value visitArrayAccess(ArrayAccessNode node) {
         Value array = evaluate(node.getArray());
         Value index = evaluate(node.getIndex());
-        Object[] arr = array.asArray();
+        Value.AbstractArrayValue arr = asArrayValue(array);
         int i = index.asInt();
-        if (i < 0 || i >= arr.length) throw new EvalException("Array index out of bounds: " + i, ErrorCode.EVAL_INDEX_OUT_OF_BOUNDS);
-        return Value.of(arr[i]);
+        arr.checkIndex(i);
+        return arr.get(i);
     }
 
     private Value visitArrayAssignment(ArrayAssignmentNode node) {
         Value array = evaluate(node.getArray());
         Value index = evaluate(node.getIndex());
         Value value = evaluate(node.getValue());
-        Object[] arr = array.asArray();
+        Value.AbstractArrayValue arr = asArrayValue(array);
         int i = index.asInt();
-        if (i < 0 || i >= arr.length) throw new EvalException("Array index out of bounds: " + i, ErrorCode.EVAL_INDEX_OUT_OF_BOUNDS);
-        arr[i] = value.asJavaObject();
+        arr.checkIndex(i);
+        arr.set(i, value);
         return value;
     }
 
+    /** 数组 Value 原样返回；包装在 ObjectValue 里的 Java 数组就地包装（不拷贝）。 */
+    private static Value.AbstractArrayValue asArrayValue(Value value) {
+        if (value instanceof Value.AbstractArrayValue arr) return arr;
+        Object raw = value.asJavaObject();
+        if (raw != null && raw.getClass().isArray()) return Value.ofArray(raw);
+        throw new EvalException("Not an array: " + value.getClass().getSimpleName(), ErrorCode.EVAL_TYPE_MISMATCH);
+    }
+
     private Value visitArrayLiteral(ArrayLiteralNode node) {
         List<Value> elements = evaluateAll(node.getElements());
         return new Value.ArrayValue(elements.stream().map(Value::asJavaObject).toArray());
@@ -734,13 +880,15 @@ public class Evaluator implements ASTVisitor<Value> {
         if (dimCount <= 1 || nonNullCount == 0) {
             // 单维或无具体维度：用 size
             Value size = evaluate(node.getSize());
-            int len = size.asInt();
-            Object javaArray = Array.newInstance(baseType, len);
-            Object[] boxed = new Object[len];
-            for (int i = 0; i < len; i++) {
-                boxed[i] = Array.get(javaArray, i);
+            if (size instanceof Value.AbstractArrayValue initializer) {
+                // new T[]{...}：按元素类型建数组后逐个写入
+                Value.AbstractArrayValue array = Value.ofArray(Array.newInstance(baseType, initializer.length()));
+                for (int i = 0; i < initializer.length(); i++) {
+                    array.set(i, initializer.get(i));
+                }
+                return array;
             }
-            return new Value.ArrayValue(boxed);
+            return Value.ofArray(Array.newInstance(baseType, size.asInt()));
         }
 
         // 多维度：只取非 null 的维度创建
@@ -753,29 +901,8 @@ public class Evaluator implements ASTVisitor<Value> {
         for (int i = 0; i < trailingNulls; i++) {
             componentType = Array.newInstance(componentType, 0).getClass();
         }
-        Object javaArray = Array.newInstance(componentType, lens);
-        return arrayValueFromJavaArray(javaArray, nonNullCount);
-    }
-
-    private Value arrayValueFromJavaArray(Object javaArray, int depth) {
-        int len = Array.getLength(javaArray);
-        if (depth <= 1) {
-            Object[] boxed = new Object[len];
-            for (int i = 0; i < len; i++) {
-                boxed[i] = Array.get(javaArray, i);
-            }
-            return new Value.ArrayValue(boxed);
-        }
-        Object[] boxed = new Object[len];
-        for (int i = 0; i < len; i++) {
-            Object elem = Array.get(javaArray, i);
-            if (elem != null && elem.getClass().isArray()) {
-                boxed[i] = arrayValueFromJavaArray(elem, depth - 1);
-            } else {
-                boxed[i] = elem;
-            }
-        }
-        return new Value.ArrayValue(boxed);
+        // 外层是引用数组，a[i] 取出的行同样是原数组的视图，a[i][j] = v 直接写回
+        return Value.ofArray(Array.newInstance(componentType, lens));
     }
 
     private Value visitCast(CastNode node) {
@@ -788,16 +915,18 @@ public class Evaluator implements ASTVisitor<Value> {
         try {
             checkClassByName(node.getTypeName()); // ★ 安全检查
             Class<?> clazz = Class.forName(node.getTypeName());
-            return new Value.BooleanValue(clazz.isInstance(value.asJavaObject()));
+            return Value.ofBoolean(clazz.isInstance(value.asJavaObject()));
         } catch (ClassNotFoundException e) {
             throw new EvalException("Unknown type in instanceof: " + node.getTypeName(), ErrorCode.EVAL_CLASS_NOT_FOUND);
         }
     }
 
-    private final PipelineDispatcher pipelineDispatcher = new PipelineDispatcher(this);
+    /** 管道分发器，首次使用时创建（每个块/循环都会新建 Evaluator，大多数用不到管道）。 */
+    private PipelineDispatcher pipelineDispatcher;
 
     private Value visitPipeline(PipelineNode node) {
         try {
+            if (pipelineDispatcher == null) pipelineDispatcher = new PipelineDispatcher(this);
             return pipelineDispatcher.dispatch(node);
         } catch (Exception e) {
 
@@ -806,19 +935,17 @@ public class Evaluator implements ASTVisitor<Value> {
     }
 
     private Value visitBlock(BlockNode node) {
-        EvalContext childCtx = evalContext.createChild();
-        Evaluator childEval = new Evaluator(childCtx, parseContext);
+        EvalContext childCtx = evalContext.createChild(node.getFrameLayout());
+        Evaluator childEval = new Evaluator(childCtx, parseContext, completion);
         Value result = Value.VoidValue.INSTANCE;
         for (ASTNode stmt : node.getStatements()) {
             result = childEval.evaluate(stmt);
+            // break / continue / return：立即结束本块，不做写回（与原先异常展开时一致）
+            if (completion.isAbrupt()) return Value.VoidValue.INSTANCE;
         }
         // 块结束后将子作用域中匹配父作用域的变量变更传播回去
         // （支持 CustomClassExecutor 方法体内字段写回）
-        for (var entry : childCtx.getVariables().entrySet()) {
-            if (evalContext.hasVariable(entry.getKey())) {
-                evalContext.assignVariable(entry.getKey(), entry.getValue());
-            }
-        }
+        childCtx.writeBackTo(evalContext);
         return result;
     }
 
@@ -837,11 +964,11 @@ public class Evaluator implements ASTVisitor<Value> {
         while (true) {
             Value cond = evaluate(node.getCondition());
             if (!cond.isTruthy()) break;
-            try {
-                result = evaluate(node.getBody());
-            } catch (BreakException e) {
+            Value value = evaluate(node.getBody());
+            if (!completion.isAbrupt()) {
+                result = value;
+            } else if (exitLoop()) {
                 break;
-            } catch (ContinueException ignoredAsNaturalCtrlFlow) {
             }
         }
         return result;
@@ -850,28 +977,28 @@ public class Evaluator implements ASTVisitor<Value> {
     private Value visitDoWhile(DoWhileNode node) {
         Value result = Value.VoidValue.INSTANCE;
         do {
-            try {
-                result = evaluate(node.getBody());
-            } catch (BreakException e) {
+            Value value = evaluate(node.getBody());
+            if (!completion.isAbrupt()) {
+                result = value;
+            } else if (exitLoop()) {
                 break;
-            } catch (ContinueException ignoredAsNaturalCtrlFlow) {
             }
         } while (evaluate(node.getCondition()).isTruthy());
         return result;
     }
 
     private Value visitFor(ForNode node) {
-        EvalContext loopCtx = evalContext.createChild();
-        Evaluator loopEval = new Evaluator(loopCtx, parseContext);
+        EvalContext loopCtx = evalContext.createChild(node.getFrameLayout());
+        Evaluator loopEval = new Evaluator(loopCtx, parseContext, completion);
         Value result = Value.VoidValue.INSTANCE;
 
         if (node.getInitialization() != null) loopEval.evaluate(node.getInitialization());
         while (node.getCondition() == null || loopEval.evaluate(node.getCondition()).isTruthy()) {
-            try {
-                result = loopEval.evaluate(node.getBody());
-            } catch (BreakException e) {
+            Value value = loopEval.evaluate(node.getBody());
+            if (!completion.isAbrupt()) {
+                result = value;
+            } else if (exitLoop()) {
                 break;
-            } catch (ContinueException ignoredAsNaturalCtrlFlow) {
             }
             if (node.getUpdate() != null) loopEval.evaluate(node.getUpdate());
         }
@@ -880,106 +1007,190 @@ public class Evaluator implements ASTVisitor<Value> {
 
     private Value visitForEach(ForEachNode node) {
         Value collection = evaluate(node.getCollection());
-        Object[] items;
-        if (collection.asJavaObject() instanceof Iterable<?> iter) {
-            List<Object> list = new ArrayList<>();
-            for (Object item : iter) list.add(item);
-            items = list.toArray();
+        Object source = collection.asJavaObject();
+        Iterator<?> items;
+        if (source instanceof Iterable<?> iter) {
+            // 只有循环体可能修改数据源时才拷贝快照，否则直接在迭代器上逐个取元素
+            if (!node.isSnapshotSource() || source instanceof LazySequence) {
+                items = iter.iterator();
+            } else if (source instanceof Collection<?> coll) {
+                items = Arrays.asList(coll.toArray()).iterator();
+            } else {
+                List<Object> list = new ArrayList<>();
+                for (Object item : iter) list.add(item);
+                items = list.iterator();
+            }
+        } else if (source != null && source.getClass().isArray()) {
+            // 按下标读原数组（与 Java 增强 for 相同，循环中对数组元素的写入可见）
+            items = LazySequence.asIterable(source).iterator();
         } else {
-            items = collection.asArray();
+            items = Arrays.asList(collection.asArray()).iterator();
         }
-        EvalContext loopCtx = evalContext.createChild();
-        Evaluator loopEval = new Evaluator(loopCtx, parseContext);
+        EvalContext loopCtx = evalContext.createChild(node.getFrameLayout());
+        Evaluator loopEval = new Evaluator(loopCtx, parseContext, completion);
         Value result = Value.VoidValue.INSTANCE;
-        for (Object item : items) {
-            loopCtx.setVariable(node.getItemName(), Value.of(item));
+        boolean itemInSlot = loopCtx.getLayout() != null;
+        while (true) {
+            Object item;
             try {
-                result = loopEval.evaluate(node.getBody());
-            } catch (BreakException e) {
+                if (!items.hasNext()) break;
+                item = items.next();
+            } catch (ConcurrentModificationException e) {
+                throw concurrentModification(node, e);
+            }
+            if (itemInSlot) {
+                loopCtx.setSlot(0, Value.of(item));
+            } else {
+                loopCtx.setVariable(node.getItemName(), Value.of(item));
+            }
+            Value value = loopEval.evaluate(node.getBody());
+            if (!completion.isAbrupt()) {
+                result = value;
+            } else if (exitLoop()) {
                 break;
-            } catch (ContinueException e) {
-                // continue to next iteration
             }
         }
         return result;
     }
 
+    /**
+     * 流式遍历的数据源在循环体中被修改，且 SlotResolver 没能预先识别（例如经由 Java 对象内部的引用）。
+     */
+    private static EvalException concurrentModification(ForEachNode node, ConcurrentModificationException e) {
+        StringBuilder message = new StringBuilder("Collection was modified during for-each over '")
+                .append(node.getItemName()).append("'; iterate over a copy (e.g. new ArrayList(list)) instead");
+        SourceLocation location = node.getLocation();
+        if (location != null) {
+            message.append(String.format(Locale.ROOT, " (at line %d, column %d)", location.getLine(), location.getColumn()));
+        }
+        return new EvalException(message.toString(), e, ErrorCode.EVAL_INVALID_OPERATION);
+    }
+
     private Value visitSwitch(SwitchNode node) {
         Value expr = evaluate(node.getExpression());
-        for (CaseNode caseNode : node.getCases()) {
-            Value caseVal = evaluate(caseNode.getValue());
-            if (expr.equals(caseVal)) {
-                EvalContext childCtx = evalContext.createChild();
-                Evaluator childEval = new Evaluator(childCtx, parseContext);
-                Value result = Value.VoidValue.INSTANCE;
-                for (ASTNode stmt : caseNode.getStatements()) {
-                    try {
-                        result = childEval.evaluate(stmt);
-                    } catch (BreakException e) {
-                        return result;
-                    }
-                }
-                return result;
+        List<CaseNode> cases = node.getCases();
+        SwitchTable table = node.getSwitchTable();
+        if (table == null) {
+            table = buildSwitchTable(cases);
+            node.setSwitchTable(table);
+        }
+        // 常量标签查表；排在命中分支之前的动态标签仍需逐个比较
+        int matched = table.constantIndex(expr);
+        for (int index : table.getDynamicCases()) {
+            if (matched >= 0 && index > matched) break;
+            if (expr.equals(evaluate(cases.get(index).getValue()))) {
+                matched = index;
+                break;
             }
         }
+        if (matched >= 0) {
+            CaseNode caseNode = cases.get(matched);
+            EvalContext childCtx = evalContext.createChild(caseNode.getFrameLayout());
+            return evaluateCaseBody(caseNode.getStatements(), childCtx);
+        }
         if (node.getDefaultCase() != null) {
             if (node.getDefaultCase() instanceof BlockNode block) {
-                EvalContext childCtx = evalContext.createChild();
-                Evaluator childEval = new Evaluator(childCtx, parseContext);
-                Value result = Value.VoidValue.INSTANCE;
-                for (ASTNode stmt : block.getStatements()) {
-                    try {
-                        result = childEval.evaluate(stmt);
-                    } catch (BreakException e) {
-                        return result;
-                    }
-                }
-                return result;
+                EvalContext childCtx = evalContext.createChild(block.getFrameLayout());
+                return evaluateCaseBody(block.getStatements(), childCtx);
             }
             return evaluate(node.getDefaultCase());
         }
         return Value.VoidValue.INSTANCE;
     }
 
-    private Value visitReturn(ReturnNode node) {
-        if (node.getValue() != null) {
-            Value val = evaluate(node.getValue());
-            throw new ReturnException(val);
+    /**
+     * 求值全部常量标签，建立 switch 查找表。
+     * 求值失败（如安全检查拒绝读取字段）的标签退回动态分支，仍在执行到它时才报错。
+     */
+    private SwitchTable buildSwitchTable(List<CaseNode> cases) {
+        Map<Value, Integer> constants = new HashMap<>();
+        int[] dynamic = new int[cases.size()];
+        int dynamicCount = 0;
+        for (int i = 0; i < cases.size(); i++) {
+            ASTNode label = cases.get(i).getValue();
+            Value constant = isConstantLabel(label) ? tryEvaluateLabel(label) : null;
+            if (constant != null) {
+                constants.putIfAbsent(constant, i);
+            } else {
+                dynamic[dynamicCount++] = i;
+            }
         }
-        throw new ReturnException(Value.VoidValue.INSTANCE);
+        return new SwitchTable(constants, Arrays.copyOf(dynamic, dynamicCount));
     }
 
-    private Value visitBreak(BreakNode node) {
-        if (node.isLabeled()) {
-            throw new LabeledBreakException(node.getLabel());
+    /** 字面量（含常量折叠结果）与 static final 字段（含枚举常量）的值在每次执行时都相同。 */
+    private static boolean isConstantLabel(ASTNode label) {
+        if (label instanceof LiteralNode) return true;
+        if (label instanceof FieldAccessNode access) {
+            Field field = access.getBoundField();
+            if (field == null && access.getTarget() instanceof ClassReferenceNode ref && ref.getResolvedClass() != null) {
+                try {
+                    field = ref.getResolvedClass().getField(access.getFieldName());
+                } catch (NoSuchFieldException | SecurityException e) {
+                    return false;
+                }
+            }
+            return field != null && Modifier.isStatic(field.getModifiers()) && Modifier.isFinal(field.getModifiers());
         }
-        throw new BreakException();
+        return false;
+    }
+
+    private Value tryEvaluateLabel(ASTNode label) {
+        try {
+            return evaluate(label);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    /** switch 分支语句序列：不带标签的 break 在此消费，其它完成信号留给外层。 */
+    private Value evaluateCaseBody(List<ASTNode> statements, EvalContext childCtx) {
+        Evaluator childEval = new Evaluator(childCtx, parseContext, completion);
+        Value result = Value.VoidValue.INSTANCE;
+        for (ASTNode stmt : statements) {
+            Value value = childEval.evaluate(stmt);
+            if (completion.isAbrupt()) {
+                if (completion.isUnlabeledBreak()) completion.clear();
+                return result;
+            }
+            result = value;
+        }
+        return result;
+    }
+
+    private Value visitReturn(ReturnNode node) {
+        Value val = node.getValue() != null ? evaluate(node.getValue()) : Value.VoidValue.INSTANCE;
+        completion.setReturn(val);
+        return Value.VoidValue.INSTANCE;
+    }
+
+    private Value visitBreak(BreakNode node) {
+        completion.setBreak(node.isLabeled() ? node.getLabel() : null);
+        return Value.VoidValue.INSTANCE;
     }
 
     private Value visitContinue(ContinueNode node) {
-        throw new ContinueException();
+        completion.setContinue();
+        return Value.VoidValue.INSTANCE;
     }
 
     private Value visitLambda(LambdaNode node) {
         Function<Value[], Value> lambdaFunc = args -> {
-            EvalContext lambdaCtx = evalContext.createChild();
+            Value compiled = invokeCompiled(node.getCompileState(), node.getParameters(),
+                    node.getFrameLayout(), node.getBody(), true, args);
+            if (compiled != null) return compiled;
+            EvalContext lambdaCtx = evalContext.createChild(node.getFrameLayout());
             List<LambdaNode.Parameter> params = node.getParameters();
             for (int i = 0; i < params.size() && i < args.length; i++) {
                 lambdaCtx.setVariable(params.get(i).name(), args[i]);
             }
             Evaluator lambdaEval = new Evaluator(lambdaCtx, parseContext);
-            try {
-                return lambdaEval.evaluate(node.getBody());
-            } catch (ReturnException e) {
-                return (Value) e.getValue();
-            }
+            Value result = lambdaEval.evaluate(node.getBody());
+            Value returned = lambdaEval.takeReturn();
+            return returned != null ? returned : result;
         };
 
-        List<String> paramNames = new ArrayList<>();
-        for (LambdaNode.Parameter p : node.getParameters()) {
-            paramNames.add(p.name());
-        }
-        Lambda lambda = new Lambda(lambdaFunc, paramNames, evalContext);
+        Lambda lambda = new Lambda(lambdaFunc, node.getParameterNames(), evalContext, node.getCapturedNames());
 
         Class<?> fiType = node.getFunctionalInterfaceType();
         if (fiType != null) {
@@ -991,23 +1202,57 @@ public class Evaluator implements ASTVisitor<Value> {
 
     private Value visitFunctionDef(FunctionDefNode node) {
         Function<Value[], Value> func = args -> {
-            EvalContext funcCtx = evalContext.createChild();
+            Value compiled = invokeCompiled(node.getCompileState(), node.getParameters(),
+                    node.getFrameLayout(), node.getBody(), false, args);
+            if (compiled != null) return compiled;
+            EvalContext funcCtx = evalContext.createChild(node.getFrameLayout());
             List<LambdaNode.Parameter> params = node.getParameters();
             for (int i = 0; i < params.size() && i < args.length; i++) {
                 funcCtx.setVariable(params.get(i).name(), args[i]);
             }
             Evaluator funcEval = new Evaluator(funcCtx, parseContext);
-            try {
-                funcEval.evaluate(node.getBody());
-            } catch (ReturnException e) {
-                return (Value) e.getValue();
-            }
-            return Value.VoidValue.INSTANCE;
+            funcEval.evaluate(node.getBody());
+            Value returned = funcEval.takeReturn();
+            return returned != null ? returned : Value.VoidValue.INSTANCE;
         };
         evalContext.setVariable(node.getFunctionName(), Value.of(func));
         return Value.VoidValue.INSTANCE;
     }
 
+    /**
+     * 字节码编译层入口：调用次数达到阈值后尝试把函数体编译为字节码，之后直接执行编译结果。
+     * <p>
+     * 以下情况不使用编译结果（返回 null，由调用方解释执行）：
+     * 编译层关闭、设置了 SecurityGate（编译代码不经过逐次方法检查）、挂了 ScriptProfiler（编译代码不经过逐节点计时）、
+     * 注册了自定义运算符重载、实参类型与编译时的特化不一致、块结束时需要写回的变量在闭包外层存在。
+     * </p>
+     */
+    private Value invokeCompiled(CompileTier.State state, List<LambdaNode.Parameter> params,
+                                 FrameLayout layout, ASTNode body,
+                                 boolean lambda, Value[] args) {
+        if (!CompileTier.isEnabled() || state.isFailed() || sg() != null || profiler != null
+                || parseContext == null) return null;
+        OperatorRegistry registry = parseContext.getOperatorRegistry();
+        if (registry == null || !registry.isBuiltinOnly()) return null;
+        CompiledFunction compiled = state.getCompiled();
+        if (compiled == null) {
+            if (!state.countInvocation()) return null;
+            synchronized (state) {
+                compiled = state.getCompiled();
+                if (compiled == null && !state.isFailed()) {
+                    compiled = FunctionCompiler.compile(params, layout, body, lambda, args,
+                            parseContext.getCodeGenerator());
+                    state.setCompiled(compiled);
+                }
+            }
+            if (compiled == null) return null;
+        }
+        for (String name : compiled.getWriteBackNames()) {
+            if (evalContext.hasVariable(name)) return null;
+        }
+        return compiled.invoke(args);
+    }
+
     private Value visitFunctionCall(FunctionCallNode node) {
         List<Value> args = evaluateAll(node.getArguments());
         String funcName = node.getFunctionName();
@@ -1037,6 +1282,9 @@ public class Evaluator implements ASTVisitor<Value> {
      */
     private Value tryInvokeCallable(Value val, List<Value> args) {
         Object raw = val.asJavaObject();
+        // 脚本 lambda / 方法引用转换成的接口实例：直接调用原对象，不经过接口方法
+        Object source = FunctionalAdapters.sourceOf(raw);
+        if (source != null) raw = source;
         if (raw instanceof Lambda lambda) {
             return lambda.invoke(args.toArray(new Value[0]));
         }
@@ -1046,7 +1294,7 @@ public class Evaluator implements ASTVisitor<Value> {
             return func.apply(args.toArray(new Value[0]));
         }
         if (raw instanceof MethodReference mr) {
-            return Value.of(mr.invoke(args.stream().map(Value::asJavaObject).toArray()));
+            return Value.of(mr.invoke(toJavaArgs(args)));
         }
         // FI proxy: 通过 Lambda.getSAM 检测并 invoke
         Class<?> rawClass = raw.getClass();
@@ -1054,8 +1302,7 @@ public class Evaluator implements ASTVisitor<Value> {
             Method sam = Lambda.getSAM(rawClass);
             if (sam != null) {
                 try {
-                    Object[] javaArgs = args.stream().map(Value::asJavaObject).toArray();
-                    return Value.of(sam.invoke(raw, javaArgs));
+                    return Value.of(MethodInvoker.of(sam).invoke(raw, toJavaArgs(args)));
                 } catch (Exception e) {
                     throw new EvalException("Functional interface invocation failed", e,
                             ErrorCode.METHOD_INVOCATION_FAILED);
@@ -1065,12 +1312,43 @@ public class Evaluator implements ASTVisitor<Value> {
         return null;  // 不是可调用对象
     }
 
+    /**
+     * async：在 {@link AsyncScheduler} 的执行器上求值，立即返回 {@link CompletableFuture}。
+     * <p>
+     * 任务在发起时刻的变量快照（{@link EvalContext#snapshot()}）上执行，不与发起线程共享作用域表；
+     * 任务体是独立的返回边界，其中的 return 决定 future 的结果。
+     * </p>
+     */
     private Value visitAsync(AsyncNode node) {
-        return evaluate(node.getExpression());
-    }
-
+        EvalContext taskCtx = evalContext.snapshot();
+        ASTNode body = node.getExpression();
+        CompletableFuture<Object> future = CompletableFuture.supplyAsync(
+                () -> CustomClassExecutor.callWithContext(taskCtx, parseContext, () -> {
+                    Evaluator taskEval = new Evaluator(taskCtx, parseContext);
+                    Value result = taskEval.evaluate(body);
+                    Value returned = taskEval.takeReturn();
+                    return (returned != null ? returned : result).asJavaObject();
+                }),
+                AsyncScheduler.getExecutor());
+        return Value.of(future);
+    }
+
+    /** await：等待 {@link Future}（async 的结果或 Java API 返回的 future）完成；其它值原样返回。 */
     private Value visitAwait(AwaitNode node) {
-        return evaluate(node.getExpression());
+        Value value = evaluate(node.getExpression());
+        if (!(value.asJavaObject() instanceof Future<?> future)) return value;
+        try {
+            return Value.of(future.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EvalException("Interrupted while awaiting", e, ErrorCode.EVAL_ERROR);
+        } catch (ExecutionException e) {
+            // 按同步执行时的样子把任务内的异常原样抛出
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            if (cause instanceof Error err) throw err;
+            throw new EvalException("Async task failed: " + cause, cause, ErrorCode.EVAL_EXCEPTION_THROWN);
+        }
     }
 
     private Value visitMapLiteral(MapLiteralNode node) {
@@ -1107,7 +1385,7 @@ public class Evaluator implements ASTVisitor<Value> {
             try {
                 Field f = clazz.getField(node.getFieldName());
                 checkFieldWrite(f);
-                f.set(null, value.asJavaObject());
+                FieldAccessor.of(f).set(null, value.asJavaObject());
                 return value;
             } catch (Exception e) {
                 throw new EvalException("Static field assignment failed: " + node.getFieldName(), e, ErrorCode.EVAL_FIELD_ACCESS_FAILED);
@@ -1118,7 +1396,7 @@ public class Evaluator implements ASTVisitor<Value> {
         try {
             Field f = obj.getClass().getField(node.getFieldName());
             checkFieldWrite(f); // ★ 安全检查
-            f.set(obj, value.asJavaObject());
+            FieldAccessor.of(f).set(obj, value.asJavaObject());
         } catch (Exception e) {
             throw new EvalException("Field assignment failed: " + node.getFieldName(), e, ErrorCode.EVAL_FIELD_ACCESS_FAILED);
         }
@@ -1184,7 +1462,7 @@ public class Evaluator implements ASTVisitor<Value> {
             }
             try {
                 checkMethod(method);
-                return method.invoke(target, MethodResolver.coerceArgsForInvoke(method, args));
+                return MethodInvoker.of(method).invoke(target, MethodResolver.coerceArgsForInvoke(method, args));
             } catch (EvalException e) {
                 throw e;
             } catch (Exception e) {
@@ -1244,11 +1522,9 @@ public class Evaluator implements ASTVisitor<Value> {
             for (int i = 0; i < params.size() && i < argValues.size(); i++) {
                 childCtx.setVariable(params.get(i).name(), argValues.get(i));
             }
-            try {
-                return childEval.evaluate(fn.getBody());
-            } catch (ReturnException e) {
-                return (Value) e.getValue();
-            }
+            Value result = childEval.evaluate(fn.getBody());
+            Value returned = childEval.takeReturn();
+            return returned != null ? returned : result;
         }
 
         if (impl instanceof MethodDeclarationNode md) {
@@ -1258,11 +1534,9 @@ public class Evaluator implements ASTVisitor<Value> {
             }
             ASTNode body = md.getBody();
             if (body != null) {
-                try {
-                    return childEval.evaluate(body);
-                } catch (ReturnException e) {
-                    return (Value) e.getValue();
-                }
+                Value result = childEval.evaluate(body);
+                Value returned = childEval.takeReturn();
+                return returned != null ? returned : result;
             }
             return Value.VoidValue.INSTANCE;
         }
@@ -1339,7 +1613,7 @@ public class Evaluator implements ASTVisitor<Value> {
         try {
             Field f = obj.getClass().getField(node.getFieldName());
             checkFieldRead(f); // ★ 安全检查
-            return Value.of(f.get(obj));
+            return Value.of(FieldAccessor.of(f).get(obj));
         } catch (Exception e) {
             return Value.NullValue.INSTANCE;
         }
@@ -1352,14 +1626,23 @@ public class Evaluator implements ASTVisitor<Value> {
             List<Value> args = evaluateAll(node.getArguments());
             Object obj = target.asJavaObject();
             String methodName = node.getMethodName();
-            for (Method m : obj.getClass().getMethods()) {
-                if (m.getName().equals(methodName) && m.getParameterCount() == args.size()) {
-                    checkMethod(m); // ★ 安全检查
-                    Object result = m.invoke(obj, args.stream().map(Value::asJavaObject).toArray());
-                    return Value.of(result);
+            InlineCache<MethodInvoker> cache = node.getInlineCache();
+            MethodInvoker invoker = cache.lookup(obj.getClass(), InlineCache.NO_ARGS);
+            if (invoker == null) {
+                for (Method m : obj.getClass().getMethods()) {
+                    if (m.getName().equals(methodName) && m.getParameterCount() == args.size()) {
+                        invoker = MethodInvoker.of(m);
+                        break;
+                    }
+                }
+                if (invoker == null) {
+                    throw new EvalException("Method not found: " + methodName, ErrorCode.METHOD_NO_APPLICABLE_METHOD);
                 }
+                cache.update(obj.getClass(), InlineCache.NO_ARGS, invoker);
             }
-            throw new EvalException("Method not found: " + methodName, ErrorCode.METHOD_NO_APPLICABLE_METHOD);
+            checkMethod(invoker.getMethod()); // ★ 安全检查
+            Object result = invoker.invoke(obj, toJavaArgs(args));
+            return Value.of(result);
         } catch (Exception e) {
             return Value.NullValue.INSTANCE;
         }
@@ -1372,48 +1655,39 @@ public class Evaluator implements ASTVisitor<Value> {
 
     private Value visitDelete(DeleteNode node) {
         if (node.isDeleteAll()) {
-            evalContext.getVariables().clear();
+            evalContext.clearVariables();
             parseContext.clearAllVariables();  // ★ 同步清除解析上下文
         } else {
             String name = node.getVariableName();
-            if (evalContext.getVariables().containsKey(name)) {
-                evalContext.getVariables().remove(name);
-            } else if (evalContext.getParent() != null) {
-                // Walk up to find and delete from the defining scope
-                EvalContext ctx = evalContext;
-                while (ctx != null) {
-                    if (ctx.getVariables().containsKey(name)) {
-                        ctx.getVariables().remove(name);
-                        break;
-                    }
-                    ctx = ctx.getParent();
-                }
+            // Walk up to find and delete from the defining scope
+            EvalContext ctx = evalContext;
+            while (ctx != null && !ctx.removeVariable(name)) {
+                ctx = ctx.getParent();
             }
         }
         return Value.VoidValue.INSTANCE;
     }
 
     private Value visitLabeledStatement(LabeledStatementNode node) {
-        try {
-            return evaluate(node.getStatement());
-        } catch (LabeledBreakException e) {
-            if (e.getLabel().equals(node.getLabel())) {
-                return Value.VoidValue.INSTANCE;
-            }
-            throw e;
+        Value result = evaluate(node.getStatement());
+        if (completion.isBreakTo(node.getLabel())) {
+            completion.clear();
+            return Value.VoidValue.INSTANCE;
         }
+        return result;
     }
 
     private Value visitTry(TryNode node) {
         try {
             return evaluate(node.getTryBlock());
-        } catch (BreakException | ContinueException | ReturnException | LabeledBreakException e) {
+        } catch (BreakException | ContinueException | LabeledBreakException e) {
+            // 越过函数边界的 break / continue（见 takeReturn），不作为脚本异常捕获
             throw e;
         } catch (Exception e) {
             for (CatchClause catchClause : node.getCatchClauses()) {
-                EvalContext catchCtx = evalContext.createChild();
+                EvalContext catchCtx = evalContext.createChild(catchClause.getFrameLayout());
                 catchCtx.setVariable(catchClause.getVariableName(), Value.of(e));
-                Evaluator catchEval = new Evaluator(catchCtx, parseContext);
+                Evaluator catchEval = new Evaluator(catchCtx, parseContext, completion);
                 return catchEval.evaluate(catchClause.getBody());
             }
             if (node.getFinallyBlock() != null) {
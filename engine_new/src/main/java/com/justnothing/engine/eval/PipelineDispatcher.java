@@ -1,15 +1,17 @@
 package com.justnothing.engine.eval;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.nodes.FunctionCallNode;
 import com.justnothing.engine.ast.nodes.MethodCallNode;
 import com.justnothing.engine.ast.nodes.MethodReferenceNode;
 import com.justnothing.engine.ast.nodes.PipelineNode;
+import com.justnothing.engine.ast.nodes.VariableNode;
 import com.justnothing.engine.builtins.Lambda;
 import com.justnothing.engine.builtins.MethodReference;
 import com.justnothing.engine.exception.ErrorCode;
+import com.justnothing.engine.util.MethodInvoker;
 import com.justnothing.engine.util.MethodResolver;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
@@ -24,6 +26,7 @@ import java.util.function.Supplier;
  * <ul>
  *   <li>AST MethodRef 节点分发（0 参实例方法 / N 参静态方法 / 绑定引用）</li>
  *   <li>运行时存储的 MethodRef 对象分发（绕过 invoke() 的 0 参问题）</li>
+ *   <li>内置函数调用（input 作为第一个实参）</li>
  *   <li>Lambda / Function 管道调用</li>
  * </ul>
  *
@@ -53,6 +56,12 @@ public final class PipelineDispatcher {
         if (node.getFunction() instanceof MethodCallNode call) {
             return dispatchMethodCall(call, input);
         }
+        if (node.getFunction() instanceof FunctionCallNode call && isBuiltin(call.getFunctionName())) {
+            return dispatchBuiltinCall(call, input);
+        }
+        if (node.getFunction() instanceof VariableNode variable && isBuiltin(variable.getName())) {
+            return evaluator.getEvalContext().callBuiltin(variable.getName(), List.of(input));
+        }
 
         // 运行时可调用对象（Lambda / 存储的 MethodRef / Function）
         Value funcVal = evaluator.evaluate(node.getFunction());
@@ -111,9 +120,9 @@ public final class PipelineDispatcher {
      */
     private Value dispatchStoredMethodRef(MethodReference methodRef, Object inputValue) throws Exception {
         String methodName = methodRef.getMethodName();
-        Object boundTarget = getFieldValue(methodRef, "boundTarget");
-        String targetClassName = (String) getFieldValue(methodRef, "targetClassName");
-        Method explicitMethod = (Method) getFieldValue(methodRef, "boundMethod");
+        Object boundTarget = methodRef.getBoundTarget();
+        String targetClassName = methodRef.getTargetClassName();
+        Method explicitMethod = methodRef.getBoundMethod();
 
         Class<?> targetClass = resolveTargetClass(boundTarget, targetClassName, methodName);
 
@@ -165,8 +174,8 @@ public final class PipelineDispatcher {
         try {
             if (call.getBoundMethod() != null) {
                 evaluator.checkMethod(call.getBoundMethod());
-                Object result = call.getBoundMethod().invoke(target,
-                        args.stream().map(Value::asJavaObject).toArray());
+                Object result = MethodInvoker.of(call.getBoundMethod()).invoke(target,
+                        Evaluator.toJavaArgs(args));
                 return Value.of(result);
             }
         } catch (Exception e) {
@@ -176,6 +185,27 @@ public final class PipelineDispatcher {
                 ErrorCode.METHOD_NO_APPLICABLE_METHOD);
     }
 
+    // ==================== 内置函数分发 ====================
+
+    /** 名字指向内置函数（且没有被同名变量遮蔽）。 */
+    private boolean isBuiltin(String name) {
+        EvalContext context = evaluator.getEvalContext();
+        return !context.hasVariable(name) && context.hasBuiltin(name);
+    }
+
+    /**
+     * {@code xs |> map(f)}：input 作为内置函数的第一个实参，即 {@code map(xs, f)}。
+     * map / filter 返回惰性序列，整条管道在最后的 reduce / join / forEach 处一次遍历完成。
+     */
+    private Value dispatchBuiltinCall(FunctionCallNode call, Value input) {
+        List<Value> args = new ArrayList<>(call.getArguments().size() + 1);
+        args.add(input);
+        for (ASTNode arg : call.getArguments()) {
+            args.add(evaluator.evaluate(arg));
+        }
+        return evaluator.getEvalContext().callBuiltin(call.getFunctionName(), args);
+    }
+
     // ==================== 方法查找策略 ====================
 
     /** 尝试 0 参实例方法调用（input 作为 receiver）。 */
@@ -184,7 +214,7 @@ public final class PipelineDispatcher {
         if (m == null || Modifier.isStatic(m.getModifiers())) return ValueOrError.empty();
         try {
             evaluator.checkMethod(m);
-            return ValueOrError.of(Value.of(m.invoke(receiver)));
+            return ValueOrError.of(Value.of(MethodInvoker.of(m).invoke(receiver)));
         } catch (Exception e) {
             return ValueOrError.error(e);
         }
@@ -196,7 +226,7 @@ public final class PipelineDispatcher {
         if (m == null) return ValueOrError.empty();
         try {
             evaluator.checkMethod(m);
-            return ValueOrError.of(Value.of(m.invoke(target)));
+            return ValueOrError.of(Value.of(MethodInvoker.of(m).invoke(target)));
         } catch (Exception e) {
             return ValueOrError.error(e);
         }
@@ -224,14 +254,15 @@ public final class PipelineDispatcher {
     /** 根据方法的 static/instance 特性决定调用方式。 */
     private Value invokeByModifier(Method method, Object inputValue, Object explicitReceiver)
             throws Exception {
+        MethodInvoker invoker = MethodInvoker.of(method);
         if (Modifier.isStatic(method.getModifiers())) {
-            return Value.of(method.invoke(null, inputValue));
+            return Value.of(invoker.invoke(null, inputValue));
         } else {
             Object receiver = explicitReceiver != null ? explicitReceiver : inputValue;
             if (method.getParameterCount() == 0) {
-                return Value.of(method.invoke(receiver));
+                return Value.of(invoker.invoke(receiver));
             } else {
-                return Value.of(method.invoke(receiver, inputValue));
+                return Value.of(invoker.invoke(receiver, inputValue));
             }
         }
     }
@@ -243,11 +274,12 @@ public final class PipelineDispatcher {
         int paramCount = explicitMethod.getParameterCount();
         if (paramCount == 0) {
             Object receiver = boundTarget != null ? boundTarget : inputValue;
-            return Value.of(explicitMethod.invoke(receiver));
+            return Value.of(MethodInvoker.of(explicitMethod).invoke(receiver));
         } else {
             Object receiver = Modifier.isStatic(explicitMethod.getModifiers())
                     ? null : (boundTarget != null ? boundTarget : inputValue);
-            return Value.of(explicitMethod.invoke(receiver, coerceToArgs(explicitMethod.getParameterTypes(), inputValue)));
+            return Value.of(MethodInvoker.of(explicitMethod).invoke(receiver,
+                    coerceToArgs(explicitMethod.getParameterTypes(), inputValue)));
         }
     }
 
@@ -332,16 +364,6 @@ public final class PipelineDispatcher {
         return args;
     }
 
-    private static Object getFieldValue(Object obj, String fieldName) {
-        try {
-            Field field = obj.getClass().getDeclaredField(fieldName);
-            field.setAccessible(true);
-            return field.get(obj);
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
     // ==================== 内部工具类 ====================
 
     /** 可能为空的值容器，用于 try-then-fallback 链式调用模式。 */
@@ -0,0 +1,316 @@
+package com.justnothing.engine.eval;
+
+import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.SourceLocation;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 脚本执行剖析器（按需开启）。
+ * <p>
+ * 通过 {@link EvalContext#setProfiler} 或 {@code ScriptRunner#setProfiler} 挂上之后，
+ * Evaluator 对每个节点的求值记录调用次数、自身耗时（不含子节点）与总耗时，并按源码行汇总；
+ * 同时维护一棵以“源码行”为帧的调用树，可导出为 collapsed-stack 格式，交给 flamegraph.pl / speedscope 生成火焰图。
+ * </p>
+ *
+ * <p>
+ * 每个线程各自记录：计数器是普通 long 字段，热路径不加锁；节点、行、调用路径首次出现时各分配一次，
+ * 之后每次求值只做查表和计数，不分配对象。报告时合并所有线程的数据，应在执行结束后读取。
+ * 递归调用的总耗时只在最外层计入，不会重复累加。
+ * </p>
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class ScriptProfiler {
+
+    /** 单个 AST 节点的统计。 */
+    public record NodeProfile(ASTNode node, long count, long selfNanos, long totalNanos) {
+    }
+
+    /** 单个源码行的统计；hits 为进入该行的次数。 */
+    public record LineProfile(String source, int line, long hits, long selfNanos, long totalNanos) {
+    }
+
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Recorder> current = new ThreadLocal<>();
+    private volatile int generation;
+
+    /**
+     * 开始记录一个节点的求值，必须与 {@link Recorder#exit()} 成对调用。
+     */
+    Recorder enter(ASTNode node) {
+        Recorder recorder = current.get();
+        if (recorder == null || (recorder.generation != generation && recorder.depth == 0)) {
+            recorder = new Recorder(generation);
+            current.set(recorder);
+            recorders.add(recorder);
+        }
+        recorder.push(node);
+        return recorder;
+    }
+
+    /** 丢弃已记录的数据。应在没有脚本执行时调用。 */
+    public void reset() {
+        generation++;
+        recorders.clear();
+    }
+
+    // ==================== 报告 ====================
+
+    /** 按节点合并的统计，按自身耗时降序。 */
+    public List<NodeProfile> nodeProfiles() {
+        Map<ASTNode, long[]> merged = new IdentityHashMap<>();
+        for (Recorder recorder : recorders) {
+            for (NodeStats stats : recorder.nodes.values()) {
+                long[] sum = merged.computeIfAbsent(stats.node, k -> new long[3]);
+                sum[0] += stats.count;
+                sum[1] += stats.selfNanos;
+                sum[2] += stats.totalNanos;
+            }
+        }
+        List<NodeProfile> result = new ArrayList<>(merged.size());
+        merged.forEach((node, sum) -> result.add(new NodeProfile(node, sum[0], sum[1], sum[2])));
+        result.sort(Comparator.comparingLong(NodeProfile::selfNanos).reversed());
+        return result;
+    }
+
+    /** 按源码行合并的统计，按自身耗时降序。 */
+    public List<LineProfile> lineProfiles() {
+        Map<String, long[]> merged = new LinkedHashMap<>();
+        Map<String, LineStats> keys = new HashMap<>();
+        for (Recorder recorder : recorders) {
+            for (LineStats stats : recorder.lines) {
+                String key = stats.source + ":" + stats.line;
+                keys.putIfAbsent(key, stats);
+                long[] sum = merged.computeIfAbsent(key, k -> new long[3]);
+                sum[0] += stats.hits;
+                sum[1] += stats.selfNanos;
+                sum[2] += stats.totalNanos;
+            }
+        }
+        List<LineProfile> result = new ArrayList<>(merged.size());
+        merged.forEach((key, sum) -> {
+            LineStats line = keys.get(key);
+            result.add(new LineProfile(line.source, line.line, sum[0], sum[1], sum[2]));
+        });
+        result.sort(Comparator.comparingLong(LineProfile::selfNanos).reversed());
+        return result;
+    }
+
+    /**
+     * 最热的 limit 行（按自身耗时），格式化为文本表格。
+     */
+    public String formatHotLines(int limit) {
+        List<LineProfile> lines = lineProfiles();
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%10s %10s %10s  %s%n", "self(ms)", "total(ms)", "hits", "location"));
+        int shown = 0;
+        for (LineProfile line : lines) {
+            if (shown++ >= limit) break;
+            sb.append(String.format("%10.3f %10.3f %10d  %s:%d%n",
+                    line.selfNanos() / 1e6, line.totalNanos() / 1e6, line.hits(), line.source(), line.line()));
+        }
+        if (lines.isEmpty()) {
+            sb.append("(no samples)").append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 导出 collapsed-stack 格式：每行 {@code 帧;帧;... 值}，帧为 {@code 源文件:行号}，值为该路径的自身耗时（微秒）。
+     * 相同路径在多个线程上的数据会合并。
+     */
+    public void writeCollapsedStacks(Appendable out) throws IOException {
+        Map<String, Long> stacks = new LinkedHashMap<>();
+        for (Recorder recorder : recorders) {
+            collectStacks(recorder.root, new ArrayDeque<>(), stacks);
+        }
+        for (Map.Entry<String, Long> entry : stacks.entrySet()) {
+            long micros = entry.getValue() / 1000;
+            if (micros > 0) {
+                out.append(entry.getKey()).append(' ').append(Long.toString(micros)).append('\n');
+            }
+        }
+    }
+
+    /** {@link #writeCollapsedStacks(Appendable)} 的字符串形式。 */
+    public String toCollapsedStacks() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeCollapsedStacks(sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sb.toString();
+    }
+
+    private static void collectStacks(CallFrame frame, Deque<String> path, Map<String, Long> stacks) {
+        if (frame.line != null) {
+            path.addLast(frame.line.label());
+        }
+        if (frame.selfNanos > 0) {
+            String key = path.isEmpty() ? "<unknown>" : String.join(";", path);
+            stacks.merge(key, frame.selfNanos, Long::sum);
+        }
+        if (frame.children != null) {
+            for (CallFrame child : frame.children.values()) {
+                collectStacks(child, path, stacks);
+            }
+        }
+        if (frame.line != null) {
+            path.removeLast();
+        }
+    }
+
+    // ==================== 线程私有记录 ====================
+
+    private static final class NodeStats {
+        final ASTNode node;
+        /** 节点所在行，首次进入时解析；没有位置信息时为 null。 */
+        LineStats line;
+        long count;
+        long selfNanos;
+        long totalNanos;
+        int active;
+
+        NodeStats(ASTNode node) {
+            this.node = node;
+        }
+    }
+
+    private static final class LineStats {
+        final String source;
+        final int line;
+        long hits;
+        long selfNanos;
+        long totalNanos;
+        int active;
+
+        LineStats(String source, int line) {
+            this.source = source;
+            this.line = line;
+        }
+
+        String label() {
+            return (source != null ? source.replace(';', '_') : "<unknown>") + ":" + line;
+        }
+    }
+
+    /** 调用树中的一帧（一个源码行），子帧按行区分。 */
+    private static final class CallFrame {
+        final LineStats line;
+        Map<LineStats, CallFrame> children;
+        long selfNanos;
+
+        CallFrame(LineStats line) {
+            this.line = line;
+        }
+
+        CallFrame child(LineStats childLine) {
+            if (children == null) children = new IdentityHashMap<>();
+            CallFrame child = children.get(childLine);
+            if (child == null) {
+                child = new CallFrame(childLine);
+                children.put(childLine, child);
+            }
+            return child;
+        }
+    }
+
+    /** 单个线程的记录状态（求值栈 + 统计表）。 */
+    static final class Recorder {
+        private final int generation;
+        private final Map<ASTNode, NodeStats> nodes = new IdentityHashMap<>();
+        private final Map<String, Map<Integer, LineStats>> linesBySource = new HashMap<>();
+        private final List<LineStats> lines = new ArrayList<>();
+        private final CallFrame root = new CallFrame(null);
+
+        private NodeStats[] stackNodes = new NodeStats[64];
+        private CallFrame[] stackFrames = new CallFrame[64];
+        private boolean[] stackOpened = new boolean[64];
+        private long[] stackStart = new long[64];
+        private long[] stackChild = new long[64];
+        private int depth;
+
+        Recorder(int generation) {
+            this.generation = generation;
+        }
+
+        void push(ASTNode node) {
+            NodeStats stats = nodes.get(node);
+            if (stats == null) {
+                stats = new NodeStats(node);
+                SourceLocation location = node.getLocation();
+                if (location != null) stats.line = lineStats(location.getSource(), location.getLine());
+                nodes.put(node, stats);
+            }
+            if (depth == stackNodes.length) grow();
+
+            CallFrame frame = depth > 0 ? stackFrames[depth - 1] : root;
+            boolean opened = stats.line != null && stats.line != frame.line;
+            if (opened) {
+                frame = frame.child(stats.line);
+                stats.line.hits++;
+                stats.line.active++;
+            }
+            stats.count++;
+            stats.active++;
+
+            stackNodes[depth] = stats;
+            stackFrames[depth] = frame;
+            stackOpened[depth] = opened;
+            stackChild[depth] = 0;
+            stackStart[depth] = System.nanoTime();
+            depth++;
+        }
+
+        /** 结束当前节点的记录。 */
+        void exit() {
+            long elapsed = System.nanoTime() - stackStart[--depth];
+            long self = elapsed - stackChild[depth];
+            NodeStats stats = stackNodes[depth];
+            CallFrame frame = stackFrames[depth];
+            stackNodes[depth] = null;
+            stackFrames[depth] = null;
+
+            stats.selfNanos += self;
+            if (--stats.active == 0) stats.totalNanos += elapsed;
+            frame.selfNanos += self;
+            if (frame.line != null) frame.line.selfNanos += self;
+            if (stackOpened[depth] && --frame.line.active == 0) frame.line.totalNanos += elapsed;
+            if (depth > 0) stackChild[depth - 1] += elapsed;
+        }
+
+        private LineStats lineStats(String source, int line) {
+            Map<Integer, LineStats> bySource = linesBySource.computeIfAbsent(source, k -> new HashMap<>());
+            LineStats stats = bySource.get(line);
+            if (stats == null) {
+                stats = new LineStats(source, line);
+                bySource.put(line, stats);
+                lines.add(stats);
+            }
+            return stats;
+        }
+
+        private void grow() {
+            int size = stackNodes.length * 2;
+            stackNodes = Arrays.copyOf(stackNodes, size);
+            stackFrames = Arrays.copyOf(stackFrames, size);
+            stackOpened = Arrays.copyOf(stackOpened, size);
+            stackStart = Arrays.copyOf(stackStart, size);
+            stackChild = Arrays.copyOf(stackChild, size);
+        }
+    }
+}
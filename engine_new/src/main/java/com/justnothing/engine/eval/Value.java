@@ -1,7 +1,6 @@
 package com.justnothing.engine.eval;
 
 import com.justnothing.engine.exception.ErrorCode;
-import java.lang.reflect.Array;
 import java.util.Arrays;
 import java.util.Objects;
 
@@ -27,25 +26,76 @@ public abstract class Value {
     public static Value of(Object obj) {
         if (obj == null) return NullValue.INSTANCE;
         if (obj instanceof Value v) return v;
-        if (obj instanceof Integer i) return new IntValue(i);
-        if (obj instanceof Long l) return new LongValue(l);
+        if (obj instanceof Integer i) return ofInt(i);
+        if (obj instanceof Long l) return ofLong(l);
         if (obj instanceof Double d) return new DoubleValue(d);
         if (obj instanceof Float f) return new DoubleValue(f.doubleValue());
-        if (obj instanceof Boolean b) return new BooleanValue(b);
-        if (obj instanceof Character c) return new CharValue(c);
-        if (obj instanceof Byte b) return new IntValue(b.intValue());
-        if (obj instanceof Short s) return new IntValue(s.intValue());
+        if (obj instanceof Boolean b) return ofBoolean(b);
+        if (obj instanceof Character c) return ofChar(c);
+        if (obj instanceof Byte b) return ofInt(b.intValue());
+        if (obj instanceof Short s) return ofInt(s.intValue());
         if (obj instanceof String s) return new StringValue(s);
-        if (obj.getClass().isArray()) {
-            Object[] arr = new Object[Array.getLength(obj)];
-            for (int i = 0; i < arr.length; i++) {
-                arr[i] = Array.get(obj, i);
-            }
-            return new ArrayValue(arr);
-        }
+        if (obj.getClass().isArray()) return ofArray(obj);
         return new ObjectValue(obj);
     }
 
+    /**
+     * 包装 Java 数组（不拷贝）：引用类型数组为 {@link ArrayValue}，基本类型数组为对应的专用子类，
+     * 元素读写直接作用于原数组。
+     */
+    public static AbstractArrayValue ofArray(Object array) {
+        if (array instanceof Object[] a) return new ArrayValue(a);
+        if (array instanceof int[] a) return new IntArrayValue(a);
+        if (array instanceof byte[] a) return new ByteArrayValue(a);
+        if (array instanceof long[] a) return new LongArrayValue(a);
+        if (array instanceof double[] a) return new DoubleArrayValue(a);
+        if (array instanceof char[] a) return new CharArrayValue(a);
+        if (array instanceof boolean[] a) return new BooleanArrayValue(a);
+        if (array instanceof short[] a) return new ShortArrayValue(a);
+        if (array instanceof float[] a) return new FloatArrayValue(a);
+        throw new EvalException("Not an array: " + (array != null ? array.getClass().getName() : "null"),
+                ErrorCode.EVAL_TYPE_MISMATCH);
+    }
+
+    // ==================== 装箱缓存 ====================
+    // 与 Integer.valueOf 同理：值不可变，小范围内复用同一实例，避免每个中间结果都分配对象。
+    // 相等性一律按值比较（equals），调用方不得依赖实例身份。
+
+    private static final int INT_CACHE_LOW = -128;
+    private static final int INT_CACHE_HIGH = 1023;
+    private static final IntValue[] INT_CACHE = new IntValue[INT_CACHE_HIGH - INT_CACHE_LOW + 1];
+    private static final LongValue[] LONG_CACHE = new LongValue[256];
+    private static final CharValue[] CHAR_CACHE = new CharValue[128];
+
+    static {
+        for (int i = 0; i < INT_CACHE.length; i++) INT_CACHE[i] = new IntValue(i + INT_CACHE_LOW);
+        for (int i = 0; i < LONG_CACHE.length; i++) LONG_CACHE[i] = new LongValue(i - 128);
+        for (int i = 0; i < CHAR_CACHE.length; i++) CHAR_CACHE[i] = new CharValue((char) i);
+    }
+
+    /** int 值；[-128, 1023] 范围内返回缓存实例。 */
+    public static IntValue ofInt(int value) {
+        if (value >= INT_CACHE_LOW && value <= INT_CACHE_HIGH) return INT_CACHE[value - INT_CACHE_LOW];
+        return new IntValue(value);
+    }
+
+    /** long 值；[-128, 127] 范围内返回缓存实例。 */
+    public static LongValue ofLong(long value) {
+        if (value >= -128 && value <= 127) return LONG_CACHE[(int) value + 128];
+        return new LongValue(value);
+    }
+
+    /** boolean 值，始终返回 {@link BooleanValue#TRUE} / {@link BooleanValue#FALSE}。 */
+    public static BooleanValue ofBoolean(boolean value) {
+        return value ? BooleanValue.TRUE : BooleanValue.FALSE;
+    }
+
+    /** char 值；ASCII 范围内返回缓存实例。 */
+    public static CharValue ofChar(char value) {
+        if (value < CHAR_CACHE.length) return CHAR_CACHE[value];
+        return new CharValue(value);
+    }
+
     public static class IntValue extends Value {
         private final int value;
         public IntValue(int value) { this.value = value; }
@@ -92,6 +142,8 @@ public abstract class Value {
     }
 
     public static class BooleanValue extends Value {
+        public static final BooleanValue TRUE = new BooleanValue(true);
+        public static final BooleanValue FALSE = new BooleanValue(false);
         private final boolean value;
         public BooleanValue(boolean value) { this.value = value; }
         public boolean getValue() { return value; }
@@ -159,18 +211,156 @@ public abstract class Value {
         public int hashCode() { return value.hashCode(); }
     }
 
-    public static class ArrayValue extends Value {
+    // ==================== 数组 ====================
+    // 数组 Value 只是原 Java 数组的视图：asJavaObject 返回原数组，get / set 直接读写原数组，
+    // 宿主传入的 byte[] / int[] 等在脚本中修改后，宿主可见。
+
+    /** 数组 Value 的公共接口：按下标读写原数组。 */
+    public abstract static class AbstractArrayValue extends Value {
+        public abstract int length();
+
+        /** 读取第 index 个元素（调用方负责越界检查，见 {@link #checkIndex(int)}）。 */
+        public abstract Value get(int index);
+
+        /** 写入第 index 个元素，基本类型数组按元素类型做窄化转换。 */
+        public abstract void set(int index, Value value);
+
+        public void checkIndex(int index) {
+            if (index < 0 || index >= length()) {
+                throw new EvalException("Array index out of bounds: " + index, ErrorCode.EVAL_INDEX_OUT_OF_BOUNDS);
+            }
+        }
+
+        /** 元素装箱后的拷贝（基本类型数组）；需要原数组时用 {@link #asJavaObject()}。 */
+        public Object[] asArray() {
+            Object[] boxed = new Object[length()];
+            for (int i = 0; i < boxed.length; i++) boxed[i] = get(i).asJavaObject();
+            return boxed;
+        }
+
+        public String asString() { return toString(); }
+    }
+
+    /** 引用类型数组（Object[]、String[]、int[][] 等）。 */
+    public static class ArrayValue extends AbstractArrayValue {
         private final Object[] elements;
         public ArrayValue(Object[] elements) { this.elements = Objects.requireNonNull(elements); }
         public Object[] getElements() { return elements; }
         public Object[] asArray() { return elements; }
         public int length() { return elements.length; }
+        public Value get(int index) { return Value.of(elements[index]); }
+        public void set(int index, Value value) {
+            Object element = value.asJavaObject();
+            try {
+                elements[index] = element;
+            } catch (ArrayStoreException e) {
+                throw new EvalException("Cannot store " + (element != null ? element.getClass().getSimpleName() : "null")
+                        + " into " + elements.getClass().getComponentType().getSimpleName() + "[]", ErrorCode.EVAL_TYPE_MISMATCH);
+            }
+        }
         public Object asJavaObject() { return elements; }
-        public String asString() { return Arrays.toString(elements); }
-        public String toString() { return Arrays.toString(elements); }
+        public String toString() { return Arrays.deepToString(elements); }
         public boolean equals(Object o) {
-            return this == o || (o instanceof ArrayValue a && Arrays.equals(a.elements, elements));
+            return this == o || (o instanceof ArrayValue a && Arrays.deepEquals(a.elements, elements));
         }
-        public int hashCode() { return Arrays.hashCode(elements); }
+        public int hashCode() { return Arrays.deepHashCode(elements); }
+    }
+
+    public static class IntArrayValue extends AbstractArrayValue {
+        private final int[] array;
+        public IntArrayValue(int[] array) { this.array = Objects.requireNonNull(array); }
+        public int length() { return array.length; }
+        public Value get(int index) { return ofInt(array[index]); }
+        public void set(int index, Value value) { array[index] = value.asInt(); }
+        public Object asJavaObject() { return array; }
+        public String toString() { return Arrays.toString(array); }
+        public boolean equals(Object o) { return this == o || (o instanceof IntArrayValue a && Arrays.equals(a.array, array)); }
+        public int hashCode() { return Arrays.hashCode(array); }
+    }
+
+    public static class LongArrayValue extends AbstractArrayValue {
+        private final long[] array;
+        public LongArrayValue(long[] array) { this.array = Objects.requireNonNull(array); }
+        public int length() { return array.length; }
+        public Value get(int index) { return ofLong(array[index]); }
+        public void set(int index, Value value) { array[index] = value.asLong(); }
+        public Object asJavaObject() { return array; }
+        public String toString() { return Arrays.toString(array); }
+        public boolean equals(Object o) { return this == o || (o instanceof LongArrayValue a && Arrays.equals(a.array, array)); }
+        public int hashCode() { return Arrays.hashCode(array); }
+    }
+
+    public static class DoubleArrayValue extends AbstractArrayValue {
+        private final double[] array;
+        public DoubleArrayValue(double[] array) { this.array = Objects.requireNonNull(array); }
+        public int length() { return array.length; }
+        public Value get(int index) { return new DoubleValue(array[index]); }
+        public void set(int index, Value value) { array[index] = value.asDouble(); }
+        public Object asJavaObject() { return array; }
+        public String toString() { return Arrays.toString(array); }
+        public boolean equals(Object o) { return this == o || (o instanceof DoubleArrayValue a && Arrays.equals(a.array, array)); }
+        public int hashCode() { return Arrays.hashCode(array); }
+    }
+
+    public static class FloatArrayValue extends AbstractArrayValue {
+        private final float[] array;
+        public FloatArrayValue(float[] array) { this.array = Objects.requireNonNull(array); }
+        public int length() { return array.length; }
+        public Value get(int index) { return new DoubleValue(array[index]); }
+        public void set(int index, Value value) { array[index] = (float) value.asDouble(); }
+        public Object asJavaObject() { return array; }
+        public String toString() { return Arrays.toString(array); }
+        public boolean equals(Object o) { return this == o || (o instanceof FloatArrayValue a && Arrays.equals(a.array, array)); }
+        public int hashCode() { return Arrays.hashCode(array); }
+    }
+
+    public static class ByteArrayValue extends AbstractArrayValue {
+        private final byte[] array;
+        public ByteArrayValue(byte[] array) { this.array = Objects.requireNonNull(array); }
+        public int length() { return array.length; }
+        public Value get(int index) { return ofInt(array[index]); }
+        public void set(int index, Value value) { array[index] = (byte) value.asInt(); }
+        public Object asJavaObject() { return array; }
+        public String toString() { return Arrays.toString(array); }
+        public boolean equals(Object o) { return this == o || (o instanceof ByteArrayValue a && Arrays.equals(a.array, array)); }
+        public int hashCode() { return Arrays.hashCode(array); }
+    }
+
+    public static class ShortArrayValue extends AbstractArrayValue {
+        private final short[] array;
+        public ShortArrayValue(short[] array) { this.array = Objects.requireNonNull(array); }
+        public int length() { return array.length; }
+        public Value get(int index) { return ofInt(array[index]); }
+        public void set(int index, Value value) { array[index] = (short) value.asInt(); }
+        public Object asJavaObject() { return array; }
+        public String toString() { return Arrays.toString(array); }
+        public boolean equals(Object o) { return this == o || (o instanceof ShortArrayValue a && Arrays.equals(a.array, array)); }
+        public int hashCode() { return Arrays.hashCode(array); }
+    }
+
+    public static class CharArrayValue extends AbstractArrayValue {
+        private final char[] array;
+        public CharArrayValue(char[] array) { this.array = Objects.requireNonNull(array); }
+        public int length() { return array.length; }
+        public Value get(int index) { return ofChar(array[index]); }
+        public void set(int index, Value value) {
+            array[index] = value instanceof CharValue c ? c.getValue() : (char) value.asInt();
+        }
+        public Object asJavaObject() { return array; }
+        public String toString() { return Arrays.toString(array); }
+        public boolean equals(Object o) { return this == o || (o instanceof CharArrayValue a && Arrays.equals(a.array, array)); }
+        public int hashCode() { return Arrays.hashCode(array); }
+    }
+
+    public static class BooleanArrayValue extends AbstractArrayValue {
+        private final boolean[] array;
+        public BooleanArrayValue(boolean[] array) { this.array = Objects.requireNonNull(array); }
+        public int length() { return array.length; }
+        public Value get(int index) { return ofBoolean(array[index]); }
+        public void set(int index, Value value) { array[index] = value.asBoolean(); }
+        public Object asJavaObject() { return array; }
+        public String toString() { return Arrays.toString(array); }
+        public boolean equals(Object o) { return this == o || (o instanceof BooleanArrayValue a && Arrays.equals(a.array, array)); }
+        public int hashCode() { return Arrays.hashCode(array); }
     }
 }
@@ -145,13 +145,17 @@ public class ExprParser extends BaseParser {
 
         OperatorRegistry.Overload overload =
                 registry.findBinaryCompatible(opSymbol, lhsType, rhsType);
+        rejectFutureOperand(binaryOp, lhsType, rhsType, overload);
 
         if (overload != null) {
-            context.setType(binaryOp, JType.of(overload.returnType()));
-            // 内置运算符：解析期直接写 callback，运行期零查找
-            // 但对于 + 运算符，如果任一参数类型太模糊（Object），延迟到运行时决定
-            // （避免 int+Object 被错误绑定为字符串拼接而非数值加法）
+            // 对于 + 运算符，如果任一参数类型太模糊（Object），延迟到运行时决定
+            // （避免 int+Object 被错误绑定为字符串拼接而非数值加法）。
+            // 此时除非一侧已知是 String，结果类型也未知：记为 String 会让被赋值的变量
+            // 推断成 String，之后它参与的 + 都被解析期绑定为拼接
             boolean skipBind = opSymbol.equals("+") && (isAmbiguousType(lhsType) || isAmbiguousType(rhsType));
+            boolean resultUnknown = skipBind && lhsType != String.class && rhsType != String.class;
+            context.setType(binaryOp, JType.of(resultUnknown ? Object.class : overload.returnType()));
+            // 内置运算符：解析期直接写 callback，运行期零查找
             if (overload.isBuiltin() && !skipBind) {
                 binaryOp.setOperatorCallback(overload.toOperatorCallback(null));
             }
@@ -168,6 +172,31 @@ public class ExprParser extends BaseParser {
         // 宽松模式：静默放行，运行期走 Evaluator switch 兜底
     }
 
+    /**
+     * async 的结果是 Future，不会被自动解包：除了判等、空值合并、字符串拼接和用户注册的运算符，
+     * 对它使用运算符在运行期一定失败，因此宽松模式下也在解析期报错，提示先 await。
+     */
+    private void rejectFutureOperand(BinaryOpNode binaryOp, Class<?> lhsType, Class<?> rhsType,
+                                     OperatorRegistry.Overload overload) throws CythavaParseException {
+        if (!JType.isFuture(lhsType) && !JType.isFuture(rhsType)) return;
+        if (overload != null && !overload.isBuiltin()) return;
+        switch (binaryOp.getOperator()) {
+            case EQUAL, NOT_EQUAL, NULL_COALESCING, ELVIS -> {
+                return;
+            }
+            case ADD -> {
+                if (lhsType == String.class || rhsType == String.class) return;
+            }
+            default -> {
+            }
+        }
+        Class<?> futureType = JType.isFuture(lhsType) ? lhsType : rhsType;
+        throw semanticError(String.format(
+                "Operator '%s' cannot be applied to %s; use 'await' to get the async result",
+                binaryOp.getOperator().getSymbol(), futureType.getSimpleName()),
+                ErrorCode.EVAL_TYPE_MISMATCH);
+    }
+
     /** 判断类型是否过于模糊（Object），不适合在解析期绑定运算符回调。 */
     private static boolean isAmbiguousType(Class<?> type) {
         return type == Object.class || type == null;
@@ -327,6 +356,8 @@ public class ExprParser extends BaseParser {
                         restorePosition();
                         match(TokenType.DELIMITER_LEFT_BRACE);
                         expr = parseBlockExpression();
+                    } else {
+                        releasePosition();
                     }
                 } catch (CythavaParseException e) {
                     restorePosition();
@@ -337,13 +368,8 @@ public class ExprParser extends BaseParser {
                 expr = parseNextExpression();
             }
             AsyncNode asyncNode = new AsyncNode.Builder().expression(expr).location(location).build();
-            // async 包装表达式，值类型与内部表达式一致
-            JType asyncInnerType = context.getType(expr);
-            if (asyncInnerType != null) {
-                annotate(asyncNode, asyncInnerType);
-            } else {
-                annotate(asyncNode, Object.class);
-            }
+            // async 立即返回 CompletableFuture<T>，要 await 之后才是内部表达式的值
+            annotate(asyncNode, JType.futureOf(context.getType(expr)));
             return asyncNode;
         }
 
@@ -355,12 +381,12 @@ public class ExprParser extends BaseParser {
                     .expression(expr)
                     .location(location)
                     .build();
-            // await 从 CompletableFuture<T> 解包出 T
-            JType awaitInnerType = context.getType(expr);
-            if (awaitInnerType != null) {
-                annotate(awaitNode, awaitInnerType);
+            // await 从 CompletableFuture<T> 解包出 T，非 Future 值原样返回；
+            // 直接 await async 时沿用内部表达式的类型（保留基本类型）
+            if (expr instanceof AsyncNode async && context.getType(async.getExpression()) != null) {
+                annotate(awaitNode, context.getType(async.getExpression()));
             } else {
-                annotate(awaitNode, Object.class);
+                annotate(awaitNode, JType.awaited(context.getType(expr)));
             }
             return awaitNode;
         }
@@ -1048,6 +1074,7 @@ public class ExprParser extends BaseParser {
             if (match(TokenType.DELIMITER_LEFT_PAREN)) {
                 ASTNode castResult = tryParseCast();
                 if (castResult != null) {
+                    releasePosition();
                     return castResult;
                 }
                 // 不是强制转换，回退位置，让 parsePostfix 处理括号表达式
@@ -1360,6 +1387,7 @@ public class ExprParser extends BaseParser {
                     }
                 }
             } else {
+                rejectFutureMethod(target, memberName);
                 // 方法未严格匹配：按名称回退推断返回类型
                 annotate(node, inferMethodReturnTypeFallback(target, memberName));
             }
@@ -3440,6 +3468,20 @@ public class ExprParser extends BaseParser {
 
     // ==================== 辅助方法 ====================
 
+    /**
+     * 目标是 Future（async 的结果）而方法名不属于它时，多半是漏写了 await，
+     * 运行期必然找不到方法，这里直接在解析期报错。
+     */
+    private void rejectFutureMethod(ASTNode target, String methodName) throws CythavaParseException {
+        JType targetType = context.getType(target);
+        if (targetType == null || targetType.getArrayDepth() > 0 || !JType.isFuture(targetType.getRawType())) return;
+        for (Method method : targetType.getRawType().getMethods()) {
+            if (method.getName().equals(methodName)) return;
+        }
+        throw semanticError("No method '" + methodName + "' on " + targetType.getRawType().getSimpleName()
+                + "; use 'await' to get the async result", ErrorCode.EVAL_TYPE_MISMATCH);
+    }
+
     /**
      * 方法调用未绑定时的返回类型回退推断。
      * <p>
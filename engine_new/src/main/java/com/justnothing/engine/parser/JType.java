@@ -1,6 +1,8 @@
 package com.justnothing.engine.parser;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import com.justnothing.engine.ast.GenericType;
@@ -60,6 +62,38 @@ public interface JType {
         return new GenericTypeWrapper(new GenericType(clazz));
     }
 
+    /**
+     * async 表达式的类型：{@code CompletableFuture<T>}，T 为内部表达式的类型（基本类型装箱）。
+     * 内部类型未知或为 void 时返回不带泛型参数的 {@code CompletableFuture}。
+     */
+    static JType futureOf(JType valueType) {
+        if (valueType == null || valueType.getRawType() == null || valueType.getRawType() == void.class) {
+            return of(CompletableFuture.class);
+        }
+        GenericType inner = valueType instanceof GenericTypeWrapper wrapper
+                ? wrapper.delegate
+                : new GenericType(valueType.getRawType());
+        if (inner.getRawType().isPrimitive() && inner.getArrayDepth() == 0) {
+            inner = new GenericType(OperatorRegistry.boxPrimitive(inner.getRawType()));
+        }
+        return fromGenericType(new GenericType(CompletableFuture.class, List.of(inner)));
+    }
+
+    /**
+     * await 的结果类型：{@code Future<T>} 解包为 T（没有泛型参数时为 Object），其它类型原样返回。
+     */
+    static JType awaited(JType type) {
+        if (type == null || type.getRawType() == null) return of(Object.class);
+        if (type.getArrayDepth() > 0 || !Future.class.isAssignableFrom(type.getRawType())) return type;
+        List<JType> args = type.getTypeArguments();
+        return args.size() == 1 ? args.get(0) : of(Object.class);
+    }
+
+    /** 是否为 {@link Future}（例如 async 的结果）。这类值必须先 await 才能当作结果使用。 */
+    static boolean isFuture(Class<?> type) {
+        return type != null && Future.class.isAssignableFrom(type);
+    }
+
     // ==================== 默认实现 ====================
 
     /**
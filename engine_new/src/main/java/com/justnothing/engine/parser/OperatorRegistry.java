@@ -11,6 +11,9 @@ import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
 import java.util.function.UnaryOperator;
 
 /**
@@ -88,6 +91,12 @@ public final class OperatorRegistry {
     /** 所有已注册的重载（按注册顺序） */
     private final List<Overload> allOverloads = Collections.synchronizedList(new ArrayList<>());
 
+    /** 注册总次数（含替换），用于判断运算符表是否仍是 {@link #registerAllBuiltins()} 的原样。 */
+    private volatile int registrationCount;
+
+    /** registerAllBuiltins() 完成时的注册次数，-1 表示尚未预注册。 */
+    private volatile int builtinRegistrationCount = -1;
+
     // ==================== 用户自定义注册（AST 节点）====================
 
     /**
@@ -158,11 +167,13 @@ public final class OperatorRegistry {
     private void doRegisterBinary(String op, Class<?> lhs, Class<?> rhs, Overload overload) {
         binaryOps.put(new BinaryOpKey(op, lhs, rhs), overload);
         allOverloads.add(overload);
+        registrationCount++;
     }
 
     private void doRegisterUnary(String op, Class<?> operand, Overload overload) {
         unaryOps.put(new UnaryOpKey(op, operand), overload);
         allOverloads.add(overload);
+        registrationCount++;
     }
 
     // ==================== 查找 ====================
@@ -234,10 +245,20 @@ public final class OperatorRegistry {
         return allOverloads.stream().anyMatch(Overload::isBuiltin);
     }
 
+    /**
+     * 运算符表是否恰好是 {@link #registerAllBuiltins()} 预注册的内置集合（之后没有任何新增或替换）。
+     * <p>编译层据此判断能否把算术/比较直接编译为 JVM 指令而不改变语义。</p>
+     */
+    public boolean isBuiltinOnly() {
+        return builtinRegistrationCount >= 0 && registrationCount == builtinRegistrationCount;
+    }
+
     public void clear() {
         binaryOps.clear();
         unaryOps.clear();
         allOverloads.clear();
+        registrationCount = 0;
+        builtinRegistrationCount = -1;
     }
 
     /**
@@ -255,33 +276,33 @@ public final class OperatorRegistry {
         // ===== 算术运算符 =====
         // + : 字符串拼接优先，否则数值加法（智能提升）
         registerBuiltinBinary(Operators.ADD, String.class, Object.class, String.class,
-                (l, r) -> new Value.StringValue(l.asJavaObject().toString() + r.asJavaObject().toString()));
+                (l, r) -> new Value.StringValue(concatString(l) + concatString(r)));
         registerBuiltinBinary(Operators.ADD, String.class, String.class, Object.class,
-                (l, r) -> new Value.StringValue(l.asJavaObject().toString() + r.asJavaObject().toString()));
+                (l, r) -> new Value.StringValue(concatString(l) + concatString(r)));
         registerBuiltinBinary(Operators.ADD, Number.class, Number.class, Object.class,
-                (l, r) -> numericAdd(l, r));
+                OperatorRegistry::numericAdd);
 
         // -, *, /, % : 统一用智能数值运算（Double > Long > Int）
         registerBuiltinBinary(Operators.SUBTRACT, Number.class, Number.class, Object.class,
                 (l, r) -> smartNumericOp(l, r,
-                        (a, b) -> new Value.DoubleValue(a - b),
-                        (a, b) -> new Value.LongValue(a - b),
-                        (a, b) -> new Value.IntValue(a - b)));
+                        (a, b) -> a - b,
+                        (a, b) -> a - b,
+                        (a, b) -> a - b));
         registerBuiltinBinary(Operators.MULTIPLY, Number.class, Number.class, Object.class,
                 (l, r) -> smartNumericOp(l, r,
-                        (a, b) -> new Value.DoubleValue(a * b),
-                        (a, b) -> new Value.LongValue(a * b),
-                        (a, b) -> new Value.IntValue(a * b)));
+                        (a, b) -> a * b,
+                        (a, b) -> a * b,
+                        (a, b) -> a * b));
         registerBuiltinBinary(Operators.DIVIDE, Number.class, Number.class, Object.class,
                 (l, r) -> smartNumericOp(l, r,
-                        (a, b) -> { if (b == 0) throw new EvalException("Division by zero", ErrorCode.EVAL_DIVISION_BY_ZERO); return new Value.DoubleValue(a / b); },
-                        (a, b) -> { if (b == 0) throw new EvalException("Division by zero", ErrorCode.EVAL_DIVISION_BY_ZERO); return new Value.LongValue(a / b); },
-                        (a, b) -> { if (b == 0) throw new EvalException("Division by zero", ErrorCode.EVAL_DIVISION_BY_ZERO); return new Value.IntValue(a / b); }));
+                        (a, b) -> { if (b == 0) throw divisionByZero(); return a / b; },
+                        (a, b) -> { if (b == 0) throw divisionByZero(); return a / b; },
+                        (a, b) -> { if (b == 0) throw divisionByZero(); return a / b; }));
         registerBuiltinBinary(Operators.MODULO, Number.class, Number.class, Object.class,
                 (l, r) -> smartNumericOp(l, r,
-                        (a, b) -> { if (b == 0) throw new EvalException("Division by zero", ErrorCode.EVAL_DIVISION_BY_ZERO); return new Value.DoubleValue(a % b); },
-                        (a, b) -> { if (b == 0) throw new EvalException("Division by zero", ErrorCode.EVAL_DIVISION_BY_ZERO); return new Value.LongValue(a % b); },
-                        (a, b) -> { if (b == 0) throw new EvalException("Division by zero", ErrorCode.EVAL_DIVISION_BY_ZERO); return new Value.IntValue(a % b); }));
+                        (a, b) -> { if (b == 0) throw divisionByZero(); return a % b; },
+                        (a, b) -> { if (b == 0) throw divisionByZero(); return a % b; },
+                        (a, b) -> { if (b == 0) throw divisionByZero(); return a % b; }));
 
         // ** (幂运算): 始终返回 double（Math.pow 的自然行为）
         registerBuiltinBinary(Operators.POWER, Number.class, Number.class, Double.class,
@@ -289,46 +310,46 @@ public final class OperatorRegistry {
 
         // 整数专用运算符
         registerBuiltinBinary(Operators.INT_DIVIDE, Integer.class, Integer.class, Long.class,
-                (l, r) -> { int b = r.asInt(); if (b == 0) throw new EvalException("Division by zero", ErrorCode.EVAL_DIVISION_BY_ZERO); return new Value.LongValue((long) l.asInt() / b); });
+                (l, r) -> { int b = r.asInt(); if (b == 0) throw divisionByZero(); return Value.ofLong((long) l.asInt() / b); });
         registerBuiltinBinary(Operators.MATH_MODULO, Integer.class, Integer.class, Long.class,
-                (l, r) -> { int b = r.asInt(); if (b == 0) throw new EvalException("Division by zero", ErrorCode.EVAL_DIVISION_BY_ZERO); return new Value.LongValue(Math.floorMod(l.asInt(), b)); });
+                (l, r) -> { int b = r.asInt(); if (b == 0) throw divisionByZero(); return Value.ofLong(Math.floorMod(l.asInt(), b)); });
 
         // ===== 比较运算符 =====
         registerBuiltinBinary(Operators.EQUAL, Object.class, Object.class, Boolean.class,
-                (l, r) -> new Value.BooleanValue(l.equals(r)));
+                (l, r) -> Value.ofBoolean(l.equals(r)));
         registerBuiltinBinary(Operators.NOT_EQUAL, Object.class, Object.class, Boolean.class,
-                (l, r) -> new Value.BooleanValue(!l.equals(r)));
+                (l, r) -> Value.ofBoolean(!l.equals(r)));
         registerBuiltinBinary(Operators.LESS_THAN, Number.class, Number.class, Boolean.class,
-                (l, r) -> new Value.BooleanValue(compareValues(l, r) < 0));
+                (l, r) -> Value.ofBoolean(compareValues(l, r) < 0));
         registerBuiltinBinary(Operators.LESS_THAN_OR_EQUAL, Number.class, Number.class, Boolean.class,
-                (l, r) -> new Value.BooleanValue(compareValues(l, r) <= 0));
+                (l, r) -> Value.ofBoolean(compareValues(l, r) <= 0));
         registerBuiltinBinary(Operators.GREATER_THAN, Number.class, Number.class, Boolean.class,
-                (l, r) -> new Value.BooleanValue(compareValues(l, r) > 0));
+                (l, r) -> Value.ofBoolean(compareValues(l, r) > 0));
         registerBuiltinBinary(Operators.GREATER_THAN_OR_EQUAL, Number.class, Number.class, Boolean.class,
-                (l, r) -> new Value.BooleanValue(compareValues(l, r) >= 0));
+                (l, r) -> Value.ofBoolean(compareValues(l, r) >= 0));
         registerBuiltinBinary(Operators.SPACESHIP, Object.class, Object.class, Integer.class,
-                (l, r) -> new Value.IntValue(compareValues(l, r)));
+                (l, r) -> Value.ofInt(compareValues(l, r)));
 
         // ===== 逻辑运算符 =====
         registerBuiltinBinary(Operators.LOGICAL_AND, Object.class, Object.class, Boolean.class,
-                (l, r) -> new Value.BooleanValue(l.isTruthy() && r.isTruthy()));
+                (l, r) -> Value.ofBoolean(l.isTruthy() && r.isTruthy()));
         registerBuiltinBinary(Operators.LOGICAL_OR, Object.class, Object.class, Boolean.class,
-                (l, r) -> new Value.BooleanValue(l.isTruthy() || r.isTruthy()));
+                (l, r) -> Value.ofBoolean(l.isTruthy() || r.isTruthy()));
 
         // ===== 位运算符 (int, int) → int =====
         // 注意：注册 int.class 而非 Integer.class，这样基本类型可以直接精确匹配
         registerBuiltinBinary(Operators.BITWISE_AND, int.class, int.class, int.class,
-                (l, r) -> new Value.IntValue(l.asInt() & r.asInt()));
+                (l, r) -> Value.ofInt(l.asInt() & r.asInt()));
         registerBuiltinBinary(Operators.BITWISE_OR, int.class, int.class, int.class,
-                (l, r) -> new Value.IntValue(l.asInt() | r.asInt()));
+                (l, r) -> Value.ofInt(l.asInt() | r.asInt()));
         registerBuiltinBinary(Operators.BITWISE_XOR, int.class, int.class, int.class,
-                (l, r) -> new Value.IntValue(l.asInt() ^ r.asInt()));
+                (l, r) -> Value.ofInt(l.asInt() ^ r.asInt()));
         registerBuiltinBinary(Operators.LEFT_SHIFT, int.class, int.class, int.class,
-                (l, r) -> new Value.IntValue(l.asInt() << r.asInt()));
+                (l, r) -> Value.ofInt(l.asInt() << r.asInt()));
         registerBuiltinBinary(Operators.RIGHT_SHIFT, int.class, int.class, int.class,
-                (l, r) -> new Value.IntValue(l.asInt() >> r.asInt()));
+                (l, r) -> Value.ofInt(l.asInt() >> r.asInt()));
         registerBuiltinBinary(Operators.UNSIGNED_RIGHT_SHIFT, int.class, int.class, int.class,
-                (l, r) -> new Value.IntValue(l.asInt() >>> r.asInt()));
+                (l, r) -> Value.ofInt(l.asInt() >>> r.asInt()));
 
         // ===== 范围运算符 =====
         registerBuiltinBinary(Operators.RANGE, int.class, int.class, Object.class,
@@ -340,40 +361,45 @@ public final class OperatorRegistry {
         // - (负号): 智能类型保持
         registerBuiltinUnary(Operators.SUBTRACT, Number.class, Object.class,
                 v -> {
-                    if (v instanceof Value.IntValue) return new Value.IntValue(-v.asInt());
-                    if (v instanceof Value.LongValue) return new Value.LongValue(-v.asLong());
+                    if (v instanceof Value.IntValue i) return Value.ofInt(-i.getValue());
+                    if (v instanceof Value.LongValue l) return Value.ofLong(-l.getValue());
                     return new Value.DoubleValue(-v.asDouble());
                 });
         registerBuiltinUnary(Operators.NOT, Object.class, Boolean.class,
-                v -> new Value.BooleanValue(!v.isTruthy()));
+                v -> Value.ofBoolean(!v.isTruthy()));
         registerBuiltinUnary(Operators.BITWISE_NOT, int.class, int.class,
-                v -> new Value.IntValue(~v.asInt()));
+                v -> Value.ofInt(~v.asInt()));
+        builtinRegistrationCount = registrationCount;
     }
 
     // ==================== 智能运算辅助方法 ====================
 
     /**
      * 智能数值二元运算：根据操作数实际类型选择 Double > Long > Int 分支。
-     * <p>与 Evaluator.binaryNumericOp() 行为完全一致。 */
-    @FunctionalInterface
-    private interface DoubleBiOp { Value apply(double a, double b); }
-    @FunctionalInterface
-    private interface LongBiOp { Value apply(long a, long b); }
-    @FunctionalInterface
-    private interface IntBiOp { Value apply(int a, int b); }
-
-    private static Value smartNumericOp(Value l, Value r,
-                                       DoubleBiOp doubleOp, LongBiOp longOp, IntBiOp intOp) {
+     * <p>与 Evaluator.binaryNumericOp() 行为完全一致。
+     * <p>各分支直接在基本类型上运算，结果经 {@link Value#ofInt} 等缓存工厂包装；
+     * int × int 作为最常见情形最先判断，全程不经过 {@code asJavaObject()} 装箱。 */
+    private static Value smartNumericOp(Value l, Value r, DoubleBinaryOperator doubleOp,
+                                        LongBinaryOperator longOp, IntBinaryOperator intOp) {
+        if (l instanceof Value.IntValue a && r instanceof Value.IntValue b)
+            return Value.ofInt(intOp.applyAsInt(a.getValue(), b.getValue()));
         if (l instanceof Value.DoubleValue || r instanceof Value.DoubleValue)
-            return doubleOp.apply(l.asDouble(), r.asDouble());
+            return new Value.DoubleValue(doubleOp.applyAsDouble(l.asDouble(), r.asDouble()));
         if (l instanceof Value.LongValue || r instanceof Value.LongValue)
-            return longOp.apply(l.asLong(), r.asLong());
-        return intOp.apply(l.asInt(), r.asInt());
+            return Value.ofLong(longOp.applyAsLong(l.asLong(), r.asLong()));
+        return Value.ofInt(intOp.applyAsInt(l.asInt(), r.asInt()));
+    }
+
+    private static EvalException divisionByZero() {
+        return new EvalException("Division by zero", ErrorCode.EVAL_DIVISION_BY_ZERO);
     }
 
     // ==================== 内置运算辅助方法 ====================
 
     private static Value numericAdd(Value l, Value r) {
+        if (l instanceof Value.IntValue a && r instanceof Value.IntValue b) {
+            return Value.ofInt(a.getValue() + b.getValue());
+        }
         if (l instanceof Value.StringValue || r instanceof Value.StringValue) {
             return new Value.StringValue(l.asString() + r.asString());
         }
@@ -381,18 +407,31 @@ public final class OperatorRegistry {
             return new Value.DoubleValue(l.asDouble() + r.asDouble());
         }
         if (l instanceof Value.LongValue || r instanceof Value.LongValue) {
-            return new Value.LongValue(l.asLong() + r.asLong());
+            return Value.ofLong(l.asLong() + r.asLong());
+        }
+        return Value.ofInt(l.asInt() + r.asInt());
+    }
+
+    /**
+     * 字符串拼接时操作数的文本形式，等价于 {@code asJavaObject().toString()}，
+     * 但基本类型值直接格式化，不先装箱。
+     */
+    private static String concatString(Value v) {
+        if (v instanceof Value.StringValue s) return s.getValue();
+        if (v instanceof Value.IntValue || v instanceof Value.LongValue || v instanceof Value.DoubleValue
+                || v instanceof Value.BooleanValue || v instanceof Value.CharValue) {
+            return v.asString();
         }
-        return new Value.IntValue(l.asInt() + r.asInt());
+        return v.asJavaObject().toString();
     }
 
     private static int compareValues(Value a, Value b) {
+        if (a instanceof Value.IntValue x && b instanceof Value.IntValue y) {
+            return Integer.compare(x.getValue(), y.getValue());
+        }
         if (a instanceof Value.DoubleValue || b instanceof Value.DoubleValue) {
             return Double.compare(a.asDouble(), b.asDouble());
         }
-        if (a instanceof Value.IntValue && b instanceof Value.IntValue) {
-            return Integer.compare(a.asInt(), b.asInt());
-        }
         return Long.compare(a.asLong(), b.asLong());
     }
 
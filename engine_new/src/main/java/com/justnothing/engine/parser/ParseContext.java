@@ -461,6 +461,20 @@ public class ParseContext {
         return resolveVariable(name) != null;
     }
 
+    /**
+     * 当前所有可见变量的快照（内层作用域遮蔽外层同名变量），按名字排序。
+     * <p>用于编译缓存：同一段源码在不同的符号表下可能解析出不同的类型与绑定。</p>
+     */
+    public SortedMap<String, VariableSymbol> getVisibleVariables() {
+        SortedMap<String, VariableSymbol> result = new TreeMap<>();
+        for (Scope scope : scopeStack) {
+            for (Map.Entry<String, VariableSymbol> entry : scope.variables.entrySet()) {
+                result.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
     /** 判断变量是否在当前作用域已声明（用于重复声明检测）。 */
     public boolean isVariableDeclared(String name) {
         if (scopeStack.isEmpty()) return false;
@@ -66,6 +66,8 @@ public class Parser extends BaseParser {
             declParser.setPosition(stmtParser.getPosition());
             this.setPosition(stmtParser.getPosition());
         }
+        // 为局部变量分配帧槽位（运行期按下标访问，免去父链字符串查找）
+        SlotResolver.resolve(result, context.getBuiltinRegistry());
         return result;
     }
 
@@ -0,0 +1,524 @@
+package com.justnothing.engine.parser;
+
+import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.FrameLayout;
+import com.justnothing.engine.ast.SlotRef;
+import com.justnothing.engine.ast.nodes.*;
+import com.justnothing.engine.builtins.BuiltinRegistry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 局部变量槽位解析器（解析后 pass）。
+ * <p>
+ * 在 {@link Parser#parse()} 产出 AST 之后运行，为局部变量分配 {@code (depth, slot)} 地址，
+ * 使 Evaluator 可以按下标读写帧数组，而不是沿 EvalContext 父链逐级做 HashMap 查找。
+ * </p>
+ *
+ * <h3>帧模型</h3>
+ * <p>
+ * {@link ParseContext} 的作用域（{@code enterScope/declareVariable}）服务于解析期的符号检查，
+ * 与运行期 EvalContext 的嵌套并不一一对应（例如传统 for 的初始化变量声明在外层作用域，
+ * switch 的每个 case 在运行期各自创建子上下文）。因此这里沿用 {@link ParseContext.ScopeKind}
+ * 的分类，但严格按 Evaluator 创建子上下文的规则重建帧：
+ * </p>
+ * <ul>
+ *   <li>{@link BlockNode}、{@link ForNode}、{@link ForEachNode}、{@link CaseNode}、
+ *       {@link CatchClause}、{@link LambdaNode}、{@link FunctionDefNode} 各对应一帧</li>
+ *   <li>顶层（全局）帧保持按名字查找：REPL 跨输入共享、宿主通过 setVariable 注入、delete 等都依赖它</li>
+ *   <li>类声明、匿名类体由 CustomClassExecutor 以独立上下文执行，不参与解析</li>
+ * </ul>
+ *
+ * <h3>闭包捕获</h3>
+ * <p>
+ * 同一遍历中顺带为每个 {@link LambdaNode} 收集自由变量：函数体内引用、但不在 lambda 自身帧（及其内层帧）
+ * 中声明的名字，按首次出现顺序写入 {@link LambdaNode#setCapturedNames(String[])}。
+ * </p>
+ *
+ * <h3>for-each 数据源</h3>
+ * <p>
+ * 检查 for-each 的循环体是否可能修改数据源，只有可能修改时才让 Evaluator 在遍历前拷贝快照
+ * （{@link ForEachNode#setSnapshotSource(boolean)}），其余情况直接在迭代器上遍历。以下情况视为可能修改：
+ * </p>
+ * <ul>
+ *   <li>对数据源的根变量（如 {@code list}、{@code map.keySet()} 中的 {@code map}）或它的别名调用了
+ *       只读白名单以外的方法，或把它们作为实参传出。别名按名字在整个脚本内合并，不区分先后和作用域：
+ *       {@code a = b}、{@code a = b.subList(..)}、{@code obj.f = b}、{@code arr[i] = b}、{@code c.put(k, b)}</li>
+ *   <li>调用了内置函数以外的函数（脚本函数、保存在变量里的 lambda）或直接调用表达式，
+ *       被调用方可能经由闭包修改数据源</li>
+ * </ul>
+ * <p>
+ * 检查之外的间接修改（例如经由 Java 对象内部持有的引用）在遍历时抛出的
+ * {@link java.util.ConcurrentModificationException} 由 Evaluator 转成带位置的求值错误。
+ * </p>
+ *
+ * <h3>安全性</h3>
+ * <p>
+ * 声明按语句顺序登记，引用只能看到此前已声明的名字。若某个引用越过的帧在之后声明了同名变量
+ * （运行期可能遮蔽），该引用退回按名字查找。运行期还会校验目标帧布局的身份，
+ * 任何不匹配都同样退回按名字查找，因此槽位只是快速路径，不改变语义。
+ * </p>
+ */
+public final class SlotResolver {
+
+    /** 解析中的一帧。layout 为 null 表示按名字查找的动态帧（全局）。 */
+    private record Frame(ParseContext.ScopeKind kind, FrameLayout layout) {
+    }
+
+    /** 越过了若干帧才找到目标的引用，需在全部解析结束后复核是否被遮蔽。 */
+    private record Pending(ASTNode node, String name, Frame[] skipped) {
+    }
+
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private final Map<ASTNode, SlotRef> slots = new IdentityHashMap<>();
+    private final Map<ASTNode, Boolean> conflicts = new IdentityHashMap<>();
+    private final List<Pending> pending = new ArrayList<>();
+    /** 正在遍历的 lambda（最内层在栈顶）。 */
+    private final Deque<Capture> captures = new ArrayDeque<>();
+
+    /** 一个 lambda 的自由变量收集状态；position 为 lambda 帧在帧栈中自底向上的位置。 */
+    private record Capture(int position, Set<String> names) {
+    }
+
+    /** 正在遍历循环体的 for-each（最内层在栈顶）。 */
+    private final Deque<LoopSource> loopSources = new ArrayDeque<>();
+    /** 全部 for-each，别名要等整个脚本遍历完才能确定，是否快照在 {@link #apply()} 中决定。 */
+    private final List<LoopSource> allLoopSources = new ArrayList<>();
+    /** 变量名之间的别名关系（并查集）。 */
+    private final Map<String, String> aliases = new HashMap<>();
+    /** 脚本中声明或赋值过的名字，可能遮蔽同名内置函数。 */
+    private final Set<String> assignedNames = new HashSet<>();
+    private final BuiltinRegistry builtins;
+
+    /** 一个 for-each 循环体对数据源可能产生影响的操作。 */
+    private static final class LoopSource {
+        final ForEachNode node;
+        /** 数据源的根变量名，数据源不以变量为根时为 null。 */
+        final String rootName;
+        /** 被调用了非只读方法或作为实参传出的根变量名。 */
+        final Set<String> touched = new HashSet<>();
+        /** 调用的函数名，内置函数以外的视为可能修改。 */
+        final Set<String> calledFunctions = new HashSet<>();
+        boolean directCall;
+
+        LoopSource(ForEachNode node, String rootName) {
+            this.node = node;
+            this.rootName = rootName;
+        }
+    }
+
+    /** 不修改接收者的常用方法；对数据源调用其他方法一律视为可能修改。 */
+    private static final Set<String> READ_ONLY_METHODS = Set.of(
+            "get", "getOrDefault", "size", "length", "isEmpty", "contains", "containsKey", "containsValue",
+            "containsAll", "indexOf", "lastIndexOf", "charAt", "equals", "hashCode", "toString",
+            "getFirst", "getLast", "peek", "first", "last", "stream", "toArray", "forEach");
+
+    private SlotResolver(BuiltinRegistry builtins) {
+        this.builtins = builtins;
+        frames.push(new Frame(ParseContext.ScopeKind.GLOBAL, null));
+    }
+
+    /**
+     * 为一组顶层节点分配局部变量槽位，结果直接写回 AST 节点。
+     * 不知道内置函数表时，for-each 循环体中的任何函数调用都视为可能修改数据源。
+     *
+     * @param nodes 顶层 AST 节点列表（在全局作用域中求值）
+     */
+    public static void resolve(List<ASTNode> nodes) {
+        resolve(nodes, null);
+    }
+
+    /**
+     * 为一组顶层节点分配局部变量槽位，结果直接写回 AST 节点。
+     *
+     * @param nodes    顶层 AST 节点列表（在全局作用域中求值）
+     * @param builtins 内置函数表，用于区分 for-each 循环体中的内置函数调用与脚本函数调用，可为 null
+     */
+    public static void resolve(List<ASTNode> nodes, BuiltinRegistry builtins) {
+        if (nodes == null || nodes.isEmpty()) return;
+        SlotResolver resolver = new SlotResolver(builtins);
+        for (ASTNode node : nodes) {
+            resolver.visit(node);
+        }
+        resolver.apply();
+    }
+
+    // ==================== 遍历 ====================
+
+    private void visit(ASTNode node) {
+        if (node == null) return;
+        if (node instanceof VariableNode n) {
+            reference(n, n.getName());
+        } else if (node instanceof AssignmentNode n) {
+            visit(n.getValue());
+            assignedNames.add(n.getVariableName());
+            alias(n.getVariableName(), rootVariable(n.getValue()));
+            if (n.isDeclaration()) {
+                declare(n, n.getVariableName());
+            } else {
+                reference(n, n.getVariableName());
+            }
+        } else if (node instanceof VarDeclNode n) {
+            visit(n.getInitializer());
+            assignedNames.add(n.getVarName());
+            alias(n.getVarName(), rootVariable(n.getInitializer()));
+            declare(n, n.getVarName());
+        } else if (node instanceof BinaryOpNode n) {
+            visit(n.getLeft());
+            visit(n.getRight());
+        } else if (node instanceof UnaryOpNode n) {
+            visit(n.getOperand());
+        } else if (node instanceof MethodCallNode n) {
+            checkLoopSource(n.getTarget(), n.getMethodName(), n.getArguments());
+            visit(n.getTarget());
+            visitAll(n.getArguments());
+        } else if (node instanceof FunctionCallNode n) {
+            capture(n.getFunctionName(), positionOf(n.getFunctionName()));
+            for (LoopSource source : loopSources) source.calledFunctions.add(n.getFunctionName());
+            checkLoopSource(null, null, n.getArguments());
+            visitAll(n.getArguments());
+        } else if (node instanceof DirectCallNode n) {
+            for (LoopSource source : loopSources) source.directCall = true;
+            checkLoopSource(null, null, n.getArguments());
+            visit(n.getTarget());
+            visitAll(n.getArguments());
+        } else if (node instanceof SafeMethodCallNode n) {
+            checkLoopSource(n.getTarget(), n.getMethodName(), n.getArguments());
+            visit(n.getTarget());
+            visitAll(n.getArguments());
+        } else if (node instanceof FieldAccessNode n) {
+            visit(n.getTarget());
+        } else if (node instanceof SafeFieldAccessNode n) {
+            visit(n.getTarget());
+        } else if (node instanceof FieldAssignmentNode n) {
+            alias(rootVariable(n.getTarget()), rootVariable(n.getValue()));
+            visit(n.getTarget());
+            visit(n.getValue());
+        } else if (node instanceof ConstructorCallNode n) {
+            // 匿名类体由 CustomClassExecutor 执行，不在此解析
+            visitAll(n.getArguments());
+            visit(n.getArrayInitializer());
+        } else if (node instanceof TernaryNode n) {
+            visit(n.getCondition());
+            visit(n.getThenExpr());
+            visit(n.getElseExpr());
+        } else if (node instanceof ArrayAccessNode n) {
+            visit(n.getArray());
+            visit(n.getIndex());
+        } else if (node instanceof ArrayAssignmentNode n) {
+            alias(rootVariable(n.getArray()), rootVariable(n.getValue()));
+            visit(n.getArray());
+            visit(n.getIndex());
+            visit(n.getValue());
+        } else if (node instanceof ArrayLiteralNode n) {
+            visitAll(n.getElements());
+            visit(n.getArrayLength());
+        } else if (node instanceof NewArrayNode n) {
+            visit(n.getSize());
+            visitAll(n.getSizes());
+        } else if (node instanceof CastNode n) {
+            visit(n.getExpression());
+        } else if (node instanceof InstanceofNode n) {
+            visit(n.getExpression());
+        } else if (node instanceof PipelineNode n) {
+            visit(n.getInput());
+            visit(n.getFunction());
+        } else if (node instanceof MethodReferenceNode n) {
+            visit(n.getTarget());
+        } else if (node instanceof MapLiteralNode n) {
+            for (Map.Entry<ASTNode, ASTNode> entry : n.getEntries().entrySet()) {
+                visit(entry.getKey());
+                visit(entry.getValue());
+            }
+        } else if (node instanceof InterpolatedStringNode n) {
+            for (InterpolatedStringNode.Part part : n.getParts()) {
+                if (part.isExpression()) visit(part.getExpression());
+            }
+        } else if (node instanceof AsyncNode n) {
+            visit(n.getExpression());
+        } else if (node instanceof AwaitNode n) {
+            visit(n.getExpression());
+        } else if (node instanceof ReturnNode n) {
+            visit(n.getValue());
+        } else if (node instanceof ThrowNode n) {
+            visit(n.getExpression());
+        } else if (node instanceof ConditionalAssignNode n) {
+            visit(n.getValue());
+        } else if (node instanceof NullCoalescingAssignNode n) {
+            visit(n.getValue());
+        } else if (node instanceof LabeledStatementNode n) {
+            visit(n.getStatement());
+        } else if (node instanceof IfNode n) {
+            visit(n.getCondition());
+            visit(n.getThenBlock());
+            visit(n.getElseBlock());
+        } else if (node instanceof WhileNode n) {
+            visit(n.getCondition());
+            visit(n.getBody());
+        } else if (node instanceof DoWhileNode n) {
+            visit(n.getBody());
+            visit(n.getCondition());
+        } else if (node instanceof BlockNode n) {
+            n.setFrameLayout(enterFrame(ParseContext.ScopeKind.BLOCK));
+            visitAll(n.getStatements());
+            exitFrame();
+        } else if (node instanceof ForNode n) {
+            n.setFrameLayout(enterFrame(ParseContext.ScopeKind.BLOCK));
+            visit(n.getInitialization());
+            visit(n.getCondition());
+            visit(n.getBody());
+            visit(n.getUpdate());
+            exitFrame();
+        } else if (node instanceof ForEachNode n) {
+            visit(n.getCollection());
+            FrameLayout layout = enterFrame(ParseContext.ScopeKind.BLOCK);
+            layout.declare(n.getItemName());
+            n.setFrameLayout(layout);
+            LoopSource source = new LoopSource(n, rootVariable(n.getCollection()));
+            loopSources.push(source);
+            allLoopSources.add(source);
+            visit(n.getBody());
+            loopSources.pop();
+            exitFrame();
+        } else if (node instanceof SwitchNode n) {
+            visitSwitch(n);
+        } else if (node instanceof TryNode n) {
+            visitTry(n);
+        } else if (node instanceof LambdaNode n) {
+            FrameLayout layout = enterFrame(ParseContext.ScopeKind.LAMBDA);
+            for (LambdaNode.Parameter p : n.getParameters()) {
+                layout.declare(p.name());
+            }
+            n.setFrameLayout(layout);
+            Capture capture = new Capture(frames.size() - 1, new LinkedHashSet<>());
+            captures.push(capture);
+            visit(n.getBody());
+            captures.pop();
+            n.setCapturedNames(capture.names().toArray(new String[0]));
+            exitFrame();
+        } else if (node instanceof FunctionDefNode n) {
+            assignedNames.add(n.getFunctionName());
+            // 函数名登记在定义处所在帧，使函数体内的递归引用可见
+            FrameLayout outer = frames.peek().layout();
+            if (outer != null) outer.declare(n.getFunctionName());
+            FrameLayout layout = enterFrame(ParseContext.ScopeKind.METHOD);
+            for (LambdaNode.Parameter p : n.getParameters()) {
+                layout.declare(p.name());
+            }
+            n.setFrameLayout(layout);
+            visit(n.getBody());
+            exitFrame();
+        }
+        // 其余节点（字面量、类引用、import/using、类声明、break/continue/delete 等）不含局部变量引用
+    }
+
+    private void visitAll(List<ASTNode> nodes) {
+        if (nodes == null) return;
+        for (ASTNode node : nodes) {
+            visit(node);
+        }
+    }
+
+    private void visitSwitch(SwitchNode node) {
+        visit(node.getExpression());
+        for (CaseNode caseNode : node.getCases()) {
+            // case 标签在外层上下文求值，命中后 case 语句在独立子上下文中执行
+            visit(caseNode.getValue());
+            caseNode.setFrameLayout(enterFrame(ParseContext.ScopeKind.BLOCK));
+            visitAll(caseNode.getStatements());
+            exitFrame();
+        }
+        ASTNode defaultCase = node.getDefaultCase();
+        if (defaultCase instanceof BlockNode block) {
+            // default 块的语句直接在一个子上下文中逐条执行（不经过 visitBlock）
+            block.setFrameLayout(enterFrame(ParseContext.ScopeKind.BLOCK));
+            visitAll(block.getStatements());
+            exitFrame();
+        } else {
+            visit(defaultCase);
+        }
+    }
+
+    private void visitTry(TryNode node) {
+        visit(node.getTryBlock());
+        for (CatchClause clause : node.getCatchClauses()) {
+            FrameLayout layout = enterFrame(ParseContext.ScopeKind.BLOCK);
+            layout.declare(clause.getVariableName());
+            clause.setFrameLayout(layout);
+            visit(clause.getBody());
+            exitFrame();
+        }
+        visit(node.getFinallyBlock());
+    }
+
+    // ==================== for-each 数据源 ====================
+
+    /**
+     * 记录方法调用对数据源的影响：非只读方法的接收者和变量实参都视为可能被修改。
+     * 非只读方法还把接收者与变量实参合并为别名（如 {@code holder.add(list)}）。
+     */
+    private void checkLoopSource(ASTNode target, String methodName, List<ASTNode> arguments) {
+        String targetRoot = target != null && !READ_ONLY_METHODS.contains(methodName) ? rootVariable(target) : null;
+        if (targetRoot != null && arguments != null) {
+            for (ASTNode arg : arguments) {
+                if (arg instanceof VariableNode v) alias(targetRoot, v.getName());
+            }
+        }
+        for (LoopSource source : loopSources) {
+            if (targetRoot != null) source.touched.add(targetRoot);
+            if (arguments == null) continue;
+            for (ASTNode arg : arguments) {
+                if (arg instanceof VariableNode v) source.touched.add(v.getName());
+            }
+        }
+    }
+
+    /** 循环体是否可能修改数据源。 */
+    private boolean mayMutate(LoopSource source) {
+        if (source.directCall) return true;
+        for (String name : source.calledFunctions) {
+            if (builtins == null || !builtins.isKnown(name) || assignedNames.contains(name)) return true;
+        }
+        if (source.rootName == null) return false;
+        String group = findAlias(source.rootName);
+        for (String name : source.touched) {
+            if (findAlias(name).equals(group)) return true;
+        }
+        return false;
+    }
+
+    private void alias(String a, String b) {
+        if (a == null || b == null) return;
+        String ra = findAlias(a);
+        String rb = findAlias(b);
+        if (!ra.equals(rb)) aliases.put(ra, rb);
+    }
+
+    private String findAlias(String name) {
+        String root = name;
+        String parent;
+        while ((parent = aliases.get(root)) != null) root = parent;
+        return root;
+    }
+
+    /** 表达式沿方法调用 / 字段访问的接收者向内找到的根变量名，根不是变量时返回 null。 */
+    private static String rootVariable(ASTNode node) {
+        while (true) {
+            if (node instanceof VariableNode v) return v.getName();
+            if (node instanceof MethodCallNode n) node = n.getTarget();
+            else if (node instanceof SafeMethodCallNode n) node = n.getTarget();
+            else if (node instanceof FieldAccessNode n) node = n.getTarget();
+            else if (node instanceof SafeFieldAccessNode n) node = n.getTarget();
+            else return null;
+        }
+    }
+
+    // ==================== 帧与符号 ====================
+
+    private FrameLayout enterFrame(ParseContext.ScopeKind kind) {
+        FrameLayout layout = new FrameLayout();
+        frames.push(new Frame(kind, layout));
+        return layout;
+    }
+
+    private void exitFrame() {
+        frames.pop();
+    }
+
+    private void declare(ASTNode node, String name) {
+        FrameLayout layout = frames.peek().layout();
+        if (layout == null) {
+            record(node, null);
+            return;
+        }
+        record(node, new SlotRef(0, layout.declare(name), layout));
+    }
+
+    private void reference(ASTNode node, String name) {
+        int depth = 0;
+        for (Iterator<Frame> it = frames.iterator(); it.hasNext(); depth++) {
+            Frame frame = it.next();
+            FrameLayout layout = frame.layout();
+            if (layout == null) break;
+            int index = layout.indexOf(name);
+            if (index >= 0) {
+                if (depth > 0) {
+                    pending.add(new Pending(node, name, skippedFrames(depth)));
+                }
+                record(node, new SlotRef(depth, index, layout));
+                capture(name, frames.size() - 1 - depth);
+                return;
+            }
+        }
+        record(node, null);
+        capture(name, -1);
+    }
+
+    /** 名字当前解析到的帧位置（自底向上），-1 表示落到按名字查找的全局帧。 */
+    private int positionOf(String name) {
+        int depth = 0;
+        for (Frame frame : frames) {
+            if (frame.layout() == null) break;
+            if (frame.layout().indexOf(name) >= 0) return frames.size() - 1 - depth;
+            depth++;
+        }
+        return -1;
+    }
+
+    /** 解析到 lambda 帧之外（position 更靠外）的名字，是该 lambda 的自由变量。 */
+    private void capture(String name, int position) {
+        for (Capture capture : captures) {
+            if (position >= capture.position()) break;
+            capture.names().add(name);
+        }
+    }
+
+    private Frame[] skippedFrames(int depth) {
+        Frame[] skipped = new Frame[depth];
+        Iterator<Frame> it = frames.iterator();
+        for (int i = 0; i < depth; i++) {
+            skipped[i] = it.next();
+        }
+        return skipped;
+    }
+
+    /** 同一节点被多次解析且结果不一致时（共享子树），放弃槽位。 */
+    private void record(ASTNode node, SlotRef slot) {
+        if (slots.containsKey(node) && !java.util.Objects.equals(slots.get(node), slot)) {
+            conflicts.put(node, Boolean.TRUE);
+        }
+        slots.put(node, slot);
+    }
+
+    private void apply() {
+        for (LoopSource source : allLoopSources) {
+            source.node.setSnapshotSource(mayMutate(source));
+        }
+        // 越过的帧后来声明了同名变量：运行期可能被遮蔽，退回按名字查找
+        for (Pending p : pending) {
+            for (Frame frame : p.skipped()) {
+                if (frame.layout().indexOf(p.name()) >= 0) {
+                    conflicts.put(p.node(), Boolean.TRUE);
+                    break;
+                }
+            }
+        }
+        for (Map.Entry<ASTNode, SlotRef> entry : slots.entrySet()) {
+            ASTNode node = entry.getKey();
+            SlotRef slot = conflicts.containsKey(node) ? null : entry.getValue();
+            if (node instanceof VariableNode n) n.setSlot(slot);
+            else if (node instanceof AssignmentNode n) n.setSlot(slot);
+            else if (node instanceof VarDeclNode n) n.setSlot(slot);
+        }
+    }
+}
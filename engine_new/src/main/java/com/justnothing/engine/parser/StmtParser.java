@@ -374,6 +374,7 @@ public class StmtParser extends BaseParser {
                 savePosition();
                 try {
                     initialization = parseLocalVariableDeclaration(null, false);
+                    releasePosition();
                     initConsumedSemicolon = true; // 变量声明已消费末尾分号
                 } catch (CythavaParseException | IllegalStateException e) {
                     // 不是变量声明，回退并作为表达式解析
@@ -695,12 +696,7 @@ public class StmtParser extends BaseParser {
         SourceLocation location = createLocation();
         ASTNode expression = parseStatementOrBlock();
         AsyncNode node = (AsyncNode) new AsyncNode.Builder().expression(expression).location(location).build();
-        JType innerType = context.getType(expression);
-        if (innerType != null) {
-            context.setType(node, innerType);
-        } else {
-            annotate(node, Object.class);
-        }
+        context.setType(node, JType.futureOf(context.getType(expression)));
         return node;
     }
 
@@ -902,6 +898,14 @@ public class StmtParser extends BaseParser {
             // 声明时检查初始化器类型兼容性
             if (declaredType != null && initializer != null) {
                 checkTypeCompatibility(varName, declaredType, initializer);
+            } else if (declaredType == null && initializer != null) {
+                // 降级为 auto 的 var 不做类型推断（沿用旧行为），但 async 的 Future 要记下来，
+                // 否则之后漏写 await 的 a + 1、a.length() 查不出来
+                GenericType inferredType = context.getInferredType(initializer);
+                if (inferredType != null && JType.isFuture(inferredType.getRawType())) {
+                    VariableSymbol sym = context.resolveVariable(varName);
+                    if (sym != null) sym.setDeclaredType(inferredType);
+                }
             }
         }
 
@@ -1130,6 +1134,13 @@ public class StmtParser extends BaseParser {
             if (unboxed != null && targetType.isAssignableFrom(unboxed)) return;
         }
 
+        // Future（async 的结果）不会自动解包，赋给其它类型一定是漏写了 await，宽松模式也报错
+        if (JType.isFuture(valueType)) {
+            throw semanticError("Type mismatch: cannot assign " + valueType.getSimpleName()
+                    + " to variable '" + varName + "' of type " + targetType.getSimpleName()
+                    + "; use 'await' to get the async result", ErrorCode.EVAL_TYPE_MISMATCH);
+        }
+
         // 非严格模式：Object（泛型擦除/无法精确推断）可赋给任意引用类型
         if (!context.isStrictMode() && valueType == Object.class && !targetType.isPrimitive()) {
             return;
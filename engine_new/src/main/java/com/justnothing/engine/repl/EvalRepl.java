@@ -7,12 +7,17 @@ import com.justnothing.engine.eval.CustomClassExecutor;
 import com.justnothing.engine.eval.EvalContext;
 import com.justnothing.engine.eval.EvalException;
 import com.justnothing.engine.eval.Evaluator;
+import com.justnothing.engine.eval.ScriptProfiler;
 import com.justnothing.engine.eval.Value;
 import com.justnothing.engine.lexer.Lexer;
 import com.justnothing.engine.parser.CythavaParseException;
 import com.justnothing.engine.parser.ParseContext;
 import com.justnothing.engine.parser.Parser;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Scanner;
 
@@ -97,6 +102,10 @@ public class EvalRepl {
     }
 
     private static boolean handleCommand(String cmd, EvalContext evalContext) {
+        if (cmd.toLowerCase().startsWith(":profile")) {
+            handleProfileCommand(cmd.substring(":profile".length()).trim(), evalContext);
+            return false;
+        }
         return switch (cmd.toLowerCase()) {
             case ":q", ":quit" -> {
                 System.out.println("再见！");
@@ -117,6 +126,58 @@ public class EvalRepl {
         };
     }
 
+    /**
+     * :profile on | off | reset | [N] | flame &lt;file&gt;
+     * <p>开启后每次求值都记录到同一个剖析器，报告为累计结果。</p>
+     */
+    private static void handleProfileCommand(String args, EvalContext evalContext) {
+        String[] parts = args.isEmpty() ? new String[0] : args.split("\\s+", 2);
+        String sub = parts.length > 0 ? parts[0].toLowerCase() : "";
+        ScriptProfiler profiler = evalContext.getProfiler();
+        switch (sub) {
+            case "on" -> {
+                if (profiler == null) evalContext.setProfiler(new ScriptProfiler());
+                System.out.println("剖析已开启");
+            }
+            case "off" -> {
+                evalContext.setProfiler(null);
+                System.out.println("剖析已关闭");
+            }
+            case "reset" -> {
+                if (profiler != null) profiler.reset();
+                System.out.println("剖析数据已清空");
+            }
+            case "flame" -> {
+                if (profiler == null || parts.length < 2) {
+                    System.out.println("用法: :profile flame <file>（需先 :profile on）");
+                    return;
+                }
+                try (Writer writer = Files.newBufferedWriter(Path.of(parts[1]))) {
+                    profiler.writeCollapsedStacks(writer);
+                    System.out.println("collapsed-stack 已写入 " + parts[1]);
+                } catch (IOException e) {
+                    System.out.println("写入失败: " + e.getMessage());
+                }
+            }
+            default -> {
+                if (profiler == null) {
+                    System.out.println("剖析未开启（:profile on）");
+                    return;
+                }
+                int limit = 20;
+                if (!sub.isEmpty()) {
+                    try {
+                        limit = Integer.parseInt(sub);
+                    } catch (NumberFormatException e) {
+                        System.out.println("未知参数: " + sub);
+                        return;
+                    }
+                }
+                System.out.print(profiler.formatHotLines(limit));
+            }
+        }
+    }
+
     private static void printHelp() {
         System.out.println("""
                 ┌─────────────────────────────────────────┐
@@ -125,6 +186,11 @@ public class EvalRepl {
                 │  :q, :quit    退出 REPL                 │
                 │  :h, :help    显示此帮助                │
                 │  :vars        显示当前变量              │
+                │  :profile on|off|reset                  │
+                │               开关 / 清空执行剖析       │
+                │  :profile [N] 最热的 N 行（默认 20）    │
+                │  :profile flame <file>                  │
+                │               导出 collapsed-stack      │
                 │                                         │
                 │  多行输入:                              │
                 │    - 括号/花括号未闭合时自动续行          │
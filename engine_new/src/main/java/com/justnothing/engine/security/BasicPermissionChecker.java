@@ -20,6 +20,9 @@ import java.util.Set;
  *   <li>精确 deny > 精确 allow > 通配符 deny > 通配符 allow > defaultAllow</li>
  * </ol>
  *
+ * <p>规则在 {@link Builder#build()} 时预编译（见 {@link NamePatternSet}），实例不可变，
+ * 因此 {@link #isCacheable()} 为 true，{@link SecurityGate} 可以按成员缓存放行结果。</p>
+ *
  * <h3>预置配置</h3>
  * <ul>
  *   <li>{@link #permissive()} — 全部放行</li>
@@ -33,23 +36,23 @@ public class BasicPermissionChecker implements IPermissionChecker {
 
     private final Set<PermissionType> allowedPermissions;
     private final Set<PermissionType> deniedPermissions;
-    private final Set<String> allowedClasses;
-    private final Set<String> deniedClasses;
-    private final Set<String> allowedMethods;
-    private final Set<String> deniedMethods;
-    private final Set<String> allowedFields;
-    private final Set<String> deniedFields;
+    private final NamePatternSet allowedClasses;
+    private final NamePatternSet deniedClasses;
+    private final NamePatternSet allowedMethods;
+    private final NamePatternSet deniedMethods;
+    private final NamePatternSet allowedFields;
+    private final NamePatternSet deniedFields;
     private final boolean defaultAllow;
 
     private BasicPermissionChecker(Builder builder) {
         this.allowedPermissions = Set.copyOf(builder.allowedPermissions);
         this.deniedPermissions = Set.copyOf(builder.deniedPermissions);
-        this.allowedClasses = Set.copyOf(builder.allowedClasses);
-        this.deniedClasses = Set.copyOf(builder.deniedClasses);
-        this.allowedMethods = Set.copyOf(builder.allowedMethods);
-        this.deniedMethods = Set.copyOf(builder.deniedMethods);
-        this.allowedFields = Set.copyOf(builder.allowedFields);
-        this.deniedFields = Set.copyOf(builder.deniedFields);
+        this.allowedClasses = new NamePatternSet(builder.allowedClasses);
+        this.deniedClasses = new NamePatternSet(builder.deniedClasses);
+        this.allowedMethods = new NamePatternSet(builder.allowedMethods);
+        this.deniedMethods = new NamePatternSet(builder.deniedMethods);
+        this.allowedFields = new NamePatternSet(builder.allowedFields);
+        this.deniedFields = new NamePatternSet(builder.deniedFields);
         this.defaultAllow = builder.defaultAllow;
     }
 
@@ -182,6 +185,7 @@ public class BasicPermissionChecker implements IPermissionChecker {
     // ==================== 单例 ====================
 
     private static final IPermissionChecker PERMISSIVE_INSTANCE = new IPermissionChecker() {
+        @Override public boolean isCacheable() { return true; }
         @Override public boolean hasPermission(PermissionType t) { return true; }
         @Override public boolean hasPermission(PermissionType t, String target) { return true; }
         @Override public boolean hasClassAccess(String c) { return true; }
@@ -200,6 +204,7 @@ public class BasicPermissionChecker implements IPermissionChecker {
         private void denied(String what) {
             throw new SecurityException("SecurityGate: 操作被安全策略阻止 - " + what);
         }
+        @Override public boolean isCacheable() { return true; }
         @Override public boolean hasPermission(PermissionType t) { return false; }
         @Override public boolean hasPermission(PermissionType t, String target) { return false; }
         @Override public boolean hasClassAccess(String c) { return false; }
@@ -216,19 +221,9 @@ public class BasicPermissionChecker implements IPermissionChecker {
 
     // ==================== 匹配逻辑 ====================
 
-    private boolean matchesPattern(String name, Set<String> patterns) {
-        for (String pattern : patterns) {
-            if (pattern.endsWith(".*")) {
-                String prefix = pattern.substring(0, pattern.length() - 2);
-                if (name.startsWith(prefix)) return true;
-            } else if (pattern.equals(name)) {
-                return true;
-            } else if (pattern.contains("*")) {
-                String regex = pattern.replace(".", "\\.").replace("*", ".*");
-                if (name.matches(regex)) return true;
-            }
-        }
-        return false;
+    @Override
+    public boolean isCacheable() {
+        return true;
     }
 
     @Override
@@ -245,24 +240,24 @@ public class BasicPermissionChecker implements IPermissionChecker {
 
     @Override
     public boolean hasClassAccess(String className) {
-        if (matchesPattern(className, deniedClasses)) return false;
-        if (matchesPattern(className, allowedClasses)) return true;
+        if (deniedClasses.matches(className)) return false;
+        if (allowedClasses.matches(className)) return true;
         return defaultAllow;
     }
 
     @Override
     public boolean hasMethodAccess(String className, String methodName, String signature) {
         String fullMethodName = className + "." + methodName;
-        if (matchesPattern(fullMethodName, deniedMethods)) return false;
-        if (matchesPattern(fullMethodName, allowedMethods)) return true;
+        if (deniedMethods.matches(fullMethodName)) return false;
+        if (allowedMethods.matches(fullMethodName)) return true;
         return hasClassAccess(className) && hasPermission(PermissionType.METHOD_CALL);
     }
 
     @Override
     public boolean hasFieldAccess(String className, String fieldName) {
         String fullFieldName = className + "." + fieldName;
-        if (matchesPattern(fullFieldName, deniedFields)) return false;
-        if (matchesPattern(fullFieldName, allowedFields)) return true;
+        if (deniedFields.matches(fullFieldName)) return false;
+        if (allowedFields.matches(fullFieldName)) return true;
         return hasClassAccess(className) && hasPermission(PermissionType.FIELD_READ);
     }
 
@@ -69,6 +69,16 @@ public interface IPermissionChecker {
      */
     boolean hasNewInstanceAccess(String className);
 
+    /**
+     * 判断结果是否只取决于参数、在检查器的生命周期内不会改变。
+     *
+     * <p>返回 true 时 {@link SecurityGate} 会按 Method / Field / Constructor / Class 缓存放行结果，
+     * 同一目标之后的检查不再调用本检查器。规则可变或需要逐次审计的实现应保持默认的 false。
+     */
+    default boolean isCacheable() {
+        return false;
+    }
+
     // ========== check* 方法 — 不允许时抛异常 ==========
 
     void checkPermission(PermissionType type) throws SecurityException;
@@ -0,0 +1,110 @@
+package com.justnothing.engine.security;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * 一组类名 / 成员名规则，在构造时预编译，匹配时不再逐条扫描和编译正则。
+ *
+ * <p>规则语义与原来的逐条匹配相同：
+ * <ul>
+ *   <li>以 {@code .*} 结尾：去掉 {@code .*} 后按前缀匹配（{@code java.lang.*} 也匹配 {@code java.lang.reflect.Method}），
+ *       所有前缀合并为一棵字符前缀树，一次遍历判断</li>
+ *   <li>不含 {@code *}：精确匹配，放入哈希集合</li>
+ *   <li>其余含 {@code *} 的规则（如 {@code java.lang.Class.getDeclared*}）：{@code *} 匹配任意字符，
+ *       其余字符按字面匹配，编译为 {@link Pattern} 后复用</li>
+ * </ul>
+ */
+final class NamePatternSet {
+
+    private final Set<String> exact = new HashSet<>();
+    private final PrefixNode prefixes = new PrefixNode();
+    private final List<Pattern> wildcards = new ArrayList<>();
+    private final boolean empty;
+
+    NamePatternSet(Set<String> patterns) {
+        for (String pattern : patterns) {
+            if (pattern.endsWith(".*")) {
+                prefixes.add(pattern.substring(0, pattern.length() - 2));
+            } else if (pattern.contains("*")) {
+                wildcards.add(compileWildcard(pattern));
+            } else {
+                exact.add(pattern);
+            }
+        }
+        this.empty = patterns.isEmpty();
+    }
+
+    boolean matches(String name) {
+        if (empty) return false;
+        if (exact.contains(name)) return true;
+        if (prefixes.matchesPrefixOf(name)) return true;
+        for (Pattern pattern : wildcards) {
+            if (pattern.matcher(name).matches()) return true;
+        }
+        return false;
+    }
+
+    private static Pattern compileWildcard(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int star = pattern.indexOf('*'); star >= 0; star = pattern.indexOf('*', start)) {
+            if (star > start) regex.append(Pattern.quote(pattern.substring(start, star)));
+            regex.append(".*");
+            start = star + 1;
+        }
+        if (start < pattern.length()) regex.append(Pattern.quote(pattern.substring(start)));
+        return Pattern.compile(regex.toString());
+    }
+
+    /** 字符前缀树；terminal 表示从根到该节点的路径是某条规则的完整前缀。 */
+    private static final class PrefixNode {
+        private char[] keys = new char[0];
+        private PrefixNode[] children = new PrefixNode[0];
+        private boolean terminal;
+
+        void add(String prefix) {
+            PrefixNode node = this;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.childOrCreate(prefix.charAt(i));
+            }
+            node.terminal = true;
+        }
+
+        boolean matchesPrefixOf(String name) {
+            PrefixNode node = this;
+            for (int i = 0; ; i++) {
+                if (node.terminal) return true;
+                if (i == name.length()) return false;
+                node = node.child(name.charAt(i));
+                if (node == null) return false;
+            }
+        }
+
+        private PrefixNode child(char c) {
+            char[] k = keys;
+            for (int i = 0; i < k.length; i++) {
+                if (k[i] == c) return children[i];
+            }
+            return null;
+        }
+
+        private PrefixNode childOrCreate(char c) {
+            PrefixNode existing = child(c);
+            if (existing != null) return existing;
+            int n = keys.length;
+            char[] newKeys = new char[n + 1];
+            PrefixNode[] newChildren = new PrefixNode[n + 1];
+            System.arraycopy(keys, 0, newKeys, 0, n);
+            System.arraycopy(children, 0, newChildren, 0, n);
+            newKeys[n] = c;
+            newChildren[n] = new PrefixNode();
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[n];
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.justnothing.engine.security;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 安全门卫，在 Evaluator 执行每次反射操作前进行权限检查。
@@ -13,6 +15,9 @@ import java.lang.reflect.Method;
  *   <li><b>基于名字的检查</b>：从已解析的 Method/Field/Constructor/Class 对象中提取类名和方法名，
  *       传递给 {@link IPermissionChecker} 进行白名单/黑名单匹配</li>
  *   <li><b>统一异常</b>：所有拦截操作抛出 {@link SecurityException}</li>
+ *   <li><b>决策缓存</b>：检查器声明 {@link IPermissionChecker#isCacheable()} 时，按 Method / Field / Constructor / Class
+ *       记住已放行的目标，之后同一目标的检查只是一次集合查找；被拒绝的目标不缓存，每次都由检查器抛出异常。
+ *       更换检查器即创建新的门卫，缓存随之失效；检查器规则在原地变化时调用 {@link #invalidateCache()}</li>
  * </ul>
  *
  * <h3>使用方式</h3>
@@ -28,7 +33,21 @@ import java.lang.reflect.Method;
  */
 public final class SecurityGate {
 
+    /**
+     * 按字符串缓存的类名上限。类名来自脚本（如 Class.forName 的参数），可以是任意字符串，
+     * 不像 Method / Class 对象那样受已加载类的数量约束；超过上限后不再缓存，仍逐次检查。
+     */
+    static final int MAX_CACHED_CLASS_NAMES = 1024;
+
     private final IPermissionChecker checker;
+    private final boolean cacheable;
+
+    private final Set<Method> allowedMethods = ConcurrentHashMap.newKeySet();
+    private final Set<Field> allowedFieldReads = ConcurrentHashMap.newKeySet();
+    private final Set<Field> allowedFieldWrites = ConcurrentHashMap.newKeySet();
+    private final Set<Constructor<?>> allowedConstructors = ConcurrentHashMap.newKeySet();
+    private final Set<Class<?>> allowedClasses = ConcurrentHashMap.newKeySet();
+    private final Set<String> allowedClassNames = ConcurrentHashMap.newKeySet();
 
     /**
      * 创建一个无限制的安全门卫（所有操作放行）。
@@ -44,6 +63,7 @@ public final class SecurityGate {
      */
     public SecurityGate(IPermissionChecker checker) {
         this.checker = checker;
+        this.cacheable = checker != null && checker.isCacheable();
     }
 
     /** 是否启用安全检查（checker != null）。 */
@@ -56,15 +76,27 @@ public final class SecurityGate {
         return checker;
     }
 
+    /** 清空已缓存的放行结果（检查器的规则在原地被修改后调用）。 */
+    public void invalidateCache() {
+        allowedMethods.clear();
+        allowedFieldReads.clear();
+        allowedFieldWrites.clear();
+        allowedConstructors.clear();
+        allowedClasses.clear();
+        allowedClassNames.clear();
+    }
+
     // ==================== 方法调用 ====================
 
     /** 在 Method.invoke() 前调用。 */
     public void beforeMethodCall(Method method) throws SecurityException {
         if (checker == null) return;
+        if (cacheable && allowedMethods.contains(method)) return;
         String className = method.getDeclaringClass().getName();
         String methodName = method.getName();
         String signature = makeSignature(method);
         checker.checkMethodAccess(className, methodName, signature);
+        if (cacheable) allowedMethods.add(method);
     }
 
     // ==================== 字段访问 ====================
@@ -72,15 +104,19 @@ public final class SecurityGate {
     /** 在 Field.get() / Field.getBoolean() 等读取操作前调用。 */
     public void beforeFieldRead(Field field) throws SecurityException {
         if (checker == null) return;
+        if (cacheable && allowedFieldReads.contains(field)) return;
         checker.checkFieldAccess(field.getDeclaringClass().getName(), field.getName());
         checker.checkPermission(PermissionType.FIELD_READ);
+        if (cacheable) allowedFieldReads.add(field);
     }
 
     /** 在 Field.set() / Field.setBoolean() 等写入操作前调用。 */
     public void beforeFieldWrite(Field field) throws SecurityException {
         if (checker == null) return;
+        if (cacheable && allowedFieldWrites.contains(field)) return;
         checker.checkFieldAccess(field.getDeclaringClass().getName(), field.getName());
         checker.checkPermission(PermissionType.FIELD_WRITE);
+        if (cacheable) allowedFieldWrites.add(field);
     }
 
     // ==================== 构造器调用 ====================
@@ -88,7 +124,9 @@ public final class SecurityGate {
     /** 在 Constructor.newInstance() 前调用。 */
     public void beforeConstructorCall(Constructor<?> ctor) throws SecurityException {
         if (checker == null) return;
+        if (cacheable && allowedConstructors.contains(ctor)) return;
         checker.checkNewInstance(ctor.getDeclaringClass().getName());
+        if (cacheable) allowedConstructors.add(ctor);
     }
 
     // ==================== 类访问 ====================
@@ -96,13 +134,17 @@ public final class SecurityGate {
     /** 在 Class.forName() 或类字面量引用前调用。 */
     public void beforeClassAccess(Class<?> clazz) throws SecurityException {
         if (checker == null) return;
+        if (cacheable && allowedClasses.contains(clazz)) return;
         checker.checkClassAccess(clazz.getName());
+        if (cacheable) allowedClasses.add(clazz);
     }
 
     /** 在 Class.forName(String) 前调用（尚未加载到 Class 对象时使用字符串名）。 */
     public void beforeClassAccessByName(String className) throws SecurityException {
         if (checker == null) return;
+        if (cacheable && allowedClassNames.contains(className)) return;
         checker.checkClassAccess(className);
+        if (cacheable && allowedClassNames.size() < MAX_CACHED_CLASS_NAMES) allowedClassNames.add(className);
     }
 
     // ==================== 通用权限 ====================
@@ -0,0 +1,117 @@
+package com.justnothing.engine.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 MethodHandle 的字段读写器，替代 {@link Field#get} / {@link Field#set}。
+ * <p>
+ * getter / setter 在第一次使用时由 {@code unreflectGetter} / {@code unreflectSetter} 生成，
+ * 静态字段补一个占位接收者参数，统一为 {@code (Object) -> Object} 与 {@code (Object, Object) -> void}。
+ * 异常契约与 {@link Field} 一致（类型不匹配 → IllegalArgumentException，实例字段接收者为 null → NullPointerException）。
+ * 无法生成句柄时（例如 final 字段的 setter）退回反射，行为不变。
+ * 读写器按声明类缓存在 {@link ClassValue} 里，不妨碍脚本类随加载器卸载。
+ * </p>
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class FieldAccessor {
+
+    private static final ClassValue<Map<Field, FieldAccessor>> CACHE = new ClassValue<>() {
+        @Override
+        protected Map<Field, FieldAccessor> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final Field field;
+    private final boolean isStatic;
+    /** (Object)Object；null 表示退回反射。 */
+    private final MethodHandle getter;
+    /** (Object, Object)void；null 表示退回反射。 */
+    private final MethodHandle setter;
+
+    private FieldAccessor(Field field) {
+        this.field = field;
+        this.isStatic = Modifier.isStatic(field.getModifiers());
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        this.getter = adapt(() -> lookup.unreflectGetter(field), MethodType.methodType(Object.class, Object.class));
+        this.setter = adapt(() -> lookup.unreflectSetter(field), MethodType.methodType(void.class, Object.class, Object.class));
+    }
+
+    /** 获取（或创建并缓存）字段的读写器。 */
+    public static FieldAccessor of(Field field) {
+        Map<Field, FieldAccessor> accessors = CACHE.get(field.getDeclaringClass());
+        FieldAccessor accessor = accessors.get(field);
+        if (accessor != null) return accessor;
+        return accessors.computeIfAbsent(field, FieldAccessor::new);
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /** 读取字段，语义同 {@link Field#get(Object)}。 */
+    public Object get(Object obj) throws IllegalAccessException {
+        if (getter == null) return field.get(obj);
+        checkReceiver(obj);
+        try {
+            return (Object) getter.invokeExact(obj);
+        } catch (RuntimeException | Error e) {
+            throw mismatch(e);
+        } catch (Throwable t) {
+            throw new IllegalArgumentException(t);
+        }
+    }
+
+    /** 写入字段，语义同 {@link Field#set(Object, Object)}。 */
+    public void set(Object obj, Object value) throws IllegalAccessException {
+        if (setter == null) {
+            field.set(obj, value);
+            return;
+        }
+        checkReceiver(obj);
+        try {
+            setter.invokeExact(obj, value);
+        } catch (RuntimeException | Error e) {
+            throw mismatch(e);
+        } catch (Throwable t) {
+            throw new IllegalArgumentException(t);
+        }
+    }
+
+    private void checkReceiver(Object obj) {
+        if (!isStatic && obj == null) {
+            throw new NullPointerException("Cannot access field " + field.getName() + " on null");
+        }
+    }
+
+    private static RuntimeException mismatch(Throwable e) {
+        if (e instanceof Error error) throw error;
+        if (e instanceof IllegalArgumentException iae) return iae;
+        // asType 的转换失败（ClassCastException / 拆箱 null），等价于反射的类型不匹配
+        return new IllegalArgumentException("Can not set/get field: " + e.getMessage(), e);
+    }
+
+    private interface HandleFactory {
+        MethodHandle create() throws IllegalAccessException;
+    }
+
+    private MethodHandle adapt(HandleFactory factory, MethodType type) {
+        try {
+            MethodHandle mh = factory.create();
+            if (isStatic) {
+                mh = MethodHandles.dropArguments(mh, 0, Object.class);
+            }
+            return mh.asType(type);
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+}
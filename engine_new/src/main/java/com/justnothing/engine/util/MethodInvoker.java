@@ -0,0 +1,220 @@
+package com.justnothing.engine.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 MethodHandle 的方法 / 构造器调用器，替代 {@link Method#invoke} 与 {@link Constructor#newInstance}。
+ * <p>
+ * 每个 {@link Method} / {@link Constructor} 只在第一次使用时转换一次：
+ * {@code unreflect} → 静态方法补一个占位接收者参数 → 引用类型擦除为 Object 后把目标异常包装为
+ * {@link InvocationTargetException} → {@code asType} 统一为 Object 签名（按反射规则拆箱 + 基本类型拓宽）
+ * → 按参数个数 {@code asSpreader}，最终形如 {@code (Object receiver, Object[] args) -> Object}，结果缓存复用。
+ * </p>
+ * <p>
+ * 调用器按声明类缓存在 {@link ClassValue} 里，不会让脚本类的加载器因为被调用过而无法卸载；
+ * 引用类型实参在进入句柄前按 {@link #checkedTypes} 检查，类型不符仍报参数不匹配而不是目标异常。
+ * </p>
+ *
+ * <p>异常契约与 {@link Method#invoke} 一致：</p>
+ * <ul>
+ *   <li>目标方法抛出的异常 → {@link InvocationTargetException}</li>
+ *   <li>实参个数 / 类型不匹配、接收者类型不对 → {@link IllegalArgumentException}</li>
+ *   <li>实例方法接收者为 null → {@link NullPointerException}</li>
+ *   <li>无访问权限 → {@link IllegalAccessException}</li>
+ * </ul>
+ * 因此调用方只需把 {@code method.invoke(target, args)} 换成 {@code MethodInvoker.of(method).invoke(target, args)}。
+ *
+ * <p>无法转换为 MethodHandle 的目标（非 public 类的成员、平台不支持等）退回反射调用，行为与原来完全相同。</p>
+ *
+ * @author JustNothing1021
+ * @since 1.0.0
+ */
+public final class MethodInvoker {
+
+    private static final ClassValue<Map<Executable, MethodInvoker>> CACHE = new ClassValue<>() {
+        @Override
+        protected Map<Executable, MethodInvoker> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    private static final Object[] NO_ARGS = new Object[0];
+    private static final MethodHandle WRAP_TARGET_EXCEPTION;
+
+    static {
+        try {
+            WRAP_TARGET_EXCEPTION = MethodHandles.lookup().findStatic(MethodInvoker.class, "wrapTargetException",
+                    MethodType.methodType(Object.class, Throwable.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Executable target;
+    private final boolean needsReceiver;
+    /** (Object, Object[])Object；null 表示退回反射调用。 */
+    private final MethodHandle handle;
+    /** 下标 0 为接收者，其余为形参；非 null 的位置是句柄内部擦除掉的引用类型，调用前需检查。 */
+    private final Class<?>[] checkedTypes;
+
+    private MethodInvoker(Executable target, boolean needsReceiver, MethodHandle handle) {
+        this.target = target;
+        this.needsReceiver = needsReceiver;
+        this.handle = handle;
+        this.checkedTypes = checkedTypes(target, needsReceiver);
+    }
+
+    /** 获取（或创建并缓存）方法的调用器。 */
+    public static MethodInvoker of(Method method) {
+        Map<Executable, MethodInvoker> invokers = CACHE.get(method.getDeclaringClass());
+        MethodInvoker invoker = invokers.get(method);
+        if (invoker != null) return invoker;
+        return invokers.computeIfAbsent(method, m -> new MethodInvoker(m,
+                !Modifier.isStatic(m.getModifiers()), createHandle(m)));
+    }
+
+    /** 获取（或创建并缓存）构造器的调用器。 */
+    public static MethodInvoker of(Constructor<?> constructor) {
+        Map<Executable, MethodInvoker> invokers = CACHE.get(constructor.getDeclaringClass());
+        MethodInvoker invoker = invokers.get(constructor);
+        if (invoker != null) return invoker;
+        return invokers.computeIfAbsent(constructor, c -> new MethodInvoker(c, false, createHandle(c)));
+    }
+
+    /** 被调用的方法（构造器调用器返回 null）。 */
+    public Method getMethod() {
+        return target instanceof Method m ? m : null;
+    }
+
+    /** 被调用的方法或构造器。 */
+    public Executable getTarget() {
+        return target;
+    }
+
+    /** 是否走 MethodHandle 路径（false 表示退回了反射）。 */
+    public boolean isDirect() {
+        return handle != null;
+    }
+
+    /**
+     * 调用方法，语义同 {@link Method#invoke(Object, Object...)}（varargs 需由调用方预先打包）。
+     *
+     * @param receiver 接收者，静态方法忽略
+     * @param args     实参，null 视为无参
+     */
+    public Object invoke(Object receiver, Object... args)
+            throws InvocationTargetException, IllegalAccessException {
+        if (args == null) args = NO_ARGS;
+        if (handle == null) {
+            return ((Method) target).invoke(receiver, args);
+        }
+        if (needsReceiver && receiver == null) {
+            throw new NullPointerException("Cannot invoke " + target.getName() + " on null");
+        }
+        return invokeHandle(receiver, args);
+    }
+
+    /**
+     * 调用构造器，语义同 {@link Constructor#newInstance(Object...)}。
+     */
+    public Object newInstance(Object... args)
+            throws InvocationTargetException, InstantiationException, IllegalAccessException {
+        if (args == null) args = NO_ARGS;
+        if (handle == null) {
+            return ((Constructor<?>) target).newInstance(args);
+        }
+        return invokeHandle(null, args);
+    }
+
+    private Object invokeHandle(Object receiver, Object[] args) throws InvocationTargetException {
+        checkArguments(receiver, args);
+        try {
+            return (Object) handle.invokeExact(receiver, args);
+        } catch (InvocationTargetException | IllegalArgumentException | Error e) {
+            throw e;
+        } catch (ClassCastException | NullPointerException | WrongMethodTypeException e) {
+            // asType / asSpreader 的转换失败，等价于反射的参数不匹配
+            throw new IllegalArgumentException("argument type mismatch: " + e.getMessage(), e);
+        } catch (Throwable t) {
+            throw new IllegalArgumentException(t);
+        }
+    }
+
+    private void checkArguments(Object receiver, Object[] args) {
+        Class<?>[] types = checkedTypes;
+        if (types == null) return;
+        if (types[0] != null && !types[0].isInstance(receiver)) {
+            throw new IllegalArgumentException("object is not an instance of declaring class");
+        }
+        int count = Math.min(types.length - 1, args.length);
+        for (int i = 0; i < count; i++) {
+            Class<?> type = types[i + 1];
+            if (type != null && args[i] != null && !type.isInstance(args[i])) {
+                throw new IllegalArgumentException("argument type mismatch");
+            }
+        }
+    }
+
+    private static Class<?>[] checkedTypes(Executable executable, boolean needsReceiver) {
+        Class<?>[] parameterTypes = executable.getParameterTypes();
+        Class<?>[] types = new Class<?>[parameterTypes.length + 1];
+        boolean any = false;
+        if (needsReceiver && executable.getDeclaringClass() != Object.class) {
+            types[0] = executable.getDeclaringClass();
+            any = true;
+        }
+        for (int i = 0; i < parameterTypes.length; i++) {
+            Class<?> type = parameterTypes[i];
+            if (!type.isPrimitive() && type != Object.class) {
+                types[i + 1] = type;
+                any = true;
+            }
+        }
+        return any ? types : null;
+    }
+
+    private static MethodHandle createHandle(Executable executable) {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle mh;
+            if (executable instanceof Method m) {
+                mh = lookup.unreflect(m);
+                if (Modifier.isStatic(m.getModifiers())) {
+                    mh = MethodHandles.dropArguments(mh, 0, Object.class);
+                }
+            } else {
+                // 抽象类的构造器由反射抛出 InstantiationException，保持原行为
+                if (Modifier.isAbstract(executable.getDeclaringClass().getModifiers())) return null;
+                mh = lookup.unreflectConstructor((Constructor<?>) executable);
+                mh = MethodHandles.dropArguments(mh, 0, Object.class);
+            }
+            mh = mh.asFixedArity();
+            int arity = mh.type().parameterCount() - 1;
+            // 异常包装只用擦除后的签名，不把脚本类的类型带进共享的处理句柄
+            MethodType erased = mh.type().erase();
+            mh = mh.asType(erased);
+            MethodHandle handler = MethodHandles.dropArguments(WRAP_TARGET_EXCEPTION, 1, erased.parameterList())
+                    .asType(erased.insertParameterTypes(0, Throwable.class));
+            mh = MethodHandles.catchException(mh, Throwable.class, handler);
+            mh = mh.asType(MethodType.genericMethodType(arity + 1));
+            mh = mh.asSpreader(Object[].class, arity);
+            return mh.asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        } catch (IllegalAccessException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static Object wrapTargetException(Throwable t) throws InvocationTargetException {
+        throw new InvocationTargetException(t);
+    }
+}
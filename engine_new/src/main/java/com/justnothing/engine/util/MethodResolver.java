@@ -7,6 +7,8 @@ import com.justnothing.engine.ast.nodes.FieldAccessNode;
 import com.justnothing.engine.ast.nodes.LambdaNode;
 import com.justnothing.engine.ast.nodes.MethodReferenceNode;
 import com.justnothing.engine.ast.nodes.VariableNode;
+import com.justnothing.engine.builtins.Lambda;
+import com.justnothing.engine.codegen.FunctionalAdapters;
 import com.justnothing.engine.parser.JType;
 import com.justnothing.engine.parser.ParseContext;
 
@@ -459,8 +461,8 @@ public class MethodResolver {
             return true;
         }
 
-        // Lambda/方法引用标记类型 → 函数式接口
-        if ((fromType == LambdaNode.class || fromType == MethodReferenceNode.class)
+        // Lambda/方法引用标记类型（解析期）或运行期的 Lambda 对象 → 函数式接口
+        if ((fromType == LambdaNode.class || fromType == MethodReferenceNode.class || fromType == Lambda.class)
                 && isFunctionalInterface(toType)) {
             return true;
         }
@@ -605,30 +607,14 @@ public class MethodResolver {
      * 判断一个接口是否为函数式接口（有且仅有一个非 Object 的抽象方法）。
      */
     public static boolean isFunctionalInterface(Class<?> clazz) {
-        if (clazz == null || !clazz.isInterface()) return false;
-        int count = 0;
-        for (Method m : clazz.getMethods()) {
-            if (m.getDeclaringClass() == Object.class) continue;
-            if (Modifier.isAbstract(m.getModifiers()) && !m.isDefault()) {
-                count++;
-                if (count > 1) return false;
-            }
-        }
-        return count == 1;
+        return FunctionalAdapters.isFunctionalInterface(clazz);
     }
 
     /**
      * 获取函数式接口的唯一抽象方法（SAM）。
      */
     public static Method getSAM(Class<?> fiClass) {
-        if (fiClass == null || !fiClass.isInterface()) return null;
-        for (Method m : fiClass.getMethods()) {
-            if (m.getDeclaringClass() == Object.class) continue;
-            if (Modifier.isAbstract(m.getModifiers()) && !m.isDefault()) {
-                return m;
-            }
-        }
-        return null;
+        return FunctionalAdapters.findSam(fiClass);
     }
 
     /**
@@ -898,6 +884,9 @@ public class MethodResolver {
     public static <T> T coerceArg(Class<T> targetType, Object value) {
         if (value == null) return null;
         if (targetType.isInstance(value)) return (T) value;
+        if (value instanceof Lambda lambda && isFunctionalInterface(targetType)) {
+            return lambda.asInterface(targetType);
+        }
         if (targetType.isPrimitive()) {
             Number n = (Number) value;
             if (targetType == int.class) return (T) (Integer) n.intValue();
@@ -0,0 +1,88 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.eval.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 数组 Value 测试。
+ * <p>数组 Value 是原 Java 数组的视图：基本类型数组不装箱拷贝，脚本中的读写直接作用于宿主传入的数组。</p>
+ */
+public class ArrayValueTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    @Test
+    public void valueOfWrapsWithoutCopy() {
+        int[] ints = {1, 2, 3};
+        Value value = Value.of(ints);
+        assertTrue(value instanceof Value.IntArrayValue);
+        assertSame(ints, value.asJavaObject());
+        String[] strings = {"a"};
+        assertSame(strings, Value.of(strings).asJavaObject());
+        assertTrue(Value.of(new byte[0]) instanceof Value.ByteArrayValue);
+        assertTrue(Value.of(new char[0]) instanceof Value.CharArrayValue);
+        assertEquals(Value.of(new int[]{1, 2}), Value.of(new int[]{1, 2}));
+    }
+
+    @Test
+    public void hostByteBufferIsWrittenThrough() {
+        byte[] packet = {0x10, 0x20, 0x30};
+        runner.setVariable("packet", packet);
+        assertEquals(32, eval("packet[1];"));
+        eval("packet[0] = 127; packet[2] = packet[2] + 1;");
+        assertEquals(127, packet[0]);
+        assertEquals(0x31, packet[2]);
+        // 与 Java 相同的窄化
+        eval("packet[1] = 200;");
+        assertEquals((byte) 200, packet[1]);
+    }
+
+    @Test
+    public void intTableAndPrimitiveElementTypes() {
+        int[] table = new int[1000];
+        runner.setVariable("table", table);
+        eval("for (var i = 0; i < table.length; i++) { table[i] = i * 2; }");
+        assertEquals(1998, table[999]);
+        runner.setVariable("chars", new char[]{'a', 'b'});
+        assertEquals('b', eval("chars[1];"));
+        runner.setVariable("flags", new boolean[2]);
+        eval("flags[1] = true;");
+        assertEquals(true, eval("flags[1];"));
+        runner.setVariable("ds", new double[]{1.5});
+        assertEquals(1.5, eval("ds[0];"));
+    }
+
+    @Test
+    public void scriptArraysAreRealJavaArrays() {
+        assertTrue(eval("new int[4];") instanceof int[]);
+        assertEquals(9, eval("var a = new int[3]; java.util.Arrays.fill(a, 9); a[2];"));
+        assertEquals("[1, 2, 3]", eval("java.util.Arrays.toString(new int[]{1, 2, 3});"));
+        assertEquals(5, eval("var g = new int[2][3]; g[1][2] = 5; g[1][2];"));
+        assertTrue(eval("g[0];") instanceof int[]);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void storingWrongTypeIntoTypedArrayFails() {
+        eval("var s = new String[1]; s[0] = new ArrayList();");
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void indexOutOfBounds() {
+        runner.setVariable("bytes", new byte[2]);
+        eval("bytes[2];");
+    }
+}
@@ -0,0 +1,129 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.eval.AsyncScheduler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * async / await 测试。
+ * <p>async 在调度器的执行器上并发执行并返回 future，await 等待其完成；任务在发起时刻的变量快照上运行。</p>
+ */
+public class AsyncAwaitTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    @After
+    public void tearDown() {
+        AsyncScheduler.setExecutor(null);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    @Test
+    public void asyncReturnsFuture() {
+        Object future = eval("async 1 + 2;");
+        assertTrue(future instanceof CompletableFuture);
+        assertEquals(3, ((CompletableFuture<?>) future).join());
+        assertEquals(3, eval("await async 1 + 2;"));
+    }
+
+    @Test
+    public void tasksRunConcurrently() {
+        // 三个任务互相等待对方到达；串行执行时第一个任务会超时失败
+        runner.setVariable("phaser", new Phaser(3));
+        eval("function meet(i) { phaser.awaitAdvanceInterruptibly(phaser.arrive(), 5L, java.util.concurrent.TimeUnit.SECONDS); return i; }");
+        assertEquals(6, eval("var a = async meet(1); var b = async meet(2); var c = async meet(3); (await a) + (await b) + (await c);"));
+    }
+
+    @Test
+    public void fanOutCollectsAllResults() {
+        assertEquals(2470, eval("var fs = new ArrayList(); for (var i = 0; i < 20; i++) { fs.add(async i * i); } "
+                + "var s = 0; for (var f : fs) { s = s + (await f); } s;"));
+    }
+
+    @Test
+    public void taskSeesSnapshotOfVariables() {
+        assertEquals(10, eval("var x = 5; var f = async x * 2; x = 100; await f;"));
+        assertEquals(100, eval("x;"));
+    }
+
+    @Test
+    public void awaitPassesThroughPlainValues() {
+        assertEquals(7, eval("await 7;"));
+        assertEquals("1", eval("await String.valueOf(1);"));
+    }
+
+    @Test
+    public void awaitJavaFuture() {
+        assertEquals(3, eval("await java.util.concurrent.CompletableFuture.completedFuture(3);"));
+    }
+
+    @Test
+    public void taskExceptionSurfacesOnAwait() {
+        eval("var f = async Integer.parseInt(\"zz\");");
+        try {
+            eval("await f;");
+            fail("expected failure on await");
+        } catch (RuntimeException e) {
+            assertTrue(String.valueOf(e.getMessage()).contains("zz"));
+        }
+    }
+
+    /** async 的值是 Future：可以保存、判等、调用 Future 的方法，await 之后才是结果。 */
+    @Test
+    public void asyncValueUsedThroughAwait() {
+        assertEquals(6, eval("var a = async 5; (await a) + 1;"));
+        assertEquals(1, eval("var s = async \"x\"; (await s).length();"));
+        assertEquals(true, eval("var d = async 1; await d; d.isDone();"));
+        assertEquals(false, eval("var n = async 1; n == null;"));
+        assertEquals(5, eval("java.util.concurrent.CompletableFuture<Integer> f = async 5; int v = await f; v;"));
+    }
+
+    /** 漏写 await 时在解析期报错，而不是把 Future 存进变量或在运行期才失败。 */
+    @Test
+    public void missingAwaitRejectedAtParseTime() {
+        assertMissingAwait("String s = async \"abc\";");
+        assertMissingAwait("var a = async 5; a + 1;");
+        assertMissingAwait("var a = async \"x\"; a.length();");
+        assertMissingAwait("(async 2) * 3;");
+        assertMissingAwait("function f() { var t = async 2; return t - 1; }");
+    }
+
+    private void assertMissingAwait(String code) {
+        try {
+            eval(code);
+            fail("expected parse error for: " + code);
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), String.valueOf(e.getMessage()).contains("await"));
+        }
+    }
+
+    @Test
+    public void customExecutorIsUsed() {
+        AtomicInteger submitted = new AtomicInteger();
+        Executor direct = task -> {
+            submitted.incrementAndGet();
+            task.run();
+        };
+        AsyncScheduler.setExecutor(direct);
+        assertEquals(42, eval("await async 6 * 7;"));
+        assertEquals(1, submitted.get());
+    }
+}
@@ -0,0 +1,158 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.codegen.CompileTier;
+import com.justnothing.engine.eval.EvalException;
+import com.justnothing.engine.exception.ErrorCode;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 字节码编译层测试。
+ * <p>阈值调低到 2，使函数在测试中被编译；编译前后的结果必须与解释执行一致。</p>
+ */
+public class CompileTierTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        CompileTier.setThreshold(2);
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    @After
+    public void tearDown() {
+        CompileTier.setThreshold(CompileTier.DEFAULT_THRESHOLD);
+        CompileTier.setEnabled(true);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    @Test
+    public void loopFunctionCompiled() {
+        eval("function sumTo(n) { int s = 0; for (int i = 1; i <= n; i++) { s = s + i; } return s; }");
+        assertEquals(55, eval("sumTo(10);"));
+        assertEquals(5050, eval("sumTo(100);"));
+        assertEquals(500500, eval("sumTo(1000);"));
+    }
+
+    @Test
+    public void whileBreakContinue() {
+        eval("function f(n) { int c = 0; int i = 0; while (true) { i++; if (i > n) { break; } "
+                + "if (i % 2 == 0) { continue; } c = c + i; } return c; }");
+        for (int k = 0; k < 3; k++) {
+            assertEquals(25, eval("f(10);"));
+        }
+    }
+
+    @Test
+    public void numericPromotion() {
+        eval("function mix(a, b) { return a * b + 1; }");
+        for (int k = 0; k < 3; k++) {
+            assertEquals(7, eval("mix(2, 3);"));
+        }
+        assertEquals(4.0, eval("mix(1.5, 2);"));
+        assertEquals(7L, eval("mix(2L, 3);"));
+    }
+
+    @Test
+    public void lambdaCompiled() {
+        eval("var sq = (x) -> x * x;");
+        for (int k = 0; k < 3; k++) {
+            assertEquals(49, eval("sq(7);"));
+        }
+        assertEquals(2.25, eval("sq(1.5);"));
+    }
+
+    @Test
+    public void divisionByZeroStillThrows() {
+        eval("function div(a, b) { return a / b; }");
+        assertEquals(2, eval("div(4, 2);"));
+        assertEquals(3, eval("div(6, 2);"));
+        try {
+            eval("div(1, 0);");
+            fail("expected division by zero");
+        } catch (EvalException e) {
+            assertEquals(ErrorCode.EVAL_DIVISION_BY_ZERO, e.getErrorCode());
+        }
+    }
+
+    @Test
+    public void staticJavaCall() {
+        eval("function dist(a, b) { return Math.abs(a - b) + Math.max(a, b); }");
+        for (int k = 0; k < 3; k++) {
+            assertEquals(7, eval("dist(3, 5);"));
+        }
+    }
+
+    @Test
+    public void comparisonsAndTernary() {
+        eval("function sign(x) { return x > 0 ? 1 : (x == 0 ? 0 : -1); }");
+        for (int k = 0; k < 3; k++) {
+            assertEquals(1, eval("sign(5);"));
+            assertEquals(0, eval("sign(0);"));
+            assertEquals(-1, eval("sign(-3);"));
+        }
+    }
+
+    /** boolean 只能判等，大小比较在两层执行里都要报错。 */
+    @Test
+    public void booleanOrderingRejectedInBothTiers() {
+        eval("function gt(a, b) { return a > b; }");
+        eval("function same(a, b) { return a == b; }");
+        for (int k = 0; k < 3; k++) {
+            assertThrows(RuntimeException.class, () -> eval("gt(true, false);"));
+            assertEquals(true, eval("same(true, true);"));
+            assertEquals(false, eval("same(true, false);"));
+        }
+        assertEquals(true, eval("gt(2, 1);"));
+    }
+
+    @Test
+    public void voidFunction() {
+        eval("function noop(x) { int y = x + 1; }");
+        for (int k = 0; k < 3; k++) {
+            assertNull(eval("noop(1);"));
+        }
+    }
+
+    @Test
+    public void unsupportedBodyFallsBack() {
+        eval("function greet(name) { return \"hi \" + name; }");
+        for (int k = 0; k < 3; k++) {
+            assertEquals("hi a", eval("greet(\"a\");"));
+        }
+    }
+
+    @Test
+    public void closureVariablesFallBack() {
+        eval("int base = 10;");
+        eval("function addBase(x) { return x + base; }");
+        assertEquals(11, eval("addBase(1);"));
+        assertEquals(12, eval("addBase(2);"));
+        eval("base = 20;");
+        assertEquals(23, eval("addBase(3);"));
+    }
+
+    @Test
+    public void recursionFallsBack() {
+        eval("function fib(n) { if (n < 2) { return n; } return fib(n - 1) + fib(n - 2); }");
+        assertEquals(55, eval("fib(10);"));
+    }
+
+    @Test
+    public void disabledTierInterprets() {
+        CompileTier.setEnabled(false);
+        eval("function twice(x) { return x * 2; }");
+        for (int k = 0; k < 3; k++) {
+            assertEquals(8, eval("twice(4);"));
+        }
+    }
+}
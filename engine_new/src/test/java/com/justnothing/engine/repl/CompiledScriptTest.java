@@ -0,0 +1,70 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.CompiledScript;
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.eval.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * ScriptRunner.compile / executeWithResult(CompiledScript) 测试。
+ * <p>编译一次、多次执行：每次执行都应看到最新的变量与 builtin，结果与直接 execute 源码一致。</p>
+ */
+public class CompiledScriptTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    @Test
+    public void compileOnce_executeMany() {
+        CompiledScript script = runner.compile("int s = 0; for (int i = 0; i < 10; i++) { s = s + i; } s;");
+        assertEquals(45, runner.executeWithResult(script));
+        runner.clearVariables();
+        assertEquals(45, runner.executeWithResult(script));
+    }
+
+    @Test
+    public void executionSeesCurrentVariables() {
+        CompiledScript script = runner.compile("x * 2;");
+        runner.setVariable("x", 3);
+        assertEquals(6, runner.executeWithResult(script));
+        runner.setVariable("x", 21);
+        assertEquals(42, runner.executeWithResult(script));
+    }
+
+    @Test
+    public void executionSeesReRegisteredBuiltins() {
+        AtomicInteger calls = new AtomicInteger();
+        runner.addBuiltin("hookValue", args -> Value.of(1));
+        CompiledScript script = runner.compile("hookValue();");
+        assertEquals(1, runner.executeWithResult(script));
+        runner.addBuiltin("hookValue", args -> Value.of(calls.incrementAndGet() + 100));
+        assertEquals(101, runner.executeWithResult(script));
+        assertEquals(102, runner.executeWithResult(script));
+    }
+
+    @Test
+    public void compileReportsParseErrors() {
+        try {
+            runner.compile("int = ;");
+            fail("expected parse error");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().startsWith("Parse error: "));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void foreignScriptRejected() {
+        CompiledScript script = new ScriptRunner().compile("1;");
+        runner.executeWithResult(script);
+    }
+}
@@ -0,0 +1,125 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.CompiledScript;
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.builtins.Builtins;
+import com.justnothing.engine.eval.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 同一个 CompiledScript 在多个线程上并发执行的测试。
+ * <p>每次 {@code executeIsolated} 使用独立的帧：局部变量、绑定和帧私有 builtin 互不干扰，全局变量表线程安全。</p>
+ */
+public class ConcurrentExecutionTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 200;
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ROUNDS; i++) task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void bindingsAndLocalsArePerExecution() throws Exception {
+        CompiledScript script = runner.compile(
+                "var acc = 0; for (var i = 0; i < n; i++) { acc = acc + i; } acc * 10 + tag;");
+        AtomicInteger mismatches = new AtomicInteger();
+        AtomicInteger seq = new AtomicInteger();
+        runConcurrently(() -> {
+            int n = seq.incrementAndGet() % 50;
+            int tag = n % 7;
+            Object result = runner.executeIsolated(script, Map.of("n", n, "tag", tag));
+            if (!Integer.valueOf(n * (n - 1) / 2 * 10 + tag).equals(result)) mismatches.incrementAndGet();
+        });
+        assertEquals(0, mismatches.get());
+        // 帧内的顶层声明不会泄漏到全局
+        assertFalse(runner.hasVariable("acc"));
+        assertFalse(runner.hasVariable("n"));
+    }
+
+    @Test
+    public void frameBuiltinsOverrideSharedOnes() throws Exception {
+        runner.addBuiltin("currentArg", args -> Value.of(-1));
+        CompiledScript script = runner.compile("currentArg() * 2;");
+        assertEquals(-2, runner.executeWithResult(script));
+        AtomicInteger mismatches = new AtomicInteger();
+        AtomicInteger seq = new AtomicInteger();
+        runConcurrently(() -> {
+            int arg = seq.incrementAndGet();
+            Builtins.BuiltinFunction fn = args -> Value.of(arg);
+            Object result = runner.executeIsolated(script, null, Map.of("currentArg", fn));
+            if (!Integer.valueOf(arg * 2).equals(result)) mismatches.incrementAndGet();
+        });
+        assertEquals(0, mismatches.get());
+        // 共享注册表未被修改
+        assertEquals(-2, runner.executeWithResult(script));
+    }
+
+    @Test
+    public void functionsClassesAndLambdasInFrames() throws Exception {
+        runner.executeWithResult("class Box { int v; int twice() { return v * 2; } }");
+        CompiledScript script = runner.compile(
+                "function sq(x) { return x * x; } var b = new Box(); b.v = k; "
+                        + "var f = (y) -> sq(y) + b.twice(); f(k);");
+        AtomicInteger mismatches = new AtomicInteger();
+        AtomicInteger seq = new AtomicInteger();
+        runConcurrently(() -> {
+            int k = seq.incrementAndGet() % 100;
+            Object result = runner.executeIsolated(script, Map.of("k", k));
+            if (!Integer.valueOf(k * k + k * 2).equals(result)) mismatches.incrementAndGet();
+        });
+        assertEquals(0, mismatches.get());
+    }
+
+    @Test
+    public void globalsAreSharedAndSafeToUpdate() throws Exception {
+        runner.setVariable("hits", new AtomicInteger());
+        runner.setVariable("limit", 3);
+        CompiledScript script = runner.compile("hits.incrementAndGet(); limit + 1;");
+        runConcurrently(() -> assertEquals(4, runner.executeIsolated(script, null)));
+        assertEquals(THREADS * ROUNDS, ((AtomicInteger) runner.getVariable("hits")).get());
+    }
+
+    @Test
+    public void nestedExecutionRestoresContext() {
+        runner.executeWithResult("class Echo { String say(String s) { return s + \"!\"; } }");
+        CompiledScript inner = runner.compile("new Echo().say(\"inner\");");
+        runner.addBuiltin("runInner", args -> Value.of(runner.executeIsolated(inner, null)));
+        assertEquals("inner!|outer!", runner.executeWithResult("runInner() + \"|\" + new Echo().say(\"outer\");"));
+    }
+}
@@ -0,0 +1,109 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * break / continue / return 完成信号测试。
+ * <p>控制流不再通过异常展开，各种循环、switch、带标签语句和函数边界上的语义必须保持不变。</p>
+ */
+public class ControlFlowTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    @Test
+    public void continueInForLoopRunsUpdate() {
+        assertEquals(25, eval("var s = 0; for (var i = 0; i < 10; i++) { if (i % 2 == 0) continue; s = s + i; } s;"));
+    }
+
+    @Test
+    public void breakInWhileAndDoWhile() {
+        assertEquals(63, eval("var n = 0; while (true) { n++; if (n > 5) break; } "
+                + "var m = 0; do { m++; if (m < 3) continue; break; } while (true); n * 10 + m;"));
+    }
+
+    @Test
+    public void forEachBreakAndContinue() {
+        assertEquals(4, eval("var t = 0; for (var x : [1, 2, 3, 4, 5]) { if (x == 2) continue; if (x == 4) break; t = t + x; } t;"));
+    }
+
+    @Test
+    public void earlyReturnFromNestedLoops() {
+        eval("function find(n) { for (var i = 0; i < 100; i++) { for (var j = 0; j < 100; j++) { if (i * j >= n) return i * 1000 + j; } } return -1; }");
+        assertEquals(1050, eval("find(50);"));
+        assertEquals(0, eval("find(0);"));
+    }
+
+    @Test
+    public void returnWithoutValue() {
+        eval("var hit = 0; function touch(x) { if (x) return; hit = hit + 1; }");
+        eval("touch(true); touch(false); touch(true);");
+        assertEquals(1, eval("hit;"));
+    }
+
+    @Test
+    public void labeledBreakLeavesOuterLoop() {
+        assertEquals(2, eval("var c = 0; outer: for (var i = 0; i < 5; i++) { for (var j = 0; j < 5; j++) { if (j == 2) break outer; c++; } } c;"));
+    }
+
+    @Test
+    public void switchBreakAndReturn() {
+        eval("function k(i) { var r = 0; switch (i) { case 1: r = 10; break; case 2: return 20; default: r = 30; } return r + 1; }");
+        assertEquals(62, eval("k(1) + k(2) + k(3);"));
+    }
+
+    @Test
+    public void returnInsideTryAndCatch() {
+        eval("function g() { try { return 1; } catch (Exception e) { return 2; } }");
+        eval("function h() { try { Integer.parseInt(\"x\"); return 1; } catch (Exception e) { return 2; } }");
+        assertEquals(12, eval("g() * 10 + h();"));
+    }
+
+    @Test
+    public void lambdaReturnDoesNotLeakIntoCaller() {
+        assertEquals("posneg", eval("var f = (x) -> { if (x > 0) { return \"pos\"; } return \"neg\"; }; f(1) + f(-1);"));
+        assertEquals(3, eval("var after = 0; for (var i = 0; i < 3; i++) { f(i); after++; } after;"));
+    }
+
+    @Test
+    public void loopStateResetAcrossCalls() {
+        eval("function firstOver(limit) { var i = 0; while (true) { i++; if (i > limit) break; } return i; }");
+        for (int limit = 0; limit < 5; limit++) {
+            assertEquals(limit + 1, eval("firstOver(" + limit + ");"));
+        }
+    }
+
+    @Test
+    public void largeLoopWithContinue() {
+        assertEquals(33334, eval("var hits = 0; for (var i = 0; i < 100000; i++) { if (i % 3 != 0) continue; hits++; } hits;"));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void breakOutsideLoopStillFails() {
+        eval("break;");
+    }
+
+    /** 每个 for (var ...) 初始化和强制转换都曾在解析器回溯栈上遗留一项，超过 64 个即解析失败。 */
+    @Test
+    public void manyLoopsAndCastsInOneScript() {
+        StringBuilder sb = new StringBuilder("var t = 0;\n");
+        for (int k = 0; k < 100; k++) {
+            sb.append("for (var i = 0; i < 2; i++) { t = t + (int) 1; }\n");
+        }
+        sb.append("t;");
+        assertEquals(200, eval(sb.toString()));
+    }
+}
@@ -1,6 +1,7 @@
 package com.justnothing.engine.repl;
 
 import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.nodes.ClassDeclarationNode;
 import com.justnothing.engine.codegen.DynamicClassGenerator;
 import com.justnothing.engine.eval.CustomClassExecutor;
 import com.justnothing.engine.eval.EvalContext;
@@ -15,6 +16,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.ref.WeakReference;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -277,6 +279,62 @@ public class CustomClassEvalTest {
         assertEquals(2, v.asJavaObject());
     }
 
+    @Test
+    public void fieldWrite_visibleToNestedCall() {
+        Value v = lastValue("""
+                class Counter {
+                    int count;
+                    void inc() { count = count + 1; }
+                    int incAndPeek() { this.inc(); this.inc(); return count; }
+                }
+                Counter c = new Counter();
+                c.incAndPeek()
+                """);
+        assertEquals(2, v.asJavaObject());
+    }
+
+    @Test
+    public void fieldWrite_manyCallsOnSameInstance() {
+        Value v = lastValue("""
+                class Counter {
+                    int count;
+                    void inc() { count = count + 1; }
+                }
+                Counter c = new Counter();
+                for (int i = 0; i < 1000; i++) { c.inc(); }
+                c.count
+                """);
+        assertEquals(1000, v.asJavaObject());
+    }
+
+    @Test
+    public void parameterShadowsField() {
+        Value v = lastValue("""
+                class Box {
+                    int value = 5;
+                    int add(int value) { return value + 1; }
+                }
+                Box b = new Box();
+                b.add(10) * 100 + b.value
+                """);
+        assertEquals(1105, v.asJavaObject());
+    }
+
+    @Test
+    public void fieldWrite_coercedToFieldType() {
+        Value v = lastValue("""
+                class Acc {
+                    long total;
+                    void add(int x) { total = total + x; }
+                }
+                Acc a = new Acc();
+                a.add(3);
+                a.add(4);
+                a.total
+                """);
+        assertEquals(7L, v.asJavaObject());
+    }
+
     // ==================== 匿名类与 Java 兼容性 ====================
 
     @Test
@@ -370,4 +428,87 @@ public class CustomClassEvalTest {
                 """);
         assertEquals("Hello World", v.asJavaObject());
     }
+
+    @Test
+    public void regeneratedClassSharesMethodHandles() {
+        ClassDeclarationNode decl = parseClass("class Twice { int twice(int x) { return x * 2; } }", "Twice");
+        int before = CustomClassExecutor.liveHandleCount();
+        Class<?> first = generateDetached(decl);
+        Class<?> second = generateDetached(decl);
+        assertNotSame(first, second);
+        assertEquals(before + 1, CustomClassExecutor.liveHandleCount());
+    }
+
+    @Test
+    public void unloadedClassReleasesMethodHandles() throws InterruptedException {
+        awaitCollectedClasses();
+        int before = CustomClassExecutor.liveHandleCount();
+        WeakReference<ClassLoader> loader = runInDetachedLoader("""
+                class Thrice {
+                    int factor = 3;
+                    int thrice(int x) { return x * factor; }
+                }
+                Thrice t = new Thrice();
+                t.thrice(2) + t.factor
+                """, 9);
+        for (int i = 0; i < 100 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("script class loader should be collectable", loader.get());
+        for (int i = 0; i < 100 && CustomClassExecutor.liveHandleCount() != before; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(before, CustomClassExecutor.liveHandleCount());
+    }
+
+    /** 在独立的加载器里执行脚本（调用方法、读字段），只把加载器的弱引用带出来。 */
+    private static WeakReference<ClassLoader> runInDetachedLoader(String source, Object expected) {
+        ParseContext context = new ParseContext();
+        EvalContext eval = new EvalContext();
+        DynamicClassGenerator generator = new DynamicClassGenerator(context.getClassLoader());
+        generator.setDelegateToExecutor(true);
+        context.setClassLoader(generator.getLoader());
+        context.setCodeGenerator(generator);
+        try {
+            List<ASTNode> nodes = new Parser(new Lexer(source, "<test>").tokenize(), context, "<test>").parse();
+            CustomClassExecutor.setContext(eval, context);
+            List<Value> results = new Evaluator(eval, context).evaluateAll(nodes);
+            assertEquals(expected, results.get(results.size() - 1).asJavaObject());
+        } catch (CythavaParseException e) {
+            throw new RuntimeException("Parse error: " + e.getMessage(), e);
+        } finally {
+            CustomClassExecutor.clearContext();
+        }
+        return new WeakReference<>(generator.getLoader());
+    }
+
+    /** 等之前用例生成的类回收完，句柄数稳定后再取基准。 */
+    private static void awaitCollectedClasses() throws InterruptedException {
+        int live = CustomClassExecutor.liveHandleCount();
+        for (int stable = 0, i = 0; stable < 3 && i < 100; i++) {
+            System.gc();
+            Thread.sleep(10);
+            int now = CustomClassExecutor.liveHandleCount();
+            stable = now == live ? stable + 1 : 0;
+            live = now;
+        }
+    }
+
+    private static ClassDeclarationNode parseClass(String source, String className) {
+        try {
+            ParseContext context = new ParseContext();
+            new Parser(new Lexer(source, "<test>").tokenize(), context, "<test>").parse();
+            return context.getClassDeclarations().get(className);
+        } catch (CythavaParseException e) {
+            throw new RuntimeException("Parse error: " + e.getMessage(), e);
+        }
+    }
+
+    private Class<?> generateDetached(ClassDeclarationNode decl) {
+        DynamicClassGenerator generator = new DynamicClassGenerator(getClass().getClassLoader());
+        generator.setDelegateToExecutor(true);
+        return generator.generate(decl);
+    }
 }
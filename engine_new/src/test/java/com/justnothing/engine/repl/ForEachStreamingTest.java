@@ -0,0 +1,153 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.eval.EvalException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * for-each 流式遍历测试。
+ * <p>数据源直接在迭代器上逐个取元素；只有循环体可能修改数据源时才先拷贝快照。</p>
+ */
+public class ForEachStreamingTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    /** 无限自然数序列，记录被取走的元素个数。 */
+    public static final class Naturals implements Iterable<Integer> {
+        public int pulled;
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public Integer next() {
+                    pulled++;
+                    return next++;
+                }
+            };
+        }
+    }
+
+    @Test
+    public void infiniteIterableIsConsumedLazily() {
+        Naturals naturals = new Naturals();
+        runner.setVariable("naturals", naturals);
+        assertEquals(15, eval("var s = 0; for (var n : naturals) { if (n > 5) break; s = s + n; } s;"));
+        assertEquals(7, naturals.pulled);
+    }
+
+    @Test
+    public void elementsArePulledOneAtATime() {
+        Naturals naturals = new Naturals();
+        runner.setVariable("naturals", naturals);
+        runner.setVariable("seen", new ArrayList<Integer>());
+        eval("for (var n : naturals) { seen.add(naturals.pulled); if (n == 3) break; }");
+        assertEquals(Arrays.asList(1, 2, 3, 4), eval("seen;"));
+    }
+
+    /** 在脚本看不到的地方持有数据源引用的 Java 对象。 */
+    public static final class Appender {
+        private final List<Integer> target;
+
+        public Appender(List<Integer> target) {
+            this.target = target;
+        }
+
+        public void push() {
+            target.add(0);
+        }
+    }
+
+    @Test
+    public void bodyMutatingSourceIteratesSnapshot() {
+        assertEquals(Arrays.asList(1, 2, 3, 10, 20, 30),
+                eval("var l = new ArrayList(); l.add(1); l.add(2); l.add(3); for (var x : l) { l.add(x * 10); } l;"));
+        assertEquals(0, eval("var m = new HashMap(); m.put(\"a\", 1); m.put(\"b\", 2); "
+                + "for (var k : m.keySet()) { m.remove(k); } m.size();"));
+    }
+
+    @Test
+    public void sourcePassedToCallIteratesSnapshot() {
+        List<Integer> data = new ArrayList<>(Arrays.asList(4, 5));
+        runner.setVariable("data", data);
+        eval("for (var x : data) { java.util.Collections.reverse(data); }");
+        assertEquals(Arrays.asList(4, 5), data);
+    }
+
+    @Test
+    public void aliasMutationIteratesSnapshot() {
+        assertEquals(4, eval("var l = new ArrayList(); l.add(1); l.add(2); var al = l; "
+                + "for (var e : l) { al.add(3); } l.size();"));
+        assertEquals(3, eval("var m = new ArrayList(); m.add(1); var box = new HashMap(); box.put(\"k\", m); "
+                + "for (var e : m) { box.get(\"k\").add(2); box.get(\"k\").add(3); } m.size();"));
+    }
+
+    @Test
+    public void mutationInsideFunctionOrLambdaIteratesSnapshot() {
+        assertEquals(4, eval("var l = new ArrayList(); l.add(1); l.add(2); function grow() { l.add(3); } "
+                + "for (var e : l) { grow(); } l.size();"));
+        assertEquals(4, eval("var k = new ArrayList(); k.add(1); k.add(2); var g = () -> k.add(3); "
+                + "for (var e : k) { g(); } k.size();"));
+    }
+
+    @Test
+    public void builtinCallsKeepStreaming() {
+        Naturals naturals = new Naturals();
+        runner.setVariable("naturals", naturals);
+        assertEquals(15.0, eval("var s = 0; for (var n : naturals) { if (n > 5) break; s = s + abs(n); } s;"));
+        assertEquals(7, naturals.pulled);
+    }
+
+    @Test
+    public void undetectedMutationReportsLocation() {
+        List<Integer> data = new ArrayList<>(Arrays.asList(1, 2));
+        runner.setVariable("data", data);
+        runner.setVariable("appender", new Appender(data));
+        try {
+            eval("for (var x : data) {\n  appender.push();\n}");
+            fail("expected concurrent modification to be reported");
+        } catch (EvalException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("modified during for-each over 'x'"));
+            assertTrue(e.getMessage(), e.getMessage().contains("line 1"));
+        }
+    }
+
+    @Test
+    public void readOnlyCallsOnSourceKeepStreaming() {
+        assertEquals(6, eval("var l = new ArrayList(); l.add(1); l.add(2); l.add(3); "
+                + "var t = 0; for (var x : l) { t = t + l.size() - l.indexOf(x) - 1 + x; } t - 3;"));
+    }
+
+    @Test
+    public void arraysAndLazySequences() {
+        assertEquals(6, eval("var t = 0; for (var x : [1, 2, 3]) { t = t + x; } t;"));
+        runner.setVariable("bytes", new byte[]{1, 2, 3, 4});
+        assertEquals(10, eval("var b = 0; for (var x : bytes) { b = b + x; } b;"));
+        assertEquals(20, eval("var q = 0; for (var x : map(range(5), (v) -> v * 2)) { q = q + x; } q;"));
+    }
+}
@@ -0,0 +1,115 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.builtins.Lambda;
+import com.justnothing.engine.codegen.FunctionalAdapters;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+import static org.junit.Assert.*;
+
+/**
+ * lambda 转函数式接口测试。
+ * <p>每个接口生成一个适配类并复用；SAM 查找排除 Object 方法的重新声明（如 Comparator.equals）。</p>
+ */
+public class FunctionalAdapterTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    private Lambda lambda(String code) {
+        return (Lambda) eval(code);
+    }
+
+    /** 本测试类自己的非 public 接口，无法生成适配类，走 Proxy 回退。 */
+    interface Hidden {
+        int twice(int x);
+    }
+
+    @Test
+    public void comparatorSamIsCompareNotEquals() {
+        assertEquals("compare", Lambda.getSAM(Comparator.class).getName());
+        assertTrue(FunctionalAdapters.isFunctionalInterface(Comparator.class));
+        assertFalse(FunctionalAdapters.isFunctionalInterface(List.class));
+        assertNull(Lambda.getSAM(String.class));
+    }
+
+    @Test
+    public void oneAdapterClassPerInterface() {
+        Function<?, ?> a = lambda("(x) -> x;").asInterface(Function.class);
+        Function<?, ?> b = lambda("(y) -> y + 1;").asInterface(Function.class);
+        assertFalse(Proxy.isProxyClass(a.getClass()));
+        assertSame(a.getClass(), b.getClass());
+        assertNotSame(a, b);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void primitiveSignatures() {
+        IntBinaryOperator add = lambda("(a, b) -> a + b;").asInterface(IntBinaryOperator.class);
+        assertEquals(7, add.applyAsInt(3, 4));
+        // 脚本返回 int，SAM 要求 long
+        ToLongFunction<Object> len = lambda("(s) -> s.length();").asInterface(ToLongFunction.class);
+        assertEquals(5L, len.applyAsLong("hello"));
+        Predicate<Object> positive = lambda("(x) -> x > 0;").asInterface(Predicate.class);
+        assertTrue(positive.test(1));
+        // default 方法沿用接口自身的实现
+        assertTrue(positive.negate().test(-1));
+    }
+
+    @Test
+    public void voidSamAndSideEffects() {
+        eval("var hits = new ArrayList();");
+        Runnable r = lambda("() -> hits.add(1);").asInterface(Runnable.class);
+        r.run();
+        r.run();
+        assertEquals(2, eval("hits.size();"));
+    }
+
+    @Test
+    public void adapterUnwrapsToSource() {
+        Lambda source = lambda("(x) -> x * 3;");
+        Object adapter = source.asInterface(Function.class);
+        assertSame(source, FunctionalAdapters.sourceOf(adapter));
+        assertNull(FunctionalAdapters.sourceOf("not an adapter"));
+        runner.setVariable("g", adapter);
+        assertEquals(21, eval("g(7);"));
+    }
+
+    @Test
+    public void nonPublicInterfaceFallsBackToProxy() {
+        Hidden hidden = lambda("(x) -> x * 2;").asInterface(Hidden.class);
+        assertTrue(Proxy.isProxyClass(hidden.getClass()));
+        assertEquals(10, hidden.twice(5));
+        assertNotNull(FunctionalAdapters.sourceOf(hidden));
+    }
+
+    @Test
+    public void lambdaPassedToJavaComparator() {
+        assertEquals(Arrays.asList(3, 2, 1),
+                eval("var l = new ArrayList(); l.add(2); l.add(3); l.add(1); l.sort((a, b) -> b - a); l;"));
+        List<Integer> data = new ArrayList<>(Arrays.asList(5, 1, 4));
+        runner.setVariable("data", data);
+        eval("java.util.Collections.sort(data, (java.util.Comparator) (a, b) -> a - b);");
+        assertEquals(Arrays.asList(1, 4, 5), data);
+    }
+}
@@ -0,0 +1,93 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.ast.InlineCache;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 调用点内联缓存测试。
+ * <p>同一调用点遇到不同接收者 / 实参类型时，结果必须与不缓存时一致，超态后仍能正确分发。</p>
+ */
+public class InlineCacheTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    @Test
+    public void monomorphicSiteRepeated() {
+        eval("function len(x) { return x.length(); }");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(3, eval("len(\"abc\");"));
+        }
+        assertEquals(5, eval("len(\"hello\");"));
+    }
+
+    @Test
+    public void polymorphicReceivers() {
+        eval("function size(c) { return c.size(); }");
+        assertEquals(3, eval("size(new ArrayList(List.of(1, 2, 3)));"));
+        assertEquals(1, eval("size(new HashSet(List.of(\"a\")));"));
+        assertEquals(2, eval("size(new LinkedList(List.of(1, 2)));"));
+        assertEquals(0, eval("size(new HashMap());"));
+        assertEquals(3, eval("size(new ArrayList(List.of(1, 2, 3)));"));
+    }
+
+    @Test
+    public void overloadSelectionFollowsArgumentTypes() {
+        eval("function str(v) { return String.valueOf(v); }");
+        assertEquals("1", eval("str(1);"));
+        assertEquals("1.5", eval("str(1.5);"));
+        assertEquals("true", eval("str(true);"));
+        assertEquals("1", eval("str(1);"));
+    }
+
+    @Test
+    public void megamorphicSiteStillDispatches() {
+        eval("function name(x) { return x.getClass().getSimpleName(); }");
+        String[] values = {"1", "1L", "1.5", "true", "\"s\"", "new ArrayList()"};
+        String[] expected = {"Integer", "Long", "Double", "Boolean", "String", "ArrayList"};
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < values.length; i++) {
+                assertEquals(expected[i], eval("name(" + values[i] + ");"));
+            }
+        }
+    }
+
+    @Test
+    public void safeCallCachedPerReceiver() {
+        eval("function up(s) { return s?.toUpperCase(); }");
+        assertEquals("AB", eval("up(\"ab\");"));
+        assertEquals("CD", eval("up(\"cd\");"));
+        assertNull(eval("up(null);"));
+    }
+
+    @Test
+    public void cacheBecomesMegamorphic() {
+        InlineCache<String> cache = new InlineCache<>();
+        Class<?>[] args = {Integer.class};
+        Class<?>[] types = {String.class, Integer.class, Long.class, Double.class, Boolean.class};
+        for (int i = 0; i < InlineCache.MAX_ENTRIES; i++) {
+            cache.update(types[i], args, types[i].getSimpleName());
+        }
+        assertEquals("Long", cache.lookup(Long.class, args));
+        assertNull(cache.lookup(Long.class, InlineCache.NO_ARGS));
+        assertFalse(cache.isMegamorphic());
+
+        cache.update(types[InlineCache.MAX_ENTRIES], args, "overflow");
+        assertTrue(cache.isMegamorphic());
+        assertEquals(0, cache.size());
+        assertNull(cache.lookup(Long.class, args));
+    }
+}
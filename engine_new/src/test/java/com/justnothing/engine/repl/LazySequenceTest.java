@@ -0,0 +1,111 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.builtins.LazySequence;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 惰性集合管道测试。
+ * <p>range 为 O(1) 视图；map / filter 只记录阶段，在 reduce / join / forEach / |> 终结时一次遍历；
+ * parallel 在规模足够时改用 fork-join 执行。</p>
+ */
+public class LazySequenceTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    @Test
+    public void rangeIsConstantSpace() {
+        assertEquals(4, eval("size(range(1, 5));"));
+        assertEquals(Arrays.asList(10, 7, 4, 1), eval("toList(range(10, 0, -3));"));
+        assertEquals(0, eval("size(range(5, 1));"));
+        // 不物化也能回答 size / contains
+        assertEquals(2000000000, eval("size(range(2000000000));"));
+        assertEquals(true, eval("contains(range(0, 2000000000, 2), 1999999998);"));
+        assertEquals(false, eval("contains(range(0, 2000000000, 2), 7);"));
+    }
+
+    @Test
+    public void rangeSupportsListMethods() {
+        assertEquals(2, eval("range(5).get(2);"));
+        assertEquals(true, eval("range(5).contains(3);"));
+        assertEquals(5, eval("range(5).size();"));
+        assertEquals(3, eval("range(2, 8).indexOf(5);"));
+        assertEquals(4, eval("java.util.List l = range(4); l.size();"));
+    }
+
+    @Test
+    public void rangeCopiesOnFirstWrite() {
+        assertEquals(Arrays.asList(0, 1, 2, 9), eval("var l = range(3); l.add(9); l;"));
+        assertEquals(Arrays.asList(7, 3, 6, 9), eval("var r = range(0, 10, 3); r.set(0, 7); r;"));
+        assertEquals(Arrays.asList(3, 6, 9), eval("r.remove(7); r;"));
+        assertEquals(true, eval("r.contains(6);"));
+        assertEquals(0, eval("r.clear(); r.size();"));
+    }
+
+    @Test
+    public void mapAndFilterAreFusedAndLazy() {
+        eval("var seen = new ArrayList();");
+        Object seq = eval("var s = map(filter(range(10), (x) -> x % 2 == 0), (x) -> { seen.add(x); return x * x; }); s;");
+        assertTrue(seq instanceof LazySequence);
+        assertEquals(0, eval("seen.size();"));
+        assertEquals(120, eval("reduce(s, (a, b) -> a + b);"));
+        assertEquals(Arrays.asList(0, 2, 4, 6, 8), eval("seen;"));
+        assertEquals("0,4,16,36,64", eval("join(s, \",\");"));
+    }
+
+    @Test
+    public void pipelineWithBuiltins() {
+        assertEquals(90, eval("range(10) |> map((x) -> x * 2) |> reduce((a, b) -> a + b);"));
+        assertEquals(Arrays.asList(1, 3, 5), eval("range(6) |> filter((x) -> x % 2 == 1) |> toList;"));
+        assertEquals("a-b", eval("var l = new ArrayList(); l.add(\"a\"); l.add(\"b\"); l |> join(\"-\");"));
+        assertEquals(10, eval("reduce(range(5), (a, b) -> a + b, 0);"));
+        assertNull(eval("reduce(filter(range(5), (x) -> x > 10), (a, b) -> a + b);"));
+    }
+
+    @Test
+    public void forEachStreamsElements() {
+        eval("var out = new ArrayList();");
+        eval("forEach(map(range(3), (x) -> x + 1), (x) -> out.add(x));");
+        eval("map(range(3), (x) -> x * 10).forEach((x) -> out.add(x));");
+        assertEquals(Arrays.asList(1, 2, 3, 0, 10, 20), eval("out;"));
+    }
+
+    @Test
+    public void arraysAndJavaCollectionsAsSource() {
+        runner.setVariable("nums", new int[]{3, 1, 4});
+        assertEquals(Arrays.asList(6, 2, 8), eval("toList(map(nums, (x) -> x * 2));"));
+        List<String> words = new ArrayList<>(Arrays.asList("x", "yy", "zzz"));
+        runner.setVariable("words", words);
+        assertEquals(2, eval("size(filter(words, (w) -> w.length() > 1));"));
+    }
+
+    @Test
+    public void parallelMatchesSequential() {
+        int n = LazySequence.PARALLEL_THRESHOLD * 4;
+        Object sequential = eval("reduce(map(range(" + n + "), (x) -> x * 3), (a, b) -> a + b);");
+        Object parallel = eval("reduce(map(parallel(range(" + n + ")), (x) -> x * 3), (a, b) -> a + b);");
+        assertEquals(sequential, parallel);
+        Object ordered = eval("toList(filter(parallel(range(" + n + ")), (x) -> x % 1000 == 0));");
+        assertEquals(Arrays.asList(0, 1000, 2000, 3000, 4000), ordered);
+        // 小于阈值时顺序执行
+        assertTrue(LazySequence.of(List.of(1, 2)).parallel().isParallel());
+        assertEquals(Arrays.asList(1, 2), LazySequence.of(List.of(1, 2)).parallel().toList());
+    }
+}
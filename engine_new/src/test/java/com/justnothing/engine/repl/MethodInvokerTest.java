@@ -0,0 +1,159 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.util.FieldAccessor;
+import com.justnothing.engine.util.MethodInvoker;
+import org.junit.Test;
+
+import java.awt.Point;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * MethodInvoker / FieldAccessor 测试。
+ * <p>MethodHandle 调用路径必须保持与 Method.invoke / Field.get / Field.set 相同的转换规则与异常契约。</p>
+ */
+public class MethodInvokerTest {
+
+    @Test
+    public void staticAndInstanceMethods() throws Exception {
+        assertEquals(5, MethodInvoker.of(Math.class.getMethod("abs", int.class)).invoke(null, -5));
+        assertEquals(3, MethodInvoker.of(String.class.getMethod("length")).invoke("abc"));
+        assertEquals("bc", MethodInvoker.of(String.class.getMethod("substring", int.class)).invoke("abc", 1));
+        assertTrue(MethodInvoker.of(String.class.getMethod("length")).isDirect());
+    }
+
+    @Test
+    public void primitiveWideningLikeReflection() throws Exception {
+        Method max = Math.class.getMethod("max", long.class, long.class);
+        assertEquals(7L, MethodInvoker.of(max).invoke(null, 3, 7));
+        Method sqrt = Math.class.getMethod("sqrt", double.class);
+        assertEquals(3.0, MethodInvoker.of(sqrt).invoke(null, 9));
+    }
+
+    @Test
+    public void voidMethodReturnsNull() throws Exception {
+        List<Object> list = new ArrayList<>();
+        Method clear = List.class.getMethod("clear");
+        assertNull(MethodInvoker.of(clear).invoke(list));
+    }
+
+    @Test
+    public void targetExceptionWrapped() throws Exception {
+        Method parse = Integer.class.getMethod("parseInt", String.class);
+        try {
+            MethodInvoker.of(parse).invoke(null, "x");
+            fail("expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void narrowingRejected() throws Exception {
+        MethodInvoker.of(Math.class.getMethod("abs", int.class)).invoke(null, 5L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongArityRejected() throws Exception {
+        MethodInvoker.of(Math.class.getMethod("abs", int.class)).invoke(null, 1, 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongReceiverRejected() throws Exception {
+        MethodInvoker.of(String.class.getMethod("length")).invoke(new Object());
+    }
+
+    @Test
+    public void referenceArgumentMismatchIsNotTargetException() throws Exception {
+        Method concat = String.class.getMethod("concat", String.class);
+        try {
+            MethodInvoker.of(concat).invoke("a", 1);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // 与 Method.invoke 相同：实参类型不符不当作目标异常
+        }
+        Method cast = Class.class.getMethod("cast", Object.class);
+        try {
+            MethodInvoker.of(cast).invoke(String.class, 1);
+            fail("expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof ClassCastException);
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullReceiverRejected() throws Exception {
+        MethodInvoker.of(String.class.getMethod("length")).invoke(null);
+    }
+
+    @Test
+    public void constructors() throws Exception {
+        Object sb = MethodInvoker.of(StringBuilder.class.getConstructor(String.class)).newInstance("hi");
+        assertEquals("hi", sb.toString());
+        Object list = MethodInvoker.of(ArrayList.class.getConstructor(int.class)).newInstance(4);
+        assertTrue(list instanceof ArrayList);
+    }
+
+    @Test
+    public void varargsPassedPrePacked() throws Exception {
+        Method format = String.class.getMethod("format", String.class, Object[].class);
+        assertEquals("a-1", MethodInvoker.of(format).invoke(null, "%s-%d", new Object[]{"a", 1}));
+    }
+
+    @Test
+    public void fieldAccess() throws Exception {
+        Point p = new Point(1, 2);
+        FieldAccessor x = FieldAccessor.of(Point.class.getField("x"));
+        assertEquals(1, x.get(p));
+        x.set(p, 5);
+        assertEquals(5, p.x);
+        assertEquals(Integer.MAX_VALUE, FieldAccessor.of(Integer.class.getField("MAX_VALUE")).get(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fieldTypeMismatchRejected() throws Exception {
+        FieldAccessor.of(Point.class.getField("x")).set(new Point(), "nope");
+    }
+
+    @Test
+    public void scriptCallsGoThroughInvoker() {
+        ScriptRunner runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        assertEquals("HELLO", runner.executeWithResult("\"hello\".toUpperCase();"));
+        assertEquals(4, runner.executeWithResult("Math.max(3, 4);"));
+        assertEquals(2, runner.executeWithResult("var sb = new StringBuilder(\"ab\"); sb.length();"));
+    }
+
+    @Test
+    public void invokedScriptClassLoaderIsCollectable() throws InterruptedException {
+        WeakReference<ClassLoader> loader = invokeScriptClass();
+        for (int i = 0; i < 100 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("invoker caches must not pin the script class loader", loader.get());
+    }
+
+    /** 调用脚本类的方法并读字段，只把它的加载器以弱引用带出来。 */
+    private static WeakReference<ClassLoader> invokeScriptClass() {
+        ScriptRunner runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        Object box = runner.executeWithResult("""
+                class Box {
+                    int v = 2;
+                    int twice() { return v * 2; }
+                }
+                var b = new Box();
+                b.twice() + b.v;
+                b;
+                """);
+        assertNotNull(box);
+        return new WeakReference<>(box.getClass().getClassLoader());
+    }
+}
@@ -527,4 +527,26 @@ public class OperatorSystemIntegrationTest {
             """);
         assertIntEquals(3, result);
     }
+
+    /**
+     * 回归测试：两个 Object 类型变量相加（如 n + i，i 为 for 循环变量）不能被推断为 String，
+     * 否则赋值后 n 被当作 String，后续的 n + 5 在解析期就绑定成字符串拼接。
+     */
+    @Test
+    public void inference_ambiguousSumStaysNumeric() {
+        Object result = eval("""
+            var n = 0;
+            for (var i = 0; i < 2; i++) {
+                n = n + i;
+                n = n + 5;
+            }
+            n;
+            """);
+        assertIntEquals(11, result);
+    }
+
+    @Test
+    public void inference_ambiguousSumWithStringStillConcatenates() {
+        assertStringEquals("a1", eval("var o = 1; var s = \"a\" + o; s;"));
+    }
 }
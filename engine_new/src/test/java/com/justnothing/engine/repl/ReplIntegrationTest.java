@@ -695,7 +695,7 @@ public class ReplIntegrationTest {
         ASTNode asyncNode = parseSingle("async 1");
         JType asyncType = context.getType(asyncNode);
         assertNotNull("AsyncNode should have type", asyncType);
-        assertEquals("async 1 should be int", int.class, asyncType.getRawType());
+        assertEquals("async 1 should be a future", java.util.concurrent.CompletableFuture.class, asyncType.getRawType());
 
         // 再验证 await async 1 的类型
         context = new ParseContext();  // 重置上下文
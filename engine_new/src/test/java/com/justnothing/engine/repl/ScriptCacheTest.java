@@ -0,0 +1,253 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.CompiledScript;
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.nodes.BinaryOpNode;
+import com.justnothing.engine.ast.nodes.MethodCallNode;
+import com.justnothing.engine.ast.nodes.VarDeclNode;
+import com.justnothing.engine.cache.ScriptCache;
+import com.justnothing.engine.cache.ScriptCodec;
+import com.justnothing.engine.eval.Value;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.StreamCorruptedException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 预编译缓存测试：{@link ScriptCodec} 编解码往返、{@link ScriptCache} 命中与回退。
+ * <p>每个用例用新的 ScriptRunner 模拟“重启后加载”，结果必须与按源码编译一致。</p>
+ */
+public class ScriptCacheTest {
+
+    private static final String SCRIPT =
+            "var list = new ArrayList();\n"
+            + "for (var i = 0; i < 5; i++) { list.add(i * 2); }\n"
+            + "var total = 0;\n"
+            + "for (Object o : list) { total = total + (Integer) o; }\n"
+            + "function sq(n) { return n * n; }\n"
+            + "var f = (x) -> x + 1;\n"
+            + "var m = {\"a\": 1, \"b\": 2};\n"
+            + "var len = \"abc\".substring(1).length();\n"
+            + "int[] arr = new int[3];\n"
+            + "arr[1] = 7;\n"
+            + "String r = \"\";\n"
+            + "switch (total) { case 20: r = \"twenty\"; break; default: r = \"other\"; }\n"
+            + "try { throw new IllegalStateException(); } catch (IllegalStateException e) { r = r + \"!\"; }\n"
+            + "var up = \"  hi \" |> String::trim |> String::toUpperCase;\n"
+            + "long big = 1L << 40;\n"
+            + "r + \":\" + sq(3) + \":\" + f(1) + \":\" + len + \":\" + arr[1] + \":\" + (total > 10 ? \"big\" : \"small\")\n"
+            + "    + \":\" + Integer.MAX_VALUE + \":\" + m.get(\"b\") + \":\" + up + \":\" + big + \":\" + 'c' + 2.5;";
+
+    private static final String EXPECTED = "twenty!:9:2:2:7:big:2147483647:2:HI:1099511627776:c2.5";
+
+    private File dir;
+    private ScriptCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("script-cache").toFile();
+        cache = new ScriptCache(dir, "test");
+    }
+
+    @After
+    public void tearDown() {
+        cache.clear();
+        dir.delete();
+    }
+
+    private ScriptRunner newRunner(boolean strict) {
+        ScriptRunner runner = new ScriptRunner();
+        runner.setStrictMode(strict);
+        runner.addImport("java.util.*");
+        runner.setScriptCache(cache);
+        return runner;
+    }
+
+    private int cachedFiles() {
+        String[] names = dir.list((d, name) -> name.endsWith(".cyc"));
+        return names == null ? 0 : names.length;
+    }
+
+    @Test
+    public void roundTrip_freshRunnerLoadsFromCache() {
+        assertEquals(EXPECTED, newRunner(false).executeWithResult(SCRIPT));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cachedFiles());
+
+        assertEquals(EXPECTED, newRunner(false).executeWithResult(SCRIPT));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cachedFiles());
+    }
+
+    @Test
+    public void loadedScript_keepsParseTimeBindings() {
+        String code = "String s = \"hello\"; int n = s.length() + 1; n;";
+        ScriptRunner source = newRunner(false);
+        BinaryOpNode parsedSum = sumOf(source.compile(code));
+
+        ScriptRunner runner = newRunner(false);
+        CompiledScript loaded = runner.compile(code);
+        assertEquals(1, cache.getHitCount());
+
+        BinaryOpNode sum = sumOf(loaded);
+        MethodCallNode call = (MethodCallNode) sum.getLeft();
+        assertNotNull("方法应按描述符重新绑定", call.getBoundMethod());
+        assertEquals("length", call.getBoundMethod().getName());
+        assertNotNull("内置运算符回调应重新绑定", sum.getOperatorCallback());
+        assertEquals(source.getParseContext().getRawType(parsedSum.getLeft()), runner.getParseContext().getRawType(call));
+        assertEquals(source.getParseContext().getRawType(parsedSum), runner.getParseContext().getRawType(sum));
+        assertEquals(6, runner.executeWithResult(loaded));
+    }
+
+    private static BinaryOpNode sumOf(CompiledScript script) {
+        VarDeclNode decl = (VarDeclNode) script.getNodes().get(1);
+        return (BinaryOpNode) decl.getInitializer();
+    }
+
+    @Test
+    public void loadedScript_replaysTopLevelDeclarations() {
+        // 严格模式下第二段脚本依赖第一段声明的变量；从缓存加载第一段后，第二段仍应能解析
+        ScriptRunner first = newRunner(true);
+        first.execute("int base = 40;");
+        assertEquals(42, first.executeWithResult("base + 2;"));
+
+        ScriptRunner second = newRunner(true);
+        second.execute("int base = 40;");
+        assertEquals(42, second.executeWithResult("base + 2;"));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void environmentChange_missesCache() {
+        newRunner(false).compile("1 + 2;");
+        ScriptRunner runner = newRunner(false);
+        runner.addImport("java.util.concurrent.*");
+        assertEquals(3, runner.executeWithResult("1 + 2;"));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cachedFiles());
+    }
+
+    @Test
+    public void registryChange_missesCache() {
+        newRunner(false).compile("1 + 2;");
+
+        ScriptRunner withBuiltin = newRunner(false);
+        withBuiltin.addBuiltin("extraBuiltin", args -> Value.of(0));
+        assertEquals(3, withBuiltin.executeWithResult("1 + 2;"));
+
+        ScriptRunner withOperator = newRunner(false);
+        withOperator.getOperatorRegistry().registerBinary("+", String.class, Integer.class, String.class, null);
+        assertEquals(3, withOperator.executeWithResult("1 + 2;"));
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cachedFiles());
+    }
+
+    @Test
+    public void classLoaderChange_missesCache() throws IOException {
+        newRunner(false).compile("1 + 2;");
+        try (URLClassLoader loader = new URLClassLoader(new URL[0], getClass().getClassLoader())) {
+            ScriptRunner runner = new ScriptRunner(loader);
+            runner.addImport("java.util.*");
+            runner.setScriptCache(cache);
+            assertEquals(3, runner.executeWithResult("1 + 2;"));
+        }
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cachedFiles());
+    }
+
+    @Test
+    public void cache_evictsLeastRecentlyUsed() {
+        ScriptCache small = new ScriptCache(dir, "lru", 2, ScriptCache.DEFAULT_MAX_BYTES);
+        small.write("key-a", new byte[]{1});
+        small.write("key-b", new byte[]{2});
+        assertTrue(new File(dir, "key-a.cyc").setLastModified(1_000_000L));
+        assertTrue(new File(dir, "key-b.cyc").setLastModified(2_000_000L));
+        assertNotNull(small.read("key-a"));
+
+        small.write("key-c", new byte[]{3});
+        assertNotNull(small.read("key-a"));
+        assertNull(small.read("key-b"));
+        assertNotNull(small.read("key-c"));
+        assertEquals(2, cachedFiles());
+    }
+
+    @Test
+    public void cache_boundsTotalBytes() {
+        ScriptCache small = new ScriptCache(dir, "bytes", 100, 10);
+        small.write("key-a", new byte[8]);
+        assertTrue(new File(dir, "key-a.cyc").setLastModified(1_000_000L));
+        small.write("key-b", new byte[8]);
+        assertNull(small.read("key-a"));
+        assertNotNull(small.read("key-b"));
+        assertThrows(IllegalArgumentException.class, () -> new ScriptCache(dir, "", 0, 10));
+    }
+
+    @Test
+    public void classDeclaration_isNotCached() {
+        String code = "class Box { int v = 3; int get() { return this.v; } }\nnew Box().get();";
+        assertEquals(3, newRunner(false).executeWithResult(code));
+        assertEquals(0, cachedFiles());
+        assertEquals(3, newRunner(false).executeWithResult(code));
+    }
+
+    @Test
+    public void directives_areNotCached() {
+        String code = "#define LIMIT 5\nLIMIT * 2;";
+        assertEquals(10, newRunner(false).executeWithResult(code));
+        assertEquals(0, cachedFiles());
+    }
+
+    @Test
+    public void corruptedEntry_fallsBackToSource() throws IOException {
+        String code = "var x = 6; x * 7;";
+        newRunner(false).compile(code);
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".cyc"));
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        try (FileOutputStream out = new FileOutputStream(files[0])) {
+            out.write(new byte[]{1, 2, 3, 4, 5});
+        }
+
+        assertEquals(42, newRunner(false).executeWithResult(code));
+        // 损坏的条目被丢弃并重新写入
+        assertEquals(1, cachedFiles());
+        assertEquals(42, newRunner(false).executeWithResult(code));
+    }
+
+    @Test
+    public void codec_rejectsUnsupportedAndMalformedInput() {
+        ScriptRunner runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        List<ASTNode> withClass = runner.tryParse("class Point2 { int x; }");
+        try {
+            ScriptCodec.encode(withClass, runner.getParseContext(), ScriptCodec.mark(runner.getParseContext()));
+            fail("类声明不应可编码");
+        } catch (NotSerializableException expected) {
+            // ok
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+
+        try {
+            ScriptCodec.decode(new byte[]{0x43, 0x59, 0x42, 0x43, 99}, runner.getParseContext());
+            fail("未知版本应被拒绝");
+        } catch (StreamCorruptedException expected) {
+            // ok
+        } catch (IOException e) {
+            fail(e.toString());
+        }
+    }
+}
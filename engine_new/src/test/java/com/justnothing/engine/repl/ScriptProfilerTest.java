@@ -0,0 +1,137 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.ast.nodes.FunctionCallNode;
+import com.justnothing.engine.codegen.CompileTier;
+import com.justnothing.engine.eval.ScriptProfiler;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 执行剖析器测试。
+ * <p>按节点、按源码行记录次数与耗时，调用树导出为 collapsed-stack。</p>
+ */
+public class ScriptProfilerTest {
+
+    private static final String FIB = """
+            function fib(n) {
+              if (n < 2) return n;
+              return fib(n - 1) + fib(n - 2);
+            }
+            var t = 0;
+            for (var i = 0; i < 50; i++) {
+              t = t + i;
+            }
+            fib(10);
+            """;
+
+    private ScriptRunner runner;
+    private ScriptProfiler profiler;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+        profiler = new ScriptProfiler();
+        runner.setProfiler(profiler);
+    }
+
+    private ScriptProfiler.LineProfile line(int number) {
+        for (ScriptProfiler.LineProfile line : profiler.lineProfiles()) {
+            if (line.line() == number) return line;
+        }
+        throw new AssertionError("no profile for line " + number);
+    }
+
+    @Test
+    public void countsHitsPerLine() {
+        assertEquals(55, runner.executeWithResult(FIB, "fib.cy"));
+        // fib(10) 共调用 177 次，其中 88 次走到第 3 行
+        assertEquals(177, line(2).hits());
+        assertEquals(88, line(3).hits());
+        assertEquals(50, line(7).hits());
+        assertEquals("fib.cy", line(7).source());
+        ScriptProfiler.LineProfile loop = line(6);
+        assertTrue(loop.totalNanos() >= line(7).totalNanos());
+        assertTrue(loop.totalNanos() >= loop.selfNanos());
+    }
+
+    @Test
+    public void hotFunctionsStayInterpretedWhileProfiling() {
+        int calls = CompileTier.DEFAULT_THRESHOLD * 5;
+        runner.executeWithResult("""
+                function sq(x) {
+                  return x * x;
+                }
+                var s = 0;
+                for (var i = 0; i < %d; i++) {
+                  s = s + sq(i);
+                }
+                s;
+                """.formatted(calls), "hot.cy");
+        // 超过编译阈值后函数体仍逐行计数
+        assertEquals(calls, line(2).hits());
+        assertEquals(calls, line(6).hits());
+    }
+
+    @Test
+    public void recursiveTotalsAreNotDoubleCounted() {
+        runner.executeWithResult(FIB, "fib.cy");
+        long wall = line(9).totalNanos();
+        // 递归中的同一行只在最外层计入总耗时，不会超过顶层调用本身
+        assertTrue(line(2).totalNanos() <= wall);
+        assertTrue(line(3).totalNanos() <= wall);
+        long calls = 0;
+        for (ScriptProfiler.NodeProfile node : profiler.nodeProfiles()) {
+            if (node.node() instanceof FunctionCallNode) {
+                calls += node.count();
+                assertTrue(node.totalNanos() <= wall);
+            }
+        }
+        assertEquals(177, calls);
+    }
+
+    @Test
+    public void collapsedStacksFollowCallPath() {
+        runner.executeWithResult(FIB, "fib.cy");
+        String stacks = profiler.toCollapsedStacks();
+        assertFalse(stacks.isEmpty());
+        for (String row : stacks.split("\n")) {
+            assertTrue(row, row.matches("(fib\\.cy:\\d+)(;fib\\.cy:\\d+)* \\d+"));
+        }
+        // 递归路径：调用行 -> 函数体 -> 递归调用行 -> 函数体 ...
+        assertTrue(stacks, stacks.contains("fib.cy:9;fib.cy:2;fib.cy:3;fib.cy:2"));
+    }
+
+    @Test
+    public void disabledAndReset() {
+        runner.executeWithResult("var x = 1;", "a.cy");
+        assertFalse(profiler.lineProfiles().isEmpty());
+        profiler.reset();
+        assertTrue(profiler.lineProfiles().isEmpty());
+        runner.setProfiler(null);
+        runner.executeWithResult("var y = 2;", "b.cy");
+        assertTrue(profiler.nodeProfiles().isEmpty());
+        assertTrue(profiler.formatHotLines(5).contains("(no samples)"));
+    }
+
+    @Test
+    public void isolatedFramesOnOtherThreadsAreMerged() throws Exception {
+        var script = runner.compile("var s = 0; for (var i = 0; i < 10; i++) { s = s + i; } s;", "iso.cy");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> runner.executeIsolated(script, Map.of()));
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        List<ScriptProfiler.LineProfile> lines = profiler.lineProfiles();
+        assertEquals(1, lines.size());
+        // 4 次执行，每次 3 条顶层语句各进入一次该行
+        assertEquals(12, lines.get(0).hits());
+    }
+}
@@ -161,6 +161,27 @@ public class SecurityModuleTest {
         assertFalse(c.hasFieldAccess("java.lang.System", "out"));
     }
 
+    @Test
+    public void checker_wildcardPatterns_precompiledSemantics() {
+        BasicPermissionChecker c = BasicPermissionChecker.builder()
+                .defaultAllow()
+                .denyClass("java.lang.*")
+                .denyMethod("java.lang.Class.getDeclared*", "*.secret*Key")
+                .denyField("Outer$Inner.get*")
+                .build();
+        // ".*" 规则按不带点的前缀匹配（与原实现一致，子包也被覆盖）
+        assertFalse(c.hasClassAccess("java.lang.reflect.Method"));
+        assertFalse(c.hasClassAccess("java.lang"));
+        assertTrue(c.hasClassAccess("java.util.List"));
+        // 中间 / 开头的 * 匹配任意字符
+        assertFalse(c.hasMethodAccess("java.lang.Class", "getDeclaredFields", "()"));
+        assertFalse(c.hasMethodAccess("com.example.Vault", "secretApiKey", "()"));
+        assertTrue(c.hasMethodAccess("com.example.Vault", "secretApi", "()"));
+        // 非 * 字符按字面匹配，$ 不是正则锚点
+        assertFalse(c.hasFieldAccess("Outer$Inner", "getter"));
+        assertTrue(c.hasFieldAccess("OuterXInner", "getter"));
+    }
+
     // ==================== 3. SandboxConfig 预置配置 ====================
 
     @Test
@@ -261,6 +282,61 @@ public class SecurityModuleTest {
         assertEquals(gate1.isEnabled(), gate2.isEnabled());
     }
 
+    @Test
+    public void securityGate_cachesAllowedTargetsForCacheableChecker() throws Exception {
+        CountingChecker counting = new CountingChecker(BasicPermissionChecker.builder()
+                .defaultAllow().denyMethod("java.lang.String.intern").build(), true);
+        SecurityGate gate = new SecurityGate(counting);
+        java.lang.reflect.Method length = String.class.getMethod("length");
+        gate.beforeMethodCall(length);
+        gate.beforeMethodCall(String.class.getMethod("length"));
+        gate.beforeClassAccess(String.class);
+        gate.beforeClassAccess(String.class);
+        assertEquals(2, counting.calls);
+
+        // 被拒绝的目标不缓存，每次都抛出检查器的异常
+        java.lang.reflect.Method intern = String.class.getMethod("intern");
+        for (int i = 0; i < 2; i++) {
+            try {
+                gate.beforeMethodCall(intern);
+                fail("intern should be denied");
+            } catch (SecurityException expected) {
+                assertTrue(expected.getMessage().contains("intern"));
+            }
+        }
+        assertEquals(4, counting.calls);
+
+        gate.invalidateCache();
+        gate.beforeMethodCall(length);
+        assertEquals(5, counting.calls);
+    }
+
+    /** 按名字缓存的类名有上限，脚本传入大量不同的字符串也不会让缓存无限增长。 */
+    @Test
+    public void securityGate_classNameCacheIsBounded() {
+        CountingChecker counting = new CountingChecker(BasicPermissionChecker.permissive(), true);
+        SecurityGate gate = new SecurityGate(counting);
+        for (int i = 0; i < 5000; i++) {
+            gate.beforeClassAccessByName("com.example.Generated" + i);
+        }
+        assertEquals(5000, counting.calls);
+
+        gate.beforeClassAccessByName("com.example.Generated0");
+        assertEquals("早先的类名仍命中缓存", 5000, counting.calls);
+        gate.beforeClassAccessByName("com.example.Generated4999");
+        assertEquals("超出上限的类名每次都交给检查器", 5001, counting.calls);
+    }
+
+    @Test
+    public void securityGate_doesNotCacheForNonCacheableChecker() throws Exception {
+        CountingChecker counting = new CountingChecker(BasicPermissionChecker.permissive(), false);
+        SecurityGate gate = new SecurityGate(counting);
+        java.lang.reflect.Method length = String.class.getMethod("length");
+        gate.beforeMethodCall(length);
+        gate.beforeMethodCall(length);
+        assertEquals(2, counting.calls);
+    }
+
     // ==================== 5. 端到端：ScriptRunner + SandboxConfig ====================
 
     @Test
@@ -365,6 +441,32 @@ public class SecurityModuleTest {
 
     // ==================== 工具方法 ====================
 
+    /** 统计 check* 调用次数的委托检查器。 */
+    private static final class CountingChecker implements IPermissionChecker {
+        private final IPermissionChecker delegate;
+        private final boolean cacheable;
+        int calls;
+
+        CountingChecker(IPermissionChecker delegate, boolean cacheable) {
+            this.delegate = delegate;
+            this.cacheable = cacheable;
+        }
+
+        @Override public boolean isCacheable() { return cacheable; }
+        @Override public boolean hasPermission(PermissionType t) { return delegate.hasPermission(t); }
+        @Override public boolean hasPermission(PermissionType t, String target) { return delegate.hasPermission(t, target); }
+        @Override public boolean hasClassAccess(String c) { return delegate.hasClassAccess(c); }
+        @Override public boolean hasMethodAccess(String c, String m, String s) { return delegate.hasMethodAccess(c, m, s); }
+        @Override public boolean hasFieldAccess(String c, String f) { return delegate.hasFieldAccess(c, f); }
+        @Override public boolean hasNewInstanceAccess(String c) { return delegate.hasNewInstanceAccess(c); }
+        @Override public void checkPermission(PermissionType t) { calls++; delegate.checkPermission(t); }
+        @Override public void checkPermission(PermissionType t, String target) { calls++; delegate.checkPermission(t, target); }
+        @Override public void checkClassAccess(String c) { calls++; delegate.checkClassAccess(c); }
+        @Override public void checkMethodAccess(String c, String m, String s) { calls++; delegate.checkMethodAccess(c, m, s); }
+        @Override public void checkFieldAccess(String c, String f) { calls++; delegate.checkFieldAccess(c, f); }
+        @Override public void checkNewInstance(String c) { calls++; delegate.checkNewInstance(c); }
+    }
+
     private static String getRootCauseMessage(Throwable t) {
         Throwable cause = t;
         while (cause.getCause() != null) cause = cause.getCause();
@@ -0,0 +1,238 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.nodes.BlockNode;
+import com.justnothing.engine.ast.nodes.ForNode;
+import com.justnothing.engine.ast.nodes.LambdaNode;
+import com.justnothing.engine.ast.nodes.VarDeclNode;
+import com.justnothing.engine.builtins.Lambda;
+import com.justnothing.engine.eval.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * 局部变量槽位解析（SlotResolver + EvalContext 槽位存储）回归测试。
+ * <p>
+ * 槽位只是快速路径，以下场景的结果必须与按名字查找完全一致：
+ * 遮蔽、闭包捕获、递归、块内写回外层变量、delete、REPL 跨输入的全局变量。
+ * </p>
+ */
+public class SlotResolutionTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    // ==================== 解析结果 ====================
+
+    @Test
+    public void blockLocals_getSlots() {
+        List<ASTNode> nodes = runner.tryParse("{ int a = 1; int b = 2; a + b; }");
+        assertNotNull(nodes);
+        BlockNode block = (BlockNode) nodes.get(0);
+        assertNotNull(block.getFrameLayout());
+        assertEquals(2, block.getFrameLayout().size());
+        VarDeclNode b = (VarDeclNode) block.getStatements().get(1);
+        assertNotNull(b.getSlot());
+        assertEquals(0, b.getSlot().depth());
+        assertEquals(1, b.getSlot().index());
+    }
+
+    @Test
+    public void globals_stayDynamic() {
+        List<ASTNode> nodes = runner.tryParse("int g = 1;");
+        assertNotNull(nodes);
+        assertNull(((VarDeclNode) nodes.get(0)).getSlot());
+    }
+
+    @Test
+    public void forLoop_hasOwnFrame() {
+        List<ASTNode> nodes = runner.tryParse("for (int i = 0; i < 3; i++) { int j = i; }");
+        assertNotNull(nodes);
+        ForNode loop = (ForNode) nodes.get(0);
+        assertNotNull(loop.getFrameLayout());
+        assertEquals(0, loop.getFrameLayout().indexOf("i"));
+    }
+
+    // ==================== 运行期语义 ====================
+
+    @Test
+    public void loopAccumulation() {
+        Object result = eval("""
+            int sum = 0;
+            for (int i = 0; i < 100; i++) {
+                int sq = i * i;
+                sum = sum + sq;
+            }
+            sum;
+            """);
+        assertEquals(328350, result);
+    }
+
+    @Test
+    public void nestedBlock_writesBackToOuterLocal() {
+        Object result = eval("""
+            int r = 0;
+            {
+                int x = 1;
+                { x = x + 10; }
+                r = x;
+            }
+            r;
+            """);
+        assertEquals(11, result);
+    }
+
+    @Test
+    public void lambdaParameterShadowsOuter() {
+        Object result = eval("""
+            int x = 1;
+            auto f = (x) -> x * 10;
+            f(5) + x;
+            """);
+        assertEquals(51, result);
+    }
+
+    @Test
+    public void closureCapturesEnclosingLocal() {
+        Object result = eval("""
+            auto make = (n) -> {
+                auto add = (k) -> n + k;
+                add;
+            };
+            auto f = make(10);
+            f(5);
+            """);
+        assertEquals(15, result);
+    }
+
+    @Test
+    public void recursiveFunctionInsideBlock() {
+        Object result = eval("""
+            int r = 0;
+            {
+                function fib(n) {
+                    if (n < 2) return n;
+                    return fib(n - 1) + fib(n - 2);
+                }
+                r = fib(15);
+            }
+            r;
+            """);
+        assertEquals(610, result);
+    }
+
+    @Test
+    public void forEachItem() {
+        Object result = eval("""
+            int total = 0;
+            for (auto v : List.of(1, 2, 3)) {
+                int w = v * 2;
+                total = total + w;
+            }
+            total;
+            """);
+        assertEquals(12, result);
+    }
+
+    @Test
+    public void switchCaseLocal() {
+        Object result = eval("""
+            auto s = "";
+            switch (2) {
+                case 2:
+                    auto tag = "two";
+                    s = tag;
+                    break;
+                default:
+                    s = "other";
+            }
+            s;
+            """);
+        assertEquals("two", result);
+    }
+
+    @Test
+    public void deleteLocalFallsBackToOuter() {
+        Object result = eval("""
+            int x = 1;
+            int r = 0;
+            {
+                int x = 2;
+                delete x;
+                r = x;
+            }
+            r;
+            """);
+        assertEquals(1, result);
+    }
+
+    @Test
+    public void globalsPersistAcrossInputs() {
+        eval("int counter = 0;");
+        eval("for (int i = 0; i < 5; i++) { counter++; }");
+        assertEquals(5, eval("counter;"));
+    }
+
+    // ==================== 闭包捕获 ====================
+
+    @Test
+    public void lambdaCapturesOnlyFreeVariables() {
+        List<ASTNode> nodes = runner.tryParse("var k = 3; var unused = 0; { int base = 10; var f = (x) -> x * base + k; }");
+        assertNotNull(nodes);
+        BlockNode block = (BlockNode) nodes.get(2);
+        LambdaNode lambda = (LambdaNode) ((VarDeclNode) block.getStatements().get(1)).getInitializer();
+        assertEquals(Arrays.asList("base", "k"), Arrays.asList(lambda.getCapturedNames()));
+    }
+
+    @Test
+    public void nestedLambdaCapturesThroughOuter() {
+        List<ASTNode> nodes = runner.tryParse("var g = 1; var f = (a) -> (b) -> a + b + g;");
+        assertNotNull(nodes);
+        LambdaNode outer = (LambdaNode) ((VarDeclNode) nodes.get(1)).getInitializer();
+        LambdaNode inner = (LambdaNode) outer.getBody();
+        assertEquals(Arrays.asList("g"), Arrays.asList(outer.getCapturedNames()));
+        assertEquals(Arrays.asList("a", "g"), Arrays.asList(inner.getCapturedNames()));
+    }
+
+    @Test
+    public void capturedVariablesReadLazily() {
+        Object f = eval("var n = 1; var other = 2; var f = (x) -> x + n; f;");
+        Lambda lambda = (Lambda) f;
+        eval("n = 5;");
+        Map<String, Value> captured = lambda.getCapturedVariables();
+        assertEquals(1, captured.size());
+        assertEquals(5, captured.get("n").asInt());
+        assertEquals(8, eval("f(3);"));
+    }
+
+    @Test
+    public void lambdasCreatedInLoopSeeCurrentValues() {
+        Object result = eval("""
+            var list = new ArrayList();
+            var total = 0;
+            for (int i = 0; i < 3; i++) {
+                int base = i * 10;
+                var add = (x) -> x + base;
+                list.add(add(i));
+            }
+            list;
+            """);
+        assertEquals(Arrays.asList(0, 11, 22), result);
+    }
+}
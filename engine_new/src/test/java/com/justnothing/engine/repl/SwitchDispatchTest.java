@@ -0,0 +1,97 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.CompiledScript;
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.ast.ASTNode;
+import com.justnothing.engine.ast.SwitchTable;
+import com.justnothing.engine.ast.nodes.SwitchNode;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * switch 查找表测试。
+ * <p>常量标签首次执行时建表按值查找；动态标签仍按顺序求值，多个标签相等时取最靠前的分支。</p>
+ */
+public class SwitchDispatchTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    private static String stateMachine(int cases) {
+        StringBuilder sb = new StringBuilder("function handle(what) { switch (what) {");
+        for (int i = 0; i < cases; i++) {
+            sb.append(" case ").append(i * 7).append(": return ").append(i).append(";");
+        }
+        return sb.append(" default: return -1; } }").toString();
+    }
+
+    @Test
+    public void manyIntCases() {
+        eval(stateMachine(40));
+        assertEquals(0, eval("handle(0);"));
+        assertEquals(39, eval("handle(273);"));
+        assertEquals(-1, eval("handle(5);"));
+        Object hits = eval("var n = 0; for (var i = 0; i < 300; i++) { if (handle(i) >= 0) n++; } n;");
+        assertEquals(40, hits);
+    }
+
+    @Test
+    public void charStringAndEnumLabels() {
+        assertEquals(2, eval("var c = 'b'; switch (c) { case 'a' -> 1; case 'b' -> 2; default -> 0; }"));
+        assertEquals("GET", eval("var m = \"get\"; switch (m) { case \"post\" -> \"POST\"; case \"get\" -> \"GET\"; default -> \"?\"; }"));
+        runner.setVariable("unit", java.util.concurrent.TimeUnit.MINUTES);
+        assertEquals(60, eval("switch (unit) { case java.util.concurrent.TimeUnit.SECONDS -> 1; "
+                + "case java.util.concurrent.TimeUnit.MINUTES -> 60; default -> 0; }"));
+        assertEquals(-1, eval("switch (Integer.MAX_VALUE) { case Integer.MIN_VALUE -> 1; case Integer.MAX_VALUE -> -1; default -> 0; }"));
+        // 类型不同的值不相等（与逐个 equals 比较相同）
+        assertEquals(0, eval("switch (97) { case 'a' -> 1; default -> 0; }"));
+    }
+
+    @Test
+    public void dynamicLabelsKeepOrder() {
+        eval("var calls = 0; function probe(v) { calls++; return v; }");
+        // 动态标签在常量命中分支之前：照常求值并优先
+        assertEquals("dynamic", eval("switch (3) { case probe(3) -> \"dynamic\"; case 3 -> \"constant\"; default -> \"none\"; }"));
+        // 常量分支在前：其后的动态标签不再求值
+        assertEquals("constant", eval("calls = 0; switch (3) { case 3 -> \"constant\"; case probe(3) -> \"dynamic\"; default -> \"none\"; }"));
+        assertEquals(0, eval("calls;"));
+        // 重复的常量标签取第一个
+        assertEquals(1, eval("switch (5) { case 5 -> 1; case 5 -> 2; default -> 0; }"));
+        assertEquals(2, eval("var k = 4; switch (4) { case 1: 1; case k: 2; default: 0; }"));
+    }
+
+    @Test
+    public void tableBuiltOnceAndReused() {
+        CompiledScript script = runner.compile("switch (x) { case 1: \"one\"; case 2: \"two\"; case y: \"y\"; default: \"other\"; }");
+        SwitchNode node = findSwitch(script);
+        assertNull(node.getSwitchTable());
+        runner.setVariable("x", 2);
+        runner.setVariable("y", 9);
+        assertEquals("two", runner.executeWithResult(script));
+        SwitchTable table = node.getSwitchTable();
+        assertNotNull(table);
+        assertEquals(2, table.constantCount());
+        assertArrayEquals(new int[]{2}, table.getDynamicCases());
+        runner.setVariable("x", 9);
+        assertEquals("y", runner.executeWithResult(script));
+        assertSame(table, node.getSwitchTable());
+    }
+
+    private static SwitchNode findSwitch(CompiledScript script) {
+        for (ASTNode node : script.getNodes()) {
+            if (node instanceof SwitchNode s) return s;
+        }
+        throw new AssertionError("no switch in script");
+    }
+}
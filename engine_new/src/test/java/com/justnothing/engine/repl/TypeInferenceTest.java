@@ -72,13 +72,16 @@ public class TypeInferenceTest {
     public void asyncLiteral_propagatesInnerType() throws Exception {
         ASTNode node = parseSingle("async 42");
         assertTrue("Should be AsyncNode", node instanceof AsyncNode);
-        assertType(node, int.class);  // async 保留内部表达式类型
+        // async 立即返回 future，内部表达式的类型作为泛型参数（装箱）
+        assertType(node, java.util.concurrent.CompletableFuture.class);
+        assertEquals(Integer.class, context.getType(node).getTypeArguments().get(0).getRawType());
     }
 
     @Test
     public void asyncString_propagatesStringType() throws Exception {
         ASTNode node = parseSingle("async \"hello\"");
-        assertType(node, String.class);
+        assertType(node, java.util.concurrent.CompletableFuture.class);
+        assertEquals(String.class, context.getType(node).getTypeArguments().get(0).getRawType());
     }
 
     @Test
@@ -0,0 +1,92 @@
+package com.justnothing.engine.repl;
+
+import com.justnothing.engine.ScriptRunner;
+import com.justnothing.engine.ast.nodes.LiteralNode;
+import com.justnothing.engine.eval.Value;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Value 装箱缓存与内置运算符基本类型快路径测试。
+ * <p>缓存只是分配优化：缓存范围内外、各种类型组合的运算结果都必须与原语义一致。</p>
+ */
+public class ValueCacheTest {
+
+    private ScriptRunner runner;
+
+    @Before
+    public void setUp() {
+        runner = new ScriptRunner();
+        runner.setStrictMode(false);
+    }
+
+    private Object eval(String code) {
+        return runner.executeWithResult(code);
+    }
+
+    @Test
+    public void smallValuesShared() {
+        assertSame(Value.ofInt(42), Value.ofInt(42));
+        assertSame(Value.ofInt(-128), Value.of(-128));
+        assertSame(Value.ofLong(7L), Value.of(7L));
+        assertSame(Value.ofChar('a'), Value.of('a'));
+        assertSame(Value.BooleanValue.TRUE, Value.of(true));
+        assertSame(Value.BooleanValue.FALSE, Value.ofBoolean(false));
+    }
+
+    @Test
+    public void largeValuesStillCorrect() {
+        assertNotSame(Value.ofInt(100000), Value.ofInt(100000));
+        assertEquals(Value.ofInt(100000), Value.ofInt(100000));
+        assertEquals(Integer.MIN_VALUE, Value.ofInt(Integer.MIN_VALUE).asInt());
+        assertEquals(Long.MAX_VALUE, Value.ofLong(Long.MAX_VALUE).asLong());
+        assertEquals('中', Value.ofChar('中').asChar());
+    }
+
+    @Test
+    public void literalValuePrecomputed() {
+        LiteralNode node = (LiteralNode) new LiteralNode.Builder().value(5).type(int.class).build();
+        assertSame(node.getConstant(), node.getConstant());
+        assertEquals(5, node.getConstant().asInt());
+        LiteralNode nil = (LiteralNode) new LiteralNode.Builder().value(null).type(Object.class).build();
+        assertSame(Value.NullValue.INSTANCE, nil.getConstant());
+    }
+
+    @Test
+    public void arithmeticAcrossCacheBoundary() {
+        assertEquals(1024, eval("1023 + 1;"));
+        assertEquals(-129, eval("-128 - 1;"));
+        assertEquals(2000000, eval("1000 * 2000;"));
+        assertEquals(Integer.MIN_VALUE, eval("2147483647 + 1;"));
+        assertEquals(3L, eval("1L + 2;"));
+        assertEquals(2.5, eval("var d = 2.0; 5 / d;"));
+        assertEquals(2, eval("5 / 2;"));
+        assertEquals(-1, eval("-7 % 3 + 0;"));
+    }
+
+    @Test
+    public void comparisonsAndLogic() {
+        assertEquals(true, eval("3 < 5;"));
+        assertEquals(false, eval("var x = 5L; x <= 3;"));
+        assertEquals(true, eval("var y = 2.5; y > 2;"));
+        assertEquals(-1, eval("1 <=> 2;"));
+        assertEquals(true, eval("1 == 1 && 2 != 3;"));
+    }
+
+    @Test
+    public void stringConcatenationFormatsPrimitives() {
+        assertEquals("a1", eval("\"a\" + 1;"));
+        assertEquals("x2.5", eval("\"x\" + 2.5;"));
+        assertEquals("btrue", eval("\"b\" + true;"));
+        assertEquals("cz", eval("\"c\" + 'z';"));
+        assertEquals("n3", eval("\"n\" + 3L;"));
+    }
+
+    @Test
+    public void loopCounterResults() {
+        assertEquals(499500, eval("var s = 0; for (var i = 0; i < 1000; i++) { s = s + i; } s;"));
+        assertEquals(-5, eval("var n = 5; -n;"));
+    }
+}